@@ -0,0 +1,639 @@
+package poised;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The ApiServer class serves {@link ProjectManager} operations as a JSON API over HTTP, so many
+ * clients can work with the projects through one process and one connection pool instead of each
+ * running its own console. Every request is handled on its own virtual thread.
+ *
+ * <pre>
+ * POST  /projects                          Add a project; 201 with the project
+ * GET   /projects/{number}                 Find a project
+ * PATCH /projects/{number}                 Update the given fields; 200 with the project
+ * POST  /projects/{number}/finalize        Finalise a project; 204
+ * GET   /projects/incomplete               List the incomplete projects
+ * GET   /projects/overdue                  List the overdue projects
+ * GET   /{architects|contractors|customers}/{id}/projects[?open=true]
+ *                                          List a participant's projects
+ * </pre>
+ *
+ * <p>
+ * Projects are read and written as flat JSON objects whose members are named as the batch mode's
+ * fields: {@code number}, {@code name}, {@code buildingType}, {@code address}, {@code erfNumber},
+ * {@code totalFee}, {@code amountPaid}, {@code deadline}, {@code architectId},
+ * {@code contractorId} and {@code customerId}, with {@code completionDate} and {@code version} in
+ * responses. An update may give the {@code version} it was based on, in which case it fails with
+ * 409 if the project has been written since; without one, it is retried on the latest version. A
+ * finalisation may give a {@code completionDate}, which defaults to today. Errors are returned as
+ * {@code {"error": "..."}}: 503 when the database cannot be reached or is too busy, and 500 for
+ * other failures.
+ *
+ * <p>
+ * The lists are written as a JSON array while they are read, one page at a time, so neither the
+ * server nor the client needs to hold the whole list. The status is only sent with the first
+ * page, so a list that cannot be read at all gets an error status; if a later page fails, the
+ * response is cut off without closing the array, so the client never mistakes it for the whole
+ * list.
+ *
+ * <p>
+ * Each request reads and writes in a {@link ReadSession} of its own. A write answers with the
+ * session's position in the {@code Poised-Read-After} header, and a client that sends it back with
+ * later requests has their reads served only by read replicas that have caught up with the write.
+ * As in {@link AsyncProjectManager}, only as many requests run at once as the connection
+ * pool has connections; the rest wait on their virtual threads.
+ */
+public class ApiServer implements AutoCloseable {
+	// The port used when poised.http.port is not set
+	private static final int DEFAULT_PORT = 8080;
+
+	// Attempts at an update that does not name the version it was based on
+	private static final int UPDATE_ATTEMPTS = 3;
+
+	// Request bodies are single flat objects, so anything larger is rejected
+	private static final int MAX_BODY_BYTES = 64 * 1024;
+
+	// Carries a client's ReadSession position from a write to its later requests
+	private static final String READ_AFTER_HEADER = "Poised-Read-After";
+
+	private final ProjectManager projectManager;
+	private final HttpServer server;
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	private final Semaphore permits;
+
+	/**
+	 * Constructs a new ApiServer that runs at most as many requests at once as the connection pool
+	 * has connections. The server does not accept requests until it is started.
+	 *
+	 * @param projectManager The manager that performs the operations.
+	 * @param address        The address to listen on.
+	 * @throws IOException If the address cannot be bound.
+	 */
+	public ApiServer(ProjectManager projectManager, InetSocketAddress address) throws IOException {
+		this(projectManager, address, DatabaseConnection.getMaxPoolSize());
+	}
+
+	/**
+	 * Constructs a new ApiServer with an explicit concurrency limit.
+	 *
+	 * @param projectManager The manager that performs the operations.
+	 * @param address        The address to listen on.
+	 * @param maxConcurrency The maximum number of requests that may run at once.
+	 * @throws IOException If the address cannot be bound.
+	 */
+	public ApiServer(ProjectManager projectManager, InetSocketAddress address, int maxConcurrency)
+			throws IOException {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("Concurrency limit must be positive: " + maxConcurrency);
+		}
+		this.projectManager = projectManager;
+		this.permits = new Semaphore(maxConcurrency);
+		this.server = HttpServer.create(address, 0);
+		server.createContext("/", this::handle);
+		server.setExecutor(executor);
+	}
+
+	/**
+	 * Serves the API on the port given as the first argument, or by the {@code poised.http.port}
+	 * system property (default 8080), against the storage chosen by the {@code poised.storage}
+	 * system property, until the process is stopped.
+	 *
+	 * @param args The port to listen on, if any.
+	 */
+	public static void main(String[] args) {
+		int port = args.length > 0 ? Integer.parseInt(args[0])
+				: Integer.getInteger("poised.http.port", DEFAULT_PORT);
+		try {
+			ProjectRepository repository = ProjectRepository.fromSystemProperties();
+			if (repository instanceof JdbcProjectRepository) {
+				new SchemaMigrator().migrate();
+			}
+			ApiServer server = new ApiServer(new ProjectManager(repository),
+					new InetSocketAddress(port));
+			// Finish running requests and release the storage when the process is stopped
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				server.close();
+				try {
+					repository.close();
+				} catch (SQLException e) {
+					// Print stack trace for debugging
+					e.printStackTrace();
+				}
+			}, "poised-api-shutdown"));
+			server.start();
+			System.out.println("Serving the Poised API on port " + server.getPort());
+		} catch (IOException | SQLException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Starts accepting requests.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Gets the port the server listens on, which is useful when it was started on port 0.
+	 *
+	 * @return The port.
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Stops accepting requests, waits up to a second for running requests to finish and then stops
+	 * the handler threads.
+	 */
+	@Override
+	public void close() {
+		server.stop(1);
+		executor.close();
+	}
+
+	/**
+	 * Routes a request to its operation and writes any error as JSON.
+	 *
+	 * @param exchange The request and its response.
+	 * @throws IOException If the client went away, or a response already under way failed and
+	 *                     must be cut off; the server then closes the connection.
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			permits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			exchange.close();
+			return;
+		}
+		ReadSession.Scope scope = null;
+		try {
+			scope = readSession(exchange).bind();
+			route(exchange);
+		} catch (ApiException e) {
+			fail(exchange, e.status, e.getMessage(), e);
+		} catch (IllegalArgumentException e) {
+			fail(exchange, 400, e.getMessage(), e);
+		} catch (SQLException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+			if (isUnavailable(e)) {
+				fail(exchange, 503, "The database is unavailable; try again later", e);
+			} else {
+				fail(exchange, 500, "The database could not complete the request", e);
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} catch (RuntimeException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+			fail(exchange, 500, "Internal server error", e);
+		} finally {
+			// Unbind the session before the thread serves another request
+			if (scope != null) {
+				scope.close();
+			}
+			permits.release();
+		}
+		exchange.close();
+	}
+
+	/**
+	 * Starts the session a request reads and writes in, from the position the client sent, if any.
+	 *
+	 * @throws IllegalArgumentException If the position is not a number.
+	 */
+	private static ReadSession readSession(HttpExchange exchange) {
+		String position = exchange.getRequestHeaders().getFirst(READ_AFTER_HEADER);
+		if (position == null) {
+			return new ReadSession();
+		}
+		try {
+			return new ReadSession(Long.parseLong(position.strip()));
+		} catch (NumberFormatException e) {
+			throw new ApiException(400, READ_AFTER_HEADER + " must be a number: " + position);
+		}
+	}
+
+	/**
+	 * Tells the client the position its write reached, so that it can read the write back from the
+	 * replicas. Nothing is sent if no position was noted, as when no replica is in use.
+	 */
+	private static void sendPosition(HttpExchange exchange) {
+		long position = ReadSession.current().getPosition();
+		if (position != Long.MIN_VALUE) {
+			exchange.getResponseHeaders().set(READ_AFTER_HEADER, Long.toString(position));
+		}
+	}
+
+	/**
+	 * Answers a request that failed with an error, or cuts off its response if the status has
+	 * already been sent.
+	 *
+	 * @throws IOException If the response had started, so that the connection is closed without
+	 *                     ending it, or if the error cannot be written.
+	 */
+	private static void fail(HttpExchange exchange, int status, String message, Exception cause)
+			throws IOException {
+		if (exchange.getResponseCode() != -1) {
+			throw new IOException("Response cut off after it started", cause);
+		}
+		sendError(exchange, status, message);
+	}
+
+	/**
+	 * Tells whether a failure is one the client may retry later: the database could not be
+	 * reached, every connection was busy or the transaction lost a race.
+	 */
+	private static boolean isUnavailable(SQLException e) {
+		String state = e.getSQLState();
+		return e instanceof SQLTransientException || e instanceof SQLRecoverableException
+				|| e instanceof SQLNonTransientConnectionException
+				|| state != null && state.startsWith("08");
+	}
+
+	/**
+	 * Runs the operation a request names.
+	 *
+	 * @param exchange The request and its response.
+	 * @throws IOException  If the request cannot be read or the response written.
+	 * @throws SQLException If the storage fails.
+	 */
+	private void route(HttpExchange exchange) throws IOException, SQLException {
+		String method = exchange.getRequestMethod();
+		String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/+");
+		Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+		if (path[0].equals("projects")) {
+			if (path.length == 1) {
+				allow(exchange, "POST");
+				addProject(exchange);
+			} else if (path.length == 2 && path[1].equals("incomplete")) {
+				allow(exchange, "GET");
+				streamArray(exchange, projectManager::readIncompleteProjects, ApiServer::summaryJson);
+			} else if (path.length == 2 && path[1].equals("overdue")) {
+				allow(exchange, "GET");
+				streamArray(exchange, projectManager::readOverdueProjects, ApiServer::summaryJson);
+			} else if (path.length == 2) {
+				int projectNumber = pathNumber(path[1]);
+				allow(exchange, "GET", "PATCH");
+				if (method.equals("GET")) {
+					findProject(exchange, projectNumber);
+				} else {
+					updateProject(exchange, projectNumber);
+				}
+			} else if (path.length == 3 && path[2].equals("finalize")) {
+				allow(exchange, "POST");
+				finalizeProject(exchange, pathNumber(path[1]));
+			} else {
+				throw new ApiException(404, "No such resource");
+			}
+			return;
+		}
+
+		ParticipantRole role = switch (path[0]) {
+		case "architects" -> ParticipantRole.ARCHITECT;
+		case "contractors" -> ParticipantRole.CONTRACTOR;
+		case "customers" -> ParticipantRole.CUSTOMER;
+		default -> throw new ApiException(404, "No such resource");
+		};
+		if (path.length != 3 || !path[2].equals("projects")) {
+			throw new ApiException(404, "No such resource");
+		}
+		allow(exchange, "GET");
+		int participantId = pathNumber(path[1]);
+		boolean openOnly = Boolean.parseBoolean(query.get("open"));
+		streamArray(exchange, consumer -> projectManager.readProjectsByParticipant(role,
+				participantId, openOnly, consumer), ApiServer::projectJson);
+	}
+
+	/**
+	 * Adds the project in the request body.
+	 */
+	private void addProject(HttpExchange exchange) throws IOException, SQLException {
+		Map<String, String> values = readObject(exchange);
+		Project project = ProjectFields.toProject(values);
+		rejectUnknown(values);
+
+		BulkImportResult result = projectManager.addProjects(List.of(project));
+		if (result.isAborted()) {
+			throw result.getAbortCause();
+		}
+		if (!result.getFailedRows().isEmpty()) {
+			throw new ApiException(409, result.getFailedRows().get(0).getCause().getMessage());
+		}
+		if (result.getInsertedCount() == 0) {
+			throw new ApiException(500, "Project could not be added");
+		}
+		exchange.getResponseHeaders().set("Location", "/projects/" + project.getProjectNumber());
+		sendPosition(exchange);
+		sendJson(exchange, 201, projectJson(project));
+	}
+
+	/**
+	 * Returns a project.
+	 */
+	private void findProject(HttpExchange exchange, int projectNumber)
+			throws IOException, SQLException {
+		Project project = projectManager.readProjectByNumber(projectNumber);
+		if (project == null) {
+			throw new ApiException(404, "Project " + projectNumber + " not found");
+		}
+		sendJson(exchange, 200, projectJson(project));
+	}
+
+	/**
+	 * Applies the fields in the request body to a project. If the body names a {@code version},
+	 * the update only applies to that version; otherwise a lost race with another writer is
+	 * retried on the latest version.
+	 */
+	private void updateProject(HttpExchange exchange, int projectNumber)
+			throws IOException, SQLException {
+		Map<String, String> values = readObject(exchange);
+		String version = values.remove("version");
+		Integer expectedVersion = version == null ? null : ProjectFields.parseInt(version, "version");
+		values.remove("number");
+		Consumer<Project> edit = ProjectFields.toEdit(values);
+
+		UpdateResult result = UpdateResult.CONFLICT;
+		Project project = null;
+		for (int attempt = 0; attempt < UPDATE_ATTEMPTS && result == UpdateResult.CONFLICT; attempt++) {
+			// Read from the primary, so a version the client just got back from a write is current
+			project = projectManager.readLatestProjectByNumber(projectNumber);
+			if (project == null) {
+				break;
+			}
+			if (expectedVersion != null && project.getVersion() != expectedVersion) {
+				break;
+			}
+			edit.accept(project);
+			result = projectManager.saveProject(project);
+			if (expectedVersion != null) {
+				break;
+			}
+		}
+		if (project == null) {
+			result = UpdateResult.NOT_FOUND;
+		}
+		checkResult(projectNumber, result);
+		sendPosition(exchange);
+		sendJson(exchange, 200, projectJson(project));
+	}
+
+	/**
+	 * Finalises a project on the date in the request body, or today.
+	 */
+	private void finalizeProject(HttpExchange exchange, int projectNumber)
+			throws IOException, SQLException {
+		Map<String, String> values = readObject(exchange);
+		java.sql.Date completionDate = ProjectFields.dateOrToday(values.remove("completionDate"));
+		rejectUnknown(values);
+
+		checkResult(projectNumber, projectManager.saveFinalization(projectNumber, completionDate));
+		sendPosition(exchange);
+		exchange.sendResponseHeaders(204, -1);
+	}
+
+	/**
+	 * Turns a write that did not succeed into an error.
+	 *
+	 * @throws ApiException If the project was not found, was written by another user first or could
+	 *                      not be saved.
+	 */
+	private static void checkResult(int projectNumber, UpdateResult result) {
+		switch (result) {
+		case UPDATED, UNCHANGED -> {
+		}
+		case NOT_FOUND -> throw new ApiException(404, "Project " + projectNumber + " not found");
+		case CONFLICT -> throw new ApiException(409,
+				"Project " + projectNumber + " was changed by another user");
+		default -> throw new ApiException(500, "Project " + projectNumber + " could not be saved");
+		}
+	}
+
+	/**
+	 * Writes the items a list operation produces as a JSON array while they are read. The response
+	 * is sent in chunks, starting with the first item, so it starts before the list has been read
+	 * but not before the list is known to be readable.
+	 *
+	 * @param exchange The request and its response.
+	 * @param list     Runs the list operation with a consumer for its items.
+	 * @param toJson   Writes one item as a JSON object.
+	 * @throws IOException  If the response cannot be written.
+	 * @throws SQLException If the list cannot be read. The response has been started if any item
+	 *                      was read.
+	 */
+	private static <T> void streamArray(HttpExchange exchange, ListOperation<T> list,
+			Function<T, String> toJson) throws IOException, SQLException {
+		Writer[] out = { null };
+		list.run(item -> {
+			try {
+				if (out[0] == null) {
+					out[0] = startArray(exchange);
+					out[0].write("\n");
+				} else {
+					out[0].write(",\n");
+				}
+				out[0].write(toJson.apply(item));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		if (out[0] == null) {
+			out[0] = startArray(exchange);
+		}
+		out[0].write("\n]\n");
+		out[0].flush();
+	}
+
+	/**
+	 * Sends the status and headers of a streamed JSON array and opens the array.
+	 *
+	 * @return The writer for the rest of the array.
+	 */
+	private static Writer startArray(HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(200, 0);
+		Writer out = new BufferedWriter(
+				new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 1 << 16);
+		out.write('[');
+		return out;
+	}
+
+	/**
+	 * Writes a JSON response with a known length.
+	 */
+	private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+		byte[] body = (json + "\n").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * Writes an error as {@code {"error": "..."}}.
+	 */
+	private static void sendError(HttpExchange exchange, int status, String message)
+			throws IOException {
+		sendJson(exchange, status, "{\"error\": " + Json.quote(message) + "}");
+	}
+
+	/**
+	 * Reads the request body as a flat JSON object. An empty body is read as an empty object.
+	 *
+	 * @throws ApiException If the body is too large.
+	 */
+	private static Map<String, String> readObject(HttpExchange exchange) throws IOException {
+		byte[] body;
+		// Try-with-resources to ensure resources are closed automatically
+		try (InputStream in = exchange.getRequestBody()) {
+			body = in.readNBytes(MAX_BODY_BYTES + 1);
+		}
+		if (body.length > MAX_BODY_BYTES) {
+			throw new ApiException(413, "Request body is larger than " + MAX_BODY_BYTES + " bytes");
+		}
+		String text = new String(body, StandardCharsets.UTF_8).strip();
+		return text.isEmpty() ? new HashMap<>() : Json.parseObject(text);
+	}
+
+	/**
+	 * Parses a query string into its parameters.
+	 */
+	private static Map<String, String> parseQuery(String rawQuery) {
+		Map<String, String> query = new HashMap<>();
+		if (rawQuery == null) {
+			return query;
+		}
+		for (String parameter : rawQuery.split("&")) {
+			int equals = parameter.indexOf('=');
+			String name = equals < 0 ? parameter : parameter.substring(0, equals);
+			String value = equals < 0 ? "" : parameter.substring(equals + 1);
+			query.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+					URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+		return query;
+	}
+
+	private static void allow(HttpExchange exchange, String... allowed) {
+		String method = exchange.getRequestMethod();
+		if (!List.of(allowed).contains(method)) {
+			exchange.getResponseHeaders().set("Allow", String.join(", ", allowed));
+			throw new ApiException(405, "Method " + method + " is not allowed, use "
+					+ String.join(" or ", allowed));
+		}
+	}
+
+	private static int pathNumber(String segment) {
+		try {
+			return Integer.parseInt(segment);
+		} catch (NumberFormatException e) {
+			throw new ApiException(404, "No such resource");
+		}
+	}
+
+	private static void rejectUnknown(Map<String, String> values) {
+		if (!values.isEmpty()) {
+			throw new IllegalArgumentException("Unknown fields: " + values.keySet());
+		}
+	}
+
+	/**
+	 * Writes a project as a JSON object. A participant the project lacks is written as
+	 * {@code null}.
+	 *
+	 * @param project The project.
+	 * @return The object.
+	 */
+	static String projectJson(Project project) {
+		return new StringBuilder(256)
+				.append("{\"number\": ").append(project.getProjectNumber())
+				.append(", \"name\": ").append(Json.quote(project.getProjectName()))
+				.append(", \"buildingType\": ").append(Json.quote(project.getBuildingType()))
+				.append(", \"address\": ").append(Json.quote(project.getAddress()))
+				.append(", \"erfNumber\": ").append(Json.quote(project.getErfNumber()))
+				.append(", \"totalFee\": ").append(Money.format(project.getTotalFeeCents()))
+				.append(", \"amountPaid\": ").append(Money.format(project.getAmountPaidCents()))
+				.append(", \"deadline\": ").append(dateJson(project.getDeadline()))
+				.append(", \"completionDate\": ").append(dateJson(project.getCompletionDate()))
+				.append(", \"architectId\": ").append(project.getArchitect() == null ? "null"
+						: Integer.toString(project.getArchitect().getId()))
+				.append(", \"contractorId\": ").append(project.getContractor() == null ? "null"
+						: Integer.toString(project.getContractor().getId()))
+				.append(", \"customerId\": ").append(project.getCustomer() == null ? "null"
+						: Integer.toString(project.getCustomer().getId()))
+				.append(", \"version\": ").append(project.getVersion())
+				.append('}').toString();
+	}
+
+	/**
+	 * Writes a project summary as a JSON object.
+	 *
+	 * @param summary The summary.
+	 * @return The object.
+	 */
+	static String summaryJson(ProjectSummary summary) {
+		return new StringBuilder(160)
+				.append("{\"number\": ").append(summary.getProjectNumber())
+				.append(", \"name\": ").append(Json.quote(summary.getProjectName()))
+				.append(", \"buildingType\": ").append(Json.quote(summary.getBuildingType()))
+				.append(", \"address\": ").append(Json.quote(summary.getAddress()))
+				.append(", \"deadline\": ").append(dateJson(summary.getDeadline()))
+				.append('}').toString();
+	}
+
+	private static String dateJson(java.util.Date date) {
+		return date == null ? "null" : Json.quote(new java.sql.Date(date.getTime()).toString());
+	}
+
+	/**
+	 * A list operation that passes each item to a consumer and throws if the list cannot be read.
+	 */
+	@FunctionalInterface
+	private interface ListOperation<T> {
+		void run(Consumer<T> consumer) throws SQLException;
+	}
+
+	/**
+	 * An error that is returned to the client with its own HTTP status.
+	 */
+	private static final class ApiException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private final int status;
+
+		ApiException(int status, String message) {
+			super(message);
+			this.status = status;
+		}
+	}
+}
@@ -0,0 +1,236 @@
+package poised;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * The AsyncProjectManager class is a non-blocking facade over {@link ProjectManager}. Each
+ * operation runs on its own virtual thread and returns a {@link CompletableFuture}, so independent
+ * lookups, such as a project's three participants, run in parallel rather than one after another.
+ *
+ * <p>
+ * Each operation runs in the caller's {@link ReadSession}, so reads see the caller's earlier writes
+ * even when they are served by read replicas.
+ *
+ * <p>
+ * Every operation holds a database connection while it runs, so the number of operations running at
+ * once is limited to the size of the connection pool. Further operations wait on their virtual
+ * threads, which costs no platform threads, instead of queueing inside the pool.
+ *
+ * <p>
+ * Nothing is printed. An operation that cannot read or write the storage completes its future
+ * exceptionally with the {@link SQLException}, wrapped in a {@link CompletionException}, so a
+ * missing project is told apart from a failure.
+ */
+public class AsyncProjectManager implements AutoCloseable {
+	private final ProjectManager projectManager;
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	private final Semaphore permits;
+
+	/**
+	 * Constructs a new AsyncProjectManager that runs at most as many operations at once as the
+	 * connection pool has connections.
+	 *
+	 * @param projectManager The manager that performs the operations.
+	 */
+	public AsyncProjectManager(ProjectManager projectManager) {
+		this(projectManager, DatabaseConnection.getMaxPoolSize());
+	}
+
+	/**
+	 * Constructs a new AsyncProjectManager with an explicit concurrency limit.
+	 *
+	 * @param projectManager The manager that performs the operations.
+	 * @param maxConcurrency The maximum number of operations that may run at once.
+	 */
+	public AsyncProjectManager(ProjectManager projectManager, int maxConcurrency) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("Concurrency limit must be positive: " + maxConcurrency);
+		}
+		this.projectManager = projectManager;
+		this.permits = new Semaphore(maxConcurrency);
+	}
+
+	/**
+	 * Adds a new project to the database.
+	 *
+	 * @param project The {@link Project} object containing the details of the project to be added.
+	 * @return A future that completes when the project has been added.
+	 */
+	public CompletableFuture<Void> addProject(Project project) {
+		return supply(() -> {
+			projectManager.saveNewProject(project);
+			return null;
+		});
+	}
+
+	/**
+	 * Updates an existing project in the database.
+	 *
+	 * @param project The {@link Project} object containing the updated details of the project.
+	 * @return A future holding how the update turned out.
+	 */
+	public CompletableFuture<UpdateResult> updateProject(Project project) {
+		return supply(() -> projectManager.saveProject(project));
+	}
+
+	/**
+	 * Finalises a project by setting its completion date in the database.
+	 *
+	 * @param projectNumber  The project number of the project to be finalised.
+	 * @param completionDate The completion date to be set for the project.
+	 * @return A future holding how the finalisation turned out.
+	 */
+	public CompletableFuture<UpdateResult> finalizeProject(int projectNumber,
+			java.util.Date completionDate) {
+		return supply(() -> projectManager.saveFinalization(projectNumber, completionDate));
+	}
+
+	/**
+	 * Deletes a project from the database.
+	 *
+	 * @param projectNumber The project number of the project to be deleted.
+	 * @return A future holding {@code true} if the project was deleted, or {@code false} if it was
+	 *         not found.
+	 */
+	public CompletableFuture<Boolean> deleteProject(int projectNumber) {
+		return supply(() -> projectManager.saveDeletion(projectNumber));
+	}
+
+	/**
+	 * Finds a project by its number.
+	 *
+	 * @param projectNumber The number of the project to be found.
+	 * @return A future holding the {@link Project}, or {@code null} if it was not found.
+	 */
+	public CompletableFuture<Project> findProjectByNumber(int projectNumber) {
+		return supply(() -> projectManager.readProjectByNumber(projectNumber));
+	}
+
+	/**
+	 * Finds a project by its name.
+	 *
+	 * @param projectName The name of the project to be found.
+	 * @return A future holding the {@link Project}, or {@code null} if it was not found.
+	 */
+	public CompletableFuture<Project> findProjectByName(String projectName) {
+		return supply(() -> projectManager.readProjectByName(projectName));
+	}
+
+	/**
+	 * Finds many projects by their numbers with the batched lookup in
+	 * {@link ProjectManager#readProjectsByNumbers(Collection)}.
+	 *
+	 * @param projectNumbers The numbers of the projects to be found.
+	 * @return A future holding the projects found, keyed by project number in the order the numbers
+	 *         were given. Numbers with no project are left out.
+	 */
+	public CompletableFuture<Map<Integer, Project>> findProjectsByNumbers(
+			Collection<Integer> projectNumbers) {
+		return supply(() -> projectManager.readProjectsByNumbers(projectNumbers));
+	}
+
+	/**
+	 * Finds an architect by their ID.
+	 *
+	 * @param architectId The ID of the architect to be found.
+	 * @return A future holding the {@link Architect}, or {@code null} if they were not found.
+	 */
+	public CompletableFuture<Architect> findArchitectById(int architectId) {
+		return supply(() -> projectManager.readArchitectById(architectId));
+	}
+
+	/**
+	 * Finds a contractor by their ID.
+	 *
+	 * @param contractorId The ID of the contractor to be found.
+	 * @return A future holding the {@link Contractor}, or {@code null} if they were not found.
+	 */
+	public CompletableFuture<Contractor> findContractorById(int contractorId) {
+		return supply(() -> projectManager.readContractorById(contractorId));
+	}
+
+	/**
+	 * Finds a customer by their ID.
+	 *
+	 * @param customerId The ID of the customer to be found.
+	 * @return A future holding the {@link Customer}, or {@code null} if they were not found.
+	 */
+	public CompletableFuture<Customer> findCustomerById(int customerId) {
+		return supply(() -> projectManager.readCustomerById(customerId));
+	}
+
+	/**
+	 * Finds one page of incomplete projects, ordered by project number.
+	 *
+	 * @param afterProjectNumber The last project number of the previous page, or
+	 *                           {@link Integer#MIN_VALUE} for the first page.
+	 * @param limit              The maximum number of projects to return.
+	 * @return A future holding the page of projects.
+	 */
+	public CompletableFuture<List<ProjectSummary>> findIncompleteProjects(int afterProjectNumber,
+			int limit) {
+		return supply(() -> projectManager.readIncompleteProjects(afterProjectNumber, limit));
+	}
+
+	/**
+	 * Finds one page of overdue projects, ordered by deadline and then project number.
+	 *
+	 * @param afterDeadline      The deadline of the last project on the previous page, or
+	 *                           {@code null} for the first page.
+	 * @param afterProjectNumber The project number of the last project on the previous page.
+	 * @param limit              The maximum number of projects to return.
+	 * @return A future holding the page of projects.
+	 */
+	public CompletableFuture<List<ProjectSummary>> findOverdueProjects(java.util.Date afterDeadline,
+			int afterProjectNumber, int limit) {
+		return supply(() -> projectManager.readOverdueProjects(afterDeadline, afterProjectNumber, limit));
+	}
+
+	/**
+	 * Waits for running operations to finish and stops accepting new ones.
+	 */
+	@Override
+	public void close() {
+		executor.close();
+	}
+
+	/**
+	 * Runs an operation on a virtual thread, within the concurrency limit.
+	 *
+	 * @param operation The operation to run.
+	 * @return A future holding the operation's result, or completed exceptionally with what it
+	 *         threw.
+	 */
+	private <T> CompletableFuture<T> supply(Callable<T> operation) {
+		ReadSession session = ReadSession.current();
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				permits.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CompletionException(e);
+			}
+			ReadSession.Scope scope = session.bind();
+			try {
+				return operation.call();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			} finally {
+				// Unbind the session before the thread runs anything else
+				scope.close();
+				permits.release();
+			}
+		}, executor);
+	}
+}
@@ -0,0 +1,539 @@
+package poised;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The BatchRunner class runs PoisedPMS commands read from a file or standard input, for nightly
+ * jobs and other scripts that would otherwise have to drive the interactive menu. Each line holds
+ * one command, either as CSV or as a flat JSON object:
+ *
+ * <pre>
+ * add,42,Smith House,House,"12 Main Road, Cape Town",ERF42,250000.00,0.00,2030-06-30,1,1,1
+ * update,42,amountPaid=50000.00,deadline=2030-09-30
+ * {"op": "finalize", "number": 42, "completionDate": "2030-09-01"}
+ * delete,42
+ * find,42
+ * projects,contractor,7,open
+ * incomplete
+ * overdue
+ * fees
+ * </pre>
+ *
+ * <p>
+ * The JSON members are named as the CSV columns: {@code number}, {@code name},
+ * {@code buildingType}, {@code address}, {@code erfNumber}, {@code totalFee}, {@code amountPaid},
+ * {@code deadline}, {@code architectId}, {@code contractorId} and {@code customerId} for
+ * {@code add} and {@code update}; {@code completionDate} for {@code finalize}, which defaults to
+ * today; and {@code role}, {@code participantId} and {@code openOnly} for {@code projects}. Blank
+ * lines and lines starting with {@code #} are skipped.
+ *
+ * <p>
+ * Consecutive adds are sent as one bulk import, and consecutive updates, finalisations and deletes
+ * are read with one query and written as one {@link UnitOfWork}, in groups of up to
+ * {@code poised.batch.size} commands (default 500). A group is sent early when a read follows it or
+ * when a later command touches a project already in it, so every command sees the ones before it.
+ * Listings are written to standard output through a buffer; failures, each with its line number,
+ * and a closing summary go to standard error. A command that cannot read or write the storage
+ * fails on its own and the run goes on.
+ */
+public class BatchRunner {
+	// Commands grouped into one bulk import or unit of work
+	private static final int BATCH_SIZE = Integer.getInteger("poised.batch.size", 500);
+
+	// CSV columns of each command after the command name; update is followed by name=value pairs
+	private static final Map<String, List<String>> CSV_COLUMNS = Map.of(
+			"add", ProjectFields.PROJECT_FIELDS,
+			"update", List.of("number"),
+			"finalize", List.of("number", "completionDate"),
+			"delete", List.of("number"),
+			"find", List.of("number"),
+			"projects", List.of("role", "participantId", "openOnly"),
+			"incomplete", List.of(),
+			"overdue", List.of(),
+			"fees", List.of());
+
+	private final ProjectManager projectManager;
+	private final PrintWriter out;
+	private final PrintWriter err;
+	private final int batchSize;
+
+	// Writes not yet sent; adds and changes are never pending together
+	private final List<Command> pendingAdds = new ArrayList<>();
+	private final List<Command> pendingChanges = new ArrayList<>();
+	private final Set<Integer> pendingNumbers = new HashSet<>();
+
+	private int commandCount;
+	private int failedCount;
+
+	/**
+	 * Constructs a new BatchRunner.
+	 *
+	 * @param projectManager The manager the commands are run through.
+	 * @param out            Receives the listings. It is buffered and flushed when a run ends.
+	 * @param err            Receives the failures and the summary.
+	 * @param batchSize      The most writes sent together.
+	 */
+	public BatchRunner(ProjectManager projectManager, Writer out, Writer err, int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be positive");
+		}
+		this.projectManager = projectManager;
+		this.out = new PrintWriter(new BufferedWriter(out, 1 << 16), false);
+		this.err = new PrintWriter(new BufferedWriter(err), false);
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Runs the commands in a file, or on standard input if no file or {@code -} is given, against
+	 * the storage chosen by the {@code poised.storage} system property. Exits with status 1 if any
+	 * command failed.
+	 *
+	 * @param args The file to read the commands from, if any.
+	 */
+	public static void main(String[] args) {
+		int failed;
+		// Try-with-resources to ensure resources are closed automatically
+		try (ProjectRepository repository = ProjectRepository.fromSystemProperties();
+				BufferedReader in = args.length > 0 && !args[0].equals("-")
+						? Files.newBufferedReader(Path.of(args[0]))
+						: new BufferedReader(new InputStreamReader(System.in))) {
+			if (repository instanceof JdbcProjectRepository) {
+				new SchemaMigrator().migrate();
+			}
+			BatchRunner runner = new BatchRunner(new ProjectManager(repository),
+					new OutputStreamWriter(System.out), new OutputStreamWriter(System.err), BATCH_SIZE);
+			failed = runner.run(in);
+		} catch (IOException | SQLException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+			failed = 1;
+		}
+		System.exit(failed > 0 ? 1 : 0);
+	}
+
+	/**
+	 * Runs every command read from a reader, then writes the summary and flushes the output.
+	 *
+	 * @param in The commands, one per line.
+	 * @return The number of commands that failed.
+	 * @throws IOException If the commands cannot be read.
+	 */
+	public int run(BufferedReader in) throws IOException {
+		long start = System.nanoTime();
+		try {
+			String line;
+			int lineNumber = 0;
+			while ((line = in.readLine()) != null) {
+				lineNumber++;
+				line = line.strip();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				commandCount++;
+				try {
+					execute(parse(lineNumber, line));
+				} catch (IllegalArgumentException | SQLException e) {
+					fail(lineNumber, e.getMessage());
+				}
+			}
+			flushAdds();
+			flushChanges();
+		} finally {
+			long millis = (System.nanoTime() - start) / 1_000_000;
+			err.printf("Ran %d commands in %d ms (%.0f per second): %d succeeded, %d failed%n",
+					commandCount, millis, commandCount * 1_000.0 / Math.max(1, millis),
+					commandCount - failedCount, failedCount);
+			out.flush();
+			err.flush();
+		}
+		return failedCount;
+	}
+
+	/**
+	 * Runs a command, or queues it if it is a write.
+	 *
+	 * @param command The command.
+	 * @throws SQLException If the command is a read and it cannot be read.
+	 */
+	private void execute(Command command) throws SQLException {
+		switch (command.op) {
+		case "add" -> {
+			flushChanges();
+			pendingAdds.add(command);
+			if (pendingAdds.size() >= batchSize) {
+				flushAdds();
+			}
+		}
+		case "update", "finalize", "delete" -> {
+			flushAdds();
+			if (pendingNumbers.contains(command.number)) {
+				flushChanges();
+			}
+			pendingChanges.add(command);
+			pendingNumbers.add(command.number);
+			if (pendingChanges.size() >= batchSize) {
+				flushChanges();
+			}
+		}
+		default -> {
+			// Reads see every write before them
+			flushAdds();
+			flushChanges();
+			read(command);
+		}
+		}
+	}
+
+	/**
+	 * Runs a read command and writes its result.
+	 *
+	 * @param command The command.
+	 * @throws SQLException If the result cannot be read. Part of a listing may have been written.
+	 */
+	private void read(Command command) throws SQLException {
+		switch (command.op) {
+		case "find" -> {
+			Project project = projectManager.readProjectByNumber(command.number);
+			if (project == null) {
+				out.printf("Project %d not found.%n", command.number);
+			} else {
+				out.printf(
+						"Project Number: %d, Name: %s, Type: %s, Address: %s, ERF: %s, Total Fee: %s, "
+								+ "Amount Paid: %s, Deadline: %s, Completed: %s%n",
+						project.getProjectNumber(), project.getProjectName(), project.getBuildingType(),
+						project.getAddress(), project.getErfNumber(), Money.format(project.getTotalFeeCents()),
+						Money.format(project.getAmountPaidCents()), project.getDeadline(),
+						project.getCompletionDate());
+			}
+		}
+		case "incomplete" -> {
+			try (ProjectReportPrinter printer = new ProjectReportPrinter(out, "Project Number", false)) {
+				projectManager.readIncompleteProjects(printer);
+			}
+		}
+		case "overdue" -> {
+			try (ProjectReportPrinter printer = new ProjectReportPrinter(out, "Overdue Project Number",
+					false)) {
+				projectManager.readOverdueProjects(printer);
+			}
+		}
+		case "fees" -> {
+			try (FeeReportPrinter printer = new FeeReportPrinter(out, false)) {
+				printer.printTotal(projectManager.readFeeSummary());
+				for (FeeGrouping grouping : FeeGrouping.values()) {
+					printer.printGroups(grouping, projectManager.readFeeSummaries(grouping));
+				}
+			}
+		}
+		case "projects" -> {
+			try (ProjectReportPrinter printer = new ProjectReportPrinter(out, "Project Number", false)) {
+				projectManager.readProjectsByParticipant(command.role, command.participantId,
+						command.openOnly, project -> printer.accept(new ProjectSummary(
+								project.getProjectNumber(), project.getProjectName(),
+								project.getBuildingType(), project.getAddress(), project.getDeadline())));
+			}
+		}
+		default -> throw new IllegalStateException("Not a read: " + command.op);
+		}
+	}
+
+	/**
+	 * Sends the pending adds as one bulk import.
+	 */
+	private void flushAdds() {
+		if (pendingAdds.isEmpty()) {
+			return;
+		}
+		List<Project> projects = new ArrayList<>(pendingAdds.size());
+		for (Command command : pendingAdds) {
+			projects.add(command.project);
+		}
+		BulkImportResult result = projectManager.addProjects(projects);
+
+		for (BulkImportResult.FailedRow row : result.getFailedRows()) {
+			fail(pendingAdds.get(row.getIndex()).lineNumber, row.getCause().getMessage());
+		}
+		// Rows after the one that stopped an import were never sent
+		int unsent = projects.size() - result.getInsertedCount() - result.getFailedRows().size();
+		if (result.isAborted() && unsent > 0) {
+			for (Command command : pendingAdds.subList(pendingAdds.size() - unsent, pendingAdds.size())) {
+				fail(command.lineNumber, result.getAbortCause().getMessage());
+			}
+		}
+		pendingAdds.clear();
+	}
+
+	/**
+	 * Reads the projects of the pending updates, finalisations and deletes with one query, applies
+	 * the commands to them and writes them as one {@link UnitOfWork}. A command for a project that
+	 * does not exist fails on its own. If the projects cannot be read, every command fails; if the
+	 * unit of work fails, its commands are run again one at a time, so only the ones that cannot be
+	 * written fail, each with its own cause.
+	 */
+	private void flushChanges() {
+		if (pendingChanges.isEmpty()) {
+			return;
+		}
+		Map<Integer, Project> found;
+		try {
+			found = projectManager.readProjectsByNumbers(pendingNumbers);
+		} catch (SQLException e) {
+			for (Command command : pendingChanges) {
+				fail(command.lineNumber, e.getMessage());
+			}
+			pendingChanges.clear();
+			pendingNumbers.clear();
+			return;
+		}
+		UnitOfWork work = projectManager.beginUnitOfWork();
+		List<Command> registered = new ArrayList<>(pendingChanges.size());
+		for (Command command : pendingChanges) {
+			Project project = found.get(command.number);
+			if (project == null) {
+				fail(command.lineNumber, "Project " + command.number + " not found");
+				continue;
+			}
+			register(work, command, project);
+			registered.add(command);
+		}
+
+		try {
+			work.commit();
+		} catch (SQLException e) {
+			// Nothing was written; the commands touch different projects, so each can go alone
+			for (Command command : registered) {
+				changeAlone(command);
+			}
+		}
+		pendingChanges.clear();
+		pendingNumbers.clear();
+	}
+
+	/**
+	 * Runs an update, finalisation or delete in a unit of work of its own, reading its project
+	 * again, and records it as failed if it cannot be written.
+	 *
+	 * @param command The command.
+	 */
+	private void changeAlone(Command command) {
+		try {
+			Project project = projectManager.readProjectByNumber(command.number);
+			if (project == null) {
+				fail(command.lineNumber, "Project " + command.number + " not found");
+				return;
+			}
+			UnitOfWork work = projectManager.beginUnitOfWork();
+			register(work, command, project);
+			work.commit();
+		} catch (SQLException e) {
+			fail(command.lineNumber, e.getMessage());
+		}
+	}
+
+	/**
+	 * Adds an update, finalisation or delete to a unit of work.
+	 *
+	 * @param work    The unit of work.
+	 * @param command The command.
+	 * @param project The project the command changes, as read from storage.
+	 */
+	private static void register(UnitOfWork work, Command command, Project project) {
+		switch (command.op) {
+		case "update" -> {
+			command.edit.accept(project);
+			work.updateProject(project);
+		}
+		case "finalize" -> work.finalizeProject(command.number, command.completionDate);
+		default -> work.deleteProject(command.number);
+		}
+	}
+
+	/**
+	 * Records a failed command.
+	 *
+	 * @param lineNumber The line the command was read from.
+	 * @param message    What went wrong.
+	 */
+	private void fail(int lineNumber, String message) {
+		failedCount++;
+		err.printf("Line %d: %s%n", lineNumber, message);
+	}
+
+	/**
+	 * Parses one line into a command. A line starting with {@code &#123;} is read as JSON, any other
+	 * as CSV.
+	 *
+	 * @param lineNumber The line number.
+	 * @param line       The line, without surrounding whitespace.
+	 * @return The command.
+	 * @throws IllegalArgumentException If the line is not a valid command.
+	 */
+	static Command parse(int lineNumber, String line) {
+		Map<String, String> members;
+		if (line.startsWith("{")) {
+			members = Json.parseObject(line);
+		} else {
+			members = fromCsv(parseCsv(line));
+		}
+		String op = members.remove("op");
+		if (op == null || !CSV_COLUMNS.containsKey(op.toLowerCase())) {
+			throw new IllegalArgumentException("Unknown command: " + op);
+		}
+		return new Command(lineNumber, op.toLowerCase(), members);
+	}
+
+	/**
+	 * Names the fields of a CSV command after the command's columns.
+	 *
+	 * @param fields The fields, starting with the command name.
+	 * @return The command name as {@code op} and every field by name.
+	 * @throws IllegalArgumentException If the command is unknown or has too many fields.
+	 */
+	private static Map<String, String> fromCsv(List<String> fields) {
+		String op = fields.get(0).toLowerCase();
+		List<String> columns = CSV_COLUMNS.get(op);
+		if (columns == null) {
+			throw new IllegalArgumentException("Unknown command: " + fields.get(0));
+		}
+		Map<String, String> members = new LinkedHashMap<>();
+		members.put("op", op);
+		for (int i = 1; i < fields.size(); i++) {
+			if (i <= columns.size()) {
+				members.put(columns.get(i - 1), fields.get(i));
+			} else if (op.equals("update")) {
+				String pair = fields.get(i);
+				int equals = pair.indexOf('=');
+				if (equals < 0) {
+					throw new IllegalArgumentException("Expected name=value: " + pair);
+				}
+				members.put(pair.substring(0, equals).strip(), pair.substring(equals + 1));
+			} else {
+				throw new IllegalArgumentException("Too many fields for " + op);
+			}
+		}
+		return members;
+	}
+
+	/**
+	 * Splits a CSV line into fields. Fields may be quoted with {@code "}, doubling any quote inside
+	 * them; unquoted fields are stripped of surrounding whitespace.
+	 *
+	 * @param line The line.
+	 * @return The fields.
+	 * @throws IllegalArgumentException If a quoted field is not closed.
+	 */
+	static List<String> parseCsv(String line) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		boolean wasQuoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c != '"') {
+					field.append(c);
+				} else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else {
+					quoted = false;
+				}
+			} else if (c == '"' && field.toString().isBlank()) {
+				field.setLength(0);
+				quoted = true;
+				wasQuoted = true;
+			} else if (c == ',') {
+				fields.add(wasQuoted ? field.toString() : field.toString().strip());
+				field.setLength(0);
+				wasQuoted = false;
+			} else {
+				field.append(c);
+			}
+		}
+		if (quoted) {
+			throw new IllegalArgumentException("Unterminated quoted field");
+		}
+		fields.add(wasQuoted ? field.toString() : field.toString().strip());
+		return fields;
+	}
+
+	/**
+	 * One parsed command, with its values converted and checked.
+	 */
+	static final class Command {
+		final int lineNumber;
+		final String op;
+		int number;
+		// add
+		Project project;
+		// update
+		Consumer<Project> edit;
+		// finalize
+		java.sql.Date completionDate;
+		// projects
+		ParticipantRole role;
+		int participantId;
+		boolean openOnly;
+
+		/**
+		 * Converts the named values of a command.
+		 *
+		 * @param lineNumber The line the command was read from.
+		 * @param op         The command name, in lower case.
+		 * @param members    The command's values by name.
+		 * @throws IllegalArgumentException If a value is missing, unknown or invalid.
+		 */
+		Command(int lineNumber, String op, Map<String, String> members) {
+			this.lineNumber = lineNumber;
+			this.op = op;
+			switch (op) {
+			case "add" -> {
+				project = ProjectFields.toProject(members);
+				number = project.getProjectNumber();
+			}
+			case "update" -> {
+				number = ProjectFields.parseInt(members.remove("number"), "number");
+				edit = ProjectFields.toEdit(members);
+				members.clear();
+			}
+			case "finalize" -> {
+				number = ProjectFields.parseInt(members.remove("number"), "number");
+				completionDate = ProjectFields.dateOrToday(members.remove("completionDate"));
+			}
+			case "delete", "find" -> number = ProjectFields.parseInt(members.remove("number"),
+					"number");
+			case "projects" -> {
+				role = ParticipantRole.valueOf(
+						ProjectFields.required(members, "role").toUpperCase());
+				participantId = ProjectFields.parseInt(
+						ProjectFields.required(members, "participantId"), "participantId");
+				String open = members.getOrDefault("openOnly", "");
+				openOnly = open.equalsIgnoreCase("open") || open.equalsIgnoreCase("true");
+				members.keySet().removeAll(CSV_COLUMNS.get("projects"));
+			}
+			default -> {
+				// incomplete, overdue and fees take no values
+			}
+			}
+			if (!members.isEmpty()) {
+				throw new IllegalArgumentException("Unknown fields for " + op + ": " + members.keySet());
+			}
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package poised;
+
+/**
+ * The BulkImportOptions class holds the settings used by
+ * {@link ProjectManager#addProjects(Iterable, BulkImportOptions)} when importing many projects at
+ * once: how many rows go to the database in one round trip, how often the import commits, and
+ * whether rows are sent as a JDBC batch or as multi-row {@code INSERT ... VALUES} statements.
+ */
+public class BulkImportOptions {
+	// MySQL allows at most 65535 placeholders per statement and each project row binds 12
+	private static final int MAX_MULTI_ROW_BATCH_SIZE = 65_535 / 12;
+
+	private final int batchSize;
+	private final int commitInterval;
+	private final boolean multiRowValues;
+
+	/**
+	 * Constructs a new BulkImportOptions object with the provided settings.
+	 *
+	 * @param batchSize      The number of projects sent to the database in one round trip.
+	 * @param commitInterval The number of batches written between commits.
+	 * @param multiRowValues {@code true} to send each batch as a single multi-row
+	 *                       {@code INSERT ... VALUES} statement, {@code false} to use
+	 *                       {@code addBatch}/{@code executeBatch}.
+	 */
+	public BulkImportOptions(int batchSize, int commitInterval, boolean multiRowValues) {
+		if (batchSize < 1 || commitInterval < 1) {
+			throw new IllegalArgumentException("Batch size and commit interval must be positive");
+		}
+		if (multiRowValues && batchSize > MAX_MULTI_ROW_BATCH_SIZE) {
+			throw new IllegalArgumentException(
+					"Multi-row batches are limited to " + MAX_MULTI_ROW_BATCH_SIZE + " projects");
+		}
+		this.batchSize = batchSize;
+		this.commitInterval = commitInterval;
+		this.multiRowValues = multiRowValues;
+	}
+
+	/**
+	 * Returns the default options: batches of 500 projects sent with {@code executeBatch}, committed
+	 * every 10 batches.
+	 *
+	 * @return The default options.
+	 */
+	public static BulkImportOptions defaults() {
+		return new BulkImportOptions(500, 10, false);
+	}
+
+	/**
+	 * Gets the number of projects sent to the database in one round trip.
+	 *
+	 * @return The batch size.
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Gets the number of batches written between commits.
+	 *
+	 * @return The commit interval.
+	 */
+	public int getCommitInterval() {
+		return commitInterval;
+	}
+
+	/**
+	 * Checks whether batches are sent as multi-row {@code INSERT ... VALUES} statements.
+	 *
+	 * @return {@code true} if multi-row inserts are used.
+	 */
+	public boolean isMultiRowValues() {
+		return multiRowValues;
+	}
+}
@@ -0,0 +1,170 @@
+package poised;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The BulkImportResult class reports the outcome of a bulk project import: how many projects were
+ * inserted, which ones failed and why, and whether the import stopped early because of an error
+ * that affected the whole connection.
+ */
+public class BulkImportResult {
+	private int processedCount;
+	private int insertedCount;
+	private final List<FailedRow> failedRows = new ArrayList<>();
+	private SQLException abortCause;
+
+	/**
+	 * Records that a project has been read from the input.
+	 */
+	void recordProcessed() {
+		processedCount++;
+	}
+
+	/**
+	 * Records that a number of projects were inserted and committed.
+	 *
+	 * @param count The number of projects inserted.
+	 */
+	void recordInserted(int count) {
+		insertedCount += count;
+	}
+
+	/**
+	 * Records a project that could not be inserted.
+	 *
+	 * @param failedRow The failed row.
+	 */
+	void recordFailure(FailedRow failedRow) {
+		failedRows.add(failedRow);
+	}
+
+	/**
+	 * Records the error that stopped the import.
+	 *
+	 * @param abortCause The error.
+	 */
+	void recordAbort(SQLException abortCause) {
+		this.abortCause = abortCause;
+	}
+
+	/**
+	 * Gets the number of projects read from the input.
+	 *
+	 * @return The processed count.
+	 */
+	public int getProcessedCount() {
+		return processedCount;
+	}
+
+	/**
+	 * Gets the number of projects inserted and committed.
+	 *
+	 * @return The inserted count.
+	 */
+	public int getInsertedCount() {
+		return insertedCount;
+	}
+
+	/**
+	 * Gets the projects that could not be inserted, in input order.
+	 *
+	 * @return An unmodifiable list of failed rows.
+	 */
+	public List<FailedRow> getFailedRows() {
+		return Collections.unmodifiableList(failedRows);
+	}
+
+	/**
+	 * Checks whether the import stopped before reading all of its input.
+	 *
+	 * @return {@code true} if the import was aborted.
+	 */
+	public boolean isAborted() {
+		return abortCause != null;
+	}
+
+	/**
+	 * Gets the error that stopped the import.
+	 *
+	 * @return The error, or {@code null} if the import ran to completion.
+	 */
+	public SQLException getAbortCause() {
+		return abortCause;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("BulkImportResult[processed=%d, inserted=%d, failed=%d, aborted=%b]",
+				processedCount, insertedCount, failedRows.size(), isAborted());
+	}
+
+	/**
+	 * A project that could not be inserted, with its position in the input and the cause.
+	 */
+	public static class FailedRow {
+		private final int batchNumber;
+		private final int index;
+		private final Project project;
+		private final Exception cause;
+
+		/**
+		 * Constructs a new FailedRow object with the provided details.
+		 *
+		 * @param batchNumber The zero-based number of the batch the project was part of.
+		 * @param index       The zero-based position of the project in the input.
+		 * @param project     The project that could not be inserted.
+		 * @param cause       The reason the project could not be inserted.
+		 */
+		public FailedRow(int batchNumber, int index, Project project, Exception cause) {
+			this.batchNumber = batchNumber;
+			this.index = index;
+			this.project = project;
+			this.cause = cause;
+		}
+
+		/**
+		 * Gets the zero-based number of the batch the project was part of.
+		 *
+		 * @return The batch number.
+		 */
+		public int getBatchNumber() {
+			return batchNumber;
+		}
+
+		/**
+		 * Gets the zero-based position of the project in the input.
+		 *
+		 * @return The input index.
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * Gets the project that could not be inserted.
+		 *
+		 * @return The project.
+		 */
+		public Project getProject() {
+			return project;
+		}
+
+		/**
+		 * Gets the reason the project could not be inserted.
+		 *
+		 * @return The cause.
+		 */
+		public Exception getCause() {
+			return cause;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("FailedRow[batch=%d, index=%d, projectNumber=%d, cause=%s]", batchNumber,
+					index, project.getProjectNumber(), cause.getMessage());
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package poised;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ChangeSet class holds a group of project and participant changes that a
+ * {@link ProjectRepository} writes atomically. {@link UnitOfWork} builds one from the changes
+ * registered with it, and the repository answers with another holding the changes it applied.
+ *
+ * <p>
+ * Changes are applied in this order: architects, contractors, customers, project updates,
+ * finalisations and deletions. Each project update writes the fields that are changed on the
+ * project, at the version the project was read at. A finalisation with an expected version only
+ * applies at that version, which counts the update of the same project in the set.
+ */
+public final class ChangeSet {
+	private final List<Architect> architects;
+	private final List<Contractor> contractors;
+	private final List<Customer> customers;
+	private final List<Project> projectUpdates;
+	private final Map<Integer, Date> finalizations;
+	private final Map<Integer, Integer> finalizationVersions;
+	private final List<Integer> deletions;
+
+	/**
+	 * Constructs a new ChangeSet whose finalisations are not checked against a version. The
+	 * collections are copied.
+	 *
+	 * @param architects     The architects to update.
+	 * @param contractors    The contractors to update.
+	 * @param customers      The customers to update.
+	 * @param projectUpdates The projects to update, each with at least one changed field.
+	 * @param finalizations  The completion dates to set, by project number.
+	 * @param deletions      The project numbers of the projects to delete.
+	 */
+	public ChangeSet(Collection<Architect> architects, Collection<Contractor> contractors,
+			Collection<Customer> customers, Collection<Project> projectUpdates,
+			Map<Integer, Date> finalizations, Collection<Integer> deletions) {
+		this(architects, contractors, customers, projectUpdates, finalizations, Map.of(), deletions);
+	}
+
+	/**
+	 * Constructs a new ChangeSet. The collections are copied.
+	 *
+	 * @param architects           The architects to update.
+	 * @param contractors          The contractors to update.
+	 * @param customers            The customers to update.
+	 * @param projectUpdates       The projects to update, each with at least one changed field.
+	 * @param finalizations        The completion dates to set, by project number.
+	 * @param finalizationVersions The version each finalisation applies at, by project number;
+	 *                             finalisations missing from it apply at any version.
+	 * @param deletions            The project numbers of the projects to delete.
+	 */
+	public ChangeSet(Collection<Architect> architects, Collection<Contractor> contractors,
+			Collection<Customer> customers, Collection<Project> projectUpdates,
+			Map<Integer, Date> finalizations, Map<Integer, Integer> finalizationVersions,
+			Collection<Integer> deletions) {
+		this.architects = List.copyOf(architects);
+		this.contractors = List.copyOf(contractors);
+		this.customers = List.copyOf(customers);
+		this.projectUpdates = List.copyOf(projectUpdates);
+		this.finalizations = new LinkedHashMap<>(finalizations);
+		this.finalizationVersions = Map.copyOf(finalizationVersions);
+		this.deletions = List.copyOf(deletions);
+	}
+
+	/**
+	 * Gets the architects to update.
+	 *
+	 * @return The architects, in the order they were registered.
+	 */
+	public List<Architect> getArchitects() {
+		return architects;
+	}
+
+	/**
+	 * Gets the contractors to update.
+	 *
+	 * @return The contractors, in the order they were registered.
+	 */
+	public List<Contractor> getContractors() {
+		return contractors;
+	}
+
+	/**
+	 * Gets the customers to update.
+	 *
+	 * @return The customers, in the order they were registered.
+	 */
+	public List<Customer> getCustomers() {
+		return customers;
+	}
+
+	/**
+	 * Gets the projects to update.
+	 *
+	 * @return The projects, in the order they were registered.
+	 */
+	public List<Project> getProjectUpdates() {
+		return projectUpdates;
+	}
+
+	/**
+	 * Gets the completion dates to set.
+	 *
+	 * @return The completion dates by project number, in the order they were registered.
+	 */
+	public Map<Integer, Date> getFinalizations() {
+		return Collections.unmodifiableMap(finalizations);
+	}
+
+	/**
+	 * Gets the version each checked finalisation applies at.
+	 *
+	 * @return The expected versions by project number; a finalisation missing from it applies at
+	 *         any version.
+	 */
+	public Map<Integer, Integer> getFinalizationVersions() {
+		return finalizationVersions;
+	}
+
+	/**
+	 * Gets the projects to delete.
+	 *
+	 * @return The project numbers, in the order they were registered.
+	 */
+	public List<Integer> getDeletions() {
+		return deletions;
+	}
+
+	/**
+	 * Counts the changes in this set.
+	 *
+	 * @return The total number of participant updates, project updates, finalisations and
+	 *         deletions.
+	 */
+	public int size() {
+		return architects.size() + contractors.size() + customers.size() + projectUpdates.size()
+				+ finalizations.size() + deletions.size();
+	}
+}
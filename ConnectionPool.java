@@ -0,0 +1,733 @@
+package poised;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The ConnectionPool class keeps a bounded set of physical JDBC connections open so that callers
+ * do not pay for a TCP handshake and MySQL authentication on every operation. Connections handed
+ * out by {@link #borrow()} are lightweight proxies: closing one returns the underlying connection
+ * to the pool instead of closing it.
+ *
+ * <p>
+ * The pool grows on demand up to its maximum size, keeps at least its minimum size open, evicts
+ * connections that have been idle for too long, validates connections on borrow and makes callers
+ * wait for at most the configured borrow timeout when every connection is in use.
+ *
+ * <p>
+ * Each connection keeps a bounded cache of prepared statements keyed by their SQL. Closing a
+ * statement prepared with {@code prepareStatement(String)} hands it back to the cache, so the next
+ * caller preparing the same SQL on that connection reuses it without another parse.
+ */
+public class ConnectionPool implements AutoCloseable {
+	// Connections returned to the pool more recently than this are not re-validated on borrow
+	private static final long VALIDATION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+	// Timeout, in seconds, passed to Connection.isValid when validating a connection
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+	private final String url;
+	private final String user;
+	private final String password;
+	private final int minSize;
+	private final int maxSize;
+	private final long idleTimeoutNanos;
+	private final long borrowTimeoutNanos;
+	private final int statementCacheSize;
+
+	// Guards the idle deque and all of the counters below it
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition available = lock.newCondition();
+	// Idle connections, most recently returned first so that cold connections age out at the tail
+	private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+	private int totalCount;
+	private int activeCount;
+	private int waitingCount;
+	private boolean closed;
+
+	private final ScheduledExecutorService maintenance;
+
+	// Metrics
+	private final LongAdder borrowCount = new LongAdder();
+	private final LongAdder borrowNanos = new LongAdder();
+	private final AtomicLong maxBorrowNanos = new AtomicLong();
+	private final LongAdder waitCount = new LongAdder();
+	private final LongAdder waitNanos = new LongAdder();
+	private final LongAdder timeoutCount = new LongAdder();
+	private final LongAdder createdCount = new LongAdder();
+	private final LongAdder evictedCount = new LongAdder();
+	private final LongAdder validationFailureCount = new LongAdder();
+	private final LongAdder statementCacheHits = new LongAdder();
+	private final LongAdder statementCacheMisses = new LongAdder();
+
+	/**
+	 * Constructs a new ConnectionPool and starts its background maintenance task, which opens the
+	 * minimum number of connections and evicts idle ones.
+	 *
+	 * @param url                 The JDBC URL of the database.
+	 * @param user                The database user name.
+	 * @param password            The database password.
+	 * @param minSize             The number of connections to keep open even when idle.
+	 * @param maxSize             The maximum number of connections that may be open at once.
+	 * @param idleTimeoutMillis   How long a connection may sit idle before it is evicted.
+	 * @param borrowTimeoutMillis How long {@link #borrow()} waits for a free connection.
+	 * @param statementCacheSize  The number of prepared statements cached per connection, or
+	 *                            {@code 0} to disable statement caching.
+	 */
+	public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+			long idleTimeoutMillis, long borrowTimeoutMillis, int statementCacheSize) {
+		if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+			throw new IllegalArgumentException(
+					"Invalid pool size: min=" + minSize + ", max=" + maxSize);
+		}
+		if (statementCacheSize < 0) {
+			throw new IllegalArgumentException("Invalid statement cache size: " + statementCacheSize);
+		}
+		this.statementCacheSize = statementCacheSize;
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+		this.borrowTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+
+		// Run maintenance on a single daemon thread so that it never keeps the JVM alive
+		this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "poised-pool-maintenance");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long period = Math.max(1_000L, Math.min(idleTimeoutMillis / 2, 30_000L));
+		maintenance.scheduleAtFixedRate(this::maintain, 0, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Borrows a connection from the pool, opening a new one if the pool has not reached its maximum
+	 * size, or waiting for one to be returned otherwise. The returned connection must be closed by
+	 * the caller, which hands it back to the pool.
+	 *
+	 * @return A pooled Connection.
+	 * @throws SQLException If no connection becomes available within the borrow timeout, or if a
+	 *                      new connection cannot be opened.
+	 */
+	public Connection borrow() throws SQLException {
+		return borrowWithin(borrowTimeoutNanos);
+	}
+
+	/**
+	 * Borrows a connection from the pool as {@link #borrow()} does, but waits at most the given time
+	 * for one to be returned. A caller with somewhere else to go, such as another replica, passes 0
+	 * so that it never waits.
+	 *
+	 * @param timeoutMillis How long to wait for a free connection, or 0 not to wait.
+	 * @return A pooled Connection.
+	 * @throws SQLException If no connection becomes available in time, which is reported as an
+	 *                      {@link SQLTimeoutException}, or if a new connection cannot be opened.
+	 */
+	public Connection borrow(long timeoutMillis) throws SQLException {
+		return borrowWithin(TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+	}
+
+	/**
+	 * Borrows a connection, waiting at most the given time for one to be returned.
+	 *
+	 * @param timeoutNanos How long to wait for a free connection.
+	 * @return A pooled Connection.
+	 * @throws SQLException If no connection becomes available in time, or if a new connection
+	 *                      cannot be opened.
+	 */
+	private Connection borrowWithin(long timeoutNanos) throws SQLException {
+		long start = System.nanoTime();
+		long deadline = start + timeoutNanos;
+
+		while (true) {
+			PooledConnection candidate = null;
+			boolean create = false;
+
+			lock.lock();
+			try {
+				while (true) {
+					if (closed) {
+						throw new SQLException("Connection pool is closed");
+					}
+					candidate = idle.pollFirst();
+					if (candidate != null) {
+						break;
+					}
+					if (totalCount < maxSize) {
+						// Reserve a slot and open the connection outside the lock
+						totalCount++;
+						create = true;
+						break;
+					}
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						// A caller that would not wait was only turned away, not timed out
+						if (timeoutNanos == 0) {
+							throw new SQLTimeoutException("No database connection is free");
+						}
+						timeoutCount.increment();
+						throw new SQLTimeoutException("Timed out after "
+								+ TimeUnit.NANOSECONDS.toMillis(timeoutNanos)
+								+ " ms waiting for a database connection");
+					}
+					waitingCount++;
+					long waitStart = System.nanoTime();
+					try {
+						available.awaitNanos(remaining);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SQLException("Interrupted while waiting for a database connection", e);
+					} finally {
+						waitingCount--;
+						waitCount.increment();
+						waitNanos.add(System.nanoTime() - waitStart);
+					}
+				}
+				activeCount++;
+			} finally {
+				lock.unlock();
+			}
+
+			if (create) {
+				try {
+					candidate = open();
+				} catch (SQLException e) {
+					release(null);
+					throw e;
+				}
+			} else if (!validate(candidate)) {
+				validationFailureCount.increment();
+				discard(candidate);
+				continue;
+			}
+
+			long elapsed = System.nanoTime() - start;
+			borrowCount.increment();
+			borrowNanos.add(elapsed);
+			maxBorrowNanos.accumulateAndGet(elapsed, Math::max);
+			return candidate.lease();
+		}
+	}
+
+	/**
+	 * Returns a snapshot of the pool's current state and accumulated metrics.
+	 *
+	 * @return A {@link PoolMetrics} snapshot.
+	 */
+	public PoolMetrics getMetrics() {
+		int active;
+		int idleSize;
+		int total;
+		int waiting;
+		lock.lock();
+		try {
+			active = activeCount;
+			idleSize = idle.size();
+			total = totalCount;
+			waiting = waitingCount;
+		} finally {
+			lock.unlock();
+		}
+		return new PoolMetrics(active, idleSize, total, waiting, borrowCount.sum(), borrowNanos.sum(),
+				maxBorrowNanos.get(), waitCount.sum(), waitNanos.sum(), timeoutCount.sum(),
+				createdCount.sum(), evictedCount.sum(), validationFailureCount.sum(),
+				statementCacheHits.sum(), statementCacheMisses.sum());
+	}
+
+	/**
+	 * Closes the pool. Idle connections are closed immediately; connections that are still borrowed
+	 * are closed when they are returned.
+	 */
+	@Override
+	public void close() {
+		List<PooledConnection> toClose;
+		lock.lock();
+		try {
+			closed = true;
+			toClose = new ArrayList<>(idle);
+			totalCount -= idle.size();
+			idle.clear();
+			available.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		maintenance.shutdownNow();
+		for (PooledConnection pooled : toClose) {
+			pooled.closeQuietly();
+		}
+	}
+
+	/**
+	 * Opens a new physical connection.
+	 *
+	 * @return The new pooled connection.
+	 * @throws SQLException If the connection cannot be opened.
+	 */
+	private PooledConnection open() throws SQLException {
+		PooledConnection pooled = new PooledConnection(DriverManager.getConnection(url, user, password));
+		createdCount.increment();
+		return pooled;
+	}
+
+	/**
+	 * Checks that an idle connection is still usable before handing it out.
+	 *
+	 * @param pooled The connection to validate.
+	 * @return {@code true} if the connection can be used.
+	 */
+	private boolean validate(PooledConnection pooled) {
+		if (System.nanoTime() - pooled.lastUsedNanos < VALIDATION_INTERVAL_NANOS) {
+			return true;
+		}
+		try {
+			return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Takes a connection back from a caller. Connections that cannot be reset are discarded.
+	 *
+	 * @param pooled The connection being returned, or {@code null} if a reserved slot is being
+	 *               released because opening the connection failed.
+	 */
+	private void release(PooledConnection pooled) {
+		boolean reusable = pooled != null && pooled.reset();
+		lock.lock();
+		try {
+			activeCount--;
+			if (reusable && !closed) {
+				pooled.lastUsedNanos = System.nanoTime();
+				idle.offerFirst(pooled);
+				pooled = null;
+			} else {
+				totalCount--;
+			}
+			available.signal();
+		} finally {
+			lock.unlock();
+		}
+		if (pooled != null) {
+			pooled.closeQuietly();
+		}
+	}
+
+	/**
+	 * Closes a borrowed connection that failed validation and frees its slot.
+	 *
+	 * @param pooled The connection to discard.
+	 */
+	private void discard(PooledConnection pooled) {
+		lock.lock();
+		try {
+			activeCount--;
+			totalCount--;
+			available.signal();
+		} finally {
+			lock.unlock();
+		}
+		pooled.closeQuietly();
+	}
+
+	/**
+	 * Evicts connections that have been idle for longer than the idle timeout and tops the pool
+	 * back up to its minimum size.
+	 */
+	private void maintain() {
+		List<PooledConnection> evicted = new ArrayList<>();
+		int missing;
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			long now = System.nanoTime();
+			Iterator<PooledConnection> it = idle.descendingIterator();
+			while (it.hasNext() && totalCount > minSize) {
+				PooledConnection pooled = it.next();
+				if (now - pooled.lastUsedNanos < idleTimeoutNanos) {
+					// Everything closer to the head was returned more recently
+					break;
+				}
+				it.remove();
+				totalCount--;
+				evicted.add(pooled);
+			}
+			missing = minSize - totalCount;
+			totalCount += Math.max(missing, 0);
+		} finally {
+			lock.unlock();
+		}
+
+		for (PooledConnection pooled : evicted) {
+			evictedCount.increment();
+			pooled.closeQuietly();
+		}
+
+		for (int i = 0; i < missing; i++) {
+			PooledConnection pooled;
+			try {
+				pooled = open();
+			} catch (SQLException e) {
+				// The database may be unavailable; give the slots back and retry on the next run
+				lock.lock();
+				try {
+					totalCount -= missing - i;
+				} finally {
+					lock.unlock();
+				}
+				return;
+			}
+			lock.lock();
+			try {
+				if (closed) {
+					totalCount--;
+				} else {
+					idle.offerLast(pooled);
+					available.signal();
+					pooled = null;
+				}
+			} finally {
+				lock.unlock();
+			}
+			if (pooled != null) {
+				pooled.closeQuietly();
+			}
+		}
+	}
+
+	/**
+	 * A physical connection owned by the pool, together with its cache of prepared statements. The
+	 * cache lives as long as the physical connection, so statements stay prepared across borrows.
+	 */
+	private final class PooledConnection {
+		private final Connection physical;
+		private long lastUsedNanos = System.nanoTime();
+		// Prepared statements keyed by SQL, least recently used first
+		private final LinkedHashMap<String, CachedStatement> statements;
+
+		PooledConnection(Connection physical) {
+			this.physical = physical;
+			this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+					if (size() > statementCacheSize) {
+						eldest.getValue().evict();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		/**
+		 * Creates a fresh proxy for a single borrow, so that a caller holding on to a closed handle
+		 * cannot use the connection after it has been handed to someone else.
+		 */
+		Connection lease() {
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, new Lease(this));
+		}
+
+		/**
+		 * Returns the cached statement for the given SQL, preparing and caching it on first use. Only
+		 * one caller may use a cached statement at a time, so if it is already in use on this
+		 * connection {@code null} is returned and the caller prepares an uncached statement.
+		 *
+		 * @param sql The SQL of the statement.
+		 * @return The cached statement, or {@code null} if it is already in use.
+		 * @throws SQLException If the statement cannot be prepared.
+		 */
+		CachedStatement prepareCached(String sql) throws SQLException {
+			CachedStatement cached = statements.get(sql);
+			if (cached != null) {
+				if (cached.inUse) {
+					return null;
+				}
+				statementCacheHits.increment();
+			} else {
+				statementCacheMisses.increment();
+				if (statementCacheSize == 0) {
+					return null;
+				}
+				cached = new CachedStatement(physical.prepareStatement(sql));
+				statements.put(sql, cached);
+			}
+			cached.inUse = true;
+			return cached;
+		}
+
+		/**
+		 * Restores the connection to its default state before it goes back into the pool.
+		 *
+		 * @return {@code true} if the connection can be reused.
+		 */
+		boolean reset() {
+			try {
+				if (physical.isClosed()) {
+					return false;
+				}
+				if (!physical.getAutoCommit()) {
+					physical.rollback();
+					physical.setAutoCommit(true);
+				}
+				if (physical.isReadOnly()) {
+					physical.setReadOnly(false);
+				}
+				physical.clearWarnings();
+				return true;
+			} catch (SQLException e) {
+				return false;
+			}
+		}
+
+		void closeQuietly() {
+			try {
+				// Closing the connection also closes its cached statements
+				physical.close();
+			} catch (SQLException e) {
+				// Nothing useful can be done with a connection that fails to close
+			}
+		}
+	}
+
+	/**
+	 * A prepared statement held in a connection's statement cache.
+	 */
+	private static final class CachedStatement {
+		private final PreparedStatement statement;
+		// Settings the statement was prepared with, restored for the next caller
+		private final int defaultFetchSize;
+		private final int defaultMaxRows;
+		private final int defaultQueryTimeout;
+		private boolean inUse;
+		private boolean evicted;
+
+		CachedStatement(PreparedStatement statement) throws SQLException {
+			this.statement = statement;
+			this.defaultFetchSize = statement.getFetchSize();
+			this.defaultMaxRows = statement.getMaxRows();
+			this.defaultQueryTimeout = statement.getQueryTimeout();
+		}
+
+		/**
+		 * Hands the statement back to the cache after a caller has closed it, clearing anything the
+		 * caller left behind, including any fetch size, row limit or query timeout it set.
+		 */
+		void release() throws SQLException {
+			inUse = false;
+			if (evicted) {
+				statement.close();
+				return;
+			}
+			statement.clearParameters();
+			statement.clearBatch();
+			statement.clearWarnings();
+			// The row limit goes first: some drivers reject a fetch size larger than the limit
+			if (statement.getMaxRows() != defaultMaxRows) {
+				statement.setMaxRows(defaultMaxRows);
+			}
+			if (statement.getFetchSize() != defaultFetchSize) {
+				statement.setFetchSize(defaultFetchSize);
+			}
+			if (statement.getQueryTimeout() != defaultQueryTimeout) {
+				statement.setQueryTimeout(defaultQueryTimeout);
+			}
+		}
+
+		/**
+		 * Removes the statement from the cache, closing it now or when its current user closes it.
+		 */
+		void evict() {
+			evicted = true;
+			if (!inUse) {
+				try {
+					statement.close();
+				} catch (SQLException e) {
+					// The statement is being discarded anyway
+				}
+			}
+		}
+	}
+
+	/**
+	 * Invocation handler behind a borrowed connection. Closing it returns the physical connection to
+	 * the pool; any other call after that fails as it would on a closed connection. Statements the
+	 * caller did not close are closed along with the connection, as JDBC requires.
+	 */
+	private final class Lease implements InvocationHandler {
+		private final PooledConnection pooled;
+		private final List<PooledStatement> openStatements = new ArrayList<>();
+		private boolean released;
+
+		Lease(PooledConnection pooled) {
+			this.pooled = pooled;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				if (!released) {
+					released = true;
+					for (PooledStatement statement : new ArrayList<>(openStatements)) {
+						statement.closeQuietly();
+					}
+					release(pooled);
+				}
+				return null;
+			case "isClosed":
+				return released || pooled.physical.isClosed();
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "Pooled" + pooled.physical;
+			default:
+				if (released) {
+					throw new SQLException("Connection is closed");
+				}
+
+				// Serve plain prepareStatement(String) calls from the statement cache
+				CachedStatement cached = null;
+				if (method.getName().equals("prepareStatement") && args.length == 1) {
+					cached = pooled.prepareCached((String) args[0]);
+				}
+
+				Object result;
+				if (cached != null) {
+					result = cached.statement;
+				} else {
+					try {
+						result = method.invoke(pooled.physical, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				}
+
+				// Wrap statements so that their executions are counted as round trips
+				if (result instanceof Statement) {
+					PooledStatement handler = new PooledStatement((Statement) result,
+							(Connection) proxy, cached, this);
+					openStatements.add(handler);
+					return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+							new Class<?>[] { method.getReturnType() }, handler);
+				}
+				return result;
+			}
+		}
+	}
+
+	/**
+	 * Invocation handler behind statements created from a borrowed connection. It records every
+	 * execution with the {@link RoundTripCounter}, reports the borrowed connection, rather than the
+	 * physical one, as the statement's connection, and hands cached statements back to the cache
+	 * instead of closing them.
+	 */
+	private static final class PooledStatement implements InvocationHandler {
+		private final Statement statement;
+		private final Connection connection;
+		private final CachedStatement cached;
+		private final Lease lease;
+		private ResultSet lastResultSet;
+		private boolean closed;
+
+		PooledStatement(Statement statement, Connection connection, CachedStatement cached,
+				Lease lease) {
+			this.statement = statement;
+			this.connection = connection;
+			this.cached = cached;
+			this.lease = lease;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			switch (name) {
+			case "close":
+				close();
+				return null;
+			case "isClosed":
+				return closed || statement.isClosed();
+			case "getConnection":
+				return connection;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			default:
+				if (closed) {
+					throw new SQLException("Statement is closed");
+				}
+				if (name.startsWith("execute")) {
+					RoundTripCounter.increment();
+				}
+				Object result;
+				try {
+					result = method.invoke(statement, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+				if (result instanceof ResultSet) {
+					lastResultSet = (ResultSet) result;
+				}
+				return result;
+			}
+		}
+
+		/**
+		 * Closes the statement, or for a cached statement closes its last result set and returns it
+		 * to the cache.
+		 */
+		void close() throws SQLException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			lease.openStatements.remove(this);
+			if (cached == null) {
+				statement.close();
+				return;
+			}
+			if (lastResultSet != null) {
+				lastResultSet.close();
+			}
+			cached.release();
+		}
+
+		void closeQuietly() {
+			try {
+				close();
+			} catch (SQLException e) {
+				// The connection is being returned anyway
+			}
+		}
+	}
+}
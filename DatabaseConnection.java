@@ -1,31 +1,333 @@
 package poised;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * The DatabaseConnection class is responsible for establishing and managing the connection to the
  * PoisePMS MySQL database. It provides a static method to retrieve a Connection object that can be
  * used to interact with the database.
+ *
+ * <p>
+ * The database URL, user name and password can be overridden with the {@code poised.db.url},
+ * {@code poised.db.user} and {@code poised.db.password} system properties, for example to point the
+ * application at an embedded database.
+ *
+ * <p>
+ * Connections are served from a shared {@link ConnectionPool}. Closing a connection obtained from
+ * {@link #getConnection()} returns it to the pool. The pool can be tuned with the
+ * {@code poised.pool.minSize}, {@code poised.pool.maxSize}, {@code poised.pool.idleTimeoutMillis},
+ * {@code poised.pool.borrowTimeoutMillis} and {@code poised.pool.statementCacheSize} system
+ * properties.
+ *
+ * <p>
+ * Reads can be spread over read-only replicas by listing their URLs, separated by commas, in the
+ * {@code poised.db.replicas} system property. They are reached with the same user name and
+ * password unless {@code poised.db.replicaUser} and {@code poised.db.replicaPassword} are set. Each
+ * replica gets a pool of its own, {@link #getReadConnection()} takes connections from the replicas
+ * in turn, and a {@link ReplicaSet} takes replicas that stop answering out of the rotation until a
+ * health check, every {@code poised.db.healthCheckMillis} milliseconds (default 5000), finds them
+ * answering again. The check also takes out replicas more than
+ * {@code poised.db.maxReplicaLagMillis} milliseconds (default 10000) behind the primary until they
+ * catch up. A {@link ReplicaHealthListener} registered with {@link #addReplicaHealthListener} is
+ * told each time a replica is taken out or put back. Writes and everything else use the primary
+ * through {@link #getConnection()}.
+ *
+ * <p>
+ * Replicas lag behind the primary, so a read made just after a write could see the old rows. A
+ * caller that needs its writes back reads the primary's position with {@link #readPosition} after
+ * they commit, and passes it to {@link #getReadConnection(long)}, which only uses replicas that show
+ * a later health check heartbeat, and otherwise the primary. {@link JdbcProjectRepository} does so
+ * with the position of the current {@link ReadSession}'s last write.
+ *
+ * <p>
+ * The time spent waiting for each connection is recorded by {@link Metrics} as the
+ * {@code getConnection} and {@code getReadConnection} operations. A read that falls back to the
+ * primary because no replica is healthy or free counts as a failed {@code getReadConnection}; one
+ * sent there because the replicas have not caught up with the caller's writes does not.
  */
 public class DatabaseConnection {
-	// Database URL, including the database name
-	private static final String URL = "jdbc:mysql://localhost:3306/PoisePMS";
+	// Database URL, including the database name. The driver is asked to use server-side prepared
+	// statements and to keep them prepared after close, so repeated SQL skips the parse step, and to
+	// send each JDBC batch to the server in one round trip.
+	private static final String URL = System.getProperty("poised.db.url",
+			"jdbc:mysql://localhost:3306/PoisePMS?useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=250&prepStmtCacheSqlLimit=2048&rewriteBatchedStatements=true");
 	// Database user name
-	private static final String USER = "otheruser";
+	private static final String USER = System.getProperty("poised.db.user", "otheruser");
 	// Database password
-	private static final String PASSWORD = "userother";
+	private static final String PASSWORD = System.getProperty("poised.db.password", "userother");
+
+	// Number of connections kept open even when idle
+	private static final int POOL_MIN_SIZE = Integer.getInteger("poised.pool.minSize", 2);
+	// Maximum number of connections open at once
+	private static final int POOL_MAX_SIZE = Integer.getInteger("poised.pool.maxSize", 10);
+	// How long a connection may sit idle before it is closed
+	private static final long POOL_IDLE_TIMEOUT_MILLIS = Long.getLong("poised.pool.idleTimeoutMillis",
+			300_000L);
+	// How long a caller waits for a free connection before giving up
+	private static final long POOL_BORROW_TIMEOUT_MILLIS = Long
+			.getLong("poised.pool.borrowTimeoutMillis", 5_000L);
+	// Number of prepared statements each pooled connection keeps open for reuse
+	private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("poised.pool.statementCacheSize",
+			64);
+
+	// Read-only replica URLs, separated by commas; a comma only separates URLs where a new one starts
+	private static final String REPLICA_URLS = System.getProperty("poised.db.replicas", "");
+	// Replica user name and password
+	private static final String REPLICA_USER = System.getProperty("poised.db.replicaUser", USER);
+	private static final String REPLICA_PASSWORD = System.getProperty("poised.db.replicaPassword",
+			PASSWORD);
+	// How often each replica's health is checked
+	private static final long HEALTH_CHECK_MILLIS = Long.getLong("poised.db.healthCheckMillis",
+			5_000L);
+	// How far a replica may fall behind the primary before it is taken out of the rotation; 0 to
+	// never check
+	private static final long MAX_REPLICA_LAG_MILLIS = Long.getLong("poised.db.maxReplicaLagMillis",
+			10_000L);
+
+	// Shared pool, created on first use
+	private static volatile ConnectionPool pool;
+
+	// Replicas, created on first read; empty if none are configured
+	private static volatile ReplicaSet replicas;
+	private static volatile boolean replicasCreated;
+
+	// Told when a replica is taken out of the rotation or put back
+	private static final List<ReplicaHealthListener> REPLICA_LISTENERS = new CopyOnWriteArrayList<>();
+	// Passes the replicas' health changes on to every registered listener
+	private static final ReplicaHealthListener REPLICA_HEALTH = new ReplicaHealthListener() {
+		@Override
+		public void replicaUnavailable(String url, String reason) {
+			for (ReplicaHealthListener listener : REPLICA_LISTENERS) {
+				listener.replicaUnavailable(url, reason);
+			}
+		}
+
+		@Override
+		public void replicaAvailable(String url) {
+			for (ReplicaHealthListener listener : REPLICA_LISTENERS) {
+				listener.replicaAvailable(url);
+			}
+		}
+	};
+
+	// Time taken to acquire each connection
+	private static final OperationMetrics GET_CONNECTION = Metrics.operation("getConnection");
+	private static final OperationMetrics GET_READ_CONNECTION = Metrics
+			.operation("getReadConnection");
 
 	/**
-	 * Establishes and returns a connection to the PoisePMS database.
+	 * Returns a pooled connection to the PoisePMS database. The caller must close the connection,
+	 * which returns it to the pool.
 	 *
 	 * @return A Connection object that represents a connection to the database.
-	 * @throws SQLException If a database access error occurs.
+	 * @throws SQLException If a database access error occurs or no connection becomes available in
+	 *                      time.
 	 */
 	public static Connection getConnection() throws SQLException {
-		// Create and return a connection to the database using the provided URL, user name, and
-		// password
-		return DriverManager.getConnection(URL, USER, PASSWORD);
+		// Borrow a connection from the shared pool
+		long start = GET_CONNECTION.start();
+		try {
+			Connection connection = getPool().borrow();
+			GET_CONNECTION.succeeded(start, 0, 0);
+			return connection;
+		} catch (SQLException e) {
+			GET_CONNECTION.failed(start);
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns a pooled connection for a read. It comes from the next healthy replica, or from the
+	 * primary if no replica is configured or healthy. The caller must close the connection, which
+	 * returns it to its pool, and must not write through it.
+	 *
+	 * @return A Connection object that represents a connection to a replica or the primary.
+	 * @throws SQLException If a database access error occurs or no connection becomes available in
+	 *                      time.
+	 */
+	public static Connection getReadConnection() throws SQLException {
+		return getReadConnection(Long.MIN_VALUE);
+	}
+
+	/**
+	 * Returns a pooled connection for a read that must see every write committed on the primary
+	 * before the given position was read. It comes from the next healthy replica known to have those
+	 * writes, or from the primary if there is none. The caller must close the connection, which
+	 * returns it to its pool, and must not write through it.
+	 *
+	 * @param position The primary's position, from {@link #readPosition}, read after the writes to
+	 *                 be seen, or {@link Long#MIN_VALUE} if none need be seen.
+	 * @return A Connection object that represents a connection to a replica or the primary.
+	 * @throws SQLException If a database access error occurs or no connection becomes available in
+	 *                      time.
+	 */
+	public static Connection getReadConnection(long position) throws SQLException {
+		ReplicaSet current = getReplicas();
+		if (current == null) {
+			return getConnection();
+		}
+		if (current.getHealthyCount() > 0 && !current.hasReached(position)) {
+			// The replicas have not caught up with the caller's writes, so the primary is meant
+			return getConnection();
+		}
+		long start = GET_READ_CONNECTION.start();
+		Connection connection = current.borrow(position);
+		if (connection == null) {
+			// Counted as an error so that reads falling back to the primary show up in the metrics
+			GET_READ_CONNECTION.failed(start);
+			return getConnection();
+		}
+		GET_READ_CONNECTION.succeeded(start, 0, 0);
+		return connection;
+	}
+
+	/**
+	 * Reads the primary's position: the newest heartbeat written by a replica health check. A
+	 * replica that shows a later heartbeat has every write committed on the primary before the
+	 * position was read.
+	 *
+	 * @param primary A connection to the primary, from {@link #getConnection()}.
+	 * @return The position, or 0 if no heartbeat has been written.
+	 * @throws SQLException If the heartbeat row cannot be read.
+	 */
+	static long readPosition(Connection primary) throws SQLException {
+		return ReplicaSet.readHeartbeat(primary);
+	}
+
+	/**
+	 * Tells whether reads can be served by read replicas, healthy or not.
+	 *
+	 * @return {@code true} if any replica is configured.
+	 */
+	static boolean hasReplicas() {
+		return getReplicas() != null;
+	}
+
+	/**
+	 * Gets the number of read replicas currently taking reads.
+	 *
+	 * @return The number of healthy replicas; {@code 0} if none are configured.
+	 */
+	public static int getHealthyReplicaCount() {
+		ReplicaSet current = getReplicas();
+		return current == null ? 0 : current.getHealthyCount();
+	}
+
+	/**
+	 * Registers a listener to be notified each time a read replica is taken out of the rotation or
+	 * put back into it. Listeners stay registered across {@link #shutdown()}.
+	 *
+	 * @param listener The listener to register.
+	 */
+	public static void addReplicaHealthListener(ReplicaHealthListener listener) {
+		REPLICA_LISTENERS.add(listener);
+	}
+
+	/**
+	 * Removes a listener registered with {@link #addReplicaHealthListener}.
+	 *
+	 * @param listener The listener to remove.
+	 */
+	public static void removeReplicaHealthListener(ReplicaHealthListener listener) {
+		REPLICA_LISTENERS.remove(listener);
+	}
+
+	/**
+	 * Returns a snapshot of the connection pool's metrics.
+	 *
+	 * @return The current {@link PoolMetrics}.
+	 */
+	public static PoolMetrics getPoolMetrics() {
+		return getPool().getMetrics();
+	}
+
+	/**
+	 * Gets the maximum number of connections the pool may hold open at once.
+	 *
+	 * @return The maximum pool size.
+	 */
+	public static int getMaxPoolSize() {
+		return POOL_MAX_SIZE;
+	}
+
+	/**
+	 * Closes the connection pools and every idle connection in them. New pools are created if
+	 * {@link #getConnection()} or {@link #getReadConnection()} is called again afterwards.
+	 */
+	public static synchronized void shutdown() {
+		if (pool != null) {
+			pool.close();
+			pool = null;
+		}
+		if (replicas != null) {
+			replicas.close();
+			replicas = null;
+		}
+		replicasCreated = false;
+	}
+
+	/**
+	 * Returns the shared pool, creating it on first use.
+	 *
+	 * @return The shared {@link ConnectionPool}.
+	 */
+	private static ConnectionPool getPool() {
+		ConnectionPool current = pool;
+		if (current == null) {
+			synchronized (DatabaseConnection.class) {
+				current = pool;
+				if (current == null) {
+					current = new ConnectionPool(URL, USER, PASSWORD, POOL_MIN_SIZE, POOL_MAX_SIZE,
+							POOL_IDLE_TIMEOUT_MILLIS, POOL_BORROW_TIMEOUT_MILLIS, STATEMENT_CACHE_SIZE);
+					pool = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Returns the shared replicas, creating them on first use.
+	 *
+	 * @return The {@link ReplicaSet}, or {@code null} if no replicas are configured.
+	 */
+	private static ReplicaSet getReplicas() {
+		if (!replicasCreated) {
+			synchronized (DatabaseConnection.class) {
+				if (!replicasCreated) {
+					List<String> urls = parseReplicaUrls(REPLICA_URLS);
+					if (!urls.isEmpty()) {
+						replicas = new ReplicaSet(urls,
+								url -> new ConnectionPool(url, REPLICA_USER, REPLICA_PASSWORD,
+										POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_IDLE_TIMEOUT_MILLIS,
+										POOL_BORROW_TIMEOUT_MILLIS, STATEMENT_CACHE_SIZE),
+								HEALTH_CHECK_MILLIS, MAX_REPLICA_LAG_MILLIS, REPLICA_HEALTH);
+					}
+					replicasCreated = true;
+				}
+			}
+		}
+		return replicas;
+	}
+
+	/**
+	 * Splits a list of JDBC URLs. Only a comma followed by {@code jdbc:} separates two URLs, so
+	 * commas inside a URL, such as between the hosts of a MySQL multi-host URL, are kept.
+	 *
+	 * @param text The URLs, separated by commas.
+	 * @return The URLs, without surrounding whitespace.
+	 */
+	static List<String> parseReplicaUrls(String text) {
+		List<String> urls = new ArrayList<>();
+		for (String url : text.split(",(?=\\s*jdbc:)")) {
+			if (!url.isBlank()) {
+				urls.add(url.strip());
+			}
+		}
+		return urls;
 	}
-}
\ No newline at end of file
+}
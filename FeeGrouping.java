@@ -0,0 +1,28 @@
+package poised;
+
+/**
+ * The FeeGrouping enum lists the ways project fees can be totalled for the portfolio reports.
+ */
+public enum FeeGrouping {
+	/** One group per building type. */
+	BUILDING_TYPE("Building Type"),
+	/** One group per customer, keyed by customer ID. */
+	CUSTOMER("Customer"),
+	/** One group per calendar month of the deadline, keyed as {@code yyyy-MM}. */
+	DEADLINE_MONTH("Deadline Month");
+
+	private final String title;
+
+	FeeGrouping(String title) {
+		this.title = title;
+	}
+
+	/**
+	 * Gets the heading printed above the groups in a report.
+	 *
+	 * @return The heading, for example "Building Type".
+	 */
+	public String getTitle() {
+		return title;
+	}
+}
@@ -0,0 +1,265 @@
+package poised;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * The FeeLedger class keeps running fee totals for the projects held in memory by
+ * {@link ProjectIndex} and {@link FileProjectRepository}, for the whole portfolio and for every
+ * {@link FeeGrouping}. The holder adds each project as it is stored and removes the project's old
+ * state when it changes, so a summary costs one step per group rather than one per project.
+ *
+ * <p>
+ * The totals of each grouping are kept in primitive arrays of cents indexed by a slot number, with
+ * a map from group key to slot that is only consulted when a project is added or removed, so the
+ * sums are exact and updating them allocates nothing. The ledger is not thread-safe; its holder
+ * guards it with its own lock.
+ */
+final class FeeLedger {
+	// Customer ID and deadline month of a project that has none
+	static final int NO_CUSTOMER = 0;
+	static final int NO_MONTH = Integer.MIN_VALUE;
+
+	private long projectCount;
+	private long totalFee;
+	private long amountPaid;
+
+	private final Groups<String> byBuildingType = new Groups<>(
+			Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+	private final Groups<Integer> byCustomer = new Groups<>(Comparator.<Integer>naturalOrder());
+	private final Groups<Integer> byDeadlineMonth = new Groups<>(Comparator.<Integer>naturalOrder());
+
+	/**
+	 * Adds a project to the totals.
+	 *
+	 * @param buildingType  The project's building type.
+	 * @param customerId    The ID of the project's customer, or {@link #NO_CUSTOMER}.
+	 * @param deadlineMonth The month of the project's deadline from {@link #monthOf(Date)}, or
+	 *                      {@link #NO_MONTH}.
+	 * @param totalFee      The project's total fee, in cents.
+	 * @param amountPaid    The amount paid on the project, in cents.
+	 */
+	void add(String buildingType, int customerId, int deadlineMonth, long totalFee,
+			long amountPaid) {
+		apply(buildingType, customerId, deadlineMonth, totalFee, amountPaid, 1);
+	}
+
+	/**
+	 * Removes a project from the totals. The arguments must be those the project was added with.
+	 *
+	 * @param buildingType  The project's building type.
+	 * @param customerId    The ID of the project's customer, or {@link #NO_CUSTOMER}.
+	 * @param deadlineMonth The month of the project's deadline, or {@link #NO_MONTH}.
+	 * @param totalFee      The project's total fee, in cents.
+	 * @param amountPaid    The amount paid on the project, in cents.
+	 */
+	void remove(String buildingType, int customerId, int deadlineMonth, long totalFee,
+			long amountPaid) {
+		apply(buildingType, customerId, deadlineMonth, totalFee, amountPaid, -1);
+	}
+
+	/**
+	 * Removes every project from the totals.
+	 */
+	void clear() {
+		projectCount = 0;
+		totalFee = 0;
+		amountPaid = 0;
+		byBuildingType.clear();
+		byCustomer.clear();
+		byDeadlineMonth.clear();
+	}
+
+	/**
+	 * Gets the totals of the whole portfolio.
+	 *
+	 * @return The summary, with no key.
+	 */
+	FeeSummary total() {
+		return new FeeSummary(null, null, projectCount, totalFee, amountPaid);
+	}
+
+	/**
+	 * Gets the totals of every group of one grouping that holds at least one project, ordered by
+	 * key with projects that have no key first.
+	 *
+	 * @param grouping      The grouping.
+	 * @param customerNames Gives the label of a customer group from the customer ID, or
+	 *                      {@code null} to leave customer groups unlabelled.
+	 * @return The summaries.
+	 */
+	List<FeeSummary> summarize(FeeGrouping grouping, IntFunction<String> customerNames) {
+		return switch (grouping) {
+		case BUILDING_TYPE -> byBuildingType.summarize(type -> type, type -> type);
+		case CUSTOMER -> byCustomer.summarize(
+				id -> id == NO_CUSTOMER ? null : String.valueOf(id),
+				id -> id == NO_CUSTOMER || customerNames == null ? null : customerNames.apply(id));
+		case DEADLINE_MONTH -> byDeadlineMonth.summarize(FeeLedger::monthKey, FeeLedger::monthKey);
+		};
+	}
+
+	/**
+	 * Gets the IDs of the customers whose groups hold at least one project.
+	 *
+	 * @return The customer IDs, without {@link #NO_CUSTOMER}.
+	 */
+	List<Integer> customerIds() {
+		List<Integer> customerIds = byCustomer.keys();
+		customerIds.remove(Integer.valueOf(NO_CUSTOMER));
+		return customerIds;
+	}
+
+	/**
+	 * Gets the month a date falls in, in the local time zone, as a number that sorts in date order.
+	 *
+	 * @param date The date, or {@code null}.
+	 * @return The month, or {@link #NO_MONTH} if {@code date} is {@code null}.
+	 */
+	static int monthOf(Date date) {
+		if (date == null) {
+			return NO_MONTH;
+		}
+		LocalDate day = date instanceof java.sql.Date sqlDate ? sqlDate.toLocalDate()
+				: new java.sql.Date(date.getTime()).toLocalDate();
+		return day.getYear() * 12 + day.getMonthValue() - 1;
+	}
+
+	/**
+	 * Formats a month as the key of its group.
+	 *
+	 * @param month The month from {@link #monthOf(Date)}, or {@link #NO_MONTH}.
+	 * @return The month as {@code yyyy-MM}, or {@code null} for {@link #NO_MONTH}.
+	 */
+	private static String monthKey(int month) {
+		return month == NO_MONTH ? null
+				: String.format("%04d-%02d", Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1);
+	}
+
+	/**
+	 * Adds a project to, or removes it from, every total.
+	 *
+	 * @param buildingType  The project's building type.
+	 * @param customerId    The ID of the project's customer.
+	 * @param deadlineMonth The month of the project's deadline.
+	 * @param fee           The project's total fee, in cents.
+	 * @param paid          The amount paid on the project, in cents.
+	 * @param sign          1 to add the project, -1 to remove it.
+	 */
+	private void apply(String buildingType, int customerId, int deadlineMonth, long fee,
+			long paid, int sign) {
+		projectCount += sign;
+		totalFee += sign * fee;
+		amountPaid += sign * paid;
+		byBuildingType.apply(buildingType, fee, paid, sign);
+		byCustomer.apply(customerId, fee, paid, sign);
+		byDeadlineMonth.apply(deadlineMonth, fee, paid, sign);
+	}
+
+	/**
+	 * The totals of the groups of one grouping.
+	 */
+	private static final class Groups<K> {
+		private final Comparator<K> order;
+		private final Map<K, Integer> slots = new HashMap<>();
+		private Object[] keys = new Object[16];
+		private long[] counts = new long[16];
+		private long[] fees = new long[16];
+		private long[] paid = new long[16];
+
+		/**
+		 * Constructs a new, empty set of groups.
+		 *
+		 * @param order The order of the group keys.
+		 */
+		Groups(Comparator<K> order) {
+			this.order = order;
+		}
+
+		/**
+		 * Adds a project to, or removes it from, the totals of its group.
+		 *
+		 * @param key        The project's group key.
+		 * @param fee        The project's total fee, in cents.
+		 * @param amountPaid The amount paid on the project, in cents.
+		 * @param sign       1 to add the project, -1 to remove it.
+		 */
+		void apply(K key, long fee, long amountPaid, int sign) {
+			Integer slot = slots.get(key);
+			if (slot == null) {
+				slot = slots.size();
+				if (slot == counts.length) {
+					keys = Arrays.copyOf(keys, slot * 2);
+					counts = Arrays.copyOf(counts, slot * 2);
+					fees = Arrays.copyOf(fees, slot * 2);
+					paid = Arrays.copyOf(paid, slot * 2);
+				}
+				slots.put(key, slot);
+				keys[slot] = key;
+			}
+			counts[slot] += sign;
+			fees[slot] += sign * fee;
+			paid[slot] += sign * amountPaid;
+		}
+
+		/**
+		 * Removes every group.
+		 */
+		void clear() {
+			slots.clear();
+			Arrays.fill(keys, null);
+			Arrays.fill(counts, 0);
+			Arrays.fill(fees, 0);
+			Arrays.fill(paid, 0);
+		}
+
+		/**
+		 * Gets the keys of the groups that hold a project.
+		 *
+		 * @return The keys, in no particular order.
+		 */
+		@SuppressWarnings("unchecked")
+		List<K> keys() {
+			List<K> used = new ArrayList<>(slots.size());
+			for (int slot = 0; slot < slots.size(); slot++) {
+				if (counts[slot] > 0) {
+					used.add((K) keys[slot]);
+				}
+			}
+			return used;
+		}
+
+		/**
+		 * Gets the totals of every group that holds a project, in key order.
+		 *
+		 * @param keyText Formats a group key.
+		 * @param label   Gives the label of a group from its key.
+		 * @return The summaries.
+		 */
+		@SuppressWarnings("unchecked")
+		List<FeeSummary> summarize(Function<K, String> keyText, Function<K, String> label) {
+			List<Integer> used = new ArrayList<>(slots.size());
+			for (int slot = 0; slot < slots.size(); slot++) {
+				if (counts[slot] > 0) {
+					used.add(slot);
+				}
+			}
+			used.sort((a, b) -> order.compare((K) keys[a], (K) keys[b]));
+
+			List<FeeSummary> summaries = new ArrayList<>(used.size());
+			for (int slot : used) {
+				K key = (K) keys[slot];
+				summaries.add(new FeeSummary(keyText.apply(key), label.apply(key), counts[slot],
+						fees[slot], paid[slot]));
+			}
+			return summaries;
+		}
+	}
+}
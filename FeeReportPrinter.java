@@ -0,0 +1,85 @@
+package poised;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * The FeeReportPrinter class renders {@link FeeSummary} totals as the console fee report. Output
+ * is buffered and written out when the printer is flushed or closed, rather than line by line.
+ */
+public class FeeReportPrinter implements AutoCloseable {
+	private final PrintWriter out;
+	private final boolean closeWriter;
+
+	/**
+	 * Constructs a new FeeReportPrinter that writes to standard output. Closing it flushes the
+	 * report but leaves standard output open.
+	 */
+	public FeeReportPrinter() {
+		this(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16), false);
+	}
+
+	/**
+	 * Constructs a new FeeReportPrinter that writes to the given writer.
+	 *
+	 * @param writer      The writer to render the report to.
+	 * @param closeWriter {@code true} to close the writer when the printer is closed.
+	 */
+	public FeeReportPrinter(Writer writer, boolean closeWriter) {
+		this.out = new PrintWriter(writer, false);
+		this.closeWriter = closeWriter;
+	}
+
+	/**
+	 * Renders the totals of the whole portfolio.
+	 *
+	 * @param total The totals.
+	 */
+	public void printTotal(FeeSummary total) {
+		out.printf("Projects: %d, Total Fees: %s, Amount Paid: %s, Outstanding: %s%n",
+				total.getProjectCount(), Money.format(total.getTotalFeeCents()),
+				Money.format(total.getAmountPaidCents()), Money.format(total.getOutstandingCents()));
+	}
+
+	/**
+	 * Renders the totals of the groups of one grouping under a heading.
+	 *
+	 * @param grouping  The grouping.
+	 * @param summaries The totals of each group.
+	 */
+	public void printGroups(FeeGrouping grouping, List<FeeSummary> summaries) {
+		out.printf("%nBy %s:%n", grouping.getTitle());
+		for (FeeSummary summary : summaries) {
+			String group = summary.getKey() == null ? "(none)"
+					: summary.getLabel() == null || summary.getLabel().equals(summary.getKey())
+							? summary.getKey()
+							: summary.getLabel() + " (" + summary.getKey() + ")";
+			out.printf("%s: %d projects, Total Fees: %s, Amount Paid: %s, Outstanding: %s%n",
+					group, summary.getProjectCount(), Money.format(summary.getTotalFeeCents()),
+					Money.format(summary.getAmountPaidCents()),
+					Money.format(summary.getOutstandingCents()));
+		}
+	}
+
+	/**
+	 * Writes out any buffered output.
+	 */
+	public void flush() {
+		out.flush();
+	}
+
+	/**
+	 * Flushes the report and, if requested when the printer was created, closes the writer.
+	 */
+	@Override
+	public void close() {
+		if (closeWriter) {
+			out.close();
+		} else {
+			out.flush();
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package poised;
+
+/**
+ * The FeeSummary class is a read-only total of the fees of a group of projects: how many projects
+ * there are, what they are billed, what has been paid and what is still outstanding. A summary of
+ * the whole portfolio has no key. Amounts are in cents.
+ */
+public class FeeSummary {
+	private final String key;
+	private final String label;
+	private final long projectCount;
+	private final long totalFee;
+	private final long amountPaid;
+
+	/**
+	 * Constructs a new FeeSummary object with the provided totals.
+	 *
+	 * @param key          The value the projects were grouped by, or {@code null} for projects
+	 *                     without one or for the whole portfolio.
+	 * @param label        The name to show for the group, for example the customer's name.
+	 * @param projectCount The number of projects in the group.
+	 * @param totalFee     The sum of the projects' total fees, in cents.
+	 * @param amountPaid   The sum of the amounts paid on the projects, in cents.
+	 */
+	public FeeSummary(String key, String label, long projectCount, long totalFee,
+			long amountPaid) {
+		this.key = key;
+		this.label = label;
+		this.projectCount = projectCount;
+		this.totalFee = totalFee;
+		this.amountPaid = amountPaid;
+	}
+
+	/**
+	 * Gets the value the projects were grouped by: a building type, a customer ID or a deadline
+	 * month such as {@code 2025-03}.
+	 *
+	 * @return The key, or {@code null}.
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * Gets the name to show for the group. It is the key itself except for customers, where it is
+	 * the customer's name.
+	 *
+	 * @return The label, or {@code null}.
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Gets the number of projects in the group.
+	 *
+	 * @return The number of projects.
+	 */
+	public long getProjectCount() {
+		return projectCount;
+	}
+
+	/**
+	 * Gets the sum of the projects' total fees.
+	 *
+	 * @return The total fees, in cents.
+	 */
+	public long getTotalFeeCents() {
+		return totalFee;
+	}
+
+	/**
+	 * Gets the sum of the amounts paid on the projects.
+	 *
+	 * @return The amount paid, in cents.
+	 */
+	public long getAmountPaidCents() {
+		return amountPaid;
+	}
+
+	/**
+	 * Gets the amount still to be paid on the projects.
+	 *
+	 * @return The total fees less the amount paid, in cents.
+	 */
+	public long getOutstandingCents() {
+		return Money.subtract(totalFee, amountPaid);
+	}
+
+	@Override
+	public String toString() {
+		return "FeeSummary[key=" + key + ", label=" + label + ", projects=" + projectCount
+				+ ", totalFee=" + Money.format(totalFee) + ", amountPaid=" + Money.format(amountPaid)
+				+ ", outstanding=" + Money.format(getOutstandingCents()) + "]";
+	}
+}
@@ -0,0 +1,1513 @@
+package poised;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * The FileProjectRepository class is an embedded store for sites that cannot run a MySQL server.
+ * Everything lives in a single file holding an append-only log of changes; the file is memory
+ * mapped, and the current projects and participants are kept in memory with the same indexes the
+ * database uses, so reads never leave the process.
+ *
+ * <p>
+ * Each write appends one frame to the log: a length, a CRC-32 checksum and the records written. A
+ * bulk import batch or a {@link UnitOfWork} is a single frame, so it is either stored whole or not
+ * at all. Every frame is forced to disk before the write returns. Opening the file replays the
+ * frames in order; a frame cut short by a crash fails its checksum and is discarded together with
+ * everything after it. The file can only be open once at a time.
+ *
+ * <p>
+ * The log is never rewritten, so it grows with every change, and a memory mapping limits it to
+ * 2 GB. The same constraints as the database schema are enforced: project numbers are unique and
+ * participants must exist.
+ */
+public class FileProjectRepository implements ProjectRepository {
+	// Identifies the file format; stored at the start of the file
+	private static final int MAGIC = 0x504F4C47;
+	private static final int FORMAT_VERSION = 1;
+	private static final int FILE_HEADER_BYTES = 8;
+	// Each frame starts with its payload length and the payload's CRC-32
+	private static final int FRAME_HEADER_BYTES = 8;
+	// The mapping grows in steps of at least this many bytes
+	private static final int MAP_CHUNK_BYTES = 4 << 20;
+
+	// Record types within a frame
+	private static final byte DELETE_PROJECT = 2;
+	private static final byte PUT_ARCHITECT = 3;
+	private static final byte PUT_CONTRACTOR = 4;
+	private static final byte PUT_CUSTOMER = 5;
+	private static final byte PUT_PROJECT = 6;
+	// Project record written before amounts were held in cents, with the amounts as doubles
+	private static final byte PUT_PROJECT_DOUBLE_AMOUNTS = 1;
+
+	// Stored in place of a missing date or participant
+	private static final long NO_DATE = Long.MIN_VALUE;
+	private static final int NO_ID = 0;
+
+	// Orders open projects as the overdue report lists them
+	private static final Comparator<StoredProject> DEADLINE_ORDER = Comparator
+			.<StoredProject>comparingLong(project -> project.deadline)
+			.thenComparingInt(project -> project.number);
+	// Orders projects as the change feed visits them
+	private static final Comparator<StoredProject> UPDATED_ORDER = Comparator
+			.<StoredProject>comparingLong(project -> project.updatedAt)
+			.thenComparingInt(project -> project.number);
+
+	private final Path path;
+	private final FileChannel channel;
+	private final FileLock fileLock;
+	private MappedByteBuffer log;
+	// Offset at which the next frame is written
+	private int end;
+	private boolean closed;
+
+	// Guards the log and everything below
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final NavigableMap<Integer, StoredProject> projects = new TreeMap<>();
+	private final Map<String, NavigableSet<Integer>> numbersByName = new HashMap<>();
+	// Project numbers of each participant's projects, by participant ID
+	private final Map<Integer, NavigableSet<Integer>> numbersByArchitect = new HashMap<>();
+	private final Map<Integer, NavigableSet<Integer>> numbersByContractor = new HashMap<>();
+	private final Map<Integer, NavigableSet<Integer>> numbersByCustomer = new HashMap<>();
+	private final NavigableSet<Integer> openNumbers = new TreeSet<>();
+	private final NavigableSet<StoredProject> openByDeadline = new TreeSet<>(DEADLINE_ORDER);
+	private final NavigableSet<StoredProject> byUpdatedAt = new TreeSet<>(UPDATED_ORDER);
+	private final FeeLedger fees = new FeeLedger();
+	private final NavigableMap<Integer, StoredParticipant> architects = new TreeMap<>();
+	private final NavigableMap<Integer, StoredParticipant> contractors = new TreeMap<>();
+	private final NavigableMap<Integer, StoredParticipant> customers = new TreeMap<>();
+	private int lastProjectId;
+	private int lastArchitectId;
+	private int lastContractorId;
+	private int lastCustomerId;
+	private long lastUpdatedAt;
+
+	/**
+	 * Opens a store, creating the file if it does not exist, and replays its log.
+	 *
+	 * @param path The file holding the store.
+	 * @return The opened store.
+	 * @throws SQLException If the file cannot be opened, is not a PoisePMS store, or is already
+	 *                      open.
+	 */
+	public static FileProjectRepository open(Path path) throws SQLException {
+		try {
+			return new FileProjectRepository(path);
+		} catch (IOException e) {
+			throw new SQLException("Cannot open " + path, e);
+		}
+	}
+
+	/**
+	 * Opens a store and replays its log.
+	 *
+	 * @param path The file holding the store.
+	 * @throws IOException  If the file cannot be read or mapped.
+	 * @throws SQLException If the file is not a PoisePMS store, or is already open.
+	 */
+	private FileProjectRepository(Path path) throws IOException, SQLException {
+		this.path = path;
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			FileLock acquired;
+			try {
+				acquired = channel.tryLock();
+			} catch (OverlappingFileLockException e) {
+				// Already open in this process
+				acquired = null;
+			}
+			if (acquired == null) {
+				throw new SQLException(path + " is already open");
+			}
+			this.fileLock = acquired;
+
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new SQLException(path + " is too large to map");
+			}
+			log = channel.map(FileChannel.MapMode.READ_WRITE, 0, roundUpToChunk(Math.max(size, 1)));
+			if (size == 0) {
+				log.putInt(0, MAGIC);
+				log.putInt(4, FORMAT_VERSION);
+				log.force(0, FILE_HEADER_BYTES);
+			} else if (size < FILE_HEADER_BYTES || log.getInt(0) != MAGIC) {
+				throw new SQLException(path + " is not a PoisePMS store");
+			} else if (log.getInt(4) != FORMAT_VERSION) {
+				throw new SQLException(path + " has unsupported format version " + log.getInt(4));
+			}
+			replay();
+		} catch (IOException | SQLException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Applies every complete frame in the log, and discards a frame left incomplete by a crash.
+	 *
+	 * @throws SQLException If a frame with a valid checksum cannot be decoded.
+	 */
+	private void replay() throws SQLException {
+		int position = FILE_HEADER_BYTES;
+		while (position + FRAME_HEADER_BYTES <= log.capacity()) {
+			int length = log.getInt(position);
+			if (length == 0) {
+				break;
+			}
+			int payloadStart = position + FRAME_HEADER_BYTES;
+			byte[] payload = null;
+			if (length > 0 && length <= log.capacity() - payloadStart) {
+				payload = new byte[length];
+				log.get(payloadStart, payload);
+			}
+			if (payload == null || checksum(payload) != log.getInt(position + 4)) {
+				// A torn write: clear it so that the next frame is appended in its place
+				for (int i = position; i < log.capacity(); i++) {
+					log.put(i, (byte) 0);
+				}
+				log.force();
+				break;
+			}
+			apply(payload);
+			position = payloadStart + length;
+		}
+		end = position;
+	}
+
+	@Override
+	public void insertProject(Project project) throws SQLException {
+		lock.writeLock().lock();
+		try {
+			ensureOpen();
+			StoredProject row = newProject(project, lastProjectId + 1, Set.of());
+			Frame frame = new Frame();
+			frame.putProject(row);
+			append(frame);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Inserts many projects, writing each batch as one frame. As every frame is durable once it is
+	 * written, the commit interval and insert style of the options do not apply.
+	 */
+	@Override
+	public BulkImportResult insertProjects(Iterable<Project> projects, BulkImportOptions options,
+			Consumer<? super Project> committed) {
+		BulkImportResult result = new BulkImportResult();
+		List<Project> durable = new ArrayList<>();
+		List<Project> batch = new ArrayList<>(options.getBatchSize());
+		int batchNumber = 0;
+		int firstIndex = 0;
+
+		try {
+			Iterator<Project> it = projects.iterator();
+			while (it.hasNext()) {
+				batch.add(it.next());
+				result.recordProcessed();
+				if (batch.size() < options.getBatchSize() && it.hasNext()) {
+					continue;
+				}
+
+				lock.writeLock().lock();
+				try {
+					ensureOpen();
+					Frame frame = new Frame();
+					Set<Integer> batchNumbers = new HashSet<>();
+					List<Project> inserted = new ArrayList<>(batch.size());
+					for (int i = 0; i < batch.size(); i++) {
+						Project project = batch.get(i);
+						try {
+							frame.putProject(newProject(project, lastProjectId + 1 + inserted.size(), batchNumbers));
+						} catch (SQLException e) {
+							result.recordFailure(
+									new BulkImportResult.FailedRow(batchNumber, firstIndex + i, project, e));
+							continue;
+						}
+						batchNumbers.add(project.getProjectNumber());
+						inserted.add(project);
+					}
+					append(frame);
+					result.recordInserted(inserted.size());
+					durable.addAll(inserted);
+				} finally {
+					lock.writeLock().unlock();
+				}
+				firstIndex += batch.size();
+				batch.clear();
+				batchNumber++;
+			}
+		} catch (SQLException e) {
+			// Record the error that stopped the import
+			result.recordAbort(e);
+		}
+
+		if (committed != null) {
+			durable.forEach(committed);
+		}
+		return result;
+	}
+
+	@Override
+	public UpdateResult updateProject(Project project, int fields) throws SQLException {
+		lock.writeLock().lock();
+		try {
+			ensureOpen();
+			StoredProject current = projects.get(project.getProjectNumber());
+			if (current == null) {
+				return UpdateResult.NOT_FOUND;
+			}
+			if (current.version != project.getVersion()) {
+				return UpdateResult.CONFLICT;
+			}
+			Frame frame = new Frame();
+			frame.putProject(merge(current, project, fields));
+			append(frame);
+			return UpdateResult.UPDATED;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public UpdateResult finalizeProject(int projectNumber, Integer expectedVersion,
+			Date completionDate) throws SQLException {
+		lock.writeLock().lock();
+		try {
+			ensureOpen();
+			StoredProject current = projects.get(projectNumber);
+			if (current == null) {
+				return UpdateResult.NOT_FOUND;
+			}
+			if (expectedVersion != null && current.version != expectedVersion) {
+				return UpdateResult.CONFLICT;
+			}
+			Frame frame = new Frame();
+			frame.putProject(current.finalized(day(completionDate), nextUpdatedAt()));
+			append(frame);
+			return UpdateResult.UPDATED;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean deleteProject(int projectNumber) throws SQLException {
+		lock.writeLock().lock();
+		try {
+			ensureOpen();
+			if (!projects.containsKey(projectNumber)) {
+				return false;
+			}
+			Frame frame = new Frame();
+			frame.deleteProject(projectNumber);
+			append(frame);
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public Project findProjectByNumber(int projectNumber) throws SQLException {
+		lock.readLock().lock();
+		try {
+			ensureOpen();
+			StoredProject row = projects.get(projectNumber);
+			return row != null ? toProject(row) : null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Finds a project by its number; the file has a single copy, so this is the latest.
+	 */
+	@Override
+	public Project findLatestProjectByNumber(int projectNumber) throws SQLException {
+		return findProjectByNumber(projectNumber);
+	}
+
+	/**
+	 * Finds a project by its name. If several projects share the name, the one with the lowest
+	 * project number is returned.
+	 */
+	@Override
+	public Project findProjectByName(String projectName) throws SQLException {
+		lock.readLock().lock();
+		try {
+			ensureOpen();
+			NavigableSet<Integer> numbers = numbersByName.get(projectName);
+			return numbers != null ? toProject(projects.get(numbers.first())) : null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Map<Integer, Project> findProjectsByNumbers(List<Integer> projectNumbers)
+			throws SQLException {
+		Map<Integer, Project> found = new HashMap<>();
+		lock.readLock().lock();
+		try {
+			ensureOpen();
+			for (Integer projectNumber : projectNumbers) {
+				StoredProject row = projects.get(projectNumber);
+				if (row != null) {
+					found.put(projectNumber, toProject(row));
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return found;
+	}
+
+	@Override
+	public List<Project> findProjects(int afterProjectNumber, int limit) throws SQLException {
+		List<Project> page = new ArrayList<>(limit);
+		lock.readLock().lock();
+		try {
+			ensureOpen();
+			for (StoredProject row : projects.tailMap(afterProjectNumber, false).values()) {
+				if (page.size() == limit) {
+					break;
+				}
+				page.add(toProject(row));
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return page;
+	}
+
+	@Override
+	public List<Project> findProjectsByParticipant(ParticipantRole role, int participantId,
+			boolean openOnly, int afterProjectNumber, int limit) throws SQLException {
+		List<Project> page = new ArrayList<>(limit);
+		lock.readLock().lock();
+		try {
+			ensureOpen();
+			NavigableSet<Integer> numbers = numbersBy(role).get(participantId);
+			if (numbers == null) {
+				return page;
+			}
+			for (Integer projectNumber : numbers.tailSet(afterProjectNumber, false)) {
+				if (page.size() == limit) {
+					break;
+				}
+				StoredProject row = projects.get(projectNumber);
+				if (!openOnly || row.completionDate == NO_DATE) {
+					page.add(toProject(row));
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return page;
+	}
+
+	@Override
+	public List<ProjectSummary> findIncompleteProjects(int afterProjectNumber, int limit)
+			throws SQLException {
+		List<ProjectSummary> page = new ArrayList<>(limit);
+		lock.readLock().lock();
+		try {
+			ensureOpen();
+			for (Integer projectNumber : openNumbers.tailSet(afterProjectNumber, false)) {
+				if (page.size() == limit) {
+					break;
+				}
+				page.add(toSummary(projects.get(projectNumber)));
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return page;
+	}
+
+	@Override
+	public List<ProjectSummary> findOverdueProjects(Date afterDeadline, int afterProjectNumber,
+			int limit) throws SQLException {
+		List<ProjectSummary> page = new ArrayList<>(limit);
+		StoredProject after = afterDeadline != null
+				? StoredProject.probe(day(afterDeadline), afterProjectNumber, 0)
+				: StoredProject.probe(NO_DATE, Integer.MIN_VALUE, 0);
+		long today = day(new Date());
+
+		lock.readLock().lock();
+		try {
+			ensureOpen();
+			for (StoredProject row : openByDeadline.tailSet(after, false)) {
+				if (page.size() == limit || row.deadline >= today) {
+					break;
+				}
+				page.add(toSummary(row));
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return page;
+	}
+
+	/**
+	 * Visits the changed projects one page at a time. The store is not locked while the consumer
+	 * runs, so the consumer may write to it.
+	 */
+	@Override
+	public Timestamp forEachProjectUpdatedSince(Timestamp since, int pageSize,
+			Consumer<? super Project> consumer) throws SQLException {
+		StoredProject after = StoredProject.probe(0, Integer.MIN_VALUE, since.getTime());
+		boolean inclusive = true;
+		long lastSeen = since.getTime();
+		List<Project> page = new ArrayList<>(pageSize);
+		do {
+			page.clear();
+			lock.readLock().lock();
+			try {
+				ensureOpen();
+				for (StoredProject row : byUpdatedAt.tailSet(after, inclusive)) {
+					if (page.size() == pageSize) {
+						break;
+					}
+					page.add(toProject(row));
+					after = row;
+					lastSeen = row.updatedAt;
+				}
+			} finally {
+				lock.readLock().unlock();
+			}
+			inclusive = false;
+			page.forEach(consumer);
+		} while (page.size() == pageSize);
+		return lastSeen == since.getTime() ? since : new Timestamp(lastSeen);
+	}
+
+	/**
+	 * Totals the fees from running totals kept as projects are written, without visiting the
+	 * projects.
+	 */
+	@Override
+	public FeeSummary summarizeFees() throws SQLException {
+		lock.readLock().lock();
+		try {
+			ensureOpen();
+			return fees.total();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Totals the fees from running totals kept as projects are written, without visiting the
+	 * projects.
+	 */
+	@Override
+	public List<FeeSummary> summarizeFees(FeeGrouping grouping) throws SQLException {
+		lock.readLock().lock();
+		try {
+			ensureOpen();
+			return fees.summarize(grouping, id -> {
+				StoredParticipant customer = customers.get(id);
+				return customer != null ? customer.name : null;
+			});
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Writes the changes as one frame. Changes to projects or participants that do not exist are
+	 * left out, as the database would; if any project update is not at the current version,
+	 * nothing is written.
+	 */
+	@Override
+	public ChangeSet commit(ChangeSet changes) throws SQLException {
+		lock.writeLock().lock();
+		try {
+			ensureOpen();
+			Frame frame = new Frame();
+
+			List<Architect> updatedArchitects = new ArrayList<>();
+			for (Architect architect : changes.getArchitects()) {
+				if (architects.containsKey(architect.getId())) {
+					frame.putParticipant(PUT_ARCHITECT, architect.getId(), architect.getName(),
+							architect.getPhoneNumber(), architect.getEmail(), architect.getPhysicalAddress());
+					updatedArchitects.add(architect);
+				}
+			}
+			List<Contractor> updatedContractors = new ArrayList<>();
+			for (Contractor contractor : changes.getContractors()) {
+				if (contractors.containsKey(contractor.getId())) {
+					frame.putParticipant(PUT_CONTRACTOR, contractor.getId(), contractor.getName(),
+							contractor.getPhoneNumber(), contractor.getEmail(), contractor.getPhysicalAddress());
+					updatedContractors.add(contractor);
+				}
+			}
+			List<Customer> updatedCustomers = new ArrayList<>();
+			for (Customer customer : changes.getCustomers()) {
+				if (customers.containsKey(customer.getId())) {
+					frame.putParticipant(PUT_CUSTOMER, customer.getId(), customer.getName(),
+							customer.getPhoneNumber(), customer.getEmail(), customer.getPhysicalAddress());
+					updatedCustomers.add(customer);
+				}
+			}
+
+			// The state of each project touched so far, or null once it is deleted
+			Map<Integer, StoredProject> pending = new LinkedHashMap<>();
+			List<Project> updated = new ArrayList<>();
+			for (Project project : changes.getProjectUpdates()) {
+				StoredProject current = pendingProject(pending, project.getProjectNumber());
+				if (current == null) {
+					continue;
+				}
+				if (current.version != project.getVersion()) {
+					throw new SQLTransactionRollbackException(
+							"Project " + project.getProjectNumber() + " was changed by another session", "40001");
+				}
+				pending.put(project.getProjectNumber(), merge(current, project, project.getDirtyFieldBits()));
+				updated.add(project);
+			}
+			Map<Integer, Date> finalized = new LinkedHashMap<>();
+			for (Map.Entry<Integer, Date> finalization : changes.getFinalizations().entrySet()) {
+				StoredProject current = pendingProject(pending, finalization.getKey());
+				Integer expectedVersion = changes.getFinalizationVersions().get(finalization.getKey());
+				if (current != null && expectedVersion != null && current.version != expectedVersion) {
+					throw new SQLTransactionRollbackException(
+							"Project " + finalization.getKey() + " was changed by another session", "40001");
+				}
+				if (current != null) {
+					pending.put(finalization.getKey(),
+							current.finalized(day(finalization.getValue()), nextUpdatedAt()));
+					finalized.put(finalization.getKey(), finalization.getValue());
+				}
+			}
+			List<Integer> deleted = new ArrayList<>();
+			for (Integer projectNumber : changes.getDeletions()) {
+				if (pendingProject(pending, projectNumber) != null) {
+					pending.put(projectNumber, null);
+					deleted.add(projectNumber);
+				}
+			}
+
+			pending.forEach((projectNumber, row) -> {
+				if (row != null) {
+					frame.putProject(row);
+				} else {
+					frame.deleteProject(projectNumber);
+				}
+			});
+			append(frame);
+			return new ChangeSet(updatedArchitects, updatedContractors, updatedCustomers, updated,
+					finalized, changes.getFinalizationVersions(), deleted);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the state of a project as a commit in progress would leave it.
+	 *
+	 * @param pending       The projects changed so far by the commit.
+	 * @param projectNumber The project number.
+	 * @return The project, or {@code null} if it does not exist or has been deleted.
+	 */
+	private StoredProject pendingProject(Map<Integer, StoredProject> pending, int projectNumber) {
+		return pending.containsKey(projectNumber) ? pending.get(projectNumber)
+				: projects.get(projectNumber);
+	}
+
+	@Override
+	public void insertArchitect(Architect architect) throws SQLException {
+		architect.setId(insertParticipant(PUT_ARCHITECT, architect.getName(),
+				architect.getPhoneNumber(), architect.getEmail(), architect.getPhysicalAddress()));
+	}
+
+	@Override
+	public Architect findArchitectById(int architectId) throws SQLException {
+		StoredParticipant row = findParticipant(architects, architectId);
+		return row != null ? toArchitect(row) : null;
+	}
+
+	@Override
+	public Map<Integer, Architect> findArchitectsByIds(Collection<Integer> architectIds)
+			throws SQLException {
+		Map<Integer, Architect> found = new HashMap<>();
+		for (StoredParticipant row : findParticipants(architects, architectIds)) {
+			found.put(row.id, toArchitect(row));
+		}
+		return found;
+	}
+
+	@Override
+	public boolean updateArchitect(Architect architect) throws SQLException {
+		return updateParticipant(PUT_ARCHITECT, architects, architect.getId(), architect.getName(),
+				architect.getPhoneNumber(), architect.getEmail(), architect.getPhysicalAddress());
+	}
+
+	@Override
+	public List<Architect> findArchitects(int afterArchitectId, int limit) throws SQLException {
+		List<Architect> page = new ArrayList<>(limit);
+		for (StoredParticipant row : findParticipantPage(architects, afterArchitectId, limit)) {
+			page.add(toArchitect(row));
+		}
+		return page;
+	}
+
+	@Override
+	public void insertArchitects(Collection<Architect> architects) throws SQLException {
+		insertParticipants(PUT_ARCHITECT, architects.stream()
+				.map(architect -> new StoredParticipant(architect.getId(), architect.getName(), architect.getPhoneNumber(),
+						architect.getEmail(), architect.getPhysicalAddress()))
+				.toList());
+	}
+
+	@Override
+	public void insertContractor(Contractor contractor) throws SQLException {
+		contractor.setId(insertParticipant(PUT_CONTRACTOR, contractor.getName(),
+				contractor.getPhoneNumber(), contractor.getEmail(), contractor.getPhysicalAddress()));
+	}
+
+	@Override
+	public Contractor findContractorById(int contractorId) throws SQLException {
+		StoredParticipant row = findParticipant(contractors, contractorId);
+		return row != null ? toContractor(row) : null;
+	}
+
+	@Override
+	public Map<Integer, Contractor> findContractorsByIds(Collection<Integer> contractorIds)
+			throws SQLException {
+		Map<Integer, Contractor> found = new HashMap<>();
+		for (StoredParticipant row : findParticipants(contractors, contractorIds)) {
+			found.put(row.id, toContractor(row));
+		}
+		return found;
+	}
+
+	@Override
+	public boolean updateContractor(Contractor contractor) throws SQLException {
+		return updateParticipant(PUT_CONTRACTOR, contractors, contractor.getId(), contractor.getName(),
+				contractor.getPhoneNumber(), contractor.getEmail(), contractor.getPhysicalAddress());
+	}
+
+	@Override
+	public List<Contractor> findContractors(int afterContractorId, int limit) throws SQLException {
+		List<Contractor> page = new ArrayList<>(limit);
+		for (StoredParticipant row : findParticipantPage(contractors, afterContractorId, limit)) {
+			page.add(toContractor(row));
+		}
+		return page;
+	}
+
+	@Override
+	public void insertContractors(Collection<Contractor> contractors) throws SQLException {
+		insertParticipants(PUT_CONTRACTOR, contractors.stream()
+				.map(contractor -> new StoredParticipant(contractor.getId(), contractor.getName(), contractor.getPhoneNumber(),
+						contractor.getEmail(), contractor.getPhysicalAddress()))
+				.toList());
+	}
+
+	@Override
+	public void insertCustomer(Customer customer) throws SQLException {
+		customer.setId(insertParticipant(PUT_CUSTOMER, customer.getName(),
+				customer.getPhoneNumber(), customer.getEmail(), customer.getPhysicalAddress()));
+	}
+
+	@Override
+	public Customer findCustomerById(int customerId) throws SQLException {
+		StoredParticipant row = findParticipant(customers, customerId);
+		return row != null ? toCustomer(row) : null;
+	}
+
+	@Override
+	public Map<Integer, Customer> findCustomersByIds(Collection<Integer> customerIds)
+			throws SQLException {
+		Map<Integer, Customer> found = new HashMap<>();
+		for (StoredParticipant row : findParticipants(customers, customerIds)) {
+			found.put(row.id, toCustomer(row));
+		}
+		return found;
+	}
+
+	@Override
+	public boolean updateCustomer(Customer customer) throws SQLException {
+		return updateParticipant(PUT_CUSTOMER, customers, customer.getId(), customer.getName(),
+				customer.getPhoneNumber(), customer.getEmail(), customer.getPhysicalAddress());
+	}
+
+	@Override
+	public List<Customer> findCustomers(int afterCustomerId, int limit) throws SQLException {
+		List<Customer> page = new ArrayList<>(limit);
+		for (StoredParticipant row : findParticipantPage(customers, afterCustomerId, limit)) {
+			page.add(toCustomer(row));
+		}
+		return page;
+	}
+
+	@Override
+	public void insertCustomers(Collection<Customer> customers) throws SQLException {
+		insertParticipants(PUT_CUSTOMER, customers.stream()
+				.map(customer -> new StoredParticipant(customer.getId(), customer.getName(), customer.getPhoneNumber(),
+						customer.getEmail(), customer.getPhysicalAddress()))
+				.toList());
+	}
+
+	/**
+	 * Does nothing: the file has a single copy of the projects, and every read sees every write.
+	 */
+	@Override
+	public void readYourWrites(long millis) {
+	}
+
+	/**
+	 * Forces the log to disk and releases the file.
+	 */
+	@Override
+	public void close() throws SQLException {
+		lock.writeLock().lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			log.force();
+			fileLock.release();
+			channel.close();
+		} catch (IOException e) {
+			throw new SQLException("Cannot close " + path, e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the path of the file holding the store.
+	 *
+	 * @return The path.
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Gets the size of the log.
+	 *
+	 * @return The number of bytes of the file in use.
+	 */
+	public int getLogSize() {
+		lock.readLock().lock();
+		try {
+			return end;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Inserts a participant with the next free ID.
+	 *
+	 * @param type            The record type of the participant's role.
+	 * @param name            The participant's name.
+	 * @param phoneNumber     The participant's phone number.
+	 * @param email           The participant's email address.
+	 * @param physicalAddress The participant's physical address.
+	 * @return The ID given to the participant.
+	 * @throws SQLException If the participant cannot be written.
+	 */
+	private int insertParticipant(byte type, String name, String phoneNumber, String email,
+			String physicalAddress) throws SQLException {
+		lock.writeLock().lock();
+		try {
+			ensureOpen();
+			int id = (type == PUT_ARCHITECT ? lastArchitectId
+					: type == PUT_CONTRACTOR ? lastContractorId : lastCustomerId) + 1;
+			Frame frame = new Frame();
+			frame.putParticipant(type, id, name, phoneNumber, email, physicalAddress);
+			append(frame);
+			return id;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Inserts many participants of one role, keeping their IDs, as one frame.
+	 *
+	 * @param type The record type of the participants' role.
+	 * @param rows The participants to insert.
+	 * @throws SQLException If an ID is taken or repeated, or the participants cannot be written.
+	 */
+	private void insertParticipants(byte type, List<StoredParticipant> rows) throws SQLException {
+		lock.writeLock().lock();
+		try {
+			ensureOpen();
+			Map<Integer, StoredParticipant> existing = type == PUT_ARCHITECT ? architects
+					: type == PUT_CONTRACTOR ? contractors : customers;
+			Set<Integer> ids = new HashSet<>();
+			Frame frame = new Frame();
+			for (StoredParticipant row : rows) {
+				if (row.id <= NO_ID || existing.containsKey(row.id) || !ids.add(row.id)) {
+					throw new SQLIntegrityConstraintViolationException(
+							"Duplicate or invalid entry '" + row.id + "' for key 'PRIMARY'", "23000");
+				}
+				frame.putParticipant(type, row.id, row.name, row.phoneNumber, row.email,
+						row.physicalAddress);
+			}
+			append(frame);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Reads one page of the participants of one role, ordered by ID.
+	 *
+	 * @param rows    The participants of the role.
+	 * @param afterId The last ID of the previous page.
+	 * @param limit   The maximum number of participants to read.
+	 * @return The participants on the page.
+	 * @throws SQLException If the store is closed.
+	 */
+	private List<StoredParticipant> findParticipantPage(NavigableMap<Integer, StoredParticipant> rows,
+			int afterId, int limit) throws SQLException {
+		List<StoredParticipant> page = new ArrayList<>(limit);
+		lock.readLock().lock();
+		try {
+			ensureOpen();
+			for (StoredParticipant row : rows.tailMap(afterId, false).values()) {
+				if (page.size() == limit) {
+					break;
+				}
+				page.add(row);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return page;
+	}
+
+	/**
+	 * Reads a participant by their ID.
+	 *
+	 * @param rows The participants of one role.
+	 * @param id   The participant's ID.
+	 * @return The participant, or {@code null} if there is none.
+	 * @throws SQLException If the store is closed.
+	 */
+	private StoredParticipant findParticipant(Map<Integer, StoredParticipant> rows, int id)
+			throws SQLException {
+		lock.readLock().lock();
+		try {
+			ensureOpen();
+			return rows.get(id);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Reads many participants of one role.
+	 *
+	 * @param rows The participants of the role.
+	 * @param ids  The participant IDs.
+	 * @return The participants found.
+	 * @throws SQLException If the store is closed.
+	 */
+	private List<StoredParticipant> findParticipants(Map<Integer, StoredParticipant> rows,
+			Collection<Integer> ids) throws SQLException {
+		List<StoredParticipant> found = new ArrayList<>(ids.size());
+		lock.readLock().lock();
+		try {
+			ensureOpen();
+			for (Integer id : ids) {
+				StoredParticipant row = rows.get(id);
+				if (row != null) {
+					found.add(row);
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return found;
+	}
+
+	/**
+	 * Replaces the details of an existing participant.
+	 *
+	 * @param type            The record type of the participant's role.
+	 * @param rows            The participants of that role.
+	 * @param id              The participant's ID.
+	 * @param name            The participant's name.
+	 * @param phoneNumber     The participant's phone number.
+	 * @param email           The participant's email address.
+	 * @param physicalAddress The participant's physical address.
+	 * @return {@code true} if the participant existed.
+	 * @throws SQLException If the participant cannot be written.
+	 */
+	private boolean updateParticipant(byte type, Map<Integer, StoredParticipant> rows, int id,
+			String name, String phoneNumber, String email, String physicalAddress)
+			throws SQLException {
+		lock.writeLock().lock();
+		try {
+			ensureOpen();
+			if (!rows.containsKey(id)) {
+				return false;
+			}
+			Frame frame = new Frame();
+			frame.putParticipant(type, id, name, phoneNumber, email, physicalAddress);
+			append(frame);
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Builds the stored form of a new project, checking it against the constraints of the schema.
+	 *
+	 * @param project      The project to insert.
+	 * @param id           The project ID to give it.
+	 * @param otherNumbers Project numbers taken by other projects being inserted alongside it.
+	 * @return The stored project.
+	 * @throws SQLException If the project number is taken or a participant is missing.
+	 */
+	private StoredProject newProject(Project project, int id, Set<Integer> otherNumbers)
+			throws SQLException {
+		int number = project.getProjectNumber();
+		if (projects.containsKey(number) || otherNumbers.contains(number)) {
+			throw new SQLIntegrityConstraintViolationException(
+					"Duplicate entry '" + number + "' for key 'ux_projects_project_number'", "23000");
+		}
+		StoredProject row = new StoredProject(id, number, project.getProjectName(),
+				project.getBuildingType(), project.getAddress(), project.getErfNumber(),
+				project.getTotalFeeCents(), project.getAmountPaidCents(), day(project.getDeadline()),
+				day(project.getCompletionDate()), idOf(project.getArchitect()),
+				idOf(project.getContractor()), idOf(project.getCustomer()), 0, nextUpdatedAt());
+		checkReferences(row);
+		return row;
+	}
+
+	/**
+	 * Builds the stored form of a project after some of its fields are written, with its version
+	 * moved on.
+	 *
+	 * @param current The project as stored.
+	 * @param project The project holding the new values.
+	 * @param fields  The fields to write, as {@link Project.Field} bits.
+	 * @return The new stored project.
+	 * @throws SQLException If a participant written is missing.
+	 */
+	private StoredProject merge(StoredProject current, Project project, int fields)
+			throws SQLException {
+		StoredProject row = new StoredProject(current.id, current.number,
+				has(fields, Project.Field.PROJECT_NAME) ? project.getProjectName() : current.name,
+				has(fields, Project.Field.BUILDING_TYPE) ? project.getBuildingType() : current.buildingType,
+				has(fields, Project.Field.ADDRESS) ? project.getAddress() : current.address,
+				has(fields, Project.Field.ERF_NUMBER) ? project.getErfNumber() : current.erfNumber,
+				has(fields, Project.Field.TOTAL_FEE) ? project.getTotalFeeCents() : current.totalFee,
+				has(fields, Project.Field.AMOUNT_PAID) ? project.getAmountPaidCents() : current.amountPaid,
+				has(fields, Project.Field.DEADLINE) ? day(project.getDeadline()) : current.deadline,
+				has(fields, Project.Field.COMPLETION_DATE) ? day(project.getCompletionDate())
+						: current.completionDate,
+				has(fields, Project.Field.ARCHITECT) ? idOf(project.getArchitect()) : current.architectId,
+				has(fields, Project.Field.CONTRACTOR) ? idOf(project.getContractor()) : current.contractorId,
+				has(fields, Project.Field.CUSTOMER) ? idOf(project.getCustomer()) : current.customerId,
+				current.version + 1, nextUpdatedAt());
+		checkReferences(row);
+		return row;
+	}
+
+	/**
+	 * Checks that a project has a deadline and that its participants exist.
+	 *
+	 * @param row The project to check.
+	 * @throws SQLException If the deadline or a participant is missing.
+	 */
+	private void checkReferences(StoredProject row) throws SQLException {
+		if (row.deadline == NO_DATE) {
+			throw new SQLIntegrityConstraintViolationException(
+					"Project " + row.number + " has no deadline", "23000");
+		}
+		checkReference("architect", architects, row.architectId, row.number);
+		checkReference("contractor", contractors, row.contractorId, row.number);
+		checkReference("customer", customers, row.customerId, row.number);
+	}
+
+	/**
+	 * Checks that a project's participant exists.
+	 *
+	 * @param role          The participant's role.
+	 * @param rows          The participants of that role.
+	 * @param id            The participant's ID.
+	 * @param projectNumber The project number, for the message.
+	 * @throws SQLException If the participant is missing.
+	 */
+	private static void checkReference(String role, Map<Integer, StoredParticipant> rows, int id,
+			int projectNumber) throws SQLException {
+		if (!rows.containsKey(id)) {
+			throw new SQLIntegrityConstraintViolationException("Project " + projectNumber
+					+ (id == NO_ID ? " has no " + role : " refers to missing " + role + " " + id), "23000");
+		}
+	}
+
+	/**
+	 * Appends a frame to the log, forces it to disk and applies it to the in-memory state. Nothing
+	 * is written for an empty frame. The caller must hold the write lock.
+	 *
+	 * @param frame The frame to append.
+	 * @throws SQLException If the frame cannot be written.
+	 */
+	private void append(Frame frame) throws SQLException {
+		byte[] payload = frame.toByteArray();
+		if (payload.length == 0) {
+			return;
+		}
+		long frameEnd = (long) end + FRAME_HEADER_BYTES + payload.length;
+		try {
+			if (frameEnd > log.capacity()) {
+				if (frameEnd > Integer.MAX_VALUE) {
+					throw new SQLException(path + " is full");
+				}
+				// Grow the file, keeping at least one chunk of free space after the frame
+				log.force();
+				log = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+						Math.min(Integer.MAX_VALUE, roundUpToChunk(Math.max(frameEnd, 2L * log.capacity()))));
+			}
+			log.putInt(end + 4, checksum(payload));
+			log.put(end + FRAME_HEADER_BYTES, payload);
+			// The length goes last, so that a frame is never seen before it is complete
+			log.putInt(end, payload.length);
+			log.force(end, FRAME_HEADER_BYTES + payload.length);
+		} catch (IOException | RuntimeException e) {
+			throw new SQLException("Cannot write to " + path, e);
+		}
+		end = (int) frameEnd;
+		apply(payload);
+	}
+
+	/**
+	 * Applies the records of one frame to the in-memory state.
+	 *
+	 * @param payload The frame's records.
+	 * @throws SQLException If a record cannot be decoded.
+	 */
+	private void apply(byte[] payload) throws SQLException {
+		ByteBuffer in = ByteBuffer.wrap(payload);
+		try {
+			while (in.hasRemaining()) {
+				byte type = in.get();
+				switch (type) {
+				case PUT_PROJECT -> putProject(new StoredProject(in.getInt(), in.getInt(), readString(in),
+						readString(in), readString(in), readString(in), in.getLong(), in.getLong(),
+						in.getLong(), in.getLong(), in.getInt(), in.getInt(), in.getInt(), in.getInt(),
+						in.getLong()));
+				case PUT_PROJECT_DOUBLE_AMOUNTS -> putProject(new StoredProject(in.getInt(), in.getInt(),
+						readString(in), readString(in), readString(in), readString(in),
+						Money.fromDouble(in.getDouble()), Money.fromDouble(in.getDouble()), in.getLong(),
+						in.getLong(), in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getLong()));
+				case DELETE_PROJECT -> removeProject(in.getInt());
+				case PUT_ARCHITECT -> lastArchitectId = putParticipant(architects, lastArchitectId, in);
+				case PUT_CONTRACTOR -> lastContractorId = putParticipant(contractors, lastContractorId, in);
+				case PUT_CUSTOMER -> lastCustomerId = putParticipant(customers, lastCustomerId, in);
+				default -> throw new SQLException("Unknown record type " + type + " in " + path);
+				}
+			}
+		} catch (RuntimeException e) {
+			throw new SQLException("Corrupt record in " + path, e);
+		}
+	}
+
+	/**
+	 * Stores a project in memory, replacing any earlier state of it.
+	 *
+	 * @param row The project.
+	 */
+	private void putProject(StoredProject row) {
+		removeProject(row.number);
+		projects.put(row.number, row);
+		numbersByName.computeIfAbsent(row.name, name -> new TreeSet<>()).add(row.number);
+		numbersByArchitect.computeIfAbsent(row.architectId, id -> new TreeSet<>()).add(row.number);
+		numbersByContractor.computeIfAbsent(row.contractorId, id -> new TreeSet<>()).add(row.number);
+		numbersByCustomer.computeIfAbsent(row.customerId, id -> new TreeSet<>()).add(row.number);
+		if (row.completionDate == NO_DATE) {
+			openNumbers.add(row.number);
+			openByDeadline.add(row);
+		}
+		byUpdatedAt.add(row);
+		fees.add(row.buildingType, row.customerId, feeMonth(row), row.totalFee, row.amountPaid);
+		lastProjectId = Math.max(lastProjectId, row.id);
+		lastUpdatedAt = Math.max(lastUpdatedAt, row.updatedAt);
+	}
+
+	/**
+	 * Removes a project from memory.
+	 *
+	 * @param projectNumber The project number.
+	 */
+	private void removeProject(int projectNumber) {
+		StoredProject row = projects.remove(projectNumber);
+		if (row == null) {
+			return;
+		}
+		removeNumber(numbersByName, row.name, projectNumber);
+		removeNumber(numbersByArchitect, row.architectId, projectNumber);
+		removeNumber(numbersByContractor, row.contractorId, projectNumber);
+		removeNumber(numbersByCustomer, row.customerId, projectNumber);
+		openNumbers.remove(projectNumber);
+		openByDeadline.remove(row);
+		byUpdatedAt.remove(row);
+		fees.remove(row.buildingType, row.customerId, feeMonth(row), row.totalFee, row.amountPaid);
+	}
+
+	/**
+	 * Removes a project number from the set held under a key, dropping the set once it is empty.
+	 *
+	 * @param numbersByKey  The sets of project numbers, by key.
+	 * @param key           The key the project is held under.
+	 * @param projectNumber The project number.
+	 */
+	private static <K> void removeNumber(Map<K, NavigableSet<Integer>> numbersByKey, K key,
+			int projectNumber) {
+		NavigableSet<Integer> numbers = numbersByKey.get(key);
+		numbers.remove(projectNumber);
+		if (numbers.isEmpty()) {
+			numbersByKey.remove(key);
+		}
+	}
+
+	/**
+	 * Gets the project numbers of each participant's projects in a role.
+	 *
+	 * @param role The role.
+	 * @return The sets of project numbers, by participant ID.
+	 */
+	private Map<Integer, NavigableSet<Integer>> numbersBy(ParticipantRole role) {
+		return switch (role) {
+		case ARCHITECT -> numbersByArchitect;
+		case CONTRACTOR -> numbersByContractor;
+		case CUSTOMER -> numbersByCustomer;
+		};
+	}
+
+	/**
+	 * Gets the month of a project's deadline for the fee totals.
+	 *
+	 * @param row The project.
+	 * @return The month, or {@link FeeLedger#NO_MONTH} if the project has no deadline.
+	 */
+	private static int feeMonth(StoredProject row) {
+		return FeeLedger.monthOf(toDate(row.deadline));
+	}
+
+	/**
+	 * Decodes a participant record and stores the participant in memory.
+	 *
+	 * @param rows   The participants of the record's role.
+	 * @param lastId The highest ID given so far in that role.
+	 * @param in     The record, positioned after its type.
+	 * @return The new highest ID.
+	 */
+	private static int putParticipant(Map<Integer, StoredParticipant> rows, int lastId,
+			ByteBuffer in) {
+		StoredParticipant row = new StoredParticipant(in.getInt(), readString(in), readString(in),
+				readString(in), readString(in));
+		rows.put(row.id, row);
+		return Math.max(lastId, row.id);
+	}
+
+	/**
+	 * Builds a project, with copies of its participants, from its stored form.
+	 *
+	 * @param row The stored project.
+	 * @return A new project, marked clean.
+	 */
+	private Project toProject(StoredProject row) {
+		StoredParticipant architect = architects.get(row.architectId);
+		StoredParticipant contractor = contractors.get(row.contractorId);
+		StoredParticipant customer = customers.get(row.customerId);
+		Project project = new Project(row.id, row.number, row.name, row.buildingType, row.address,
+				row.erfNumber, row.totalFee, row.amountPaid, toDate(row.deadline),
+				toDate(row.completionDate), architect != null ? toArchitect(architect) : null,
+				contractor != null ? toContractor(contractor) : null,
+				customer != null ? toCustomer(customer) : null);
+		project.setVersion(row.version);
+		project.markClean();
+		return project;
+	}
+
+	private static ProjectSummary toSummary(StoredProject row) {
+		return new ProjectSummary(row.number, row.name, row.buildingType, row.address,
+				toDate(row.deadline));
+	}
+
+	private static Architect toArchitect(StoredParticipant row) {
+		return new Architect(row.id, row.name, row.phoneNumber, row.email, row.physicalAddress);
+	}
+
+	private static Contractor toContractor(StoredParticipant row) {
+		return new Contractor(row.id, row.name, row.phoneNumber, row.email, row.physicalAddress);
+	}
+
+	private static Customer toCustomer(StoredParticipant row) {
+		return new Customer(row.id, row.name, row.phoneNumber, row.email, row.physicalAddress);
+	}
+
+	/**
+	 * Gets a change time for a write, never earlier than any change time already stored.
+	 *
+	 * @return The change time, in milliseconds since the epoch.
+	 */
+	private long nextUpdatedAt() {
+		return Math.max(System.currentTimeMillis(), lastUpdatedAt);
+	}
+
+	/**
+	 * Checks that the store has not been closed.
+	 *
+	 * @throws SQLException If it has.
+	 */
+	private void ensureOpen() throws SQLException {
+		if (closed) {
+			throw new SQLException(path + " is closed");
+		}
+	}
+
+	private static boolean has(int fields, Project.Field field) {
+		return (fields & field.bit()) != 0;
+	}
+
+	private static int idOf(Architect architect) {
+		return architect != null ? architect.getId() : NO_ID;
+	}
+
+	private static int idOf(Contractor contractor) {
+		return contractor != null ? contractor.getId() : NO_ID;
+	}
+
+	private static int idOf(Customer customer) {
+		return customer != null ? customer.getId() : NO_ID;
+	}
+
+	/**
+	 * Converts a date to the start of the day it falls on in the local time zone, as a
+	 * {@code DATE} column stores it.
+	 *
+	 * @param date The date, or {@code null}.
+	 * @return The start of the day in milliseconds, or {@link #NO_DATE} if {@code date} is
+	 *         {@code null}.
+	 */
+	private static long day(Date date) {
+		if (date == null) {
+			return NO_DATE;
+		}
+		LocalDate day = new java.sql.Date(date.getTime()).toLocalDate();
+		return java.sql.Date.valueOf(day).getTime();
+	}
+
+	private static java.sql.Date toDate(long day) {
+		return day != NO_DATE ? new java.sql.Date(day) : null;
+	}
+
+	private static long roundUpToChunk(long size) {
+		return (size + MAP_CHUNK_BYTES - 1) / MAP_CHUNK_BYTES * MAP_CHUNK_BYTES;
+	}
+
+	private static int checksum(byte[] payload) {
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		return (int) crc.getValue();
+	}
+
+	private static String readString(ByteBuffer in) {
+		int length = in.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * The records of a frame being built.
+	 */
+	private static final class Frame {
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private final DataOutputStream out = new DataOutputStream(bytes);
+
+		void putProject(StoredProject row) {
+			try {
+				out.writeByte(PUT_PROJECT);
+				out.writeInt(row.id);
+				out.writeInt(row.number);
+				writeString(row.name);
+				writeString(row.buildingType);
+				writeString(row.address);
+				writeString(row.erfNumber);
+				out.writeLong(row.totalFee);
+				out.writeLong(row.amountPaid);
+				out.writeLong(row.deadline);
+				out.writeLong(row.completionDate);
+				out.writeInt(row.architectId);
+				out.writeInt(row.contractorId);
+				out.writeInt(row.customerId);
+				out.writeInt(row.version);
+				out.writeLong(row.updatedAt);
+			} catch (IOException e) {
+				// Writes to a ByteArrayOutputStream do not fail
+				throw new IllegalStateException(e);
+			}
+		}
+
+		void deleteProject(int projectNumber) {
+			try {
+				out.writeByte(DELETE_PROJECT);
+				out.writeInt(projectNumber);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		void putParticipant(byte type, int id, String name, String phoneNumber, String email,
+				String physicalAddress) {
+			try {
+				out.writeByte(type);
+				out.writeInt(id);
+				writeString(name);
+				writeString(phoneNumber);
+				writeString(email);
+				writeString(physicalAddress);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		byte[] toByteArray() {
+			return bytes.toByteArray();
+		}
+
+		private void writeString(String value) throws IOException {
+			if (value == null) {
+				out.writeInt(-1);
+				return;
+			}
+			byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(encoded.length);
+			out.write(encoded);
+		}
+	}
+
+	/**
+	 * A project as stored, with its participants referred to by ID. Instances are immutable.
+	 */
+	private static final class StoredProject {
+		private final int id;
+		private final int number;
+		private final String name;
+		private final String buildingType;
+		private final String address;
+		private final String erfNumber;
+		// Amounts in cents
+		private final long totalFee;
+		private final long amountPaid;
+		private final long deadline;
+		private final long completionDate;
+		private final int architectId;
+		private final int contractorId;
+		private final int customerId;
+		private final int version;
+		private final long updatedAt;
+
+		StoredProject(int id, int number, String name, String buildingType, String address,
+				String erfNumber, long totalFee, long amountPaid, long deadline, long completionDate,
+				int architectId, int contractorId, int customerId, int version, long updatedAt) {
+			this.id = id;
+			this.number = number;
+			this.name = name;
+			this.buildingType = buildingType;
+			this.address = address;
+			this.erfNumber = erfNumber;
+			this.totalFee = totalFee;
+			this.amountPaid = amountPaid;
+			this.deadline = deadline;
+			this.completionDate = completionDate;
+			this.architectId = architectId;
+			this.contractorId = contractorId;
+			this.customerId = customerId;
+			this.version = version;
+			this.updatedAt = updatedAt;
+		}
+
+		/**
+		 * Builds a key for seeking in the ordered sets.
+		 */
+		static StoredProject probe(long deadline, int number, long updatedAt) {
+			return new StoredProject(0, number, null, null, null, null, 0, 0, deadline, NO_DATE,
+					NO_ID, NO_ID, NO_ID, 0, updatedAt);
+		}
+
+		/**
+		 * Builds the state of this project once finalised, with its version moved on.
+		 */
+		StoredProject finalized(long completionDate, long updatedAt) {
+			return new StoredProject(id, number, name, buildingType, address, erfNumber, totalFee,
+					amountPaid, deadline, completionDate, architectId, contractorId, customerId,
+					version + 1, updatedAt);
+		}
+	}
+
+	/**
+	 * An architect, contractor or customer as stored. Instances are immutable.
+	 */
+	private static final class StoredParticipant {
+		private final int id;
+		private final String name;
+		private final String phoneNumber;
+		private final String email;
+		private final String physicalAddress;
+
+		StoredParticipant(int id, String name, String phoneNumber, String email,
+				String physicalAddress) {
+			this.id = id;
+			this.name = name;
+			this.phoneNumber = phoneNumber;
+			this.email = email;
+			this.physicalAddress = physicalAddress;
+		}
+	}
+}
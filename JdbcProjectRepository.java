@@ -0,0 +1,1628 @@
+package poised;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * The JdbcProjectRepository class stores projects and participants in the PoisePMS MySQL database,
+ * borrowing a pooled connection from {@link DatabaseConnection} for each operation. Finds, lists and
+ * fee totals use {@link DatabaseConnection#getReadConnection()}, so they are served by a read
+ * replica when any are configured; writes use the primary.
+ *
+ * <p>
+ * Replicas lag behind the primary, so when any are configured, each write reads the primary's
+ * position after it commits and notes it in the current {@link ReadSession}. Reads in that session
+ * only go to replicas that show a later heartbeat; until a replica does, they go to the primary and
+ * see the write, while other sessions' reads carry on using the replicas. Heartbeats are written at
+ * every replica health check, so this takes up to two checks. {@link #readYourWrites(long)} sends
+ * the session's reads to the primary for a while regardless, and
+ * {@link #findLatestProjectByNumber(int)} always reads from the primary. The
+ * schema is created and upgraded by {@link SchemaMigrator}, and {@link QueryPlanVerifier} checks
+ * that every query below is answered from an index.
+ */
+public class JdbcProjectRepository implements ProjectRepository {
+	// Insert statement prefix; followed by one PROJECT_INSERT_ROW per project being inserted
+	private static final String PROJECT_INSERT = "INSERT INTO Projects (project_number, project_name, building_type, address, erf_number, total_fee, amount_paid, deadline, completion_date, architect_id, contractor_id, customer_id) VALUES ";
+	// Placeholders for one project row of PROJECT_INSERT
+	private static final String PROJECT_INSERT_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	// Selects a project together with its architect, contractor and customer in one round trip.
+	// Participant columns are aliased with a_, co_ and cu_ prefixes because the three tables share
+	// column names.
+	private static final String PROJECT_GRAPH_SELECT = "SELECT p.project_id, p.project_number, p.project_name, p.building_type, p.address, p.erf_number, p.total_fee, p.amount_paid, p.deadline, p.completion_date, p.updated_at, p.version, "
+			+ "a.architect_id AS a_id, a.name AS a_name, a.phone_number AS a_phone_number, a.email AS a_email, a.physical_address AS a_physical_address, "
+			+ "co.contractor_id AS co_id, co.name AS co_name, co.phone_number AS co_phone_number, co.email AS co_email, co.physical_address AS co_physical_address, "
+			+ "cu.customer_id AS cu_id, cu.name AS cu_name, cu.phone_number AS cu_phone_number, cu.email AS cu_email, cu.physical_address AS cu_physical_address "
+			+ "FROM Projects p "
+			+ "LEFT JOIN Architects a ON a.architect_id = p.architect_id "
+			+ "LEFT JOIN Contractors co ON co.contractor_id = p.contractor_id "
+			+ "LEFT JOIN Customers cu ON cu.customer_id = p.customer_id";
+
+	// Selects the columns of a project row, with its participants' IDs but not their details
+	private static final String PROJECT_ROW_SELECT = "SELECT project_id, project_number, project_name, building_type, address, erf_number, total_fee, amount_paid, deadline, completion_date, version, architect_id, contractor_id, customer_id FROM Projects";
+
+	// Queries checked by QueryPlanVerifier; each one must be answered from an index
+	static final String FIND_PROJECT_BY_NUMBER_SQL = PROJECT_GRAPH_SELECT + " WHERE p.project_number = ?";
+	static final String FIND_PROJECT_BY_NAME_SQL = PROJECT_GRAPH_SELECT + " WHERE p.project_name = ?";
+	static final String INCOMPLETE_PAGE_SQL = "SELECT project_number, project_name, building_type, address, deadline FROM Projects WHERE completion_date IS NULL AND project_number > ? ORDER BY project_number LIMIT ?";
+	static final String OVERDUE_PAGE_SQL = "SELECT project_number, project_name, building_type, address, deadline FROM Projects WHERE completion_date IS NULL AND deadline < CURDATE() AND (deadline > ? OR (deadline = ? AND project_number > ?)) ORDER BY deadline, project_number LIMIT ?";
+	static final String UPDATE_PROJECT_SQL = "UPDATE Projects SET project_name = ?, building_type = ?, address = ?, erf_number = ?, total_fee = ?, amount_paid = ?, deadline = ?, completion_date = ?, architect_id = ?, contractor_id = ?, customer_id = ?, version = version + 1 WHERE project_number = ? AND version = ?";
+	static final String FINALIZE_PROJECT_SQL = "UPDATE Projects SET completion_date = ?, version = version + 1 WHERE project_number = ?";
+	static final String FINALIZE_PROJECT_VERSIONED_SQL = FINALIZE_PROJECT_SQL + " AND version = ?";
+	static final String PROJECT_VERSION_SQL = "SELECT version FROM Projects WHERE project_number = ?";
+	static final String DELETE_PROJECT_SQL = "DELETE FROM Projects WHERE project_number = ?";
+	static final String FIND_ARCHITECT_SQL = "SELECT * FROM Architects WHERE architect_id = ?";
+	static final String FIND_CONTRACTOR_SQL = "SELECT * FROM Contractors WHERE contractor_id = ?";
+	static final String FIND_CUSTOMER_SQL = "SELECT * FROM Customers WHERE customer_id = ?";
+	static final String UPDATE_ARCHITECT_SQL = "UPDATE Architects SET name = ?, phone_number = ?, email = ?, physical_address = ? WHERE architect_id = ?";
+	static final String UPDATE_CONTRACTOR_SQL = "UPDATE Contractors SET name = ?, phone_number = ?, email = ?, physical_address = ? WHERE contractor_id = ?";
+	static final String UPDATE_CUSTOMER_SQL = "UPDATE Customers SET name = ?, phone_number = ?, email = ?, physical_address = ? WHERE customer_id = ?";
+	static final String PROJECTS_UPDATED_PAGE_SQL = PROJECT_GRAPH_SELECT + " WHERE p.updated_at > ? OR (p.updated_at = ? AND p.project_number > ?) ORDER BY p.updated_at, p.project_number LIMIT ?";
+	static final String PROJECT_PAGE_SQL = PROJECT_ROW_SELECT + " WHERE project_number > ? ORDER BY project_number LIMIT ?";
+	static final String ARCHITECT_PROJECTS_PAGE_SQL = PROJECT_ROW_SELECT + " WHERE architect_id = ? AND project_number > ? ORDER BY project_number LIMIT ?";
+	static final String CONTRACTOR_PROJECTS_PAGE_SQL = PROJECT_ROW_SELECT + " WHERE contractor_id = ? AND project_number > ? ORDER BY project_number LIMIT ?";
+	static final String CUSTOMER_PROJECTS_PAGE_SQL = PROJECT_ROW_SELECT + " WHERE customer_id = ? AND project_number > ? ORDER BY project_number LIMIT ?";
+	static final String ARCHITECT_OPEN_PROJECTS_PAGE_SQL = PROJECT_ROW_SELECT + " WHERE architect_id = ? AND completion_date IS NULL AND project_number > ? ORDER BY project_number LIMIT ?";
+	static final String CONTRACTOR_OPEN_PROJECTS_PAGE_SQL = PROJECT_ROW_SELECT + " WHERE contractor_id = ? AND completion_date IS NULL AND project_number > ? ORDER BY project_number LIMIT ?";
+	static final String CUSTOMER_OPEN_PROJECTS_PAGE_SQL = PROJECT_ROW_SELECT + " WHERE customer_id = ? AND completion_date IS NULL AND project_number > ? ORDER BY project_number LIMIT ?";
+	static final String ARCHITECT_PAGE_SQL = "SELECT * FROM Architects WHERE architect_id > ? ORDER BY architect_id LIMIT ?";
+	static final String CONTRACTOR_PAGE_SQL = "SELECT * FROM Contractors WHERE contractor_id > ? ORDER BY contractor_id LIMIT ?";
+	static final String CUSTOMER_PAGE_SQL = "SELECT * FROM Customers WHERE customer_id > ? ORDER BY customer_id LIMIT ?";
+
+	// Fee totals; the grouping is done by the database so only one row per group is sent back
+	private static final String FEE_COLUMNS = "COUNT(*) AS project_count, COALESCE(SUM(p.total_fee), 0) AS total_fee, COALESCE(SUM(p.amount_paid), 0) AS amount_paid";
+	static final String FEE_TOTALS_SQL = "SELECT " + FEE_COLUMNS + " FROM Projects p";
+	static final String FEES_BY_BUILDING_TYPE_SQL = "SELECT p.building_type AS group_key, " + FEE_COLUMNS + " FROM Projects p GROUP BY p.building_type ORDER BY p.building_type";
+	static final String FEES_BY_CUSTOMER_SQL = "SELECT p.customer_id AS group_key, MAX(cu.name) AS group_label, " + FEE_COLUMNS + " FROM Projects p LEFT JOIN Customers cu ON cu.customer_id = p.customer_id GROUP BY p.customer_id ORDER BY p.customer_id";
+	static final String FEES_BY_DEADLINE_MONTH_SQL = "SELECT YEAR(p.deadline) AS deadline_year, MONTH(p.deadline) AS deadline_month, " + FEE_COLUMNS + " FROM Projects p GROUP BY YEAR(p.deadline), MONTH(p.deadline) ORDER BY deadline_year, deadline_month";
+
+	// Participant inserts; the ID is generated by the database
+	private static final String INSERT_ARCHITECT_SQL = "INSERT INTO Architects (name, phone_number, email, physical_address) VALUES (?, ?, ?, ?)";
+	private static final String INSERT_CONTRACTOR_SQL = "INSERT INTO Contractors (name, phone_number, email, physical_address) VALUES (?, ?, ?, ?)";
+	private static final String INSERT_CUSTOMER_SQL = "INSERT INTO Customers (name, phone_number, email, physical_address) VALUES (?, ?, ?, ?)";
+
+	// Participant inserts that keep the ID the participant already has
+	private static final String RESTORE_ARCHITECT_SQL = "INSERT INTO Architects (name, phone_number, email, physical_address, architect_id) VALUES (?, ?, ?, ?, ?)";
+	private static final String RESTORE_CONTRACTOR_SQL = "INSERT INTO Contractors (name, phone_number, email, physical_address, contractor_id) VALUES (?, ?, ?, ?, ?)";
+	private static final String RESTORE_CUSTOMER_SQL = "INSERT INTO Customers (name, phone_number, email, physical_address, customer_id) VALUES (?, ?, ?, ?, ?)";
+
+	// Column written for each project field, in the order the fields are bound
+	private static final Map<Project.Field, String> PROJECT_COLUMNS = new EnumMap<>(Project.Field.class);
+	static {
+		PROJECT_COLUMNS.put(Project.Field.PROJECT_NAME, "project_name");
+		PROJECT_COLUMNS.put(Project.Field.BUILDING_TYPE, "building_type");
+		PROJECT_COLUMNS.put(Project.Field.ADDRESS, "address");
+		PROJECT_COLUMNS.put(Project.Field.ERF_NUMBER, "erf_number");
+		PROJECT_COLUMNS.put(Project.Field.TOTAL_FEE, "total_fee");
+		PROJECT_COLUMNS.put(Project.Field.AMOUNT_PAID, "amount_paid");
+		PROJECT_COLUMNS.put(Project.Field.DEADLINE, "deadline");
+		PROJECT_COLUMNS.put(Project.Field.COMPLETION_DATE, "completion_date");
+		PROJECT_COLUMNS.put(Project.Field.ARCHITECT, "architect_id");
+		PROJECT_COLUMNS.put(Project.Field.CONTRACTOR, "contractor_id");
+		PROJECT_COLUMNS.put(Project.Field.CUSTOMER, "customer_id");
+	}
+	// Generated UPDATE statements, by the set of fields they write
+	private static final Map<Integer, String> PROJECT_UPDATE_SQL = new ConcurrentHashMap<>();
+
+	// Maximum number of values bound into one IN (...) list
+	static final int IN_LIST_CHUNK_SIZE = 512;
+
+	/**
+	 * Maps the current row of a result set to an object.
+	 */
+	@FunctionalInterface
+	private interface RowMapper<T> {
+		T map(ResultSet rs) throws SQLException;
+	}
+
+	/**
+	 * Binds the parameters of a statement for one item.
+	 */
+	@FunctionalInterface
+	private interface ItemBinder<T> {
+		void bind(PreparedStatement stmt, T item) throws SQLException;
+	}
+
+	@Override
+	public void insertProject(Project project) throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = writeConnection();
+				PreparedStatement stmt = conn.prepareStatement(PROJECT_INSERT + PROJECT_INSERT_ROW)) {
+			bindProjectInsert(stmt, 0, project);
+			stmt.executeUpdate();
+		}
+	}
+
+	/**
+	 * Inserts many projects over a single connection. Projects are sent in batches, either with
+	 * {@code addBatch}/{@code executeBatch} or as multi-row {@code INSERT ... VALUES} statements,
+	 * and committed every {@link BulkImportOptions#getCommitInterval()} batches.
+	 *
+	 * <p>
+	 * A project the database rejects is recorded as a failed row and the rest of its batch is kept.
+	 * If the connection itself fails, even part-way through a batch, the import stops: projects
+	 * committed before the failure stay in the database and everything after the last commit is
+	 * rolled back.
+	 */
+	@Override
+	public BulkImportResult insertProjects(Iterable<Project> projects, BulkImportOptions options,
+			Consumer<? super Project> committed) {
+		BulkImportResult result = new BulkImportResult();
+		List<Project> batch = new ArrayList<>(options.getBatchSize());
+		// Inserted projects waiting for the next commit, and those committed, kept only while
+		// somebody needs to be told about them
+		boolean notify = committed != null;
+		List<Project> uncommitted = new ArrayList<>();
+		List<Project> durable = new ArrayList<>();
+
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = writeConnection()) {
+			conn.setAutoCommit(false);
+
+			int batchNumber = 0;
+			int firstIndex = 0;
+			int batchesSinceCommit = 0;
+			int insertedSinceCommit = 0;
+			try {
+				Iterator<Project> it = projects.iterator();
+				while (it.hasNext()) {
+					batch.add(it.next());
+					result.recordProcessed();
+					boolean last = !it.hasNext();
+					if (batch.size() < options.getBatchSize() && !last) {
+						continue;
+					}
+
+					// Write the batch, then commit once enough batches have been written
+					int failuresBefore = result.getFailedRows().size();
+					insertedSinceCommit += writeBatch(conn, batch, batchNumber, firstIndex, options, result);
+					if (notify) {
+						collectInserted(batch, firstIndex, result, failuresBefore, uncommitted);
+					}
+					firstIndex += batch.size();
+					batch.clear();
+					batchNumber++;
+					if (++batchesSinceCommit == options.getCommitInterval() || last) {
+						conn.commit();
+						result.recordInserted(insertedSinceCommit);
+						durable.addAll(uncommitted);
+						uncommitted.clear();
+						insertedSinceCommit = 0;
+						batchesSinceCommit = 0;
+					}
+				}
+			} catch (SQLException e) {
+				conn.rollback();
+				throw e;
+			}
+
+		} catch (SQLException e) {
+			// Record the error that stopped the import
+			result.recordAbort(e);
+		}
+
+		// Only committed projects are reported, once the connection is back in the pool
+		if (notify) {
+			durable.forEach(committed);
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the projects of a batch that were not recorded as failures to a list.
+	 *
+	 * @param batch          The projects in the batch.
+	 * @param firstIndex     The input index of the first project in the batch.
+	 * @param result         The result holding the failures.
+	 * @param failuresBefore The number of failures recorded before the batch was written.
+	 * @param inserted       The list to add the inserted projects to.
+	 */
+	private static void collectInserted(List<Project> batch, int firstIndex, BulkImportResult result,
+			int failuresBefore, List<Project> inserted) {
+		List<BulkImportResult.FailedRow> failures = result.getFailedRows();
+		Set<Integer> failed = new HashSet<>();
+		for (int i = failuresBefore; i < failures.size(); i++) {
+			failed.add(failures.get(i).getIndex());
+		}
+		for (int i = 0; i < batch.size(); i++) {
+			if (!failed.contains(firstIndex + i)) {
+				inserted.add(batch.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Writes one batch of projects within the current transaction. Projects that fail are recorded
+	 * in {@code result}; the rest stay uncommitted until the caller commits.
+	 *
+	 * @param conn        The connection, with autocommit off.
+	 * @param batch       The projects in the batch.
+	 * @param batchNumber The zero-based number of the batch.
+	 * @param firstIndex  The input index of the first project in the batch.
+	 * @param options     The import options.
+	 * @param result      The result to record failures in.
+	 * @return The number of projects inserted.
+	 * @throws SQLException If the batch cannot be written at all.
+	 */
+	private int writeBatch(Connection conn, List<Project> batch, int batchNumber, int firstIndex,
+			BulkImportOptions options, BulkImportResult result) throws SQLException {
+		if (options.isMultiRowValues()) {
+			return writeMultiRowBatch(conn, batch, batchNumber, firstIndex, result);
+		}
+
+		// Projects that were added to the JDBC batch, by their position in it
+		List<Integer> batched = new ArrayList<>(batch.size());
+		try (PreparedStatement stmt = conn.prepareStatement(PROJECT_INSERT + PROJECT_INSERT_ROW)) {
+			for (int i = 0; i < batch.size(); i++) {
+				try {
+					bindProjectInsert(stmt, 0, batch.get(i));
+				} catch (RuntimeException e) {
+					// A project with missing fields cannot be bound, so it never reaches the database
+					stmt.clearParameters();
+					result.recordFailure(
+							new BulkImportResult.FailedRow(batchNumber, firstIndex + i, batch.get(i), e));
+					continue;
+				}
+				stmt.addBatch();
+				batched.add(i);
+			}
+			if (batched.isEmpty()) {
+				return 0;
+			}
+
+			try {
+				stmt.executeBatch();
+				return batched.size();
+			} catch (BatchUpdateException e) {
+				if (isConnectionLost(e)) {
+					throw e;
+				}
+				// Rows with an update count were processed. The rest are retried one at a time:
+				// drivers that stop at the first error return fewer counts than rows, and a driver
+				// that rewrites the batch into multi-row INSERTs marks every row of a failed one
+				int[] counts = e.getUpdateCounts();
+				int inserted = 0;
+				List<Project> retry = new ArrayList<>();
+				List<Integer> retryIndexes = new ArrayList<>();
+				for (int j = 0; j < batched.size(); j++) {
+					int i = batched.get(j);
+					if (j >= counts.length || counts[j] == Statement.EXECUTE_FAILED) {
+						retry.add(batch.get(i));
+						retryIndexes.add(firstIndex + i);
+					} else {
+						inserted++;
+					}
+				}
+				return inserted + writeRowByRow(conn, retry, retryIndexes, batchNumber, result);
+			}
+		}
+	}
+
+	/**
+	 * Writes one batch of projects as a single multi-row {@code INSERT ... VALUES} statement. If the
+	 * statement fails, the batch is retried one row at a time to find the projects at fault.
+	 *
+	 * @param conn        The connection, with autocommit off.
+	 * @param batch       The projects in the batch.
+	 * @param batchNumber The zero-based number of the batch.
+	 * @param firstIndex  The input index of the first project in the batch.
+	 * @param result      The result to record failures in.
+	 * @return The number of projects inserted.
+	 * @throws SQLException If the batch cannot be written at all.
+	 */
+	private int writeMultiRowBatch(Connection conn, List<Project> batch, int batchNumber,
+			int firstIndex, BulkImportResult result) throws SQLException {
+		// Leave out projects with missing fields so they do not fail the whole statement
+		List<Project> rows = new ArrayList<>(batch.size());
+		List<Integer> rowIndexes = new ArrayList<>(batch.size());
+		for (int i = 0; i < batch.size(); i++) {
+			Project project = batch.get(i);
+			if (project.getDeadline() == null || project.getArchitect() == null
+					|| project.getContractor() == null || project.getCustomer() == null) {
+				result.recordFailure(new BulkImportResult.FailedRow(batchNumber, firstIndex + i, project,
+						new IllegalArgumentException("Project is missing a deadline or participant")));
+				continue;
+			}
+			rows.add(project);
+			rowIndexes.add(firstIndex + i);
+		}
+		if (rows.isEmpty()) {
+			return 0;
+		}
+
+		StringJoiner values = new StringJoiner(", ", PROJECT_INSERT, "");
+		for (int i = 0; i < rows.size(); i++) {
+			values.add(PROJECT_INSERT_ROW);
+		}
+		try (PreparedStatement stmt = conn.prepareStatement(values.toString())) {
+			int offset = 0;
+			for (Project project : rows) {
+				offset = bindProjectInsert(stmt, offset, project);
+			}
+			stmt.executeUpdate();
+			return rows.size();
+		} catch (SQLException e) {
+			if (isConnectionLost(e)) {
+				throw e;
+			}
+			// MySQL rolls back only the failed statement, so the rows can be retried individually
+			return writeRowByRow(conn, rows, rowIndexes, batchNumber, result);
+		}
+	}
+
+	/**
+	 * Inserts projects one statement at a time, recording each one that fails.
+	 *
+	 * @param conn        The connection, with autocommit off.
+	 * @param rows        The projects to insert.
+	 * @param indexes     The input index of each project.
+	 * @param batchNumber The zero-based number of the batch the projects belong to.
+	 * @param result      The result to record failures in.
+	 * @return The number of projects inserted.
+	 * @throws SQLException If the statement cannot be prepared or the connection is lost.
+	 */
+	private int writeRowByRow(Connection conn, List<Project> rows, List<Integer> indexes,
+			int batchNumber, BulkImportResult result) throws SQLException {
+		int inserted = 0;
+		try (PreparedStatement stmt = conn.prepareStatement(PROJECT_INSERT + PROJECT_INSERT_ROW)) {
+			for (int i = 0; i < rows.size(); i++) {
+				try {
+					bindProjectInsert(stmt, 0, rows.get(i));
+					stmt.executeUpdate();
+					inserted++;
+				} catch (SQLException e) {
+					if (isConnectionLost(e)) {
+						throw e;
+					}
+					result.recordFailure(
+							new BulkImportResult.FailedRow(batchNumber, indexes.get(i), rows.get(i), e));
+				} catch (RuntimeException e) {
+					result.recordFailure(
+							new BulkImportResult.FailedRow(batchNumber, indexes.get(i), rows.get(i), e));
+				}
+			}
+		}
+		return inserted;
+	}
+
+	/**
+	 * Tells whether an error means the connection to the database was lost, rather than that a
+	 * row was rejected, so that an import stops instead of blaming every row that follows.
+	 *
+	 * @param e The error.
+	 * @return {@code true} for connection errors, SQLState class {@code 08}.
+	 */
+	private static boolean isConnectionLost(SQLException e) {
+		String state = e.getSQLState();
+		return e instanceof SQLNonTransientConnectionException || e instanceof SQLRecoverableException
+				|| state != null && state.startsWith("08");
+	}
+
+	/**
+	 * Binds the columns of {@link #PROJECT_INSERT_ROW} for one project.
+	 *
+	 * @param stmt    The statement to bind.
+	 * @param offset  The number of parameters already bound before this row.
+	 * @param project The project to bind.
+	 * @return The offset for the next row.
+	 * @throws SQLException If a parameter cannot be set.
+	 */
+	private static int bindProjectInsert(PreparedStatement stmt, int offset, Project project)
+			throws SQLException {
+		stmt.setInt(offset + 1, project.getProjectNumber());
+		stmt.setString(offset + 2, project.getProjectName());
+		stmt.setString(offset + 3, project.getBuildingType());
+		stmt.setString(offset + 4, project.getAddress());
+		stmt.setString(offset + 5, project.getErfNumber());
+		stmt.setBigDecimal(offset + 6, Money.toBigDecimal(project.getTotalFeeCents()));
+		stmt.setBigDecimal(offset + 7, Money.toBigDecimal(project.getAmountPaidCents()));
+		stmt.setDate(offset + 8, new java.sql.Date(project.getDeadline().getTime()));
+		stmt.setDate(offset + 9, project.getCompletionDate() != null
+				? new java.sql.Date(project.getCompletionDate().getTime())
+				: null);
+		stmt.setInt(offset + 10, project.getArchitect().getId());
+		stmt.setInt(offset + 11, project.getContractor().getId());
+		stmt.setInt(offset + 12, project.getCustomer().getId());
+		return offset + 12;
+	}
+
+	@Override
+	public UpdateResult updateProject(Project project, int fields) throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = writeConnection();
+				PreparedStatement stmt = conn.prepareStatement(projectUpdateSql(fields))) {
+			bindProjectUpdate(stmt, project, fields);
+			if (stmt.executeUpdate() > 0) {
+				return UpdateResult.UPDATED;
+			}
+			return explainMissedWrite(conn, project.getProjectNumber());
+		}
+	}
+
+	@Override
+	public UpdateResult finalizeProject(int projectNumber, Integer expectedVersion,
+			Date completionDate) throws SQLException {
+		String sql = expectedVersion != null ? FINALIZE_PROJECT_VERSIONED_SQL : FINALIZE_PROJECT_SQL;
+
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = writeConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setDate(1, new java.sql.Date(completionDate.getTime()));
+			stmt.setInt(2, projectNumber);
+			if (expectedVersion != null) {
+				stmt.setInt(3, expectedVersion);
+			}
+			if (stmt.executeUpdate() > 0) {
+				return UpdateResult.UPDATED;
+			}
+			return expectedVersion != null ? explainMissedWrite(conn, projectNumber)
+					: UpdateResult.NOT_FOUND;
+		}
+	}
+
+	/**
+	 * Works out why a versioned write to a project changed no row.
+	 *
+	 * @param conn          The connection the write was made on.
+	 * @param projectNumber The project number of the project written.
+	 * @return {@link UpdateResult#CONFLICT} if the project exists at another version, or
+	 *         {@link UpdateResult#NOT_FOUND} if it does not exist.
+	 * @throws SQLException If the version cannot be read.
+	 */
+	private static UpdateResult explainMissedWrite(Connection conn, int projectNumber)
+			throws SQLException {
+		return readProjectVersion(conn, projectNumber) != null ? UpdateResult.CONFLICT
+				: UpdateResult.NOT_FOUND;
+	}
+
+	/**
+	 * Reads the current version of a project.
+	 *
+	 * @param conn          The connection to use.
+	 * @param projectNumber The project number of the project.
+	 * @return The project's version, or {@code null} if there is no such project.
+	 * @throws SQLException If the version cannot be read.
+	 */
+	private static Integer readProjectVersion(Connection conn, int projectNumber)
+			throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement(PROJECT_VERSION_SQL)) {
+			stmt.setInt(1, projectNumber);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? rs.getInt(1) : null;
+			}
+		}
+	}
+
+	/**
+	 * Gets the UPDATE statement that writes the given fields of a project, generating it on first
+	 * use. Writing every field gives {@link #UPDATE_PROJECT_SQL}.
+	 *
+	 * @param fields The fields to write, as {@link Project.Field} bits. Must not be empty.
+	 * @return The statement, with one parameter per field followed by the project number and the
+	 *         expected version.
+	 */
+	static String projectUpdateSql(int fields) {
+		return PROJECT_UPDATE_SQL.computeIfAbsent(fields, bits -> {
+			StringJoiner columns = new StringJoiner(", ", "UPDATE Projects SET ",
+					", version = version + 1 WHERE project_number = ? AND version = ?");
+			for (Map.Entry<Project.Field, String> column : PROJECT_COLUMNS.entrySet()) {
+				if ((bits & column.getKey().bit()) != 0) {
+					columns.add(column.getValue() + " = ?");
+				}
+			}
+			return columns.toString();
+		});
+	}
+
+	/**
+	 * Binds the parameters of the statement from {@link #projectUpdateSql(int)} for one project.
+	 *
+	 * @param stmt    The statement to bind.
+	 * @param project The project to bind.
+	 * @param fields  The fields the statement writes, as {@link Project.Field} bits.
+	 * @throws SQLException If a parameter cannot be set.
+	 */
+	private static void bindProjectUpdate(PreparedStatement stmt, Project project, int fields)
+			throws SQLException {
+		int index = 0;
+		for (Project.Field field : PROJECT_COLUMNS.keySet()) {
+			if ((fields & field.bit()) == 0) {
+				continue;
+			}
+			index++;
+			switch (field) {
+			case PROJECT_NAME -> stmt.setString(index, project.getProjectName());
+			case BUILDING_TYPE -> stmt.setString(index, project.getBuildingType());
+			case ADDRESS -> stmt.setString(index, project.getAddress());
+			case ERF_NUMBER -> stmt.setString(index, project.getErfNumber());
+			case TOTAL_FEE -> stmt.setBigDecimal(index,
+					Money.toBigDecimal(project.getTotalFeeCents()));
+			case AMOUNT_PAID -> stmt.setBigDecimal(index,
+					Money.toBigDecimal(project.getAmountPaidCents()));
+			case DEADLINE -> stmt.setDate(index, new java.sql.Date(project.getDeadline().getTime()));
+			case COMPLETION_DATE -> stmt.setDate(index,
+					project.getCompletionDate() != null
+							? new java.sql.Date(project.getCompletionDate().getTime())
+							: null);
+			case ARCHITECT -> stmt.setInt(index, project.getArchitect().getId());
+			case CONTRACTOR -> stmt.setInt(index, project.getContractor().getId());
+			case CUSTOMER -> stmt.setInt(index, project.getCustomer().getId());
+			}
+		}
+		stmt.setInt(index + 1, project.getProjectNumber());
+		stmt.setInt(index + 2, project.getVersion());
+	}
+
+	@Override
+	public boolean deleteProject(int projectNumber) throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = writeConnection();
+				PreparedStatement stmt = conn.prepareStatement(DELETE_PROJECT_SQL)) {
+			stmt.setInt(1, projectNumber);
+			return stmt.executeUpdate() > 0;
+		}
+	}
+
+	/**
+	 * Finds a project by its number. The project and its architect, contractor and customer are
+	 * loaded with a single joined query.
+	 */
+	@Override
+	public Project findProjectByNumber(int projectNumber) throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = readConnection()) {
+			return findProjectByNumber(conn, projectNumber);
+		}
+	}
+
+	/**
+	 * Finds a project by its number, reading it from the primary.
+	 */
+	@Override
+	public Project findLatestProjectByNumber(int projectNumber) throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = DatabaseConnection.getConnection()) {
+			return findProjectByNumber(conn, projectNumber);
+		}
+	}
+
+	/**
+	 * Finds a project, with its architect, contractor and customer, by its number.
+	 *
+	 * @param conn          The connection to read through.
+	 * @param projectNumber The number of the project.
+	 * @return The project, or {@code null} if there is none.
+	 * @throws SQLException If the project cannot be read.
+	 */
+	private Project findProjectByNumber(Connection conn, int projectNumber) throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (PreparedStatement stmt = conn.prepareStatement(FIND_PROJECT_BY_NUMBER_SQL)) {
+			stmt.setInt(1, projectNumber);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? mapProjectGraph(rs) : null;
+			}
+		}
+	}
+
+	/**
+	 * Finds a project by its name. The project and its architect, contractor and customer are
+	 * loaded with a single joined query.
+	 */
+	@Override
+	public Project findProjectByName(String projectName) throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = readConnection();
+				PreparedStatement stmt = conn.prepareStatement(FIND_PROJECT_BY_NAME_SQL)) {
+			stmt.setString(1, projectName);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? mapProjectGraph(rs) : null;
+			}
+		}
+	}
+
+	/**
+	 * Finds many projects by their numbers with chunked {@code IN (...)} queries over a single
+	 * connection.
+	 */
+	@Override
+	public Map<Integer, Project> findProjectsByNumbers(List<Integer> projectNumbers)
+			throws SQLException {
+		Map<Integer, Project> found = new HashMap<>();
+		if (projectNumbers.isEmpty()) {
+			return found;
+		}
+
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = readConnection()) {
+			for (int from = 0; from < projectNumbers.size(); from += IN_LIST_CHUNK_SIZE) {
+				List<Integer> chunk = projectNumbers.subList(from,
+						Math.min(from + IN_LIST_CHUNK_SIZE, projectNumbers.size()));
+				try (PreparedStatement stmt = conn.prepareStatement(projectsByNumbersSql(chunk.size()))) {
+					bindInList(stmt, chunk);
+
+					try (ResultSet rs = stmt.executeQuery()) {
+						while (rs.next()) {
+							Project project = mapProjectRow(rs);
+							found.put(project.getProjectNumber(), project);
+						}
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Gets the query that reads the projects with the numbers in one chunk of a
+	 * {@link #findProjectsByNumbers} lookup.
+	 *
+	 * @param size The number of project numbers in the chunk, at most {@link #IN_LIST_CHUNK_SIZE}.
+	 * @return The query, with the padded {@code IN (...)} list as its parameters.
+	 */
+	static String projectsByNumbersSql(int size) {
+		return PROJECT_ROW_SELECT + " WHERE project_number IN " + inList(size);
+	}
+
+	/**
+	 * Finds one page of projects by seeking past the last project number of the previous page.
+	 */
+	@Override
+	public List<Project> findProjects(int afterProjectNumber, int limit) throws SQLException {
+		return findPage(PROJECT_PAGE_SQL, afterProjectNumber, limit,
+				JdbcProjectRepository::mapProjectRow);
+	}
+
+	/**
+	 * Finds one page of a participant's projects by seeking past the last project number of the
+	 * previous page along the participant's index, which also holds the completion date, so
+	 * finalised projects are skipped without reading their rows.
+	 */
+	@Override
+	public List<Project> findProjectsByParticipant(ParticipantRole role, int participantId,
+			boolean openOnly, int afterProjectNumber, int limit) throws SQLException {
+		List<Project> page = new ArrayList<>(limit);
+		String sql = projectsByParticipantSql(role, openOnly);
+
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = readConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setInt(1, participantId);
+			stmt.setInt(2, afterProjectNumber);
+			stmt.setInt(3, limit);
+			stmt.setFetchSize(limit);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					page.add(mapProjectRow(rs));
+				}
+			}
+		}
+		return page;
+	}
+
+	/**
+	 * Gets the query that reads one page of a participant's projects.
+	 *
+	 * @param role     The role the participant plays on the projects.
+	 * @param openOnly {@code true} for the query that leaves out finalised projects.
+	 * @return The query, with the participant ID, the project number to seek past and the limit as
+	 *         its parameters.
+	 */
+	static String projectsByParticipantSql(ParticipantRole role, boolean openOnly) {
+		return switch (role) {
+		case ARCHITECT -> openOnly ? ARCHITECT_OPEN_PROJECTS_PAGE_SQL : ARCHITECT_PROJECTS_PAGE_SQL;
+		case CONTRACTOR -> openOnly ? CONTRACTOR_OPEN_PROJECTS_PAGE_SQL
+				: CONTRACTOR_PROJECTS_PAGE_SQL;
+		case CUSTOMER -> openOnly ? CUSTOMER_OPEN_PROJECTS_PAGE_SQL : CUSTOMER_PROJECTS_PAGE_SQL;
+		};
+	}
+
+	/**
+	 * Finds one page of incomplete projects. Pages are found by seeking past the last project
+	 * number of the previous page, so every page costs the same regardless of how deep into the
+	 * list it is.
+	 */
+	@Override
+	public List<ProjectSummary> findIncompleteProjects(int afterProjectNumber, int limit)
+			throws SQLException {
+		List<ProjectSummary> page = new ArrayList<>(limit);
+
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = readConnection();
+				PreparedStatement stmt = conn.prepareStatement(INCOMPLETE_PAGE_SQL)) {
+			stmt.setInt(1, afterProjectNumber);
+			stmt.setInt(2, limit);
+			stmt.setFetchSize(limit);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					page.add(mapProjectSummary(rs));
+				}
+			}
+		}
+		return page;
+	}
+
+	/**
+	 * Finds one page of overdue projects. Pages are found by seeking past the deadline and project
+	 * number of the last project on the previous page.
+	 */
+	@Override
+	public List<ProjectSummary> findOverdueProjects(Date afterDeadline, int afterProjectNumber,
+			int limit) throws SQLException {
+		List<ProjectSummary> page = new ArrayList<>(limit);
+
+		// Start before the earliest date MySQL can store when this is the first page
+		java.sql.Date seekDeadline = afterDeadline != null ? new java.sql.Date(afterDeadline.getTime())
+				: java.sql.Date.valueOf("1000-01-01");
+		int seekProjectNumber = afterDeadline != null ? afterProjectNumber : Integer.MIN_VALUE;
+
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = readConnection();
+				PreparedStatement stmt = conn.prepareStatement(OVERDUE_PAGE_SQL)) {
+			stmt.setDate(1, seekDeadline);
+			stmt.setDate(2, seekDeadline);
+			stmt.setInt(3, seekProjectNumber);
+			stmt.setInt(4, limit);
+			stmt.setFetchSize(limit);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					page.add(mapProjectSummary(rs));
+				}
+			}
+		}
+		return page;
+	}
+
+	/**
+	 * Visits the changed projects one page at a time, seeking past the change time and project
+	 * number of the last project on the previous page. No connection is held while the consumer
+	 * runs. A project changed while the pages are being read may be visited twice, but is never
+	 * skipped.
+	 */
+	@Override
+	public Timestamp forEachProjectUpdatedSince(Timestamp since, int pageSize,
+			Consumer<? super Project> consumer) throws SQLException {
+		Timestamp afterUpdatedAt = since;
+		int afterProjectNumber = Integer.MIN_VALUE;
+		List<Project> page = new ArrayList<>(pageSize);
+		do {
+			page.clear();
+
+			// Read from the primary: a replica that lags could hold back a change past the watermark
+			// the caches refresh from, and they would never read it
+			// Try-with-resources to ensure resources are closed automatically
+			try (Connection conn = DatabaseConnection.getConnection();
+					PreparedStatement stmt = conn.prepareStatement(PROJECTS_UPDATED_PAGE_SQL)) {
+				stmt.setTimestamp(1, afterUpdatedAt);
+				stmt.setTimestamp(2, afterUpdatedAt);
+				stmt.setInt(3, afterProjectNumber);
+				stmt.setInt(4, pageSize);
+				stmt.setFetchSize(pageSize);
+
+				// Map each joined row, remembering where the page ends
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						Project project = mapProjectGraph(rs);
+						page.add(project);
+						afterUpdatedAt = rs.getTimestamp("updated_at");
+						afterProjectNumber = project.getProjectNumber();
+					}
+				}
+			}
+			page.forEach(consumer);
+		} while (page.size() == pageSize);
+		return afterUpdatedAt;
+	}
+
+	@Override
+	public FeeSummary summarizeFees() throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = readConnection();
+				PreparedStatement stmt = conn.prepareStatement(FEE_TOTALS_SQL);
+				ResultSet rs = stmt.executeQuery()) {
+			rs.next();
+			return mapFeeSummary(rs, null, null);
+		}
+	}
+
+	/**
+	 * Totals the fees with one {@code GROUP BY} query, so a group costs the database one row
+	 * however many projects it holds.
+	 */
+	@Override
+	public List<FeeSummary> summarizeFees(FeeGrouping grouping) throws SQLException {
+		String sql = switch (grouping) {
+		case BUILDING_TYPE -> FEES_BY_BUILDING_TYPE_SQL;
+		case CUSTOMER -> FEES_BY_CUSTOMER_SQL;
+		case DEADLINE_MONTH -> FEES_BY_DEADLINE_MONTH_SQL;
+		};
+		List<FeeSummary> summaries = new ArrayList<>();
+
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = readConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql);
+				ResultSet rs = stmt.executeQuery()) {
+			while (rs.next()) {
+				String key;
+				String label;
+				switch (grouping) {
+				case CUSTOMER -> {
+					key = rs.getString("group_key");
+					label = rs.getString("group_label");
+				}
+				case DEADLINE_MONTH -> {
+					int year = rs.getInt("deadline_year");
+					key = rs.wasNull() ? null
+							: String.format("%04d-%02d", year, rs.getInt("deadline_month"));
+					label = key;
+				}
+				default -> {
+					key = rs.getString("group_key");
+					label = key;
+				}
+				}
+				summaries.add(mapFeeSummary(rs, key, label));
+			}
+		}
+		return summaries;
+	}
+
+	/**
+	 * Writes the changes over one connection in a single transaction, sending each kind of
+	 * statement as one JDBC batch. Project updates are grouped by the fields they write, so that
+	 * each group is one batch.
+	 */
+	@Override
+	public ChangeSet commit(ChangeSet changes) throws SQLException {
+		// Group the project updates by the fields they write
+		Map<Integer, List<Project>> updatesByFields = new LinkedHashMap<>();
+		for (Project project : changes.getProjectUpdates()) {
+			updatesByFields.computeIfAbsent(project.getDirtyFieldBits(), bits -> new ArrayList<>())
+					.add(project);
+		}
+
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = writeConnection()) {
+			conn.setAutoCommit(false);
+			try {
+				List<Architect> architects = executeCountedBatch(conn, UPDATE_ARCHITECT_SQL,
+						changes.getArchitects(),
+						(stmt, architect) -> bindParticipant(stmt, architect.getId(), architect.getName(),
+								architect.getPhoneNumber(), architect.getEmail(), architect.getPhysicalAddress()));
+				List<Contractor> contractors = executeCountedBatch(conn, UPDATE_CONTRACTOR_SQL,
+						changes.getContractors(),
+						(stmt, contractor) -> bindParticipant(stmt, contractor.getId(), contractor.getName(),
+								contractor.getPhoneNumber(), contractor.getEmail(),
+								contractor.getPhysicalAddress()));
+				List<Customer> customers = executeCountedBatch(conn, UPDATE_CUSTOMER_SQL,
+						changes.getCustomers(),
+						(stmt, customer) -> bindParticipant(stmt, customer.getId(), customer.getName(),
+								customer.getPhoneNumber(), customer.getEmail(), customer.getPhysicalAddress()));
+
+				List<Project> updated = new ArrayList<>();
+				for (Map.Entry<Integer, List<Project>> group : updatesByFields.entrySet()) {
+					int fields = group.getKey();
+					List<Project> saved = executeCountedBatch(conn, projectUpdateSql(fields),
+							group.getValue(),
+							(stmt, project) -> bindProjectUpdate(stmt, project, fields));
+					updated.addAll(saved);
+					checkMissedWrites(conn, group.getValue().stream().map(Project::getProjectNumber)
+							.toList(), saved.stream().map(Project::getProjectNumber).toList());
+				}
+
+				// Checked finalisations apply at their expected version, the others at any version
+				Map<Integer, Integer> versions = changes.getFinalizationVersions();
+				List<Map.Entry<Integer, Date>> checked = new ArrayList<>();
+				List<Map.Entry<Integer, Date>> unchecked = new ArrayList<>();
+				for (Map.Entry<Integer, Date> finalization : changes.getFinalizations().entrySet()) {
+					(versions.containsKey(finalization.getKey()) ? checked : unchecked)
+							.add(Map.entry(finalization.getKey(), finalization.getValue()));
+				}
+				List<Map.Entry<Integer, Date>> finalized = executeCountedBatch(conn,
+						FINALIZE_PROJECT_VERSIONED_SQL, checked, (stmt, finalization) -> {
+							stmt.setDate(1, new java.sql.Date(finalization.getValue().getTime()));
+							stmt.setInt(2, finalization.getKey());
+							stmt.setInt(3, versions.get(finalization.getKey()));
+						});
+				checkMissedWrites(conn, checked.stream().map(Map.Entry::getKey).toList(),
+						finalized.stream().map(Map.Entry::getKey).toList());
+				finalized.addAll(executeCountedBatch(conn, FINALIZE_PROJECT_SQL, unchecked,
+						(stmt, finalization) -> {
+							stmt.setDate(1, new java.sql.Date(finalization.getValue().getTime()));
+							stmt.setInt(2, finalization.getKey());
+						}));
+				List<Integer> deleted = executeCountedBatch(conn, DELETE_PROJECT_SQL,
+						changes.getDeletions(),
+						(stmt, projectNumber) -> stmt.setInt(1, projectNumber));
+
+				conn.commit();
+
+				// Report the finalisations in the order they were registered
+				Set<Integer> finalizedNumbers = new HashSet<>();
+				finalized.forEach(finalization -> finalizedNumbers.add(finalization.getKey()));
+				Map<Integer, Date> finalizations = new LinkedHashMap<>();
+				changes.getFinalizations().forEach((projectNumber, completionDate) -> {
+					if (finalizedNumbers.contains(projectNumber)) {
+						finalizations.put(projectNumber, completionDate);
+					}
+				});
+				return new ChangeSet(architects, contractors, customers, updated, finalizations, deleted);
+			} catch (SQLException | RuntimeException e) {
+				conn.rollback();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Checks the projects a versioned batch did not write. A project that was not written is either
+	 * gone or was changed by another session, which rolls the whole commit back.
+	 *
+	 * @param conn      The connection, with autocommit off.
+	 * @param attempted The project numbers the batch tried to write.
+	 * @param written   The project numbers it wrote.
+	 * @throws SQLException A {@link SQLTransactionRollbackException} if a project that was not
+	 *                      written still exists, or any error reading its version.
+	 */
+	private static void checkMissedWrites(Connection conn, List<Integer> attempted,
+			List<Integer> written) throws SQLException {
+		if (written.size() == attempted.size()) {
+			return;
+		}
+		Set<Integer> writtenNumbers = new HashSet<>(written);
+		for (Integer projectNumber : attempted) {
+			if (!writtenNumbers.contains(projectNumber)
+					&& readProjectVersion(conn, projectNumber) != null) {
+				throw new SQLTransactionRollbackException(
+						"Project " + projectNumber + " was changed by another session", "40001");
+			}
+		}
+	}
+
+	/**
+	 * Sends one statement for every item as a single JDBC batch and tells which of them changed a
+	 * row. A driver that rewrites the batch may report success without a row count, which cannot
+	 * tell a written row from one that a version check skipped; the batch is then undone and each
+	 * statement is run on its own, so that every count is known.
+	 *
+	 * @param conn   The connection, with autocommit off.
+	 * @param sql    The statement to run for each item.
+	 * @param items  The items to write.
+	 * @param binder Binds the statement's parameters for one item.
+	 * @return The items whose statement changed a row.
+	 * @throws SQLException If the batch fails.
+	 */
+	private static <T> List<T> executeCountedBatch(Connection conn, String sql, Collection<T> items,
+			ItemBinder<T> binder) throws SQLException {
+		List<T> changed = new ArrayList<>(items.size());
+		if (items.isEmpty()) {
+			return changed;
+		}
+
+		List<T> batched = new ArrayList<>(items);
+		try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+			// A single statement is sent on its own, which always reports its count
+			Savepoint beforeBatch = batched.size() > 1 ? conn.setSavepoint() : null;
+			if (beforeBatch != null) {
+				for (T item : batched) {
+					binder.bind(stmt, item);
+					stmt.addBatch();
+				}
+				int[] counts = stmt.executeBatch();
+				if (Arrays.stream(counts).noneMatch(count -> count == Statement.SUCCESS_NO_INFO)) {
+					for (int i = 0; i < counts.length; i++) {
+						if (counts[i] > 0) {
+							changed.add(batched.get(i));
+						}
+					}
+					return changed;
+				}
+				conn.rollback(beforeBatch);
+			}
+			for (T item : batched) {
+				binder.bind(stmt, item);
+				if (stmt.executeUpdate() > 0) {
+					changed.add(item);
+				}
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Sends one statement for every item as a single JDBC batch, where the row counts are not
+	 * needed.
+	 *
+	 * @param conn   The connection, with autocommit off.
+	 * @param sql    The statement to run for each item.
+	 * @param items  The items to write.
+	 * @param binder Binds the statement's parameters for one item.
+	 * @throws SQLException If the batch fails.
+	 */
+	private static <T> void executeBatch(Connection conn, String sql, Collection<T> items,
+			ItemBinder<T> binder) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+			for (T item : items) {
+				binder.bind(stmt, item);
+				stmt.addBatch();
+			}
+			stmt.executeBatch();
+		}
+	}
+
+	@Override
+	public void insertArchitect(Architect architect) throws SQLException {
+		architect.setId(insertParticipant(INSERT_ARCHITECT_SQL, architect.getName(),
+				architect.getPhoneNumber(), architect.getEmail(), architect.getPhysicalAddress()));
+	}
+
+	@Override
+	public Architect findArchitectById(int architectId) throws SQLException {
+		return findParticipant(FIND_ARCHITECT_SQL, architectId, JdbcProjectRepository::mapArchitect);
+	}
+
+	@Override
+	public Map<Integer, Architect> findArchitectsByIds(Collection<Integer> architectIds)
+			throws SQLException {
+		return findParticipants("Architects", "architect_id", architectIds,
+				JdbcProjectRepository::mapArchitect);
+	}
+
+	@Override
+	public boolean updateArchitect(Architect architect) throws SQLException {
+		return updateParticipant(UPDATE_ARCHITECT_SQL, architect.getId(), architect.getName(),
+				architect.getPhoneNumber(), architect.getEmail(), architect.getPhysicalAddress());
+	}
+
+	@Override
+	public List<Architect> findArchitects(int afterArchitectId, int limit) throws SQLException {
+		return findPage(ARCHITECT_PAGE_SQL, afterArchitectId, limit,
+				JdbcProjectRepository::mapArchitect);
+	}
+
+	@Override
+	public void insertArchitects(Collection<Architect> architects) throws SQLException {
+		insertAll(RESTORE_ARCHITECT_SQL, architects,
+				(stmt, architect) -> bindParticipant(stmt, architect.getId(), architect.getName(),
+						architect.getPhoneNumber(), architect.getEmail(), architect.getPhysicalAddress()));
+	}
+
+	@Override
+	public void insertContractor(Contractor contractor) throws SQLException {
+		contractor.setId(insertParticipant(INSERT_CONTRACTOR_SQL, contractor.getName(),
+				contractor.getPhoneNumber(), contractor.getEmail(), contractor.getPhysicalAddress()));
+	}
+
+	@Override
+	public Contractor findContractorById(int contractorId) throws SQLException {
+		return findParticipant(FIND_CONTRACTOR_SQL, contractorId, JdbcProjectRepository::mapContractor);
+	}
+
+	@Override
+	public Map<Integer, Contractor> findContractorsByIds(Collection<Integer> contractorIds)
+			throws SQLException {
+		return findParticipants("Contractors", "contractor_id", contractorIds,
+				JdbcProjectRepository::mapContractor);
+	}
+
+	@Override
+	public boolean updateContractor(Contractor contractor) throws SQLException {
+		return updateParticipant(UPDATE_CONTRACTOR_SQL, contractor.getId(), contractor.getName(),
+				contractor.getPhoneNumber(), contractor.getEmail(), contractor.getPhysicalAddress());
+	}
+
+	@Override
+	public List<Contractor> findContractors(int afterContractorId, int limit) throws SQLException {
+		return findPage(CONTRACTOR_PAGE_SQL, afterContractorId, limit,
+				JdbcProjectRepository::mapContractor);
+	}
+
+	@Override
+	public void insertContractors(Collection<Contractor> contractors) throws SQLException {
+		insertAll(RESTORE_CONTRACTOR_SQL, contractors,
+				(stmt, contractor) -> bindParticipant(stmt, contractor.getId(), contractor.getName(),
+						contractor.getPhoneNumber(), contractor.getEmail(), contractor.getPhysicalAddress()));
+	}
+
+	@Override
+	public void insertCustomer(Customer customer) throws SQLException {
+		customer.setId(insertParticipant(INSERT_CUSTOMER_SQL, customer.getName(),
+				customer.getPhoneNumber(), customer.getEmail(), customer.getPhysicalAddress()));
+	}
+
+	@Override
+	public Customer findCustomerById(int customerId) throws SQLException {
+		return findParticipant(FIND_CUSTOMER_SQL, customerId, JdbcProjectRepository::mapCustomer);
+	}
+
+	@Override
+	public Map<Integer, Customer> findCustomersByIds(Collection<Integer> customerIds)
+			throws SQLException {
+		return findParticipants("Customers", "customer_id", customerIds,
+				JdbcProjectRepository::mapCustomer);
+	}
+
+	@Override
+	public boolean updateCustomer(Customer customer) throws SQLException {
+		return updateParticipant(UPDATE_CUSTOMER_SQL, customer.getId(), customer.getName(),
+				customer.getPhoneNumber(), customer.getEmail(), customer.getPhysicalAddress());
+	}
+
+	@Override
+	public List<Customer> findCustomers(int afterCustomerId, int limit) throws SQLException {
+		return findPage(CUSTOMER_PAGE_SQL, afterCustomerId, limit, JdbcProjectRepository::mapCustomer);
+	}
+
+	@Override
+	public void insertCustomers(Collection<Customer> customers) throws SQLException {
+		insertAll(RESTORE_CUSTOMER_SQL, customers,
+				(stmt, customer) -> bindParticipant(stmt, customer.getId(), customer.getName(),
+						customer.getPhoneNumber(), customer.getEmail(), customer.getPhysicalAddress()));
+	}
+
+	/**
+	 * Sends the current {@link ReadSession}'s reads to the primary for a while. A shorter period
+	 * than one already asked for has no effect.
+	 */
+	@Override
+	public void readYourWrites(long millis) {
+		ReadSession.current().readFromPrimary(millis);
+	}
+
+	/**
+	 * Borrows a connection to the primary for a write. When replicas are configured, closing it
+	 * reads the primary's position and notes it in the current {@link ReadSession}, so that the
+	 * session's later reads only go to replicas that have caught up with the write, including
+	 * replicas that were out of the rotation at the time and come back behind it.
+	 *
+	 * @return A pooled connection to the primary, which the caller must close.
+	 * @throws SQLException If no connection can be borrowed.
+	 */
+	private Connection writeConnection() throws SQLException {
+		Connection conn = DatabaseConnection.getConnection();
+		if (!DatabaseConnection.hasReplicas()) {
+			// Every read goes to the primary, which has the write
+			return conn;
+		}
+		ReadSession session = ReadSession.current();
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+					if (method.getName().equals("close") && !conn.isClosed()) {
+						try {
+							// Read after the write committed, so any later heartbeat follows it
+							session.wroteAt(DatabaseConnection.readPosition(conn));
+						} catch (SQLException e) {
+							// The connection failed, so the write most likely did too
+						}
+					}
+					try {
+						return method.invoke(conn, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+	}
+
+	/**
+	 * Borrows a connection for a read: from the primary within the current {@link ReadSession}'s
+	 * read-your-writes period, and otherwise from a replica that has the session's last write, if
+	 * any is configured and healthy.
+	 *
+	 * @return A pooled connection, which the caller must close and must not write through.
+	 * @throws SQLException If no connection can be borrowed.
+	 */
+	private Connection readConnection() throws SQLException {
+		ReadSession session = ReadSession.current();
+		if (session.readsFromPrimary()) {
+			return DatabaseConnection.getConnection();
+		}
+		return DatabaseConnection.getReadConnection(session.getPosition());
+	}
+
+	/**
+	 * Shuts down the connection pool.
+	 */
+	@Override
+	public void close() {
+		DatabaseConnection.shutdown();
+	}
+
+	/**
+	 * Inserts a participant row.
+	 *
+	 * @param sql             The insert statement for the participant's table.
+	 * @param name            The participant's name.
+	 * @param phoneNumber     The participant's phone number.
+	 * @param email           The participant's email address.
+	 * @param physicalAddress The participant's physical address.
+	 * @return The ID generated for the participant.
+	 * @throws SQLException If the row cannot be inserted.
+	 */
+	private int insertParticipant(String sql, String name, String phoneNumber, String email,
+			String physicalAddress) throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = writeConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+			stmt.setString(1, name);
+			stmt.setString(2, phoneNumber);
+			stmt.setString(3, email);
+			stmt.setString(4, physicalAddress);
+			stmt.executeUpdate();
+			try (ResultSet keys = stmt.getGeneratedKeys()) {
+				if (!keys.next()) {
+					throw new SQLException("No ID was generated by " + sql);
+				}
+				return keys.getInt(1);
+			}
+		}
+	}
+
+	/**
+	 * Reads a participant by their ID.
+	 *
+	 * @param sql    The select statement for the participant's table.
+	 * @param id     The participant's ID.
+	 * @param mapper Maps the participant row.
+	 * @return The participant, or {@code null} if there is none.
+	 * @throws SQLException If the row cannot be read.
+	 */
+	private <T> T findParticipant(String sql, int id, RowMapper<T> mapper)
+			throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = readConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setInt(1, id);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? mapper.map(rs) : null;
+			}
+		}
+	}
+
+	/**
+	 * Reads many participants of one role with chunked {@code IN (...)} queries over a single
+	 * connection.
+	 *
+	 * @param table    The participant table.
+	 * @param idColumn The participant table's ID column.
+	 * @param ids      The participant IDs.
+	 * @param mapper   Maps a participant row.
+	 * @return The participants found, keyed by ID.
+	 * @throws SQLException If the participants cannot be read.
+	 */
+	private <T> Map<Integer, T> findParticipants(String table, String idColumn,
+			Collection<Integer> ids, RowMapper<T> mapper) throws SQLException {
+		Map<Integer, T> participants = new HashMap<>();
+		if (ids.isEmpty()) {
+			return participants;
+		}
+
+		List<Integer> wanted = new ArrayList<>(ids);
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = readConnection()) {
+			for (int from = 0; from < wanted.size(); from += IN_LIST_CHUNK_SIZE) {
+				List<Integer> chunk = wanted.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, wanted.size()));
+				try (PreparedStatement stmt = conn
+						.prepareStatement(participantsByIdsSql(table, idColumn, chunk.size()))) {
+					bindInList(stmt, chunk);
+					try (ResultSet rs = stmt.executeQuery()) {
+						while (rs.next()) {
+							participants.put(rs.getInt(idColumn), mapper.map(rs));
+						}
+					}
+				}
+			}
+		}
+		return participants;
+	}
+
+	/**
+	 * Gets the query that reads the participants with the IDs in one chunk of a
+	 * {@link #findParticipants} lookup.
+	 *
+	 * @param table    The participant table.
+	 * @param idColumn The participant table's ID column.
+	 * @param size     The number of IDs in the chunk, at most {@link #IN_LIST_CHUNK_SIZE}.
+	 * @return The query, with the padded {@code IN (...)} list as its parameters.
+	 */
+	static String participantsByIdsSql(String table, String idColumn, int size) {
+		return "SELECT * FROM " + table + " WHERE " + idColumn + " IN " + inList(size);
+	}
+
+	/**
+	 * Reads one page of rows from a query that seeks past a key and limits the number of rows.
+	 *
+	 * @param sql    The query, with the key to seek past and the limit as its parameters.
+	 * @param after  The last key of the previous page.
+	 * @param limit  The maximum number of rows to read.
+	 * @param mapper Maps a row.
+	 * @return The mapped rows.
+	 * @throws SQLException If the page cannot be read.
+	 */
+	private <T> List<T> findPage(String sql, int after, int limit, RowMapper<T> mapper)
+			throws SQLException {
+		List<T> page = new ArrayList<>(limit);
+
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = readConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setInt(1, after);
+			stmt.setInt(2, limit);
+			stmt.setFetchSize(limit);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					page.add(mapper.map(rs));
+				}
+			}
+		}
+		return page;
+	}
+
+	/**
+	 * Inserts every item as one JDBC batch in a single transaction.
+	 *
+	 * @param sql    The insert statement.
+	 * @param items  The items to insert.
+	 * @param binder Binds the statement's parameters for one item.
+	 * @throws SQLException If any item cannot be inserted; none are then inserted.
+	 */
+	private <T> void insertAll(String sql, Collection<T> items, ItemBinder<T> binder)
+			throws SQLException {
+		if (items.isEmpty()) {
+			return;
+		}
+
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = writeConnection()) {
+			conn.setAutoCommit(false);
+			try {
+				executeBatch(conn, sql, items, binder);
+				conn.commit();
+			} catch (SQLException e) {
+				conn.rollback();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Updates a participant row.
+	 *
+	 * @param sql             The update statement for the participant's table.
+	 * @param id              The participant's ID.
+	 * @param name            The participant's name.
+	 * @param phoneNumber     The participant's phone number.
+	 * @param email           The participant's email address.
+	 * @param physicalAddress The participant's physical address.
+	 * @return {@code true} if the participant existed.
+	 * @throws SQLException If the row cannot be written.
+	 */
+	private boolean updateParticipant(String sql, int id, String name, String phoneNumber,
+			String email, String physicalAddress) throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = writeConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			bindParticipant(stmt, id, name, phoneNumber, email, physicalAddress);
+			return stmt.executeUpdate() > 0;
+		}
+	}
+
+	/**
+	 * Binds the parameters of a participant update statement.
+	 *
+	 * @param stmt            The statement to bind.
+	 * @param id              The participant's ID.
+	 * @param name            The participant's name.
+	 * @param phoneNumber     The participant's phone number.
+	 * @param email           The participant's email address.
+	 * @param physicalAddress The participant's physical address.
+	 * @throws SQLException If a parameter cannot be set.
+	 */
+	private static void bindParticipant(PreparedStatement stmt, int id, String name,
+			String phoneNumber, String email, String physicalAddress) throws SQLException {
+		stmt.setString(1, name);
+		stmt.setString(2, phoneNumber);
+		stmt.setString(3, email);
+		stmt.setString(4, physicalAddress);
+		stmt.setInt(5, id);
+	}
+
+	/**
+	 * Builds the placeholder list for an {@code IN (...)} query. The number of placeholders is
+	 * rounded up to a power of two, so that the statement cache holds a handful of query shapes
+	 * rather than one per list length; {@link #bindInList} fills the extra placeholders by repeating
+	 * the last value.
+	 *
+	 * @param size The number of values in the list.
+	 * @return The placeholder list, for example {@code "(?, ?, ?, ?)"}.
+	 */
+	private static String inList(int size) {
+		StringJoiner placeholders = new StringJoiner(", ", "(", ")");
+		for (int i = 0; i < inListSlots(size); i++) {
+			placeholders.add("?");
+		}
+		return placeholders.toString();
+	}
+
+	/**
+	 * Binds the values of an {@code IN (...)} list built by {@link #inList}.
+	 *
+	 * @param stmt   The statement to bind.
+	 * @param values The values in the list.
+	 * @throws SQLException If a parameter cannot be set.
+	 */
+	private static void bindInList(PreparedStatement stmt, List<Integer> values) throws SQLException {
+		int slots = inListSlots(values.size());
+		for (int i = 0; i < slots; i++) {
+			stmt.setInt(i + 1, values.get(Math.min(i, values.size() - 1)));
+		}
+	}
+
+	/**
+	 * Gets the number of placeholders used for an {@code IN (...)} list of the given size.
+	 *
+	 * @param size The number of values in the list.
+	 * @return The size rounded up to a power of two, capped at the chunk size.
+	 */
+	private static int inListSlots(int size) {
+		int slots = size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+		return Math.min(slots, IN_LIST_CHUNK_SIZE);
+	}
+
+	/**
+	 * Maps the current row of a report query to a {@link ProjectSummary}.
+	 *
+	 * @param rs The result set, positioned on the row to map.
+	 * @return The mapped {@link ProjectSummary}.
+	 * @throws SQLException If a column cannot be read.
+	 */
+	private static ProjectSummary mapProjectSummary(ResultSet rs) throws SQLException {
+		return new ProjectSummary(rs.getInt("project_number"), rs.getString("project_name"),
+				rs.getString("building_type"), rs.getString("address"), rs.getDate("deadline"));
+	}
+
+	/**
+	 * Maps the fee columns of the current row of a fee query.
+	 *
+	 * @param rs    The result set, positioned on the row to map.
+	 * @param key   The group key of the row.
+	 * @param label The group label of the row.
+	 * @return The mapped {@link FeeSummary}.
+	 * @throws SQLException If a column cannot be read.
+	 */
+	private static FeeSummary mapFeeSummary(ResultSet rs, String key, String label)
+			throws SQLException {
+		return new FeeSummary(key, label, rs.getLong("project_count"),
+				Money.fromBigDecimal(rs.getBigDecimal("total_fee")),
+				Money.fromBigDecimal(rs.getBigDecimal("amount_paid")));
+	}
+
+	/**
+	 * Maps the current row of an architect query.
+	 *
+	 * @param rs The result set, positioned on the row to map.
+	 * @return The mapped {@link Architect}.
+	 * @throws SQLException If a column cannot be read.
+	 */
+	private static Architect mapArchitect(ResultSet rs) throws SQLException {
+		return new Architect(rs.getInt("architect_id"), rs.getString("name"),
+				rs.getString("phone_number"), rs.getString("email"), rs.getString("physical_address"));
+	}
+
+	/**
+	 * Maps the current row of a contractor query.
+	 *
+	 * @param rs The result set, positioned on the row to map.
+	 * @return The mapped {@link Contractor}.
+	 * @throws SQLException If a column cannot be read.
+	 */
+	private static Contractor mapContractor(ResultSet rs) throws SQLException {
+		return new Contractor(rs.getInt("contractor_id"), rs.getString("name"),
+				rs.getString("phone_number"), rs.getString("email"), rs.getString("physical_address"));
+	}
+
+	/**
+	 * Maps the current row of a customer query.
+	 *
+	 * @param rs The result set, positioned on the row to map.
+	 * @return The mapped {@link Customer}.
+	 * @throws SQLException If a column cannot be read.
+	 */
+	private static Customer mapCustomer(ResultSet rs) throws SQLException {
+		return new Customer(rs.getInt("customer_id"), rs.getString("name"),
+				rs.getString("phone_number"), rs.getString("email"), rs.getString("physical_address"));
+	}
+
+	/**
+	 * Maps the current row of a {@link #PROJECT_ROW_SELECT} query to a {@link Project} whose
+	 * participants carry only their IDs, marked as matching the database.
+	 *
+	 * @param rs The result set, positioned on the row to map.
+	 * @return The mapped {@link Project}.
+	 * @throws SQLException If a column cannot be read.
+	 */
+	private static Project mapProjectRow(ResultSet rs) throws SQLException {
+		int architectId = rs.getInt("architect_id");
+		Architect architect = rs.wasNull() ? null : new Architect(architectId, null, null, null, null);
+		int contractorId = rs.getInt("contractor_id");
+		Contractor contractor = rs.wasNull() ? null
+				: new Contractor(contractorId, null, null, null, null);
+		int customerId = rs.getInt("customer_id");
+		Customer customer = rs.wasNull() ? null : new Customer(customerId, null, null, null, null);
+
+		Project project = new Project(rs.getInt("project_id"), rs.getInt("project_number"),
+				rs.getString("project_name"), rs.getString("building_type"), rs.getString("address"),
+				rs.getString("erf_number"), Money.fromBigDecimal(rs.getBigDecimal("total_fee")),
+				Money.fromBigDecimal(rs.getBigDecimal("amount_paid")),
+				rs.getDate("deadline"), rs.getDate("completion_date"), architect, contractor, customer);
+		project.setVersion(rs.getInt("version"));
+		project.markClean();
+		return project;
+	}
+
+	/**
+	 * Maps the current row of a {@link #PROJECT_GRAPH_SELECT} query to a {@link Project} together
+	 * with its architect, contractor and customer, marked as matching the database. A participant
+	 * whose row is missing is left as {@code null}, as the individual lookups would return.
+	 *
+	 * @param rs The result set, positioned on the row to map.
+	 * @return The mapped {@link Project}.
+	 * @throws SQLException If a column cannot be read.
+	 */
+	private static Project mapProjectGraph(ResultSet rs) throws SQLException {
+		Architect architect = null;
+		int architectId = rs.getInt("a_id");
+		if (!rs.wasNull()) {
+			architect = new Architect(architectId, rs.getString("a_name"), rs.getString("a_phone_number"),
+					rs.getString("a_email"), rs.getString("a_physical_address"));
+		}
+
+		Contractor contractor = null;
+		int contractorId = rs.getInt("co_id");
+		if (!rs.wasNull()) {
+			contractor = new Contractor(contractorId, rs.getString("co_name"),
+					rs.getString("co_phone_number"), rs.getString("co_email"),
+					rs.getString("co_physical_address"));
+		}
+
+		Customer customer = null;
+		int customerId = rs.getInt("cu_id");
+		if (!rs.wasNull()) {
+			customer = new Customer(customerId, rs.getString("cu_name"), rs.getString("cu_phone_number"),
+					rs.getString("cu_email"), rs.getString("cu_physical_address"));
+		}
+
+		Project project = new Project(rs.getInt("project_id"), rs.getInt("project_number"),
+				rs.getString("project_name"), rs.getString("building_type"), rs.getString("address"),
+				rs.getString("erf_number"), Money.fromBigDecimal(rs.getBigDecimal("total_fee")),
+				Money.fromBigDecimal(rs.getBigDecimal("amount_paid")),
+				rs.getDate("deadline"), rs.getDate("completion_date"), architect, contractor, customer);
+		project.setVersion(rs.getInt("version"));
+		project.markClean();
+		return project;
+	}
+}
@@ -0,0 +1,206 @@
+package poised;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The Json class reads and writes the small subset of JSON used by {@link BatchRunner} and
+ * {@link ApiServer}: flat objects whose values are strings, numbers, booleans or {@code null}.
+ * Nested objects and arrays are rejected rather than half-read.
+ */
+public final class Json {
+	private Json() {
+	}
+
+	/**
+	 * Parses a flat JSON object.
+	 *
+	 * @param text The object, for example {@code {"op": "delete", "number": 42}}.
+	 * @return The members in the order they appear. Strings are unescaped, numbers and booleans are
+	 *         kept as written and {@code null} becomes a {@code null} value.
+	 * @throws IllegalArgumentException If the text is not a flat JSON object.
+	 */
+	public static Map<String, String> parseObject(String text) {
+		Parser parser = new Parser(text);
+		Map<String, String> members = parser.readObject();
+		parser.skipWhitespace();
+		if (parser.pos < text.length()) {
+			throw parser.error("Unexpected text after the object");
+		}
+		return members;
+	}
+
+	/**
+	 * Writes a string as a JSON string literal.
+	 *
+	 * @param value The string, or {@code null}.
+	 * @return The quoted and escaped string, or {@code null} unquoted if {@code value} is
+	 *         {@code null}.
+	 */
+	public static String quote(String value) {
+		if (value == null) {
+			return "null";
+		}
+		StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"' -> quoted.append("\\\"");
+			case '\\' -> quoted.append("\\\\");
+			case '\n' -> quoted.append("\\n");
+			case '\r' -> quoted.append("\\r");
+			case '\t' -> quoted.append("\\t");
+			default -> {
+				if (c < 0x20) {
+					quoted.append(String.format("\\u%04x", (int) c));
+				} else {
+					quoted.append(c);
+				}
+			}
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * Reads one flat object from text, keeping its position in the text.
+	 */
+	private static final class Parser {
+		private final String text;
+		private int pos;
+
+		Parser(String text) {
+			this.text = text;
+		}
+
+		/**
+		 * Reads an object and its members.
+		 *
+		 * @return The members in the order they appear.
+		 */
+		Map<String, String> readObject() {
+			Map<String, String> members = new LinkedHashMap<>();
+			expect('{');
+			skipWhitespace();
+			if (peek() == '}') {
+				pos++;
+				return members;
+			}
+			while (true) {
+				skipWhitespace();
+				String name = readString();
+				skipWhitespace();
+				expect(':');
+				skipWhitespace();
+				members.put(name, readValue());
+				skipWhitespace();
+				char c = next();
+				if (c == '}') {
+					return members;
+				}
+				if (c != ',') {
+					throw error("Expected ',' or '}'");
+				}
+			}
+		}
+
+		/**
+		 * Reads a string, number, boolean or {@code null}.
+		 *
+		 * @return The value; {@code null} for a JSON {@code null}.
+		 */
+		String readValue() {
+			char c = peek();
+			if (c == '"') {
+				return readString();
+			}
+			if (c == '{' || c == '[') {
+				throw error("Nested objects and arrays are not supported");
+			}
+			int start = pos;
+			while (pos < text.length() && ",}] \t\r\n".indexOf(text.charAt(pos)) < 0) {
+				pos++;
+			}
+			String literal = text.substring(start, pos);
+			if (literal.equals("null")) {
+				return null;
+			}
+			if (literal.equals("true") || literal.equals("false")
+					|| literal.matches("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?")) {
+				return literal;
+			}
+			throw error("Unexpected value '" + literal + "'");
+		}
+
+		/**
+		 * Reads a string literal and unescapes it.
+		 *
+		 * @return The string.
+		 */
+		String readString() {
+			expect('"');
+			StringBuilder value = new StringBuilder();
+			while (true) {
+				char c = next();
+				if (c == '"') {
+					return value.toString();
+				}
+				if (c != '\\') {
+					value.append(c);
+					continue;
+				}
+				char escaped = next();
+				switch (escaped) {
+				case '"', '\\', '/' -> value.append(escaped);
+				case 'b' -> value.append('\b');
+				case 'f' -> value.append('\f');
+				case 'n' -> value.append('\n');
+				case 'r' -> value.append('\r');
+				case 't' -> value.append('\t');
+				case 'u' -> {
+					if (pos + 4 > text.length()) {
+						throw error("Incomplete unicode escape");
+					}
+					try {
+						value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+					} catch (NumberFormatException e) {
+						throw error("Invalid unicode escape");
+					}
+					pos += 4;
+				}
+				default -> throw error("Invalid escape '\\" + escaped + "'");
+				}
+			}
+		}
+
+		void skipWhitespace() {
+			while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+				pos++;
+			}
+		}
+
+		private void expect(char expected) {
+			if (next() != expected) {
+				pos--;
+				throw error("Expected '" + expected + "'");
+			}
+		}
+
+		private char peek() {
+			if (pos >= text.length()) {
+				throw error("Unexpected end of text");
+			}
+			return text.charAt(pos);
+		}
+
+		private char next() {
+			char c = peek();
+			pos++;
+			return c;
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(message + " at position " + pos);
+		}
+	}
+}
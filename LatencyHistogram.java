@@ -0,0 +1,164 @@
+package poised;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LatencyHistogram class counts durations in buckets whose width grows with the value, in the
+ * manner of HdrHistogram, so that percentiles from the median to the 99.9th can be read back with
+ * a bounded relative error while recording costs only a few uncontended atomic additions.
+ *
+ * <p>
+ * Values below {@value #SUB_BUCKET_COUNT} are counted exactly. Above that, every power of two is
+ * split into {@value #SUB_BUCKET_COUNT}/2 equal buckets, so a value is reported at most about 1.6%
+ * above what was recorded. Values beyond {@link #MAX_VALUE} nanoseconds, a little over an hour,
+ * are counted as {@link #MAX_VALUE}. Recording is lock-free and safe from any thread; a reader may
+ * see a recording that is still in progress reflected in some totals and not others.
+ */
+public final class LatencyHistogram {
+	// Buckets per power of two above the exact range, as a power of two
+	private static final int SUB_BUCKET_BITS = 7;
+	static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+
+	/**
+	 * The largest value recorded exactly as given, in nanoseconds.
+	 */
+	public static final long MAX_VALUE = (1L << 42) - 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(bucketOf(MAX_VALUE) + 1);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records one duration.
+	 *
+	 * @param nanos The duration in nanoseconds. Negative values are counted as 0.
+	 */
+	public void record(long nanos) {
+		long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+		counts.incrementAndGet(bucketOf(value));
+		count.increment();
+		sum.add(value);
+		long current;
+		while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+			// Another thread raised the maximum; compare against its value
+		}
+	}
+
+	/**
+	 * Gets the number of durations recorded.
+	 *
+	 * @return The count.
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Gets the longest duration recorded.
+	 *
+	 * @return The maximum in nanoseconds, or 0 if nothing was recorded.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Gets the mean of the durations recorded.
+	 *
+	 * @return The mean in nanoseconds, or 0 if nothing was recorded.
+	 */
+	public double getMean() {
+		long recorded = count.sum();
+		return recorded == 0 ? 0 : sum.sum() / (double) recorded;
+	}
+
+	/**
+	 * Gets the duration at or below which the given percentage of the recorded durations fall.
+	 *
+	 * @param percentile The percentile, from 0 to 100, for example 99.9.
+	 * @return The highest value of the bucket holding that duration, never more than the maximum
+	 *         recorded, in nanoseconds; or 0 if nothing was recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		return getValuesAtPercentiles(percentile)[0];
+	}
+
+	/**
+	 * Gets the durations at several percentiles in one pass over the buckets, as
+	 * {@link #getValueAtPercentile(double)} would return them.
+	 *
+	 * @param percentiles The percentiles, from 0 to 100, in ascending order.
+	 * @return The value at each percentile in nanoseconds.
+	 */
+	public long[] getValuesAtPercentiles(double... percentiles) {
+		long[] snapshot = new long[counts.length()];
+		long total = 0;
+		for (int bucket = 0; bucket < snapshot.length; bucket++) {
+			snapshot[bucket] = counts.get(bucket);
+			total += snapshot[bucket];
+		}
+		long[] values = new long[percentiles.length];
+		if (total == 0) {
+			return values;
+		}
+
+		long highest = max.get();
+		int bucket = 0;
+		long seen = snapshot[0];
+		for (int i = 0; i < percentiles.length; i++) {
+			double fraction = Math.min(Math.max(percentiles[i], 0), 100) / 100;
+			long rank = Math.max(1, (long) Math.ceil(fraction * total));
+			while (seen < rank && bucket < snapshot.length - 1) {
+				seen += snapshot[++bucket];
+			}
+			values[i] = Math.min(highestValueOf(bucket), highest);
+		}
+		return values;
+	}
+
+	/**
+	 * Discards every recorded duration. Durations recorded while the reset runs may be partly kept.
+	 */
+	public void reset() {
+		for (int bucket = 0; bucket < counts.length(); bucket++) {
+			counts.set(bucket, 0);
+		}
+		count.reset();
+		sum.reset();
+		max.set(0);
+	}
+
+	/**
+	 * Gets the bucket a value is counted in.
+	 *
+	 * @param value The value, from 0 to {@link #MAX_VALUE}.
+	 * @return The bucket index.
+	 */
+	static int bucketOf(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		// Keep the top SUB_BUCKET_BITS bits of the value; the shift says which power of two it is in
+		int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+		return shift * HALF_SUB_BUCKET_COUNT + (int) (value >>> shift);
+	}
+
+	/**
+	 * Gets the highest value counted in a bucket.
+	 *
+	 * @param bucket The bucket index.
+	 * @return The highest value.
+	 */
+	static long highestValueOf(int bucket) {
+		if (bucket < SUB_BUCKET_COUNT) {
+			return bucket;
+		}
+		int shift = bucket / HALF_SUB_BUCKET_COUNT - 1;
+		long topBits = bucket % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+		return ((topBits + 1) << shift) - 1;
+	}
+}
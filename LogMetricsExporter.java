@@ -0,0 +1,47 @@
+package poised;
+
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * The LogMetricsExporter class writes the metrics of every operation that has run to a stream, one
+ * line per operation under a time stamp. It is the exporter selected by
+ * {@code poised.metrics.exporter=log}, and writes to standard error so that it does not mix with
+ * the console menu.
+ */
+public class LogMetricsExporter implements MetricsExporter {
+	private final PrintStream out;
+
+	/**
+	 * Constructs a new LogMetricsExporter that writes to standard error.
+	 */
+	public LogMetricsExporter() {
+		this(System.err);
+	}
+
+	/**
+	 * Constructs a new LogMetricsExporter that writes to the given stream.
+	 *
+	 * @param out The stream to write to.
+	 */
+	public LogMetricsExporter(PrintStream out) {
+		this.out = out;
+	}
+
+	@Override
+	public void export(List<OperationStats> operations) {
+		StringBuilder report = new StringBuilder("Metrics at ")
+				.append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+				.append(System.lineSeparator());
+		for (OperationStats operation : operations) {
+			if (operation.getCount() > 0) {
+				report.append("  ").append(operation).append(System.lineSeparator());
+			}
+		}
+		// One write, so the report is not interleaved with other output
+		out.print(report);
+		out.flush();
+	}
+}
@@ -0,0 +1,196 @@
+package poised;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The Metrics class is the process-wide registry of {@link OperationMetrics}. Every
+ * {@link ProjectManager} operation and every {@link DatabaseConnection#getConnection()} call is
+ * measured under its own name, with a latency histogram, an error count and the rows read and
+ * written.
+ *
+ * <p>
+ * Measuring a call costs two clock reads and a handful of counter updates, so metrics are on
+ * by default; set {@code poised.metrics.enabled=false} to turn them off. They are published through
+ * JMX by {@link #registerMBean()} and to a {@link MetricsExporter} by {@link #startExporter}; both
+ * are set up from system properties by {@link #startFromSystemProperties()}.
+ */
+public final class Metrics {
+	// Whether calls are measured at all
+	private static final boolean ENABLED = !"false"
+			.equalsIgnoreCase(System.getProperty("poised.metrics.enabled"));
+	// Exporter to start: "log", or the name of a MetricsExporter class
+	private static final String EXPORTER = System.getProperty("poised.metrics.exporter");
+	// How often the exporter is called
+	private static final long EXPORT_MILLIS = Long.getLong("poised.metrics.exportMillis", 60_000L);
+
+	/**
+	 * The JMX object name the metrics are registered under.
+	 */
+	public static final String OBJECT_NAME = "poised:type=Metrics";
+
+	private static final ConcurrentMap<String, OperationMetrics> OPERATIONS = new ConcurrentHashMap<>();
+
+	// Calls the exporter; guarded by the class lock
+	private static ScheduledExecutorService exportTimer;
+
+	private Metrics() {
+	}
+
+	/**
+	 * Gets the metrics of an operation, creating them on first use.
+	 *
+	 * @param name The name of the operation.
+	 * @return The operation's metrics, shared by every caller using the same name.
+	 */
+	public static OperationMetrics operation(String name) {
+		return OPERATIONS.computeIfAbsent(name, key -> new OperationMetrics(key, ENABLED));
+	}
+
+	/**
+	 * Tells whether metrics are being recorded.
+	 *
+	 * @return {@code false} if {@code poised.metrics.enabled} is {@code false}.
+	 */
+	public static boolean isEnabled() {
+		return ENABLED;
+	}
+
+	/**
+	 * Takes a snapshot of every operation.
+	 *
+	 * @return The operations' metrics, ordered by name.
+	 */
+	public static List<OperationStats> snapshot() {
+		List<OperationStats> operations = new ArrayList<>(OPERATIONS.size());
+		for (OperationMetrics operation : OPERATIONS.values()) {
+			operations.add(operation.snapshot());
+		}
+		operations.sort(Comparator.comparing(OperationStats::getName));
+		return operations;
+	}
+
+	/**
+	 * Discards everything recorded for every operation.
+	 */
+	public static void reset() {
+		OPERATIONS.values().forEach(OperationMetrics::reset);
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server under {@link #OBJECT_NAME}. Registering
+	 * again has no effect.
+	 *
+	 * @throws JMException If the metrics cannot be registered.
+	 */
+	public static synchronized void registerMBean() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		if (!server.isRegistered(name)) {
+			server.registerMBean(new MetricsBean(), name);
+		}
+	}
+
+	/**
+	 * Calls an exporter at a fixed interval on a daemon thread, replacing any exporter started
+	 * before. An exporter that throws is called again at the next interval.
+	 *
+	 * @param exporter     The exporter.
+	 * @param periodMillis The interval between exports, in milliseconds.
+	 */
+	public static synchronized void startExporter(MetricsExporter exporter, long periodMillis) {
+		stopExporter();
+		exportTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "poised-metrics-export");
+			thread.setDaemon(true);
+			return thread;
+		});
+		exportTimer.scheduleAtFixedRate(() -> {
+			try {
+				exporter.export(snapshot());
+			} catch (RuntimeException e) {
+				// Print stack trace for debugging; the next export tries again
+				e.printStackTrace();
+			}
+		}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the exporter started by {@link #startExporter}, if any.
+	 */
+	public static synchronized void stopExporter() {
+		if (exportTimer != null) {
+			exportTimer.shutdownNow();
+			exportTimer = null;
+		}
+	}
+
+	/**
+	 * Registers the metrics with JMX and starts the exporter named by the
+	 * {@code poised.metrics.exporter} system property, if any, every
+	 * {@code poised.metrics.exportMillis} milliseconds (default 60000). Does nothing when metrics
+	 * are disabled.
+	 *
+	 * @throws JMException              If the metrics cannot be registered.
+	 * @throws IllegalArgumentException If the exporter cannot be created.
+	 */
+	public static void startFromSystemProperties() throws JMException {
+		if (!ENABLED) {
+			return;
+		}
+		registerMBean();
+		if (EXPORTER != null && !EXPORTER.isBlank()) {
+			startExporter(createExporter(EXPORTER.trim()), EXPORT_MILLIS);
+		}
+	}
+
+	/**
+	 * Creates the exporter named by {@code poised.metrics.exporter}.
+	 *
+	 * @param name {@code log}, or the name of a {@link MetricsExporter} class.
+	 * @return The exporter.
+	 * @throws IllegalArgumentException If the exporter cannot be created.
+	 */
+	private static MetricsExporter createExporter(String name) {
+		if (name.equalsIgnoreCase("log")) {
+			return new LogMetricsExporter();
+		}
+		try {
+			return Class.forName(name).asSubclass(MetricsExporter.class).getDeclaredConstructor()
+					.newInstance();
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			throw new IllegalArgumentException("Cannot create metrics exporter " + name, e);
+		}
+	}
+
+	/**
+	 * Publishes the registry through JMX.
+	 */
+	private static final class MetricsBean implements MetricsMXBean {
+		@Override
+		public List<OperationStats> getOperations() {
+			return snapshot();
+		}
+
+		@Override
+		public boolean isEnabled() {
+			return Metrics.isEnabled();
+		}
+
+		@Override
+		public void reset() {
+			Metrics.reset();
+		}
+	}
+}
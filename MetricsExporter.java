@@ -0,0 +1,24 @@
+package poised;
+
+import java.util.List;
+
+/**
+ * The MetricsExporter interface publishes the {@link Metrics} of this process somewhere outside
+ * it, for example to a log or a monitoring system. {@link Metrics#startExporter} calls it at a
+ * fixed interval on a background thread.
+ *
+ * <p>
+ * An exporter named by the {@code poised.metrics.exporter} system property must have a public
+ * constructor without parameters.
+ */
+@FunctionalInterface
+public interface MetricsExporter {
+
+	/**
+	 * Publishes a snapshot of the metrics. The counts are totals since the process started or the
+	 * metrics were last reset, not since the previous export.
+	 *
+	 * @param operations Every operation measured so far, ordered by name.
+	 */
+	void export(List<OperationStats> operations);
+}
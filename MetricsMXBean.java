@@ -0,0 +1,30 @@
+package poised;
+
+import java.util.List;
+
+/**
+ * The MetricsMXBean interface publishes the {@link Metrics} of this process through JMX, under the
+ * object name {@code poised:type=Metrics}, so that tools such as JConsole or a JMX exporter can
+ * read them.
+ */
+public interface MetricsMXBean {
+
+	/**
+	 * Gets a snapshot of every operation measured so far, ordered by name.
+	 *
+	 * @return The operations' metrics.
+	 */
+	List<OperationStats> getOperations();
+
+	/**
+	 * Tells whether metrics are being recorded.
+	 *
+	 * @return {@code false} if {@code poised.metrics.enabled} is {@code false}.
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Discards everything recorded so far.
+	 */
+	void reset();
+}
@@ -0,0 +1,113 @@
+package poised;
+
+import java.math.BigDecimal;
+
+/**
+ * The Money class works with amounts of money held as a {@code long} number of cents, the form in
+ * which {@link Project} and {@link FeeSummary} keep fees and payments. Sums of cents are exact, and
+ * adding or comparing two amounts is plain {@code long} arithmetic that allocates nothing, so the
+ * fee totals stay exact however many projects they cover.
+ *
+ * <p>
+ * Amounts only become {@link BigDecimal} at the database boundary, where the fee columns are
+ * {@code DECIMAL(15, 2)}, and text when they are entered or printed.
+ */
+public final class Money {
+	// Digits after the decimal point
+	static final int SCALE = 2;
+
+	private Money() {
+	}
+
+	/**
+	 * Parses an amount entered as decimal text, such as {@code 1250.5}.
+	 *
+	 * @param text The amount, with at most two digits after the decimal point.
+	 * @return The amount in cents.
+	 * @throws NumberFormatException If the text is not an amount, has more than two decimal places
+	 *                               or is too large.
+	 */
+	public static long parse(String text) {
+		try {
+			return fromBigDecimal(new BigDecimal(text.trim()));
+		} catch (ArithmeticException e) {
+			throw new NumberFormatException("Not an amount in cents: " + text);
+		}
+	}
+
+	/**
+	 * Converts a decimal amount, as read from the database, to cents.
+	 *
+	 * @param amount The amount, or {@code null} for a missing amount.
+	 * @return The amount in cents, or {@code 0} if {@code amount} is {@code null}.
+	 * @throws ArithmeticException If the amount has fractions of a cent or is too large.
+	 */
+	public static long fromBigDecimal(BigDecimal amount) {
+		return amount == null ? 0 : amount.movePointRight(SCALE).longValueExact();
+	}
+
+	/**
+	 * Converts an amount in cents to a decimal, as bound to the database.
+	 *
+	 * @param cents The amount in cents.
+	 * @return The amount with two decimal places.
+	 */
+	public static BigDecimal toBigDecimal(long cents) {
+		return BigDecimal.valueOf(cents, SCALE);
+	}
+
+	/**
+	 * Converts an amount stored as a {@code double} by earlier versions to cents, rounding to the
+	 * nearest cent.
+	 *
+	 * @param amount The amount.
+	 * @return The amount in cents.
+	 */
+	static long fromDouble(double amount) {
+		return Math.round(amount * 100);
+	}
+
+	/**
+	 * Adds two amounts.
+	 *
+	 * @param cents The first amount in cents.
+	 * @param other The second amount in cents.
+	 * @return The sum in cents.
+	 * @throws ArithmeticException If the sum overflows.
+	 */
+	public static long add(long cents, long other) {
+		return Math.addExact(cents, other);
+	}
+
+	/**
+	 * Subtracts one amount from another.
+	 *
+	 * @param cents The amount in cents.
+	 * @param other The amount to subtract in cents.
+	 * @return The difference in cents.
+	 * @throws ArithmeticException If the difference overflows.
+	 */
+	public static long subtract(long cents, long other) {
+		return Math.subtractExact(cents, other);
+	}
+
+	/**
+	 * Formats an amount with two decimal places, such as {@code 1250.50}.
+	 *
+	 * @param cents The amount in cents.
+	 * @return The formatted amount.
+	 */
+	public static String format(long cents) {
+		long units = cents / 100;
+		int fraction = (int) Math.abs(cents % 100);
+		StringBuilder text = new StringBuilder(24);
+		if (cents < 0 && units == 0) {
+			text.append('-');
+		}
+		text.append(units).append('.');
+		if (fraction < 10) {
+			text.append('0');
+		}
+		return text.append(fraction).toString();
+	}
+}
@@ -0,0 +1,125 @@
+package poised;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * The OperationMetrics class accumulates the metrics of one named operation: its latency
+ * histogram, and counts of calls, failures and rows read and written. Instances are obtained from
+ * {@link Metrics#operation(String)} and are shared by everything that reports the same name.
+ *
+ * <p>
+ * A call is measured by taking {@link #start()} before the work and passing the result to
+ * {@link #succeeded} or {@link #failed} afterwards. When metrics are disabled with
+ * {@code poised.metrics.enabled=false}, those calls return at once without reading the clock.
+ */
+public final class OperationMetrics {
+	private static final double NANOS_PER_MICRO = TimeUnit.MICROSECONDS.toNanos(1);
+
+	private final String name;
+	private final boolean enabled;
+	private final LongSupplier nanoClock;
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final LongAdder errors = new LongAdder();
+	private final LongAdder rowsRead = new LongAdder();
+	private final LongAdder rowsWritten = new LongAdder();
+
+	/**
+	 * Constructs a new OperationMetrics with nothing recorded.
+	 *
+	 * @param name    The name of the operation.
+	 * @param enabled {@code false} to record nothing.
+	 */
+	OperationMetrics(String name, boolean enabled) {
+		this(name, enabled, System::nanoTime);
+	}
+
+	/**
+	 * Constructs a new OperationMetrics with nothing recorded that times calls with the given clock.
+	 *
+	 * @param name      The name of the operation.
+	 * @param enabled   {@code false} to record nothing.
+	 * @param nanoClock Gives the time in nanoseconds, as {@link System#nanoTime()} does.
+	 */
+	OperationMetrics(String name, boolean enabled, LongSupplier nanoClock) {
+		this.name = name;
+		this.enabled = enabled;
+		this.nanoClock = nanoClock;
+	}
+
+	/**
+	 * Gets the name of the operation.
+	 *
+	 * @return The operation name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Marks the start of a call.
+	 *
+	 * @return The start time to pass to {@link #succeeded} or {@link #failed}.
+	 */
+	public long start() {
+		return enabled ? nanoClock.getAsLong() : 0;
+	}
+
+	/**
+	 * Records a call that succeeded.
+	 *
+	 * @param start       The value {@link #start()} returned.
+	 * @param rowsRead    The number of rows the call read.
+	 * @param rowsWritten The number of rows the call wrote.
+	 */
+	public void succeeded(long start, long rowsRead, long rowsWritten) {
+		if (!enabled) {
+			return;
+		}
+		latency.record(nanoClock.getAsLong() - start);
+		if (rowsRead != 0) {
+			this.rowsRead.add(rowsRead);
+		}
+		if (rowsWritten != 0) {
+			this.rowsWritten.add(rowsWritten);
+		}
+	}
+
+	/**
+	 * Records a call that failed. Its latency is recorded with the successful calls'.
+	 *
+	 * @param start The value {@link #start()} returned.
+	 */
+	public void failed(long start) {
+		if (!enabled) {
+			return;
+		}
+		latency.record(nanoClock.getAsLong() - start);
+		errors.increment();
+	}
+
+	/**
+	 * Takes a snapshot of the metrics recorded so far.
+	 *
+	 * @return The current {@link OperationStats}.
+	 */
+	public OperationStats snapshot() {
+		long[] percentiles = latency.getValuesAtPercentiles(50, 90, 99, 99.9);
+		return new OperationStats(name, latency.getCount(), errors.sum(), rowsRead.sum(),
+				rowsWritten.sum(), latency.getMean() / NANOS_PER_MICRO,
+				percentiles[0] / NANOS_PER_MICRO, percentiles[1] / NANOS_PER_MICRO,
+				percentiles[2] / NANOS_PER_MICRO, percentiles[3] / NANOS_PER_MICRO,
+				latency.getMax() / NANOS_PER_MICRO);
+	}
+
+	/**
+	 * Discards everything recorded so far.
+	 */
+	public void reset() {
+		latency.reset();
+		errors.reset();
+		rowsRead.reset();
+		rowsWritten.reset();
+	}
+}
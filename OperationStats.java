@@ -0,0 +1,162 @@
+package poised;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The OperationStats class is an immutable snapshot of the metrics an {@link OperationMetrics} has
+ * accumulated since it was created or last reset: how often the operation ran and failed, how many
+ * rows it read and wrote, and the distribution of its latency.
+ */
+public class OperationStats {
+	private final String name;
+	private final long count;
+	private final long errorCount;
+	private final long rowsRead;
+	private final long rowsWritten;
+	private final double meanMicros;
+	private final double p50Micros;
+	private final double p90Micros;
+	private final double p99Micros;
+	private final double p999Micros;
+	private final double maxMicros;
+
+	/**
+	 * Constructs a new OperationStats snapshot with the provided values.
+	 *
+	 * @param name        The name of the operation, such as {@code findProjectByNumber}.
+	 * @param count       The number of calls, successful or not.
+	 * @param errorCount  The number of calls that failed.
+	 * @param rowsRead    The number of rows the calls read.
+	 * @param rowsWritten The number of rows the calls wrote.
+	 * @param meanMicros  The mean latency, in microseconds.
+	 * @param p50Micros   The median latency, in microseconds.
+	 * @param p90Micros   The 90th percentile latency, in microseconds.
+	 * @param p99Micros   The 99th percentile latency, in microseconds.
+	 * @param p999Micros  The 99.9th percentile latency, in microseconds.
+	 * @param maxMicros   The longest latency, in microseconds.
+	 */
+	@ConstructorProperties({ "name", "count", "errorCount", "rowsRead", "rowsWritten", "meanMicros",
+			"p50Micros", "p90Micros", "p99Micros", "p999Micros", "maxMicros" })
+	public OperationStats(String name, long count, long errorCount, long rowsRead, long rowsWritten,
+			double meanMicros, double p50Micros, double p90Micros, double p99Micros, double p999Micros,
+			double maxMicros) {
+		this.name = name;
+		this.count = count;
+		this.errorCount = errorCount;
+		this.rowsRead = rowsRead;
+		this.rowsWritten = rowsWritten;
+		this.meanMicros = meanMicros;
+		this.p50Micros = p50Micros;
+		this.p90Micros = p90Micros;
+		this.p99Micros = p99Micros;
+		this.p999Micros = p999Micros;
+		this.maxMicros = maxMicros;
+	}
+
+	/**
+	 * Gets the name of the operation.
+	 *
+	 * @return The operation name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the number of calls, successful or not.
+	 *
+	 * @return The call count.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the number of calls that failed.
+	 *
+	 * @return The error count.
+	 */
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * Gets the number of rows the calls read.
+	 *
+	 * @return The rows read.
+	 */
+	public long getRowsRead() {
+		return rowsRead;
+	}
+
+	/**
+	 * Gets the number of rows the calls wrote.
+	 *
+	 * @return The rows written.
+	 */
+	public long getRowsWritten() {
+		return rowsWritten;
+	}
+
+	/**
+	 * Gets the mean latency.
+	 *
+	 * @return The mean latency in microseconds.
+	 */
+	public double getMeanMicros() {
+		return meanMicros;
+	}
+
+	/**
+	 * Gets the median latency.
+	 *
+	 * @return The median latency in microseconds.
+	 */
+	public double getP50Micros() {
+		return p50Micros;
+	}
+
+	/**
+	 * Gets the 90th percentile latency.
+	 *
+	 * @return The 90th percentile latency in microseconds.
+	 */
+	public double getP90Micros() {
+		return p90Micros;
+	}
+
+	/**
+	 * Gets the 99th percentile latency.
+	 *
+	 * @return The 99th percentile latency in microseconds.
+	 */
+	public double getP99Micros() {
+		return p99Micros;
+	}
+
+	/**
+	 * Gets the 99.9th percentile latency.
+	 *
+	 * @return The 99.9th percentile latency in microseconds.
+	 */
+	public double getP999Micros() {
+		return p999Micros;
+	}
+
+	/**
+	 * Gets the longest latency.
+	 *
+	 * @return The maximum latency in microseconds.
+	 */
+	public double getMaxMicros() {
+		return maxMicros;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"%s: count=%d, errors=%d, rowsRead=%d, rowsWritten=%d, mean=%.1fus, p50=%.1fus, p90=%.1fus, p99=%.1fus, p99.9=%.1fus, max=%.1fus",
+				name, count, errorCount, rowsRead, rowsWritten, meanMicros, p50Micros, p90Micros,
+				p99Micros, p999Micros, maxMicros);
+	}
+}
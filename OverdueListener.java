@@ -0,0 +1,21 @@
+package poised;
+
+/**
+ * The OverdueListener interface is notified by {@link OverdueScheduler} when an open project's
+ * deadline passes.
+ *
+ * <p>
+ * Notifications are delivered on the scheduler's own thread, one project at a time in deadline
+ * order, so a listener that takes long delays the ones after it.
+ */
+@FunctionalInterface
+public interface OverdueListener {
+
+	/**
+	 * Called when a project becomes overdue: at the start of the day after its deadline, or as
+	 * soon as an open project is saved with a deadline that has already passed.
+	 *
+	 * @param project The project that became overdue.
+	 */
+	void projectOverdue(ProjectSummary project);
+}
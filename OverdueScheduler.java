@@ -0,0 +1,431 @@
+package poised;
+
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * The OverdueScheduler class follows the deadlines of the open projects and tells its
+ * {@link OverdueListener}s about each project at the moment it becomes overdue, so neither the
+ * alerts nor the overdue list need a scan of the Projects table.
+ *
+ * <p>
+ * The open projects are loaded once by {@link #start()}. Those whose deadline is still ahead wait
+ * in a priority queue ordered by the time they fall due, which is the start of the day after their
+ * deadline, and a single daemon thread sleeps until the earliest of them. When it wakes, every
+ * project that has fallen due moves to the overdue set and the listeners are notified. Writes made
+ * through the {@link ProjectManager} are applied as soon as they succeed: a saved project is queued
+ * again with its new deadline, and a finalised or deleted one is dropped. Queue entries replaced
+ * by a later write are skipped when they reach the head rather than searched for, so every change
+ * costs a logarithmic number of steps.
+ *
+ * <p>
+ * Like {@link ProjectIndex}, the scheduler does not see writes made by other processes; they are
+ * picked up by {@link #reload()}.
+ */
+public class OverdueScheduler implements ProjectChangeListener, AutoCloseable {
+	// Queue entries replaced by later writes are discarded in one pass once they outnumber the
+	// live entries by this many
+	private static final int COMPACT_THRESHOLD = 1_024;
+
+	// Orders queued projects by the time they fall due, then by project number
+	private static final Comparator<Pending> DUE_ORDER = Comparator
+			.comparingLong((Pending pending) -> pending.dueMillis)
+			.thenComparingInt(pending -> pending.summary.getProjectNumber());
+
+	// Orders overdue projects as the overdue report does: by deadline, then project number
+	private static final Comparator<ProjectSummary> DEADLINE_ORDER = Comparator
+			.comparingLong((ProjectSummary summary) -> summary.getDeadline().getTime())
+			.thenComparingInt(ProjectSummary::getProjectNumber);
+
+	private final ProjectManager projectManager;
+	private final Clock clock;
+	private final List<OverdueListener> listeners = new CopyOnWriteArrayList<>();
+
+	// Guards the collections and the wake-up below
+	private final ReentrantLock lock = new ReentrantLock();
+	private final PriorityQueue<Pending> queue = new PriorityQueue<>(DUE_ORDER);
+	// The live queue entry of every open project that is not yet due, by project number
+	private final Map<Integer, Pending> pending = new HashMap<>();
+	// Open projects that are overdue, in report order and by project number
+	private final NavigableSet<ProjectSummary> overdue = new TreeSet<>(DEADLINE_ORDER);
+	private final Map<Integer, ProjectSummary> overdueByNumber = new HashMap<>();
+
+	private ScheduledExecutorService timer;
+	private ScheduledFuture<?> wakeUp;
+	// Time the pending wake-up is due, or Long.MAX_VALUE if none is pending
+	private long wakeUpMillis = Long.MAX_VALUE;
+
+	/**
+	 * Constructs a new, empty OverdueScheduler over the projects of the given manager.
+	 *
+	 * @param projectManager The manager whose writes keep the scheduler current.
+	 */
+	public OverdueScheduler(ProjectManager projectManager) {
+		this(projectManager, Clock.systemDefaultZone());
+	}
+
+	/**
+	 * Constructs a new, empty OverdueScheduler that reads the time from the given clock.
+	 *
+	 * @param projectManager The manager whose writes keep the scheduler current.
+	 * @param clock          The clock giving the current time and the time zone days start in.
+	 */
+	OverdueScheduler(ProjectManager projectManager, Clock clock) {
+		this.projectManager = projectManager;
+		this.clock = clock;
+	}
+
+	/**
+	 * Registers a listener to be told when a project becomes overdue.
+	 *
+	 * @param listener The listener to add.
+	 */
+	public void addOverdueListener(OverdueListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener registered with {@link #addOverdueListener}.
+	 *
+	 * @param listener The listener to remove.
+	 */
+	public void removeOverdueListener(OverdueListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Loads the open projects, starts listening for writes made through the {@link ProjectManager}
+	 * and schedules the first wake-up. Projects that are already overdue are not reported to the
+	 * listeners.
+	 *
+	 * @throws SQLException If the open projects cannot be loaded.
+	 */
+	public synchronized void start() throws SQLException {
+		if (timer != null) {
+			throw new IllegalStateException("Overdue scheduler already started");
+		}
+
+		// Wake up on a single daemon thread so that it never keeps the JVM alive
+		timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "poised-overdue-scheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		projectManager.addProjectChangeListener(this);
+		try {
+			reload();
+		} catch (SQLException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Discards what the scheduler holds and loads the open projects again. Projects that are
+	 * overdue when they are loaded are not reported to the listeners. Writes made through the
+	 * {@link ProjectManager} wait until the load is complete.
+	 *
+	 * @throws SQLException If the open projects cannot be loaded. The scheduler is left empty.
+	 */
+	public void reload() throws SQLException {
+		ProjectRepository repository = projectManager.getRepository();
+		lock.lock();
+		try {
+			queue.clear();
+			pending.clear();
+			overdue.clear();
+			overdueByNumber.clear();
+
+			long now = clock.millis();
+			int afterProjectNumber = Integer.MIN_VALUE;
+			List<ProjectSummary> page;
+			do {
+				page = repository.findIncompleteProjects(afterProjectNumber,
+						ProjectManager.REPORT_PAGE_SIZE);
+				for (ProjectSummary summary : page) {
+					track(summary, now, true);
+				}
+				if (!page.isEmpty()) {
+					afterProjectNumber = page.get(page.size() - 1).getProjectNumber();
+				}
+			} while (page.size() == ProjectManager.REPORT_PAGE_SIZE);
+			scheduleWakeUp();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the wake-ups and stops listening for writes. The scheduler keeps answering the overdue
+	 * list from what it holds, but no longer moves projects to it.
+	 */
+	@Override
+	public synchronized void close() {
+		projectManager.removeProjectChangeListener(this);
+		lock.lock();
+		try {
+			if (timer != null) {
+				timer.shutdownNow();
+				timer = null;
+			}
+			wakeUp = null;
+			wakeUpMillis = Long.MAX_VALUE;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Lists all overdue projects from the scheduler.
+	 */
+	public void listOverdueProjects() {
+		try (ProjectReportPrinter printer = new ProjectReportPrinter("Overdue Project Number")) {
+			forEachOverdueProject(printer);
+		}
+	}
+
+	/**
+	 * Passes every overdue project, ordered by deadline and then project number, to the given
+	 * consumer. The projects are taken as of the call; the consumer runs without holding the
+	 * scheduler's lock.
+	 *
+	 * @param consumer The consumer to receive each project.
+	 */
+	public void forEachOverdueProject(Consumer<? super ProjectSummary> consumer) {
+		List<ProjectSummary> projects;
+		lock.lock();
+		try {
+			projects = new ArrayList<>(overdue);
+		} finally {
+			lock.unlock();
+		}
+		projects.forEach(consumer);
+	}
+
+	/**
+	 * Gets the number of overdue projects.
+	 *
+	 * @return The number of open projects whose deadline has passed.
+	 */
+	public int getOverdueCount() {
+		lock.lock();
+		try {
+			return overdue.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of open projects whose deadline is still ahead.
+	 *
+	 * @return The number of projects waiting to fall due.
+	 */
+	public int getPendingCount() {
+		lock.lock();
+		try {
+			return pending.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void projectSaved(Project project) {
+		lock.lock();
+		try {
+			if (project.getCompletionDate() != null) {
+				untrack(project.getProjectNumber());
+			} else {
+				track(new ProjectSummary(project.getProjectNumber(), project.getProjectName(),
+						project.getBuildingType(), project.getAddress(), project.getDeadline()),
+						clock.millis(), false);
+			}
+			scheduleWakeUp();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void projectFinalized(int projectNumber, Date completionDate) {
+		lock.lock();
+		try {
+			untrack(projectNumber);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void projectDeleted(int projectNumber) {
+		lock.lock();
+		try {
+			untrack(projectNumber);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Starts following an open project, replacing what was held for the same project number. The
+	 * caller holds the lock.
+	 *
+	 * @param summary The project.
+	 * @param now     The current time.
+	 * @param loading {@code true} while loading, when a project that is already overdue goes
+	 *                straight to the overdue set instead of being reported.
+	 */
+	private void track(ProjectSummary summary, long now, boolean loading) {
+		boolean wasOverdue = untrack(summary.getProjectNumber());
+		if (summary.getDeadline() == null) {
+			return;
+		}
+		long dueMillis = dueMillis(summary.getDeadline());
+		if (dueMillis <= now && (loading || wasOverdue)) {
+			overdue.add(summary);
+			overdueByNumber.put(summary.getProjectNumber(), summary);
+			return;
+		}
+
+		// A deadline that has already passed falls due at once and is reported on the next wake-up
+		Pending entry = new Pending(summary, dueMillis);
+		pending.put(summary.getProjectNumber(), entry);
+		queue.add(entry);
+		if (queue.size() > 2 * pending.size() + COMPACT_THRESHOLD) {
+			queue.clear();
+			queue.addAll(pending.values());
+		}
+	}
+
+	/**
+	 * Stops following a project. Its queue entry, if any, is left to be skipped when it reaches
+	 * the head of the queue. The caller holds the lock.
+	 *
+	 * @param projectNumber The project number.
+	 * @return {@code true} if the project was overdue.
+	 */
+	private boolean untrack(int projectNumber) {
+		pending.remove(projectNumber);
+		ProjectSummary summary = overdueByNumber.remove(projectNumber);
+		if (summary != null) {
+			overdue.remove(summary);
+		}
+		return summary != null;
+	}
+
+	/**
+	 * Gets the live entry at the head of the queue, discarding entries replaced by later writes.
+	 * The caller holds the lock.
+	 *
+	 * @return The entry that falls due first, or {@code null} if no project is waiting.
+	 */
+	private Pending peekLive() {
+		Pending head;
+		while ((head = queue.peek()) != null
+				&& pending.get(head.summary.getProjectNumber()) != head) {
+			queue.poll();
+		}
+		return head;
+	}
+
+	/**
+	 * Makes sure a wake-up is scheduled no later than the time the first queued project falls due.
+	 * A wake-up that comes too early, because the project it was for has since changed, finds
+	 * nothing due and schedules the next one. The caller holds the lock.
+	 */
+	private void scheduleWakeUp() {
+		Pending head = peekLive();
+		if (timer == null || head == null || head.dueMillis >= wakeUpMillis) {
+			return;
+		}
+		if (wakeUp != null) {
+			wakeUp.cancel(false);
+		}
+		wakeUpMillis = head.dueMillis;
+		wakeUp = timer.schedule(this::fireDue, Math.max(0, head.dueMillis - clock.millis()),
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Moves every project that has fallen due to the overdue set, schedules the next wake-up and
+	 * tells the listeners about the projects moved. Runs on the scheduler's thread.
+	 */
+	private void fireDue() {
+		List<ProjectSummary> due = new ArrayList<>();
+		lock.lock();
+		try {
+			wakeUp = null;
+			wakeUpMillis = Long.MAX_VALUE;
+			long now = clock.millis();
+			Pending head;
+			while ((head = peekLive()) != null && head.dueMillis <= now) {
+				queue.poll();
+				pending.remove(head.summary.getProjectNumber());
+				overdue.add(head.summary);
+				overdueByNumber.put(head.summary.getProjectNumber(), head.summary);
+				due.add(head.summary);
+			}
+			scheduleWakeUp();
+		} finally {
+			lock.unlock();
+		}
+
+		// Listeners run without the lock, so they may use the scheduler and the database
+		for (ProjectSummary summary : due) {
+			for (OverdueListener listener : listeners) {
+				try {
+					listener.projectOverdue(summary);
+				} catch (RuntimeException e) {
+					// Print stack trace for debugging; the other listeners are still told
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the time a project with the given deadline becomes overdue: the start of the next day
+	 * in the clock's time zone.
+	 *
+	 * @param deadline The deadline.
+	 * @return The time in milliseconds since the epoch.
+	 */
+	private long dueMillis(Date deadline) {
+		ZoneId zone = clock.getZone();
+		LocalDate day = deadline instanceof java.sql.Date sqlDate ? sqlDate.toLocalDate()
+				: LocalDate.ofInstant(deadline.toInstant(), zone);
+		return day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+	}
+
+	/**
+	 * A queued project and the time it falls due.
+	 */
+	private static final class Pending {
+		private final ProjectSummary summary;
+		private final long dueMillis;
+
+		Pending(ProjectSummary summary, long dueMillis) {
+			this.summary = summary;
+			this.dueMillis = dueMillis;
+		}
+	}
+}
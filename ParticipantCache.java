@@ -0,0 +1,253 @@
+package poised;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * The ParticipantCache class is a bounded, read-through cache of architects, contractors or
+ * customers keyed by their ID. When the cache is full the least recently used entry is evicted, and
+ * entries can optionally expire a fixed time after they were loaded.
+ *
+ * <p>
+ * Participants have setters, so a cache can be given a copier: it then keeps a copy of every
+ * participant put into it and hands out a new copy on every lookup, so that a caller editing a
+ * participant it was given does not change what later lookups return.
+ *
+ * <p>
+ * The cache keeps hit, miss and eviction counters. It is safe for use by several threads; loads run
+ * outside the cache's lock, so two threads missing on the same ID at once may both load it. Every
+ * invalidation moves the cache's generation on, and a participant loaded before an invalidation is
+ * not cached, since it may have been read before the write that caused it. Participants change
+ * rarely, so losing a load to an invalidation of another participant costs little.
+ *
+ * @param <V> The type of participant held in the cache.
+ */
+public class ParticipantCache<V> {
+	private final int maxSize;
+	private final long ttlNanos;
+	private final UnaryOperator<V> copier;
+	// Source of System.nanoTime(), replaced by tests
+	private final LongSupplier nanoClock;
+	private final LinkedHashMap<Integer, Entry<V>> entries;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+	// Moved on by every invalidation
+	private long generation;
+
+	/**
+	 * Constructs a new ParticipantCache of values that are not changed once cached, so they are
+	 * handed out as they are.
+	 *
+	 * @param maxSize   The maximum number of participants to hold.
+	 * @param ttlMillis How long an entry stays valid after it is loaded, or {@code 0} for no expiry.
+	 */
+	public ParticipantCache(int maxSize, long ttlMillis) {
+		this(maxSize, ttlMillis, UnaryOperator.identity());
+	}
+
+	/**
+	 * Constructs a new ParticipantCache that copies participants as they go in and out.
+	 *
+	 * @param maxSize   The maximum number of participants to hold.
+	 * @param ttlMillis How long an entry stays valid after it is loaded, or {@code 0} for no expiry.
+	 * @param copier    Copies a participant.
+	 */
+	public ParticipantCache(int maxSize, long ttlMillis, UnaryOperator<V> copier) {
+		this(maxSize, ttlMillis, copier, System::nanoTime);
+	}
+
+	/**
+	 * Constructs a new ParticipantCache that tells the time with the given clock.
+	 *
+	 * @param maxSize   The maximum number of participants to hold.
+	 * @param ttlMillis How long an entry stays valid after it is loaded, or {@code 0} for no expiry.
+	 * @param copier    Copies a participant.
+	 * @param nanoClock Gives the time in nanoseconds, as {@link System#nanoTime()} does.
+	 */
+	ParticipantCache(int maxSize, long ttlMillis, UnaryOperator<V> copier, LongSupplier nanoClock) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+		}
+		this.maxSize = maxSize;
+		this.ttlNanos = ttlMillis * 1_000_000L;
+		this.copier = copier;
+		this.nanoClock = nanoClock;
+		// Access-ordered map, so iteration order runs from least to most recently used
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Entry<V>> eldest) {
+				if (size() > ParticipantCache.this.maxSize) {
+					evictionCount++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the participant with the given ID, loading it with {@code loader} and caching it if it
+	 * is not already cached. Participants that are not found are not cached, and neither is one
+	 * whose load overlapped an invalidation.
+	 *
+	 * @param id     The participant's ID.
+	 * @param loader Loads the participant on a cache miss, returning {@code null} if it does not exist.
+	 * @return The participant, or {@code null} if it does not exist. It is the loaded participant
+	 *         itself on a miss, and a copy of the cached one on a hit.
+	 */
+	public V get(int id, IntFunction<V> loader) {
+		V value;
+		long loadGeneration;
+		synchronized (this) {
+			value = getIfPresent(id);
+			loadGeneration = generation;
+		}
+		if (value != null) {
+			return value;
+		}
+		value = loader.apply(id);
+		if (value != null) {
+			put(id, value, loadGeneration);
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the cached participant with the given ID without loading it, and records a hit or a
+	 * miss.
+	 *
+	 * @param id The participant's ID.
+	 * @return A copy of the cached participant, or {@code null} if it is not cached or has expired.
+	 */
+	public synchronized V getIfPresent(int id) {
+		Entry<V> entry = entries.get(id);
+		if (entry != null && ttlNanos > 0 && nanoClock.getAsLong() - entry.loadedNanos >= ttlNanos) {
+			entries.remove(id);
+			entry = null;
+		}
+		if (entry == null) {
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		return copier.apply(entry.value);
+	}
+
+	/**
+	 * Adds or replaces a participant in the cache. A copy is cached, so the caller may go on using
+	 * the participant.
+	 *
+	 * @param id    The participant's ID.
+	 * @param value The participant.
+	 */
+	public synchronized void put(int id, V value) {
+		entries.put(id, new Entry<>(copier.apply(value), nanoClock.getAsLong()));
+	}
+
+	/**
+	 * Adds or replaces a participant that was read from storage after {@link #generation()}
+	 * returned the given value, unless the cache has been invalidated since.
+	 *
+	 * @param id             The participant's ID.
+	 * @param value          The participant.
+	 * @param loadGeneration The generation taken before the participant was read.
+	 * @return {@code true} if the participant was cached.
+	 */
+	public synchronized boolean put(int id, V value, long loadGeneration) {
+		if (loadGeneration != generation) {
+			return false;
+		}
+		put(id, value);
+		return true;
+	}
+
+	/**
+	 * Gets the cache's generation, which every invalidation moves on. Take it before reading a
+	 * participant to be cached with {@link #put(int, Object, long)}.
+	 *
+	 * @return The current generation.
+	 */
+	public synchronized long generation() {
+		return generation;
+	}
+
+	/**
+	 * Removes a participant from the cache, so that the next lookup reads it from the database.
+	 * A load of any participant that is still running will not be cached.
+	 *
+	 * @param id The participant's ID.
+	 */
+	public synchronized void invalidate(int id) {
+		entries.remove(id);
+		generation++;
+	}
+
+	/**
+	 * Removes every participant from the cache. A load that is still running will not be cached.
+	 */
+	public synchronized void invalidateAll() {
+		entries.clear();
+		generation++;
+	}
+
+	/**
+	 * Gets the number of participants currently cached.
+	 *
+	 * @return The cache size.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Gets the number of lookups served from the cache.
+	 *
+	 * @return The hit count.
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Gets the number of lookups that were not served from the cache.
+	 *
+	 * @return The miss count.
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Gets the number of participants evicted to keep the cache within its maximum size.
+	 *
+	 * @return The eviction count.
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("ParticipantCache[size=%d/%d, hits=%d, misses=%d, evictions=%d]",
+				entries.size(), maxSize, hitCount, missCount, evictionCount);
+	}
+
+	/**
+	 * A cached participant and the time it was loaded.
+	 */
+	private static final class Entry<V> {
+		private final V value;
+		private final long loadedNanos;
+
+		Entry(V value, long loadedNanos) {
+			this.value = value;
+			this.loadedNanos = loadedNanos;
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package poised;
+
+/**
+ * The ParticipantRole enum lists the roles a participant can play on a project, for finding the
+ * projects of one architect, contractor or customer.
+ */
+public enum ParticipantRole {
+	/** The project's architect. */
+	ARCHITECT("Architect"),
+	/** The project's contractor. */
+	CONTRACTOR("Contractor"),
+	/** The project's customer. */
+	CUSTOMER("Customer");
+
+	private final String title;
+
+	ParticipantRole(String title) {
+		this.title = title;
+	}
+
+	/**
+	 * Gets the name of the role as shown to users.
+	 *
+	 * @return The name, for example "Contractor".
+	 */
+	public String getTitle() {
+		return title;
+	}
+}
@@ -1,6 +1,13 @@
 package poised;
 
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.management.JMException;
 
 /**
  * The PoisedPMS class is the main entry point for the Poise Project Management System. It provides
@@ -8,16 +15,104 @@ import java.util.Scanner;
  * and finding projects.
  */
 public class PoisedPMS {
+	// Most search matches displayed
+	private static final int SEARCH_LIMIT = 20;
 
 	/**
 	 * The main method that runs the Poise Project Management System. It provides a console menu for
 	 * users to perform various operations on projects.
 	 *
-	 * @param args Command-line arguments (not used in this application).
+	 * <p>
+	 * Projects are stored in the MySQL database unless the {@code poised.storage} system property
+	 * selects another {@link ProjectRepository}. When the {@code poised.index.enabled} system
+	 * property is {@code true}, the projects are loaded into a {@link ProjectIndex} at startup and the
+	 * find, list and fee total options are answered from it. When the {@code poised.overdue.alerts}
+	 * system property is {@code true}, an {@link OverdueScheduler} prints an alert whenever a
+	 * project becomes overdue and answers the overdue list. The first search loads a
+	 * {@link ProjectSearchIndex}, which then answers every search from memory. Operation {@link Metrics} are
+	 * published through JMX, and to the exporter named by {@code poised.metrics.exporter} if set.
+	 * Started with {@code --batch}, the application runs the commands in a file or on standard input
+	 * through a {@link BatchRunner} instead of showing the menu; started with {@code --serve}, it
+	 * serves the {@link ApiServer} JSON API.
+	 *
+	 * @param args {@code --batch} and an optional command file, or {@code --serve} and an optional
+	 *             port, to run without the menu; otherwise not used.
 	 */
 	public static void main(String[] args) {
+		if (args.length > 0 && args[0].equals("--batch")) {
+			BatchRunner.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--serve")) {
+			ApiServer.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
 		Scanner scanner = new Scanner(System.in);
-		ProjectManager projectManager = new ProjectManager();
+
+		// Publish the operation metrics; the application runs without them if they cannot start
+		try {
+			Metrics.startFromSystemProperties();
+		} catch (JMException | IllegalArgumentException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+		}
+
+		// Open the storage chosen by the poised.storage system property
+		ProjectRepository repository;
+		try {
+			repository = ProjectRepository.fromSystemProperties();
+		} catch (SQLException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		ProjectManager projectManager = new ProjectManager(repository);
+		AsyncProjectManager asyncProjectManager = new AsyncProjectManager(projectManager);
+
+		// Bring the database schema up to date before accepting any commands
+		if (repository instanceof JdbcProjectRepository) {
+			try {
+				for (String migration : new SchemaMigrator().migrate()) {
+					System.out.println("Applied schema migration " + migration);
+				}
+			} catch (SQLException e) {
+				// Print stack trace for debugging
+				e.printStackTrace();
+			}
+		}
+
+		// Load the optional in-memory read model; fall back to the database if it cannot be loaded
+		ProjectIndex projectIndex = null;
+		if (Boolean.getBoolean("poised.index.enabled")) {
+			try {
+				projectIndex = new ProjectIndex(projectManager);
+				projectIndex.start();
+			} catch (SQLException e) {
+				// Print stack trace for debugging
+				e.printStackTrace();
+				projectIndex = null;
+			}
+		}
+
+		// Start the optional overdue alerts, printed as soon as a project's deadline passes
+		OverdueScheduler overdueScheduler = null;
+		if (Boolean.getBoolean("poised.overdue.alerts")) {
+			try {
+				overdueScheduler = new OverdueScheduler(projectManager);
+				overdueScheduler.addOverdueListener(summary -> System.out.printf(
+						"%nProject %d (%s) is now overdue; its deadline was %s.%n",
+						summary.getProjectNumber(), summary.getProjectName(), summary.getDeadline()));
+				overdueScheduler.start();
+			} catch (SQLException e) {
+				// Print stack trace for debugging
+				e.printStackTrace();
+				overdueScheduler = null;
+			}
+		}
+
+		// Loaded by the first search
+		ProjectSearchIndex searchIndex = null;
 
 		// Infinite loop to keep the program running and interact with the user
 		while (true) {
@@ -28,7 +123,10 @@ public class PoisedPMS {
 			System.out.println("4. Find Project");
 			System.out.println("5. See a list of projects that still need to be completed");
 			System.out.println("6. See a list of projects that are past the due date");
-			System.out.println("7. Exit");
+			System.out.println("7. See the fee totals by building type, customer and deadline month");
+			System.out.println("8. Search projects by name, address or ERF number");
+			System.out.println("9. See a list of the projects of an architect, contractor or customer");
+			System.out.println("10. Exit");
 
 			// Read the user's choice
 			int choice = scanner.nextInt();
@@ -60,31 +158,40 @@ public class PoisedPMS {
 				String erfNumber = scanner.nextLine();
 
 				System.out.print("Total Fee: ");
-				double totalFee = scanner.nextDouble();
+				long totalFee = Money.parse(scanner.next());
 
 				System.out.print("Amount Paid: ");
-				double amountPaid = scanner.nextDouble();
+				long amountPaid = Money.parse(scanner.next());
 
 				System.out.print("Deadline (YYYY-MM-DD): ");
 				String deadline = scanner.next();
 
-				// Fetch associated Architect, Contractor, and Customer by their IDs
+				// Fetch associated Architect, Contractor, and Customer by their IDs. Each lookup starts
+				// in the background as soon as its ID is entered.
 				System.out.print("Architect ID: ");
 				int architectId = scanner.nextInt();
-				Architect architect = projectManager.findArchitectById(architectId);
+				CompletableFuture<Architect> architect = asyncProjectManager.findArchitectById(architectId);
 
 				System.out.print("Contractor ID: ");
 				int contractorId = scanner.nextInt();
-				Contractor contractor = projectManager.findContractorById(contractorId);
+				CompletableFuture<Contractor> contractor = asyncProjectManager
+						.findContractorById(contractorId);
 
 				System.out.print("Customer ID: ");
 				int customerId = scanner.nextInt();
-				Customer customer = projectManager.findCustomerById(customerId);
+				CompletableFuture<Customer> customer = asyncProjectManager.findCustomerById(customerId);
 
 				// Create a new Project object and add it to the database
-				Project newProject = new Project(0, projectNumber, projectName, buildingType, address,
-						erfNumber, totalFee, amountPaid, java.sql.Date.valueOf(deadline), null, architect,
-						contractor, customer);
+				Project newProject;
+				try {
+					newProject = new Project(0, projectNumber, projectName, buildingType, address,
+							erfNumber, totalFee, amountPaid, java.sql.Date.valueOf(deadline), null,
+							architect.join(), contractor.join(), customer.join());
+				} catch (CompletionException e) {
+					// Print stack trace for debugging
+					e.getCause().printStackTrace();
+					break;
+				}
 				projectManager.addProject(newProject);
 				System.out.println("Project added successfully.");
 				break;
@@ -112,13 +219,13 @@ public class PoisedPMS {
 					System.out.print("New Total Fee (leave empty to keep current): ");
 					String newFee = scanner.nextLine();
 					if (!newFee.isEmpty()) {
-						projectToUpdate.setTotalFee(Double.parseDouble(newFee));
+						projectToUpdate.setTotalFeeCents(Money.parse(newFee));
 					}
 
 					System.out.print("New Amount Paid (leave empty to keep current): ");
 					String newPaid = scanner.nextLine();
 					if (!newPaid.isEmpty()) {
-						projectToUpdate.setAmountPaid(Double.parseDouble(newPaid));
+						projectToUpdate.setAmountPaidCents(Money.parse(newPaid));
 					}
 
 					System.out.print("New Deadline (leave empty to keep current, format YYYY-MM-DD): ");
@@ -127,9 +234,12 @@ public class PoisedPMS {
 						projectToUpdate.setDeadline(java.sql.Date.valueOf(newDeadline));
 					}
 
-					// Update the project in the database
-					projectManager.updateProject(projectToUpdate);
-					System.out.println("Project updated successfully.");
+					// Update the project in the database, unless another user changed it in the meantime
+					UpdateResult updateResult = projectManager.updateProject(projectToUpdate);
+					// A conflict is reported by the project manager
+					if (updateResult == UpdateResult.UPDATED) {
+						System.out.println("Project updated successfully.");
+					}
 				} else {
 					System.out.println("Project not found.");
 				}
@@ -147,11 +257,14 @@ public class PoisedPMS {
 				// Fetch the project to finalise
 				Project projectToFinalize = projectManager.findProjectByNumber(projectNumberToFinalize);
 				if (projectToFinalize != null) {
-					// Set the completion date to the current date and finalise the project
-					projectToFinalize.setCompletionDate(new java.sql.Date(System.currentTimeMillis()));
-					projectManager.finalizeProject(projectToFinalize.getProjectId(),
+					// Finalise the project with the current date, unless another user changed it in the
+					// meantime
+					UpdateResult finalizeResult = projectManager.finalizeProject(projectToFinalize,
 							new java.sql.Date(System.currentTimeMillis()));
-					System.out.println("Project finalized successfully.");
+					// A conflict is reported by the project manager
+					if (finalizeResult == UpdateResult.UPDATED) {
+						System.out.println("Project finalized successfully.");
+					}
 				} else {
 					System.out.println("Project not found.");
 				}
@@ -167,7 +280,8 @@ public class PoisedPMS {
 				scanner.nextLine(); // Consume newline
 
 				// Fetch and display the project by its number
-				Project project = projectManager.findProjectByNumber(projectNumberToFind);
+				Project project = projectIndex != null ? projectIndex.findProjectByNumber(projectNumberToFind)
+						: projectManager.findProjectByNumber(projectNumberToFind);
 				if (project != null) {
 					System.out.println("Project found:");
 					System.out.println(project);
@@ -180,21 +294,103 @@ public class PoisedPMS {
 				/**
 				 * Displays a list of projects that are not yet finalised.
 				 */
-				projectManager.listIncompleteProjects();
+				if (projectIndex != null) {
+					projectIndex.listIncompleteProjects();
+				} else {
+					projectManager.listIncompleteProjects();
+				}
 				break;
 
 			case 6:
 				/**
 				 * Displays a list of projects that are past their due date.
 				 */
-				projectManager.listOverdueProjects();
+				if (overdueScheduler != null) {
+					overdueScheduler.listOverdueProjects();
+				} else if (projectIndex != null) {
+					projectIndex.listOverdueProjects();
+				} else {
+					projectManager.listOverdueProjects();
+				}
 				break;
 
 			case 7:
+				/**
+				 * Displays the total fees, amounts paid and outstanding amounts of all projects.
+				 */
+				if (projectIndex != null) {
+					projectIndex.listFeeTotals();
+				} else {
+					projectManager.listFeeTotals();
+				}
+				break;
+
+			case 8:
+				/**
+				 * Searches the projects for part of a name, address or ERF number and displays the best
+				 * matches. Misspelt text still finds the projects it is close to.
+				 */
+				if (searchIndex == null) {
+					try {
+						searchIndex = new ProjectSearchIndex(projectManager);
+						searchIndex.start();
+					} catch (SQLException e) {
+						// Print stack trace for debugging
+						e.printStackTrace();
+						searchIndex = null;
+						break;
+					}
+				}
+				System.out.print("Enter the text to search for: ");
+				List<ProjectMatch> matches = searchIndex.search(scanner.nextLine(), SEARCH_LIMIT);
+				if (matches.isEmpty()) {
+					System.out.println("No matching projects found.");
+				}
+				matches.forEach(System.out::println);
+				break;
+
+			case 9:
+				/**
+				 * Displays the projects of one architect, contractor or customer, optionally leaving out
+				 * finalised projects.
+				 */
+				System.out.print("Role (1. Architect, 2. Contractor, 3. Customer): ");
+				int role = scanner.nextInt();
+				System.out.print("Participant ID: ");
+				int participantId = scanner.nextInt();
+				scanner.nextLine(); // Consume newline
+				if (role < 1 || role > ParticipantRole.values().length) {
+					System.out.println("Invalid role.");
+					break;
+				}
+				System.out.print("Only projects still to be completed (y/n): ");
+				boolean openOnly = scanner.nextLine().trim().equalsIgnoreCase("y");
+				projectManager.listProjectsByParticipant(ParticipantRole.values()[role - 1],
+						participantId, openOnly);
+				break;
+
+			case 10:
 				/**
 				 * Exits the application.
 				 */
 				System.out.println("Exiting...");
+				if (searchIndex != null) {
+					searchIndex.close();
+				}
+				if (overdueScheduler != null) {
+					overdueScheduler.close();
+				}
+				if (projectIndex != null) {
+					projectIndex.close();
+				}
+				asyncProjectManager.close();
+				Metrics.stopExporter();
+				try {
+					repository.close();
+				} catch (SQLException e) {
+					// Print stack trace for debugging
+					e.printStackTrace();
+				}
 				System.exit(0);
 
 			default:
@@ -0,0 +1,227 @@
+package poised;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The PoolMetrics class is an immutable snapshot of a {@link ConnectionPool}'s state and the
+ * metrics it has accumulated since it was created, such as borrow latency, time spent waiting for
+ * a free connection and the number of active and idle connections.
+ */
+public class PoolMetrics {
+	private final int activeConnections;
+	private final int idleConnections;
+	private final int totalConnections;
+	private final int waitingThreads;
+	private final long borrowCount;
+	private final long borrowNanos;
+	private final long maxBorrowNanos;
+	private final long waitCount;
+	private final long waitNanos;
+	private final long timeoutCount;
+	private final long createdCount;
+	private final long evictedCount;
+	private final long validationFailureCount;
+	private final long statementCacheHits;
+	private final long statementCacheMisses;
+
+	/**
+	 * Constructs a new PoolMetrics snapshot with the provided values.
+	 *
+	 * @param activeConnections      The number of connections currently borrowed.
+	 * @param idleConnections        The number of connections currently idle in the pool.
+	 * @param totalConnections       The number of connections currently open or being opened.
+	 * @param waitingThreads         The number of threads currently waiting for a connection.
+	 * @param borrowCount            The number of successful borrows.
+	 * @param borrowNanos            The total time spent in successful borrows, in nanoseconds.
+	 * @param maxBorrowNanos         The longest single borrow, in nanoseconds.
+	 * @param waitCount              The number of times a borrower had to wait.
+	 * @param waitNanos              The total time borrowers spent waiting, in nanoseconds.
+	 * @param timeoutCount           The number of borrows that timed out.
+	 * @param createdCount           The number of physical connections opened.
+	 * @param evictedCount           The number of idle connections evicted.
+	 * @param validationFailureCount The number of connections that failed validation on borrow.
+	 * @param statementCacheHits     The number of statements served from a statement cache.
+	 * @param statementCacheMisses   The number of statements that had to be prepared.
+	 */
+	public PoolMetrics(int activeConnections, int idleConnections, int totalConnections,
+			int waitingThreads, long borrowCount, long borrowNanos, long maxBorrowNanos, long waitCount,
+			long waitNanos, long timeoutCount, long createdCount, long evictedCount,
+			long validationFailureCount, long statementCacheHits, long statementCacheMisses) {
+		this.activeConnections = activeConnections;
+		this.idleConnections = idleConnections;
+		this.totalConnections = totalConnections;
+		this.waitingThreads = waitingThreads;
+		this.borrowCount = borrowCount;
+		this.borrowNanos = borrowNanos;
+		this.maxBorrowNanos = maxBorrowNanos;
+		this.waitCount = waitCount;
+		this.waitNanos = waitNanos;
+		this.timeoutCount = timeoutCount;
+		this.createdCount = createdCount;
+		this.evictedCount = evictedCount;
+		this.validationFailureCount = validationFailureCount;
+		this.statementCacheHits = statementCacheHits;
+		this.statementCacheMisses = statementCacheMisses;
+	}
+
+	/**
+	 * Gets the number of connections currently borrowed.
+	 *
+	 * @return The number of active connections.
+	 */
+	public int getActiveConnections() {
+		return activeConnections;
+	}
+
+	/**
+	 * Gets the number of connections currently idle in the pool.
+	 *
+	 * @return The number of idle connections.
+	 */
+	public int getIdleConnections() {
+		return idleConnections;
+	}
+
+	/**
+	 * Gets the number of connections currently open or being opened.
+	 *
+	 * @return The total number of connections.
+	 */
+	public int getTotalConnections() {
+		return totalConnections;
+	}
+
+	/**
+	 * Gets the number of threads currently waiting for a connection.
+	 *
+	 * @return The number of waiting threads.
+	 */
+	public int getWaitingThreads() {
+		return waitingThreads;
+	}
+
+	/**
+	 * Gets the number of successful borrows.
+	 *
+	 * @return The borrow count.
+	 */
+	public long getBorrowCount() {
+		return borrowCount;
+	}
+
+	/**
+	 * Gets the average time taken by a successful borrow, including any time spent waiting.
+	 *
+	 * @return The average borrow latency in milliseconds.
+	 */
+	public double getAverageBorrowMillis() {
+		return borrowCount == 0 ? 0 : nanosToMillis(borrowNanos) / borrowCount;
+	}
+
+	/**
+	 * Gets the longest time taken by a single successful borrow.
+	 *
+	 * @return The maximum borrow latency in milliseconds.
+	 */
+	public double getMaxBorrowMillis() {
+		return nanosToMillis(maxBorrowNanos);
+	}
+
+	/**
+	 * Gets the number of times a borrower had to wait for a connection to be returned.
+	 *
+	 * @return The wait count.
+	 */
+	public long getWaitCount() {
+		return waitCount;
+	}
+
+	/**
+	 * Gets the total time borrowers have spent waiting for a connection to be returned.
+	 *
+	 * @return The total wait time in milliseconds.
+	 */
+	public double getTotalWaitMillis() {
+		return nanosToMillis(waitNanos);
+	}
+
+	/**
+	 * Gets the number of borrows that gave up after the borrow timeout.
+	 *
+	 * @return The timeout count.
+	 */
+	public long getTimeoutCount() {
+		return timeoutCount;
+	}
+
+	/**
+	 * Gets the number of physical connections the pool has opened.
+	 *
+	 * @return The created count.
+	 */
+	public long getCreatedCount() {
+		return createdCount;
+	}
+
+	/**
+	 * Gets the number of idle connections the pool has evicted.
+	 *
+	 * @return The evicted count.
+	 */
+	public long getEvictedCount() {
+		return evictedCount;
+	}
+
+	/**
+	 * Gets the number of connections that failed validation on borrow.
+	 *
+	 * @return The validation failure count.
+	 */
+	public long getValidationFailureCount() {
+		return validationFailureCount;
+	}
+
+	/**
+	 * Gets the number of prepared statements served from a connection's statement cache.
+	 *
+	 * @return The statement cache hit count.
+	 */
+	public long getStatementCacheHits() {
+		return statementCacheHits;
+	}
+
+	/**
+	 * Gets the number of prepared statements that were not in a connection's statement cache.
+	 *
+	 * @return The statement cache miss count.
+	 */
+	public long getStatementCacheMisses() {
+		return statementCacheMisses;
+	}
+
+	/**
+	 * Gets the fraction of {@code prepareStatement} calls served from a statement cache.
+	 *
+	 * @return The statement cache hit rate, between 0 and 1.
+	 */
+	public double getStatementCacheHitRate() {
+		long lookups = statementCacheHits + statementCacheMisses;
+		return lookups == 0 ? 0 : statementCacheHits / (double) lookups;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"Pool[active=%d, idle=%d, total=%d, waiting=%d, borrows=%d, avgBorrow=%.3f ms, "
+						+ "maxBorrow=%.3f ms, waits=%d, totalWait=%.3f ms, timeouts=%d, created=%d, "
+						+ "evicted=%d, validationFailures=%d, statementCacheHitRate=%.3f]",
+				activeConnections, idleConnections, totalConnections, waitingThreads, borrowCount,
+				getAverageBorrowMillis(), getMaxBorrowMillis(), waitCount, getTotalWaitMillis(),
+				timeoutCount, createdCount, evictedCount, validationFailureCount,
+				getStatementCacheHitRate());
+	}
+
+	private static double nanosToMillis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+}
@@ -1,27 +1,64 @@
 package poised;
 
 import java.util.Date;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * The Project class represents a construction project in the Poise Project Management System. It
  * contains details such as project ID, project number, name, building type, address, ERF number,
  * total fee, amount paid, deadline, completion date, and associated participants like the
- * architect, contractor, and customer.
+ * architect, contractor, and customer. Amounts are held in cents; see {@link Money}.
+ *
+ * <p>
+ * A project remembers which of its fields have been set since it was loaded from the database, so
+ * that {@link ProjectManager#updateProject(Project)} writes only the columns that changed. A project
+ * created with the constructor has every field marked as changed.
+ *
+ * <p>
+ * A project also carries the version of its row it was read at. Writes check that version, so a
+ * change made by another session in the meantime is reported instead of overwritten.
  */
 public class Project {
+	/**
+	 * The fields of a project that can be changed after it is stored. The project ID and number
+	 * identify the row and are never rewritten.
+	 */
+	public enum Field {
+		PROJECT_NAME, BUILDING_TYPE, ADDRESS, ERF_NUMBER, TOTAL_FEE, AMOUNT_PAID, DEADLINE,
+		COMPLETION_DATE, ARCHITECT, CONTRACTOR, CUSTOMER;
+
+		/**
+		 * Gets the bit that stands for this field in a set of fields.
+		 *
+		 * @return The field's bit.
+		 */
+		int bit() {
+			return 1 << ordinal();
+		}
+	}
+
+	// Every field, as a set of Field bits
+	static final int ALL_FIELDS = (1 << Field.values().length) - 1;
+
 	private int projectId;
 	private int projectNumber;
 	private String projectName;
 	private String buildingType;
 	private String address;
 	private String erfNumber;
-	private double totalFee;
-	private double amountPaid;
+	// Amounts in cents
+	private long totalFee;
+	private long amountPaid;
 	private Date deadline;
 	private Date completionDate;
 	private Architect architect;
 	private Contractor contractor;
 	private Customer customer;
+	// Version of the database row this project was read at or last written as
+	private int version;
+	// Fields set since the project was loaded or last written, as Field bits
+	private int dirtyFields = ALL_FIELDS;
 
 	/**
 	 * Constructs a new Project object with the provided details.
@@ -32,8 +69,8 @@ public class Project {
 	 * @param buildingType   The type of building for the project.
 	 * @param address        The physical address of the project.
 	 * @param erfNumber      The ERF number associated with the project.
-	 * @param totalFee       The total fee for the project.
-	 * @param amountPaid     The amount that has been paid so far.
+	 * @param totalFee       The total fee for the project, in cents.
+	 * @param amountPaid     The amount that has been paid so far, in cents.
 	 * @param deadline       The deadline for the project's completion.
 	 * @param completionDate The date when the project was completed.
 	 * @param architect      The architect associated with the project.
@@ -41,7 +78,7 @@ public class Project {
 	 * @param customer       The customer who owns the project.
 	 */
 	public Project(int projectId, int projectNumber, String projectName, String buildingType,
-			String address, String erfNumber, double totalFee, double amountPaid, Date deadline,
+			String address, String erfNumber, long totalFee, long amountPaid, Date deadline,
 			Date completionDate, Architect architect, Contractor contractor, Customer customer) {
 		this.projectId = projectId;
 		this.projectNumber = projectNumber;
@@ -110,6 +147,7 @@ public class Project {
 	 */
 	public void setProjectName(String projectName) {
 		this.projectName = projectName;
+		dirtyFields |= Field.PROJECT_NAME.bit();
 	}
 
 	/**
@@ -128,6 +166,7 @@ public class Project {
 	 */
 	public void setBuildingType(String buildingType) {
 		this.buildingType = buildingType;
+		dirtyFields |= Field.BUILDING_TYPE.bit();
 	}
 
 	/**
@@ -146,6 +185,7 @@ public class Project {
 	 */
 	public void setAddress(String address) {
 		this.address = address;
+		dirtyFields |= Field.ADDRESS.bit();
 	}
 
 	/**
@@ -164,42 +204,45 @@ public class Project {
 	 */
 	public void setErfNumber(String erfNumber) {
 		this.erfNumber = erfNumber;
+		dirtyFields |= Field.ERF_NUMBER.bit();
 	}
 
 	/**
 	 * Gets the total fee for the project.
 	 *
-	 * @return The total fee.
+	 * @return The total fee, in cents.
 	 */
-	public double getTotalFee() {
+	public long getTotalFeeCents() {
 		return totalFee;
 	}
 
 	/**
 	 * Sets the total fee for the project.
 	 *
-	 * @param totalFee The total fee.
+	 * @param totalFee The total fee, in cents.
 	 */
-	public void setTotalFee(double totalFee) {
+	public void setTotalFeeCents(long totalFee) {
 		this.totalFee = totalFee;
+		dirtyFields |= Field.TOTAL_FEE.bit();
 	}
 
 	/**
 	 * Gets the amount paid so far.
 	 *
-	 * @return The amount paid.
+	 * @return The amount paid, in cents.
 	 */
-	public double getAmountPaid() {
+	public long getAmountPaidCents() {
 		return amountPaid;
 	}
 
 	/**
 	 * Sets the amount paid so far.
 	 *
-	 * @param amountPaid The amount paid.
+	 * @param amountPaid The amount paid, in cents.
 	 */
-	public void setAmountPaid(double amountPaid) {
+	public void setAmountPaidCents(long amountPaid) {
 		this.amountPaid = amountPaid;
+		dirtyFields |= Field.AMOUNT_PAID.bit();
 	}
 
 	/**
@@ -218,6 +261,7 @@ public class Project {
 	 */
 	public void setDeadline(Date deadline) {
 		this.deadline = deadline;
+		dirtyFields |= Field.DEADLINE.bit();
 	}
 
 	/**
@@ -236,6 +280,7 @@ public class Project {
 	 */
 	public void setCompletionDate(Date completionDate) {
 		this.completionDate = completionDate;
+		dirtyFields |= Field.COMPLETION_DATE.bit();
 	}
 
 	/**
@@ -254,6 +299,7 @@ public class Project {
 	 */
 	public void setArchitect(Architect architect) {
 		this.architect = architect;
+		dirtyFields |= Field.ARCHITECT.bit();
 	}
 
 	/**
@@ -272,6 +318,7 @@ public class Project {
 	 */
 	public void setContractor(Contractor contractor) {
 		this.contractor = contractor;
+		dirtyFields |= Field.CONTRACTOR.bit();
 	}
 
 	/**
@@ -290,5 +337,75 @@ public class Project {
 	 */
 	public void setCustomer(Customer customer) {
 		this.customer = customer;
+		dirtyFields |= Field.CUSTOMER.bit();
+	}
+
+	/**
+	 * Gets the version of the database row this project was read at or last written as. A project
+	 * that has not been stored yet is at version 0.
+	 *
+	 * @return The row version.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Sets the row version, after the project has been loaded or written.
+	 *
+	 * @param version The row version.
+	 */
+	void setVersion(int version) {
+		this.version = version;
+	}
+
+	/**
+	 * Checks whether any field has been set since the project was loaded or last written.
+	 *
+	 * @return {@code true} if there are changes to write.
+	 */
+	public boolean isDirty() {
+		return dirtyFields != 0;
+	}
+
+	/**
+	 * Gets the fields that have been set since the project was loaded or last written.
+	 *
+	 * @return A new set holding the changed fields.
+	 */
+	public Set<Field> getDirtyFields() {
+		Set<Field> dirty = EnumSet.noneOf(Field.class);
+		for (Field field : Field.values()) {
+			if ((dirtyFields & field.bit()) != 0) {
+				dirty.add(field);
+			}
+		}
+		return dirty;
+	}
+
+	/**
+	 * Gets the fields that have been set since the project was loaded or last written.
+	 *
+	 * @return The changed fields, as {@link Field} bits.
+	 */
+	int getDirtyFieldBits() {
+		return dirtyFields;
+	}
+
+	/**
+	 * Marks every field as matching the database, after the project has been loaded or written.
+	 */
+	public void markClean() {
+		dirtyFields = 0;
+	}
+
+	/**
+	 * Marks the given fields as matching the database, after they have been written. Fields set
+	 * while the write was running stay changed.
+	 *
+	 * @param fields The fields written, as {@link Field} bits.
+	 */
+	void markClean(int fields) {
+		dirtyFields &= ~fields;
 	}
-}
\ No newline at end of file
+}
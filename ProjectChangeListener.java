@@ -0,0 +1,38 @@
+package poised;
+
+import java.util.Date;
+
+/**
+ * The ProjectChangeListener interface is notified by {@link ProjectManager} after a change to a
+ * project has been written to the database. It lets in-memory views of the projects, such as
+ * {@link ProjectIndex}, stay current without reading the change back.
+ *
+ * <p>
+ * Notifications are delivered on the thread that made the change, after its connection has been
+ * returned to the pool, so a listener may itself use the database. Changes made by other processes
+ * are not reported.
+ */
+public interface ProjectChangeListener {
+
+	/**
+	 * Called after a project has been added or updated.
+	 *
+	 * @param project The project as it was written. Listeners must not modify it.
+	 */
+	void projectSaved(Project project);
+
+	/**
+	 * Called after a project has been finalised.
+	 *
+	 * @param projectNumber  The project number of the finalised project.
+	 * @param completionDate The completion date that was set.
+	 */
+	void projectFinalized(int projectNumber, Date completionDate);
+
+	/**
+	 * Called after a project has been deleted.
+	 *
+	 * @param projectNumber The project number of the deleted project.
+	 */
+	void projectDeleted(int projectNumber);
+}
@@ -0,0 +1,151 @@
+package poised;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The ProjectFields class converts projects given as named text values, as read by
+ * {@link BatchRunner} and {@link ApiServer}, into {@link Project} objects and edits. Amounts are
+ * read with {@link Money#parse}, dates as {@code yyyy-mm-dd} and participants by their IDs.
+ */
+final class ProjectFields {
+	/** The fields of a new project, in the order the batch mode's CSV columns list them. */
+	static final List<String> PROJECT_FIELDS = List.of("number", "name", "buildingType", "address",
+			"erfNumber", "totalFee", "amountPaid", "deadline", "architectId", "contractorId",
+			"customerId");
+
+	private ProjectFields() {
+	}
+
+	/**
+	 * Builds a new project and removes its fields from the values.
+	 *
+	 * @param values The values by field name. Every field in {@link #PROJECT_FIELDS} is required.
+	 * @return The project, not yet saved.
+	 * @throws IllegalArgumentException If a field is missing or invalid.
+	 */
+	static Project toProject(Map<String, String> values) {
+		Project project = new Project(0, parseInt(required(values, "number"), "number"),
+				required(values, "name"), required(values, "buildingType"),
+				required(values, "address"), required(values, "erfNumber"),
+				Money.parse(required(values, "totalFee")), Money.parse(required(values, "amountPaid")),
+				java.sql.Date.valueOf(required(values, "deadline")), null,
+				new Architect(parseInt(required(values, "architectId"), "architectId"), null, null,
+						null, null),
+				new Contractor(parseInt(required(values, "contractorId"), "contractorId"), null,
+						null, null, null),
+				new Customer(parseInt(required(values, "customerId"), "customerId"), null, null, null,
+						null));
+		values.keySet().removeAll(PROJECT_FIELDS);
+		return project;
+	}
+
+	/**
+	 * Converts the fields of an update into one edit of a project.
+	 *
+	 * @param values The new values by field name; any field of {@link #PROJECT_FIELDS} except
+	 *               {@code number}.
+	 * @return The edit, which sets every given field.
+	 * @throws IllegalArgumentException If a field is unknown or a value is invalid.
+	 */
+	static Consumer<Project> toEdit(Map<String, String> values) {
+		Consumer<Project> edit = project -> {
+		};
+		for (Map.Entry<String, String> value : values.entrySet()) {
+			edit = edit.andThen(editOf(value.getKey(), value.getValue()));
+		}
+		return edit;
+	}
+
+	/**
+	 * Converts one field of an update into an edit of the project.
+	 *
+	 * @param name  The field name.
+	 * @param value The new value.
+	 * @return The edit.
+	 * @throws IllegalArgumentException If the field is unknown or the value is invalid.
+	 */
+	private static Consumer<Project> editOf(String name, String value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Missing " + name);
+		}
+		switch (name) {
+		case "name":
+			return project -> project.setProjectName(value);
+		case "buildingType":
+			return project -> project.setBuildingType(value);
+		case "address":
+			return project -> project.setAddress(value);
+		case "erfNumber":
+			return project -> project.setErfNumber(value);
+		case "totalFee":
+			long totalFee = Money.parse(value);
+			return project -> project.setTotalFeeCents(totalFee);
+		case "amountPaid":
+			long amountPaid = Money.parse(value);
+			return project -> project.setAmountPaidCents(amountPaid);
+		case "deadline":
+			java.sql.Date deadline = java.sql.Date.valueOf(value);
+			return project -> project.setDeadline(deadline);
+		case "architectId":
+			Architect architect = new Architect(parseInt(value, name), null, null, null, null);
+			return project -> project.setArchitect(architect);
+		case "contractorId":
+			Contractor contractor = new Contractor(parseInt(value, name), null, null, null, null);
+			return project -> project.setContractor(contractor);
+		case "customerId":
+			Customer customer = new Customer(parseInt(value, name), null, null, null, null);
+			return project -> project.setCustomer(customer);
+		default:
+			throw new IllegalArgumentException("Unknown field for update: " + name);
+		}
+	}
+
+	/**
+	 * Gets a value that must be given.
+	 *
+	 * @param values The values by field name.
+	 * @param name   The field name.
+	 * @return The value.
+	 * @throws IllegalArgumentException If the value is missing.
+	 */
+	static String required(Map<String, String> values, String name) {
+		String value = values.get(name);
+		if (value == null) {
+			throw new IllegalArgumentException("Missing " + name);
+		}
+		return value;
+	}
+
+	/**
+	 * Parses a whole number.
+	 *
+	 * @param value The text, or {@code null} if it was not given.
+	 * @param name  The field name, for the error message.
+	 * @return The number.
+	 * @throws IllegalArgumentException If the value is missing or not a whole number.
+	 */
+	static int parseInt(String value, String name) {
+		if (value == null) {
+			throw new IllegalArgumentException("Missing " + name);
+		}
+		try {
+			return Integer.parseInt(value.strip());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid " + name + ": " + value);
+		}
+	}
+
+	/**
+	 * Parses an optional date.
+	 *
+	 * @param value The date as {@code yyyy-mm-dd}, or {@code null} or empty for today.
+	 * @return The date.
+	 * @throws IllegalArgumentException If the date is not valid.
+	 */
+	static java.sql.Date dateOrToday(String value) {
+		return value == null || value.isEmpty() ? new java.sql.Date(System.currentTimeMillis())
+				: java.sql.Date.valueOf(value);
+	}
+}
@@ -0,0 +1,505 @@
+package poised;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * The ProjectIndex class is an in-memory read model of the Projects table. It answers project
+ * lookups and the incomplete and overdue project reports from memory instead of the database.
+ *
+ * <p>
+ * Projects are held by project ID, by project number and by project name, and the open projects
+ * are also kept ordered by project number and by deadline, so the reports are walked in the order
+ * the database would return them. Running fee totals by building type, customer and deadline month
+ * are kept alongside, so the fee report costs one step per group. The index is loaded once by
+ * {@link #start()} and then kept current in two ways:
+ * <ul>
+ * <li>Writes made through the {@link ProjectManager} are applied as soon as they succeed.</li>
+ * <li>Every {@code poised.index.refreshMillis} milliseconds (default 5000) the rows whose
+ * {@code updated_at} column changed since the last refresh are read back, which picks up writes
+ * made by other processes.</li>
+ * </ul>
+ *
+ * <p>
+ * The database stamps {@code updated_at} when the changing statement runs, not when its transaction
+ * commits, so each refresh reads again the rows stamped up to
+ * {@code poised.index.refreshOverlapMillis} milliseconds (default 1000) before the newest change it
+ * has seen. A change is picked up as long as its transaction commits within that time of the
+ * statement that made it; a change committed later than that may be missed until the row changes
+ * again or {@link #reload()} is called. Raising the overlap covers longer transactions at the cost
+ * of reading more rows on every refresh; see {@link ProjectRefresher}.
+ *
+ * <p>
+ * Polling cannot see rows that other processes delete; those stay in the index until
+ * {@link #reload()} is called. Architects, contractors and customers are not copied into the index:
+ * they are attached to the projects returned through the {@link ProjectManager}'s participant
+ * caches, so participant updates are seen immediately.
+ */
+public class ProjectIndex implements ProjectChangeListener, AutoCloseable {
+	// How often rows changed by other processes are read back
+	private static final long REFRESH_MILLIS = Long.getLong("poised.index.refreshMillis", 5_000L);
+	// How far each refresh reaches back before the newest change already seen; see the class comment
+	// for the changes this does and does not catch
+	private static final long REFRESH_OVERLAP_MILLIS = Long
+			.getLong("poised.index.refreshOverlapMillis", 1_000L);
+
+	// Orders open projects as the overdue report does: by deadline, then project number
+	private static final Comparator<ProjectSummary> DEADLINE_ORDER = Comparator
+			.comparingLong((ProjectSummary summary) -> summary.getDeadline().getTime())
+			.thenComparingInt(ProjectSummary::getProjectNumber);
+
+	private final ProjectManager projectManager;
+
+	// Guards the maps below; held for reading by lookups and for writing by changes
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Integer, Project> byId = new HashMap<>();
+	private final Map<Integer, Project> byNumber = new HashMap<>();
+	private final Map<String, NavigableSet<Integer>> numbersByName = new HashMap<>();
+	private final NavigableMap<Integer, ProjectSummary> openByNumber = new TreeMap<>();
+	private final NavigableSet<ProjectSummary> openByDeadline = new TreeSet<>(DEADLINE_ORDER);
+	private final FeeLedger fees = new FeeLedger();
+
+	// Loads the maps and keeps them current with writes made by other processes
+	private final ProjectRefresher refresher;
+
+	/**
+	 * Constructs a new, empty ProjectIndex over the projects of the given manager.
+	 *
+	 * @param projectManager The manager whose writes keep the index current.
+	 */
+	public ProjectIndex(ProjectManager projectManager) {
+		this.projectManager = projectManager;
+		this.refresher = new ProjectRefresher(projectManager, "poised-index-refresh", REFRESH_MILLIS,
+				REFRESH_OVERLAP_MILLIS, this::clear, this::put);
+	}
+
+	/**
+	 * Loads every project, starts listening for writes made through the {@link ProjectManager} and
+	 * schedules the periodic refresh.
+	 *
+	 * @throws SQLException If the projects cannot be loaded.
+	 */
+	public void start() throws SQLException {
+		refresher.start(this);
+	}
+
+	/**
+	 * Discards the index and loads every project again.
+	 *
+	 * @throws SQLException If the projects cannot be loaded. The index is left empty.
+	 */
+	public void reload() throws SQLException {
+		refresher.reload();
+	}
+
+	/**
+	 * Reads back every project changed since the last refresh.
+	 *
+	 * @throws SQLException If the changes cannot be read. The index is left as it was.
+	 */
+	public void refresh() throws SQLException {
+		refresher.refresh();
+	}
+
+	/**
+	 * Stops the periodic refresh and stops listening for writes. The index keeps answering lookups
+	 * from what it holds.
+	 */
+	@Override
+	public void close() {
+		refresher.close();
+	}
+
+	/**
+	 * Finds a project by its ID.
+	 *
+	 * @param projectId The ID of the project to be found.
+	 * @return A copy of the {@link Project}, or {@code null} if it is not in the index.
+	 */
+	public Project findProjectById(int projectId) {
+		lock.readLock().lock();
+		try {
+			return withParticipants(byId.get(projectId));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Finds a project by its number.
+	 *
+	 * @param projectNumber The number of the project to be found.
+	 * @return A copy of the {@link Project}, or {@code null} if it is not in the index.
+	 */
+	public Project findProjectByNumber(int projectNumber) {
+		lock.readLock().lock();
+		try {
+			return withParticipants(byNumber.get(projectNumber));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Finds a project by its name. If several projects share the name, the one with the lowest
+	 * project number is returned.
+	 *
+	 * @param projectName The name of the project to be found.
+	 * @return A copy of the {@link Project}, or {@code null} if it is not in the index.
+	 */
+	public Project findProjectByName(String projectName) {
+		lock.readLock().lock();
+		try {
+			NavigableSet<Integer> numbers = numbersByName.get(projectName);
+			return numbers != null ? withParticipants(byNumber.get(numbers.first())) : null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of projects in the index.
+	 *
+	 * @return The number of projects.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return byNumber.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Lists all incomplete projects from the index.
+	 */
+	public void listIncompleteProjects() {
+		try (ProjectReportPrinter printer = new ProjectReportPrinter("Project Number")) {
+			forEachIncompleteProject(printer);
+		}
+	}
+
+	/**
+	 * Lists all overdue projects from the index.
+	 */
+	public void listOverdueProjects() {
+		try (ProjectReportPrinter printer = new ProjectReportPrinter("Overdue Project Number")) {
+			forEachOverdueProject(printer);
+		}
+	}
+
+	/**
+	 * Passes every incomplete project, in project number order, to the given consumer. The projects
+	 * are taken as of the call; the consumer runs without holding the index lock.
+	 *
+	 * @param consumer The consumer to receive each project.
+	 */
+	public void forEachIncompleteProject(Consumer<? super ProjectSummary> consumer) {
+		List<ProjectSummary> projects;
+		lock.readLock().lock();
+		try {
+			projects = new ArrayList<>(openByNumber.values());
+		} finally {
+			lock.readLock().unlock();
+		}
+		projects.forEach(consumer);
+	}
+
+	/**
+	 * Passes every overdue project, ordered by deadline and then project number, to the given
+	 * consumer. The projects are taken as of the call; the consumer runs without holding the index
+	 * lock.
+	 *
+	 * @param consumer The consumer to receive each project.
+	 */
+	public void forEachOverdueProject(Consumer<? super ProjectSummary> consumer) {
+		// Sorts before every project due today or later
+		ProjectSummary today = new ProjectSummary(Integer.MIN_VALUE, null, null, null,
+				java.sql.Date.valueOf(LocalDate.now()));
+		List<ProjectSummary> projects;
+		lock.readLock().lock();
+		try {
+			projects = new ArrayList<>(openByDeadline.headSet(today, false));
+		} finally {
+			lock.readLock().unlock();
+		}
+		projects.forEach(consumer);
+	}
+
+	/**
+	 * Totals the fees of every project in the index. The totals are kept up to date as projects
+	 * change, so this does not visit the projects.
+	 *
+	 * @return The number of projects, their total fees and the amount paid, with no key.
+	 */
+	public FeeSummary summarizeFees() {
+		lock.readLock().lock();
+		try {
+			return fees.total();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Totals the fees of the projects in the index by group. The totals are kept up to date as
+	 * projects change, so this costs one step per group rather than one per project. Customer
+	 * groups are labelled with the customers' names, read from the repository in one query; a
+	 * customer that cannot be read, or whose group appeared during the query, is left unlabelled.
+	 *
+	 * @param grouping How to group the projects.
+	 * @return One summary per group that holds a project, ordered by key with projects that have
+	 *         no key first.
+	 */
+	public List<FeeSummary> summarizeFees(FeeGrouping grouping) {
+		Map<Integer, Customer> customers = Map.of();
+		if (grouping == FeeGrouping.CUSTOMER) {
+			List<Integer> customerIds;
+			lock.readLock().lock();
+			try {
+				customerIds = fees.customerIds();
+			} finally {
+				lock.readLock().unlock();
+			}
+			// Customers are read without holding the index lock
+			customers = findCustomers(customerIds);
+		}
+
+		Map<Integer, Customer> names = customers;
+		lock.readLock().lock();
+		try {
+			return fees.summarize(grouping, customerId -> {
+				Customer customer = names.get(customerId);
+				return customer != null ? customer.getName() : null;
+			});
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Reads customers in one query.
+	 *
+	 * @param customerIds The IDs of the customers.
+	 * @return The customers found, by ID; empty if they cannot be read.
+	 */
+	private Map<Integer, Customer> findCustomers(List<Integer> customerIds) {
+		if (customerIds.isEmpty()) {
+			return Map.of();
+		}
+		try {
+			return projectManager.getRepository().findCustomersByIds(customerIds);
+		} catch (SQLException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+			return Map.of();
+		}
+	}
+
+	/**
+	 * Lists the fee totals of the projects in the index, in total and by every
+	 * {@link FeeGrouping}.
+	 */
+	public void listFeeTotals() {
+		try (FeeReportPrinter printer = new FeeReportPrinter()) {
+			printer.printTotal(summarizeFees());
+			for (FeeGrouping grouping : FeeGrouping.values()) {
+				printer.printGroups(grouping, summarizeFees(grouping));
+			}
+		}
+	}
+
+	@Override
+	public void projectSaved(Project project) {
+		refresher.apply(() -> put(project));
+	}
+
+	@Override
+	public void projectFinalized(int projectNumber, Date completionDate) {
+		refresher.apply(() -> {
+			Project current;
+			lock.readLock().lock();
+			try {
+				current = byNumber.get(projectNumber);
+			} finally {
+				lock.readLock().unlock();
+			}
+			if (current != null) {
+				Project finalized = copyOf(current);
+				finalized.setCompletionDate(toSqlDate(completionDate));
+				finalized.setVersion(current.getVersion() + 1);
+				put(finalized);
+			}
+		});
+	}
+
+	@Override
+	public void projectDeleted(int projectNumber) {
+		refresher.apply(() -> {
+			lock.writeLock().lock();
+			try {
+				remove(byNumber.remove(projectNumber));
+			} finally {
+				lock.writeLock().unlock();
+			}
+		});
+	}
+
+	/**
+	 * Empties every map.
+	 */
+	private void clear() {
+		lock.writeLock().lock();
+		try {
+			byId.clear();
+			byNumber.clear();
+			numbersByName.clear();
+			openByNumber.clear();
+			openByDeadline.clear();
+			fees.clear();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds a project to the index, replacing any project with the same number.
+	 *
+	 * @param project The project to add. A copy is stored.
+	 */
+	private void put(Project project) {
+		Project stored = copyOf(project);
+		lock.writeLock().lock();
+		try {
+			Project previous = byNumber.put(stored.getProjectNumber(), stored);
+			remove(previous);
+
+			// A project added through the manager has no ID until a refresh reads it back
+			if (previous != null && stored.getProjectId() == 0) {
+				stored.setProjectId(previous.getProjectId());
+			}
+			if (stored.getProjectId() != 0) {
+				byId.put(stored.getProjectId(), stored);
+			}
+			numbersByName.computeIfAbsent(stored.getProjectName(), name -> new TreeSet<>())
+					.add(stored.getProjectNumber());
+			if (stored.getCompletionDate() == null) {
+				ProjectSummary summary = new ProjectSummary(stored.getProjectNumber(),
+						stored.getProjectName(), stored.getBuildingType(), stored.getAddress(),
+						stored.getDeadline());
+				openByNumber.put(stored.getProjectNumber(), summary);
+				if (stored.getDeadline() != null) {
+					openByDeadline.add(summary);
+				}
+			}
+			fees.add(stored.getBuildingType(), customerIdOf(stored),
+					FeeLedger.monthOf(stored.getDeadline()), stored.getTotalFeeCents(),
+					stored.getAmountPaidCents());
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a project from every secondary index. The caller holds the write lock and has
+	 * already removed it from {@link #byNumber}.
+	 *
+	 * @param project The project to remove, or {@code null} to do nothing.
+	 */
+	private void remove(Project project) {
+		if (project == null) {
+			return;
+		}
+		byId.remove(project.getProjectId(), project);
+		NavigableSet<Integer> numbers = numbersByName.get(project.getProjectName());
+		if (numbers != null) {
+			numbers.remove(project.getProjectNumber());
+			if (numbers.isEmpty()) {
+				numbersByName.remove(project.getProjectName());
+			}
+		}
+		ProjectSummary summary = openByNumber.remove(project.getProjectNumber());
+		if (summary != null && summary.getDeadline() != null) {
+			openByDeadline.remove(summary);
+		}
+		fees.remove(project.getBuildingType(), customerIdOf(project),
+				FeeLedger.monthOf(project.getDeadline()), project.getTotalFeeCents(),
+				project.getAmountPaidCents());
+	}
+
+	/**
+	 * Gets the ID of a project's customer for the fee totals.
+	 *
+	 * @param project The project.
+	 * @return The customer ID, or {@link FeeLedger#NO_CUSTOMER} if the project has no customer.
+	 */
+	private static int customerIdOf(Project project) {
+		return project.getCustomer() != null ? project.getCustomer().getId() : FeeLedger.NO_CUSTOMER;
+	}
+
+	/**
+	 * Copies a stored project for a caller, attaching its current participants. The copy is marked
+	 * clean, as if it had been loaded from the database.
+	 *
+	 * @param project The stored project, or {@code null}.
+	 * @return The copy, or {@code null} if {@code project} is {@code null}.
+	 */
+	private Project withParticipants(Project project) {
+		if (project == null) {
+			return null;
+		}
+		Project copy = copyOf(project);
+		if (project.getArchitect() != null) {
+			copy.setArchitect(projectManager.findArchitectById(project.getArchitect().getId()));
+		}
+		if (project.getContractor() != null) {
+			copy.setContractor(projectManager.findContractorById(project.getContractor().getId()));
+		}
+		if (project.getCustomer() != null) {
+			copy.setCustomer(projectManager.findCustomerById(project.getCustomer().getId()));
+		}
+		copy.markClean();
+		return copy;
+	}
+
+	/**
+	 * Copies a project and its version, truncating its dates to whole days as the database stores
+	 * them.
+	 *
+	 * @param project The project to copy.
+	 * @return The copy.
+	 */
+	private static Project copyOf(Project project) {
+		Project copy = new Project(project.getProjectId(), project.getProjectNumber(),
+				project.getProjectName(), project.getBuildingType(), project.getAddress(),
+				project.getErfNumber(), project.getTotalFeeCents(), project.getAmountPaidCents(),
+				toSqlDate(project.getDeadline()), toSqlDate(project.getCompletionDate()),
+				project.getArchitect(), project.getContractor(), project.getCustomer());
+		copy.setVersion(project.getVersion());
+		return copy;
+	}
+
+	/**
+	 * Converts a date to the day it falls on in the local time zone.
+	 *
+	 * @param date The date to convert, or {@code null}.
+	 * @return The day as a {@link java.sql.Date}, or {@code null} if {@code date} is {@code null}.
+	 */
+	private static java.sql.Date toSqlDate(Date date) {
+		return date != null ? java.sql.Date.valueOf(new java.sql.Date(date.getTime()).toLocalDate())
+				: null;
+	}
+}
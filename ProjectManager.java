@@ -1,156 +1,533 @@
 package poised;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
- * The {@code ProjectManager} class manages project-related database operations in the Poise Project
+ * The {@code ProjectManager} class manages project-related operations in the Poise Project
  * Management System. It provides methods to add, update, delete, finalise, and retrieve projects,
- * as well as manage associated data such as architects, contractors, and customers.
+ * as well as manage associated data such as architects, contractors, and customers. The data itself
+ * is kept by a {@link ProjectRepository}; the manager adds the participant caches, the change
+ * listeners and the console messages on top.
+ *
+ * <p>
+ * The console operations print their outcome and report a storage failure by printing it and
+ * returning {@code null}, an empty result or {@link UpdateResult#FAILED}. Callers that answer their
+ * own clients, such as {@link ApiServer}, use the {@code read} and {@code save} operations instead,
+ * which print nothing and throw the storage failure.
  */
 public class ProjectManager {
+	// Number of rows fetched per page by the incomplete and overdue project reports
+	static final int REPORT_PAGE_SIZE = Integer.getInteger("poised.report.pageSize", 500);
+
+	// Maximum number of each kind of participant held in memory
+	private static final int PARTICIPANT_CACHE_SIZE = Integer
+			.getInteger("poised.cache.participants.maxSize", 1_000);
+	// How long a cached participant stays valid, or 0 to keep it until it is evicted or written
+	private static final long PARTICIPANT_CACHE_TTL_MILLIS = Long
+			.getLong("poised.cache.participants.ttlMillis", 0L);
+
+	// Where projects and participants are stored
+	private final ProjectRepository repository;
+
+	// Read-through caches in front of the participant lookups. Participants have setters, so each
+	// cache keeps its own copies and every lookup gets a fresh one, as a read from storage would
+	private final ParticipantCache<Architect> architectCache = new ParticipantCache<>(
+			PARTICIPANT_CACHE_SIZE, PARTICIPANT_CACHE_TTL_MILLIS,
+			architect -> new Architect(architect.getId(), architect.getName(),
+					architect.getPhoneNumber(), architect.getEmail(), architect.getPhysicalAddress()));
+	private final ParticipantCache<Contractor> contractorCache = new ParticipantCache<>(
+			PARTICIPANT_CACHE_SIZE, PARTICIPANT_CACHE_TTL_MILLIS,
+			contractor -> new Contractor(contractor.getId(), contractor.getName(),
+					contractor.getPhoneNumber(), contractor.getEmail(), contractor.getPhysicalAddress()));
+	private final ParticipantCache<Customer> customerCache = new ParticipantCache<>(
+			PARTICIPANT_CACHE_SIZE, PARTICIPANT_CACHE_TTL_MILLIS,
+			customer -> new Customer(customer.getId(), customer.getName(), customer.getPhoneNumber(),
+					customer.getEmail(), customer.getPhysicalAddress()));
+
+	// Notified after every project write made through this manager
+	private final List<ProjectChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+	// Metrics of each operation, shared by every manager in the process
+	private static final OperationMetrics ADD_PROJECT = Metrics.operation("addProject");
+	private static final OperationMetrics ADD_PROJECTS = Metrics.operation("addProjects");
+	private static final OperationMetrics UPDATE_PROJECT = Metrics.operation("updateProject");
+	private static final OperationMetrics DELETE_PROJECT = Metrics.operation("deleteProject");
+	private static final OperationMetrics FINALIZE_PROJECT = Metrics.operation("finalizeProject");
+	private static final OperationMetrics FIND_PROJECT_BY_NAME = Metrics.operation("findProjectByName");
+	private static final OperationMetrics FIND_PROJECT_BY_NUMBER = Metrics
+			.operation("findProjectByNumber");
+	private static final OperationMetrics FIND_PROJECTS_BY_NUMBERS = Metrics
+			.operation("findProjectsByNumbers");
+	private static final OperationMetrics FIND_PROJECTS_BY_PARTICIPANT = Metrics
+			.operation("findProjectsByParticipant");
+	private static final OperationMetrics FIND_INCOMPLETE_PROJECTS = Metrics
+			.operation("findIncompleteProjects");
+	private static final OperationMetrics FIND_OVERDUE_PROJECTS = Metrics
+			.operation("findOverdueProjects");
+	private static final OperationMetrics FIND_PROJECTS_UPDATED_SINCE = Metrics
+			.operation("forEachProjectUpdatedSince");
+	private static final OperationMetrics SUMMARIZE_FEES = Metrics.operation("summarizeFees");
+	private static final OperationMetrics SUMMARIZE_FEES_BY_GROUP = Metrics
+			.operation("summarizeFeesByGroup");
+	private static final OperationMetrics ADD_ARCHITECT = Metrics.operation("addArchitect");
+	private static final OperationMetrics FIND_ARCHITECT = Metrics.operation("findArchitectById");
+	private static final OperationMetrics UPDATE_ARCHITECT = Metrics.operation("updateArchitect");
+	private static final OperationMetrics ADD_CONTRACTOR = Metrics.operation("addContractor");
+	private static final OperationMetrics FIND_CONTRACTOR = Metrics.operation("findContractorById");
+	private static final OperationMetrics UPDATE_CONTRACTOR = Metrics.operation("updateContractor");
+	private static final OperationMetrics ADD_CUSTOMER = Metrics.operation("addCustomer");
+	private static final OperationMetrics FIND_CUSTOMER = Metrics.operation("findCustomerById");
+	private static final OperationMetrics UPDATE_CUSTOMER = Metrics.operation("updateCustomer");
+
+	/**
+	 * Loads the participants with the given IDs from the repository.
+	 */
+	@FunctionalInterface
+	private interface ParticipantLoader<T> {
+		Map<Integer, T> load(Collection<Integer> ids) throws SQLException;
+	}
+
+	/**
+	 * Constructs a new ProjectManager that stores its data in the MySQL database.
+	 */
+	public ProjectManager() {
+		this(new JdbcProjectRepository());
+	}
+
+	/**
+	 * Constructs a new ProjectManager over the given storage.
+	 *
+	 * @param repository The repository holding the projects and participants.
+	 */
+	public ProjectManager(ProjectRepository repository) {
+		this.repository = repository;
+	}
+
+	/**
+	 * Gets the repository this manager stores its data in.
+	 *
+	 * @return The repository.
+	 */
+	public ProjectRepository getRepository() {
+		return repository;
+	}
 
 	/**
-	 * Adds a new project to the database.
+	 * Adds a new project.
 	 *
 	 * @param project The {@link Project} object containing the details of the project to be added.
 	 */
 	public void addProject(Project project) {
-		// SQL query for inserting a new project
-		String sql = "INSERT INTO Projects (project_number, project_name, building_type, address, erf_number, total_fee, amount_paid, deadline, architect_id, contractor_id, customer_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-
-		// Try-with-resources to ensure resources are closed automatically
-		try (Connection conn = DatabaseConnection.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-			// Set parameters for the PreparedStatement
-			stmt.setInt(1, project.getProjectNumber());
-			stmt.setString(2, project.getProjectName());
-			stmt.setString(3, project.getBuildingType());
-			stmt.setString(4, project.getAddress());
-			stmt.setString(5, project.getErfNumber());
-			stmt.setDouble(6, project.getTotalFee());
-			stmt.setDouble(7, project.getAmountPaid());
-			stmt.setDate(8, new java.sql.Date(project.getDeadline().getTime()));
-			stmt.setInt(9, project.getArchitect().getId());
-			stmt.setInt(10, project.getContractor().getId());
-			stmt.setInt(11, project.getCustomer().getId());
-
-			// Execute the update and print a success message
-			stmt.executeUpdate();
-			System.out.println("Project added successfully!");
-
+		try {
+			saveNewProject(project);
 		} catch (SQLException e) {
 			// Print stack trace for debugging
 			e.printStackTrace();
+			return;
+		}
+		System.out.println("Project added successfully!");
+	}
+
+	/**
+	 * Adds a new project as {@link #addProject(Project)} does, without printing.
+	 *
+	 * @param project The {@link Project} object containing the details of the project to be added.
+	 * @throws SQLException If the project cannot be written.
+	 */
+	public void saveNewProject(Project project) throws SQLException {
+		long start = ADD_PROJECT.start();
+		try {
+			repository.insertProject(project);
+		} catch (SQLException e) {
+			ADD_PROJECT.failed(start);
+			throw e;
 		}
+		ADD_PROJECT.succeeded(start, 0, 1);
+		fireProjectSaved(project);
 	}
 
 	/**
-	 * Updates an existing project in the database.
+	 * Adds many projects using the default {@link BulkImportOptions}.
 	 *
-	 * @param project The {@link Project} object containing the updated details of the project.
+	 * @param projects The projects to be added.
+	 * @return A {@link BulkImportResult} describing which projects were added and which failed.
 	 */
-	public void updateProject(Project project) {
-		// SQL query for updating an existing project
-		String sql = "UPDATE Projects SET project_name = ?, building_type = ?, address = ?, erf_number = ?, total_fee = ?, amount_paid = ?, deadline = ?, completion_date = ?, architect_id = ?, contractor_id = ?, customer_id = ? WHERE project_number = ?";
+	public BulkImportResult addProjects(Iterable<Project> projects) {
+		return addProjects(projects, BulkImportOptions.defaults());
+	}
 
-		// Try-with-resources to ensure resources are closed automatically
-		try (Connection conn = DatabaseConnection.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
+	/**
+	 * Adds a stream of projects. The stream is consumed one batch at a time, so it may be larger
+	 * than the available memory.
+	 *
+	 * @param projects The projects to be added.
+	 * @param options  The batch size, commit interval and insert style to use.
+	 * @return A {@link BulkImportResult} describing which projects were added and which failed.
+	 */
+	public BulkImportResult addProjects(Stream<Project> projects, BulkImportOptions options) {
+		return addProjects(projects::iterator, options);
+	}
 
-			// Set parameters for the PreparedStatement
-			stmt.setString(1, project.getProjectName());
-			stmt.setString(2, project.getBuildingType());
-			stmt.setString(3, project.getAddress());
-			stmt.setString(4, project.getErfNumber());
-			stmt.setDouble(5, project.getTotalFee());
-			stmt.setDouble(6, project.getAmountPaid());
-			stmt.setDate(7, new java.sql.Date(project.getDeadline().getTime()));
-			stmt.setDate(8,
-					project.getCompletionDate() != null
-							? new java.sql.Date(project.getCompletionDate().getTime())
-							: null);
-			stmt.setInt(9, project.getArchitect().getId());
-			stmt.setInt(10, project.getContractor().getId());
-			stmt.setInt(11, project.getCustomer().getId());
-			stmt.setInt(12, project.getProjectNumber());
+	/**
+	 * Adds many projects in batches. A project that cannot be inserted, for example because of a
+	 * duplicate key or a missing participant, is reported in the result and does not stop the
+	 * import. If the storage itself fails, the import stops and the result says why.
+	 *
+	 * @param projects The projects to be added.
+	 * @param options  The batch size, commit interval and insert style to use.
+	 * @return A {@link BulkImportResult} describing which projects were added and which failed.
+	 */
+	public BulkImportResult addProjects(Iterable<Project> projects, BulkImportOptions options) {
+		long start = ADD_PROJECTS.start();
+		// Committed projects are only collected while listeners need to be told about them
+		BulkImportResult result = repository.insertProjects(projects, options,
+				listeners.isEmpty() ? null : this::fireProjectSaved);
+		if (result.isAborted()) {
+			ADD_PROJECTS.failed(start);
+		} else {
+			ADD_PROJECTS.succeeded(start, 0, result.getInsertedCount());
+		}
+		return result;
+	}
 
-			// Execute the update and print a message based on the result
-			int rowsUpdated = stmt.executeUpdate();
-			if (rowsUpdated > 0) {
-				System.out.println("Project updated successfully!");
-			} else {
-				System.out.println("Project not found!");
-			}
+	/**
+	 * Updates an existing project. Only the fields set since the project was loaded or last written
+	 * are written, and nothing is sent if no field was set. The update only applies if the stored
+	 * project is still at the project's version, so a change made by another session since the
+	 * project was read is reported rather than overwritten.
+	 *
+	 * @param project The {@link Project} object containing the updated details of the project. On
+	 *                success its version moves on and its fields are marked clean.
+	 * @return How the update turned out.
+	 */
+	public UpdateResult updateProject(Project project) {
+		if (project.getDirtyFieldBits() == 0) {
+			System.out.println("No changes to save.");
+			return UpdateResult.UNCHANGED;
+		}
 
+		UpdateResult result;
+		try {
+			result = saveProject(project);
 		} catch (SQLException e) {
 			// Print stack trace for debugging
 			e.printStackTrace();
+			return UpdateResult.FAILED;
 		}
+		printResult(result, "Project updated successfully!");
+		return result;
 	}
 
 	/**
-	 * Deletes a project from the database.
+	 * Updates an existing project as {@link #updateProject(Project)} does, without printing.
 	 *
-	 * @param projectNumber The project number of the project to be deleted.
+	 * @param project The {@link Project} object containing the updated details of the project. On
+	 *                success its version moves on and its fields are marked clean.
+	 * @return {@link UpdateResult#UPDATED}, {@link UpdateResult#UNCHANGED},
+	 *         {@link UpdateResult#NOT_FOUND} or {@link UpdateResult#CONFLICT}.
+	 * @throws SQLException If the project cannot be written.
 	 */
-	public void deleteProject(int projectNumber) {
-		// SQL query for deleting a project
-		String sql = "DELETE FROM Projects WHERE project_number = ?";
+	public UpdateResult saveProject(Project project) throws SQLException {
+		int fields = project.getDirtyFieldBits();
+		if (fields == 0) {
+			return UpdateResult.UNCHANGED;
+		}
 
-		// Try-with-resources to ensure resources are closed automatically
-		try (Connection conn = DatabaseConnection.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
+		UpdateResult result;
+		long start = UPDATE_PROJECT.start();
+		try {
+			result = repository.updateProject(project, fields);
+		} catch (SQLException e) {
+			UPDATE_PROJECT.failed(start);
+			throw e;
+		}
+		UPDATE_PROJECT.succeeded(start, 0, result == UpdateResult.UPDATED ? 1 : 0);
 
-			// Set parameters for the PreparedStatement
-			stmt.setInt(1, projectNumber);
+		if (result == UpdateResult.UPDATED) {
+			project.setVersion(project.getVersion() + 1);
+			project.markClean(fields);
+			fireProjectSaved(project);
+		}
+		return result;
+	}
 
-			// Execute the update and print a message based on the result
-			int rowsDeleted = stmt.executeUpdate();
-			if (rowsDeleted > 0) {
-				System.out.println("Project deleted successfully!");
-			} else {
+	/**
+	 * Reads the latest version of a project, applies an edit to it and writes it. If another session
+	 * writes the project first, the project is read again and the edit reapplied, up to the given
+	 * number of attempts.
+	 *
+	 * @param projectNumber The project number of the project to be updated.
+	 * @param edit          Applies the change to a freshly read project. It may run more than once.
+	 * @param maxAttempts   The maximum number of times to try the update.
+	 * @return How the last attempt turned out; {@link UpdateResult#CONFLICT} if every attempt lost
+	 *         to another session.
+	 */
+	public UpdateResult updateProject(int projectNumber, Consumer<? super Project> edit,
+			int maxAttempts) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("At least one attempt is needed: " + maxAttempts);
+		}
+		UpdateResult result = UpdateResult.CONFLICT;
+		for (int attempt = 0; attempt < maxAttempts && result == UpdateResult.CONFLICT; attempt++) {
+			Project project;
+			try {
+				project = readLatestProjectByNumber(projectNumber);
+			} catch (SQLException e) {
+				// Print stack trace for debugging
+				e.printStackTrace();
+				return UpdateResult.FAILED;
+			}
+			if (project == null) {
 				System.out.println("Project not found!");
+				return UpdateResult.NOT_FOUND;
 			}
+			edit.accept(project);
+			result = updateProject(project);
+		}
+		return result;
+	}
 
+	/**
+	 * Prints the outcome of a write to a project.
+	 *
+	 * @param result  How the write turned out.
+	 * @param success The message to print if it succeeded.
+	 */
+	private static void printResult(UpdateResult result, String success) {
+		switch (result) {
+		case UPDATED -> System.out.println(success);
+		case CONFLICT -> System.out.println("Project was changed by another user! Please try again.");
+		case NOT_FOUND -> System.out.println("Project not found!");
+		default -> {
+		}
+		}
+	}
+
+	/**
+	 * Deletes a project.
+	 *
+	 * @param projectNumber The project number of the project to be deleted.
+	 */
+	public void deleteProject(int projectNumber) {
+		boolean deleted;
+		try {
+			deleted = saveDeletion(projectNumber);
 		} catch (SQLException e) {
 			// Print stack trace for debugging
 			e.printStackTrace();
+			return;
+		}
+
+		if (deleted) {
+			System.out.println("Project deleted successfully!");
+		} else {
+			System.out.println("Project not found!");
+		}
+	}
+
+	/**
+	 * Deletes a project as {@link #deleteProject(int)} does, without printing.
+	 *
+	 * @param projectNumber The project number of the project to be deleted.
+	 * @return {@code true} if the project was deleted, or {@code false} if there is no such project.
+	 * @throws SQLException If the project cannot be deleted.
+	 */
+	public boolean saveDeletion(int projectNumber) throws SQLException {
+		boolean deleted;
+		long start = DELETE_PROJECT.start();
+		try {
+			deleted = repository.deleteProject(projectNumber);
+		} catch (SQLException e) {
+			DELETE_PROJECT.failed(start);
+			throw e;
+		}
+		DELETE_PROJECT.succeeded(start, 0, deleted ? 1 : 0);
+
+		if (deleted) {
+			fireProjectDeleted(projectNumber);
 		}
+		return deleted;
 	}
 
 	/**
-	 * Finalises a project by setting its completion date in the database.
+	 * Finalises a project by setting its completion date, whatever version the project is at.
 	 *
 	 * @param projectNumber  The project number of the project to be finalised.
 	 * @param completionDate The completion date to be set for the project.
+	 * @return {@link UpdateResult#UPDATED}, {@link UpdateResult#NOT_FOUND} or
+	 *         {@link UpdateResult#FAILED}.
 	 */
-	public void finalizeProject(int projectNumber, java.util.Date completionDate) {
-		// SQL query for updating the completion date of a project
-		String sql = "UPDATE Projects SET completion_date = ? WHERE project_number = ?";
-
-		// Try-with-resources to ensure resources are closed automatically
-		try (Connection conn = DatabaseConnection.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
+	public UpdateResult finalizeProject(int projectNumber, java.util.Date completionDate) {
+		return finalizeProject(projectNumber, null, completionDate);
+	}
 
-			// Set parameters for the PreparedStatement
-			stmt.setDate(1, new java.sql.Date(completionDate.getTime()));
-			stmt.setInt(2, projectNumber);
+	/**
+	 * Finalises a project as {@link #finalizeProject(int, java.util.Date)} does, without printing.
+	 *
+	 * @param projectNumber  The project number of the project to be finalised.
+	 * @param completionDate The completion date to be set for the project.
+	 * @return {@link UpdateResult#UPDATED} or {@link UpdateResult#NOT_FOUND}.
+	 * @throws SQLException If the project cannot be written.
+	 */
+	public UpdateResult saveFinalization(int projectNumber, java.util.Date completionDate)
+			throws SQLException {
+		return saveFinalization(projectNumber, null, completionDate);
+	}
 
-			// Execute the update and print a message based on the result
-			int rowsUpdated = stmt.executeUpdate();
-			if (rowsUpdated > 0) {
-				System.out.println("Project finalized successfully!");
-			} else {
-				System.out.println("Project not found!");
-			}
+	/**
+	 * Finalises a project by setting its completion date, provided nobody has written the project
+	 * since it was read.
+	 *
+	 * @param project        The project to be finalised. On success its completion date is set and
+	 *                       its version moves on.
+	 * @param completionDate The completion date to be set for the project.
+	 * @return How the finalisation turned out.
+	 */
+	public UpdateResult finalizeProject(Project project, java.util.Date completionDate) {
+		UpdateResult result = finalizeProject(project.getProjectNumber(), project.getVersion(),
+				completionDate);
+		if (result == UpdateResult.UPDATED) {
+			project.setCompletionDate(completionDate);
+			project.setVersion(project.getVersion() + 1);
+			project.markClean(Project.Field.COMPLETION_DATE.bit());
+		}
+		return result;
+	}
 
+	/**
+	 * Finalises a project, optionally only at a given version.
+	 *
+	 * @param projectNumber   The project number of the project to be finalised.
+	 * @param expectedVersion The version the project must be at, or {@code null} for any version.
+	 * @param completionDate  The completion date to be set for the project.
+	 * @return How the finalisation turned out.
+	 */
+	private UpdateResult finalizeProject(int projectNumber, Integer expectedVersion,
+			java.util.Date completionDate) {
+		UpdateResult result;
+		try {
+			result = saveFinalization(projectNumber, expectedVersion, completionDate);
 		} catch (SQLException e) {
 			// Print stack trace for debugging
 			e.printStackTrace();
+			return UpdateResult.FAILED;
+		}
+		printResult(result, "Project finalized successfully!");
+		return result;
+	}
+
+	/**
+	 * Finalises a project, optionally only at a given version, without printing.
+	 *
+	 * @param projectNumber   The project number of the project to be finalised.
+	 * @param expectedVersion The version the project must be at, or {@code null} for any version.
+	 * @param completionDate  The completion date to be set for the project.
+	 * @return How the finalisation turned out.
+	 * @throws SQLException If the project cannot be written.
+	 */
+	private UpdateResult saveFinalization(int projectNumber, Integer expectedVersion,
+			java.util.Date completionDate) throws SQLException {
+		UpdateResult result;
+		long start = FINALIZE_PROJECT.start();
+		try {
+			result = repository.finalizeProject(projectNumber, expectedVersion, completionDate);
+		} catch (SQLException e) {
+			FINALIZE_PROJECT.failed(start);
+			throw e;
+		}
+		FINALIZE_PROJECT.succeeded(start, 0, result == UpdateResult.UPDATED ? 1 : 0);
+
+		if (result == UpdateResult.UPDATED) {
+			fireProjectFinalized(projectNumber, completionDate);
+		}
+		return result;
+	}
+
+	/**
+	 * Registers a listener to be notified after every project added, updated, finalised or deleted
+	 * through this manager.
+	 *
+	 * @param listener The listener to register.
+	 */
+	public void addProjectChangeListener(ProjectChangeListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener registered with {@link #addProjectChangeListener}.
+	 *
+	 * @param listener The listener to remove.
+	 */
+	public void removeProjectChangeListener(ProjectChangeListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Makes the finds and lists of the current {@link ReadSession} read from the primary database
+	 * for a while, so that they see every write already made, including writes by other clients. The
+	 * session's own writes are seen without it, since its reads only go to replicas that have caught
+	 * up with them. It only matters when reads are served by replicas.
+	 *
+	 * @param millis How long, in milliseconds, the session's reads must be up to date.
+	 */
+	public void readYourWrites(long millis) {
+		repository.readYourWrites(millis);
+	}
+
+	/**
+	 * Starts collecting project and participant changes to be written together by
+	 * {@link UnitOfWork#commit()}.
+	 *
+	 * @return A new, empty {@link UnitOfWork}.
+	 */
+	public UnitOfWork beginUnitOfWork() {
+		return new UnitOfWork(this);
+	}
+
+	/**
+	 * Tells every listener that a project was added or updated.
+	 *
+	 * @param project The project that was written.
+	 */
+	void fireProjectSaved(Project project) {
+		for (ProjectChangeListener listener : listeners) {
+			listener.projectSaved(project);
+		}
+	}
+
+	/**
+	 * Tells every listener that a project was finalised.
+	 *
+	 * @param projectNumber  The project number of the finalised project.
+	 * @param completionDate The completion date that was set.
+	 */
+	void fireProjectFinalized(int projectNumber, java.util.Date completionDate) {
+		for (ProjectChangeListener listener : listeners) {
+			listener.projectFinalized(projectNumber, completionDate);
+		}
+	}
+
+	/**
+	 * Tells every listener that a project was deleted.
+	 *
+	 * @param projectNumber The project number of the deleted project.
+	 */
+	void fireProjectDeleted(int projectNumber) {
+		for (ProjectChangeListener listener : listeners) {
+			listener.projectDeleted(projectNumber);
 		}
 	}
 
@@ -159,26 +536,70 @@ public class ProjectManager {
 	 * date.
 	 */
 	public void listIncompleteProjects() {
-		// SQL query for selecting incomplete projects
-		String sql = "SELECT * FROM Projects WHERE completion_date IS NULL";
-
-		// Try-with-resources to ensure resources are closed automatically
-		try (Connection conn = DatabaseConnection.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql);
-				ResultSet rs = stmt.executeQuery()) {
-
-			// Iterate through the result set and print details of each project
-			while (rs.next()) {
-				int projectNumber = rs.getInt("project_number");
-				String projectName = rs.getString("project_name");
-				String buildingType = rs.getString("building_type");
-				String address = rs.getString("address");
-				java.sql.Date deadline = rs.getDate("deadline");
-
-				System.out.printf("Project Number: %d, Name: %s, Type: %s, Address: %s, Deadline: %s%n",
-						projectNumber, projectName, buildingType, address, deadline);
+		// Render the report as it is streamed from the database
+		try (ProjectReportPrinter printer = new ProjectReportPrinter("Project Number")) {
+			forEachIncompleteProject(printer);
+		}
+	}
+
+	/**
+	 * Lists all overdue projects by querying the database for projects that have passed their
+	 * deadline without being completed.
+	 */
+	public void listOverdueProjects() {
+		// Render the report as it is streamed from the database
+		try (ProjectReportPrinter printer = new ProjectReportPrinter("Overdue Project Number")) {
+			forEachOverdueProject(printer);
+		}
+	}
+
+	/**
+	 * Passes every incomplete project, in project number order, to the given consumer. Projects are
+	 * read one page at a time and no connection is held while the consumer runs, so memory use does
+	 * not grow with the number of projects.
+	 *
+	 * @param consumer The consumer to receive each project.
+	 */
+	public void forEachIncompleteProject(Consumer<? super ProjectSummary> consumer) {
+		try {
+			readIncompleteProjects(consumer);
+		} catch (SQLException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Passes every incomplete project to the given consumer as
+	 * {@link #forEachIncompleteProject(Consumer)} does, but stops with an exception if a page cannot
+	 * be read, so a failure is not mistaken for the end of the list.
+	 *
+	 * @param consumer The consumer to receive each project.
+	 * @throws SQLException If a page cannot be read.
+	 */
+	public void readIncompleteProjects(Consumer<? super ProjectSummary> consumer)
+			throws SQLException {
+		int afterProjectNumber = Integer.MIN_VALUE;
+		List<ProjectSummary> page;
+		do {
+			page = readIncompleteProjects(afterProjectNumber, REPORT_PAGE_SIZE);
+			page.forEach(consumer);
+			if (!page.isEmpty()) {
+				afterProjectNumber = page.get(page.size() - 1).getProjectNumber();
 			}
+		} while (page.size() == REPORT_PAGE_SIZE);
+	}
 
+	/**
+	 * Passes every overdue project, ordered by deadline and then project number, to the given
+	 * consumer. Projects are read one page at a time and no connection is held while the consumer
+	 * runs, so memory use does not grow with the number of projects.
+	 *
+	 * @param consumer The consumer to receive each project.
+	 */
+	public void forEachOverdueProject(Consumer<? super ProjectSummary> consumer) {
+		try {
+			readOverdueProjects(consumer);
 		} catch (SQLException e) {
 			// Print stack trace for debugging
 			e.printStackTrace();
@@ -186,203 +607,949 @@ public class ProjectManager {
 	}
 
 	/**
-	 * Lists all overdue projects by querying the database for projects that have passed their
-	 * deadline without being completed.
+	 * Passes every overdue project to the given consumer as
+	 * {@link #forEachOverdueProject(Consumer)} does, but stops with an exception if a page cannot be
+	 * read, so a failure is not mistaken for the end of the list.
+	 *
+	 * @param consumer The consumer to receive each project.
+	 * @throws SQLException If a page cannot be read.
 	 */
-	public void listOverdueProjects() {
-		// SQL query for selecting overdue projects
-		String sql = "SELECT * FROM Projects WHERE deadline < CURDATE() AND completion_date IS NULL";
-
-		// Try-with-resources to ensure resources are closed automatically
-		try (Connection conn = DatabaseConnection.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql);
-				ResultSet rs = stmt.executeQuery()) {
-
-			// Iterate through the result set and print details of each overdue project
-			while (rs.next()) {
-				int projectNumber = rs.getInt("project_number");
-				String projectName = rs.getString("project_name");
-				String buildingType = rs.getString("building_type");
-				String address = rs.getString("address");
-				java.sql.Date deadline = rs.getDate("deadline");
-
-				System.out.printf(
-						"Overdue Project Number: %d, Name: %s, Type: %s, Address: %s, Deadline: %s%n",
-						projectNumber, projectName, buildingType, address, deadline);
+	public void readOverdueProjects(Consumer<? super ProjectSummary> consumer)
+			throws SQLException {
+		java.util.Date afterDeadline = null;
+		int afterProjectNumber = Integer.MIN_VALUE;
+		List<ProjectSummary> page;
+		do {
+			page = readOverdueProjects(afterDeadline, afterProjectNumber, REPORT_PAGE_SIZE);
+			page.forEach(consumer);
+			if (!page.isEmpty()) {
+				ProjectSummary last = page.get(page.size() - 1);
+				afterDeadline = last.getDeadline();
+				afterProjectNumber = last.getProjectNumber();
+			}
+		} while (page.size() == REPORT_PAGE_SIZE);
+	}
+
+	/**
+	 * Lists the projects of one architect, contractor or customer.
+	 *
+	 * @param role          The role the participant plays on the projects.
+	 * @param participantId The ID of the participant.
+	 * @param openOnly      {@code true} to list only projects that are not finalised.
+	 */
+	public void listProjectsByParticipant(ParticipantRole role, int participantId,
+			boolean openOnly) {
+		// Render the report as it is streamed from the database
+		try (ProjectReportPrinter printer = new ProjectReportPrinter("Project Number")) {
+			forEachProjectByParticipant(role, participantId, openOnly,
+					project -> printer.accept(new ProjectSummary(project.getProjectNumber(),
+							project.getProjectName(), project.getBuildingType(), project.getAddress(),
+							project.getDeadline())));
+		}
+	}
+
+	/**
+	 * Passes every project of one architect, contractor or customer, in project number order and
+	 * with its participants, to the given consumer. Projects are read one page at a time and no
+	 * connection is held while the consumer runs, so memory use does not grow with the number of
+	 * projects.
+	 *
+	 * @param role          The role the participant plays on the projects.
+	 * @param participantId The ID of the participant.
+	 * @param openOnly      {@code true} to pass only projects that are not finalised.
+	 * @param consumer      The consumer to receive each project.
+	 */
+	public void forEachProjectByParticipant(ParticipantRole role, int participantId,
+			boolean openOnly, Consumer<? super Project> consumer) {
+		try {
+			readProjectsByParticipant(role, participantId, openOnly, consumer);
+		} catch (SQLException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Passes every project of one architect, contractor or customer to the given consumer as
+	 * {@link #forEachProjectByParticipant} does, but stops with an exception if a page cannot be
+	 * read, so a failure is not mistaken for the end of the list.
+	 *
+	 * @param role          The role the participant plays on the projects.
+	 * @param participantId The ID of the participant.
+	 * @param openOnly      {@code true} to pass only projects that are not finalised.
+	 * @param consumer      The consumer to receive each project.
+	 * @throws SQLException If a page cannot be read.
+	 */
+	public void readProjectsByParticipant(ParticipantRole role, int participantId,
+			boolean openOnly, Consumer<? super Project> consumer) throws SQLException {
+		int afterProjectNumber = Integer.MIN_VALUE;
+		List<Project> page;
+		do {
+			page = readParticipantPage(role, participantId, openOnly, afterProjectNumber,
+					REPORT_PAGE_SIZE);
+			page.forEach(consumer);
+			if (!page.isEmpty()) {
+				afterProjectNumber = page.get(page.size() - 1).getProjectNumber();
+			}
+		} while (page.size() == REPORT_PAGE_SIZE);
+	}
+
+	/**
+	 * Finds one page of the projects of one architect, contractor or customer, ordered by project
+	 * number. The page is read with one indexed query, and the participants of all its projects
+	 * are then loaded with one request per role, skipping those already cached.
+	 *
+	 * @param role               The role the participant plays on the projects.
+	 * @param participantId      The ID of the participant.
+	 * @param openOnly           {@code true} to leave out finalised projects.
+	 * @param afterProjectNumber The last project number of the previous page, or
+	 *                           {@link Integer#MIN_VALUE} for the first page.
+	 * @param limit              The maximum number of projects to return.
+	 * @return The page of projects, which is shorter than {@code limit} on the last page.
+	 */
+	public List<Project> findProjectsByParticipant(ParticipantRole role, int participantId,
+			boolean openOnly, int afterProjectNumber, int limit) {
+		try {
+			return readParticipantPage(role, participantId, openOnly, afterProjectNumber, limit);
+		} catch (SQLException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+			return new ArrayList<>();
+		}
+	}
+
+	/**
+	 * Reads one page of the projects of one architect, contractor or customer, as
+	 * {@link #findProjectsByParticipant} does.
+	 *
+	 * @throws SQLException If the page cannot be read.
+	 */
+	private List<Project> readParticipantPage(ParticipantRole role, int participantId,
+			boolean openOnly, int afterProjectNumber, int limit) throws SQLException {
+		long start = FIND_PROJECTS_BY_PARTICIPANT.start();
+		try {
+			List<Project> page = repository.findProjectsByParticipant(role, participantId, openOnly,
+					afterProjectNumber, limit);
+			attachParticipants(page);
+			FIND_PROJECTS_BY_PARTICIPANT.succeeded(start, page.size(), 0);
+			return page;
+		} catch (SQLException e) {
+			FIND_PROJECTS_BY_PARTICIPANT.failed(start);
+			throw e;
+		}
+	}
+
+	/**
+	 * Passes every project changed at or after the given time, together with its architect,
+	 * contractor and customer, to the given consumer, in the order the projects were changed.
+	 * Projects are read one page at a time and the storage is not held while the consumer runs.
+	 *
+	 * <p>
+	 * Passing a time before the first change, such as {@code new Timestamp(0)}, visits every
+	 * project. A project changed while the pages are being read may be visited twice, but is never
+	 * skipped.
+	 *
+	 * @param since    The earliest change time to include.
+	 * @param consumer The consumer to receive each project.
+	 * @return The change time of the last project visited, or {@code since} if there were none.
+	 * @throws SQLException If a page cannot be read.
+	 */
+	public Timestamp forEachProjectUpdatedSince(Timestamp since, Consumer<? super Project> consumer)
+			throws SQLException {
+		long start = FIND_PROJECTS_UPDATED_SINCE.start();
+		long[] rows = new long[1];
+		long[] generations = participantGenerations();
+		try {
+			Timestamp newest = repository.forEachProjectUpdatedSince(since, REPORT_PAGE_SIZE,
+					project -> {
+						rows[0]++;
+						cacheParticipants(project, generations);
+						consumer.accept(project);
+					});
+			FIND_PROJECTS_UPDATED_SINCE.succeeded(start, rows[0], 0);
+			return newest;
+		} catch (SQLException e) {
+			FIND_PROJECTS_UPDATED_SINCE.failed(start);
+			throw e;
+		}
+	}
+
+	/**
+	 * Finds one page of incomplete projects, ordered by project number. Pages are found by seeking
+	 * past the last project number of the previous page, so every page costs the same regardless of
+	 * how deep into the list it is.
+	 *
+	 * @param afterProjectNumber The last project number of the previous page, or
+	 *                           {@link Integer#MIN_VALUE} for the first page.
+	 * @param limit              The maximum number of projects to return.
+	 * @return The page of projects, which is shorter than {@code limit} on the last page.
+	 */
+	public List<ProjectSummary> findIncompleteProjects(int afterProjectNumber, int limit) {
+		try {
+			return readIncompleteProjects(afterProjectNumber, limit);
+		} catch (SQLException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+			return new ArrayList<>();
+		}
+	}
+
+	/**
+	 * Finds one page of incomplete projects as {@link #findIncompleteProjects(int, int)} does, but
+	 * throws if it cannot be read, so a failure is not mistaken for an empty page.
+	 *
+	 * @param afterProjectNumber The last project number of the previous page, or
+	 *                           {@link Integer#MIN_VALUE} for the first page.
+	 * @param limit              The maximum number of projects to return.
+	 * @return The page of projects, which is shorter than {@code limit} on the last page.
+	 * @throws SQLException If the page cannot be read.
+	 */
+	public List<ProjectSummary> readIncompleteProjects(int afterProjectNumber, int limit)
+			throws SQLException {
+		long start = FIND_INCOMPLETE_PROJECTS.start();
+		try {
+			List<ProjectSummary> page = repository.findIncompleteProjects(afterProjectNumber, limit);
+			FIND_INCOMPLETE_PROJECTS.succeeded(start, page.size(), 0);
+			return page;
+		} catch (SQLException e) {
+			FIND_INCOMPLETE_PROJECTS.failed(start);
+			throw e;
+		}
+	}
+
+	/**
+	 * Finds one page of overdue projects, ordered by deadline and then project number. Pages are
+	 * found by seeking past the deadline and project number of the last project on the previous
+	 * page.
+	 *
+	 * @param afterDeadline      The deadline of the last project on the previous page, or
+	 *                           {@code null} for the first page.
+	 * @param afterProjectNumber The project number of the last project on the previous page.
+	 * @param limit              The maximum number of projects to return.
+	 * @return The page of projects, which is shorter than {@code limit} on the last page.
+	 */
+	public List<ProjectSummary> findOverdueProjects(java.util.Date afterDeadline,
+			int afterProjectNumber, int limit) {
+		try {
+			return readOverdueProjects(afterDeadline, afterProjectNumber, limit);
+		} catch (SQLException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+			return new ArrayList<>();
+		}
+	}
+
+	/**
+	 * Finds one page of overdue projects as {@link #findOverdueProjects} does, but throws if it
+	 * cannot be read, so a failure is not mistaken for an empty page.
+	 *
+	 * @param afterDeadline      The deadline of the last project on the previous page, or
+	 *                           {@code null} for the first page.
+	 * @param afterProjectNumber The project number of the last project on the previous page.
+	 * @param limit              The maximum number of projects to return.
+	 * @return The page of projects, which is shorter than {@code limit} on the last page.
+	 * @throws SQLException If the page cannot be read.
+	 */
+	public List<ProjectSummary> readOverdueProjects(java.util.Date afterDeadline,
+			int afterProjectNumber, int limit) throws SQLException {
+		long start = FIND_OVERDUE_PROJECTS.start();
+		try {
+			List<ProjectSummary> page = repository.findOverdueProjects(afterDeadline,
+					afterProjectNumber, limit);
+			FIND_OVERDUE_PROJECTS.succeeded(start, page.size(), 0);
+			return page;
+		} catch (SQLException e) {
+			FIND_OVERDUE_PROJECTS.failed(start);
+			throw e;
+		}
+	}
+
+	/**
+	 * Totals the fees of every project in the storage.
+	 *
+	 * @return The number of projects, their total fees and the amount paid, or {@code null} if the
+	 *         totals cannot be read.
+	 */
+	public FeeSummary summarizeFees() {
+		try {
+			return readFeeSummary();
+		} catch (SQLException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Totals the fees of every project as {@link #summarizeFees()} does, but throws if the totals
+	 * cannot be read.
+	 *
+	 * @return The number of projects, their total fees and the amount paid.
+	 * @throws SQLException If the totals cannot be read.
+	 */
+	public FeeSummary readFeeSummary() throws SQLException {
+		long start = SUMMARIZE_FEES.start();
+		try {
+			FeeSummary total = repository.summarizeFees();
+			SUMMARIZE_FEES.succeeded(start, 1, 0);
+			return total;
+		} catch (SQLException e) {
+			SUMMARIZE_FEES.failed(start);
+			throw e;
+		}
+	}
+
+	/**
+	 * Totals the fees of the projects in the storage by group. The grouping is done by the
+	 * storage, so only one row per group is read.
+	 *
+	 * @param grouping How to group the projects.
+	 * @return One summary per group that holds a project, ordered by key with projects that have
+	 *         no key first.
+	 */
+	public List<FeeSummary> summarizeFees(FeeGrouping grouping) {
+		try {
+			return readFeeSummaries(grouping);
+		} catch (SQLException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+			return new ArrayList<>();
+		}
+	}
+
+	/**
+	 * Totals the fees of the projects by group as {@link #summarizeFees(FeeGrouping)} does, but
+	 * throws if the totals cannot be read, so a failure is not mistaken for an empty storage.
+	 *
+	 * @param grouping How to group the projects.
+	 * @return One summary per group that holds a project, ordered by key with projects that have
+	 *         no key first.
+	 * @throws SQLException If the totals cannot be read.
+	 */
+	public List<FeeSummary> readFeeSummaries(FeeGrouping grouping) throws SQLException {
+		long start = SUMMARIZE_FEES_BY_GROUP.start();
+		try {
+			List<FeeSummary> summaries = repository.summarizeFees(grouping);
+			SUMMARIZE_FEES_BY_GROUP.succeeded(start, summaries.size(), 0);
+			return summaries;
+		} catch (SQLException e) {
+			SUMMARIZE_FEES_BY_GROUP.failed(start);
+			throw e;
+		}
+	}
+
+	/**
+	 * Lists the fee totals of every project, in total and by every {@link FeeGrouping}.
+	 */
+	public void listFeeTotals() {
+		FeeSummary total = summarizeFees();
+		if (total == null) {
+			return;
+		}
+		try (FeeReportPrinter printer = new FeeReportPrinter()) {
+			printer.printTotal(total);
+			for (FeeGrouping grouping : FeeGrouping.values()) {
+				printer.printGroups(grouping, summarizeFees(grouping));
 			}
+		}
+	}
 
+	/**
+	 * Adds a new architect and sets the ID they were given.
+	 *
+	 * @param architect The {@link Architect} object containing the details of the architect.
+	 */
+	public void addArchitect(Architect architect) {
+		long start = ADD_ARCHITECT.start();
+		try {
+			repository.insertArchitect(architect);
+			ADD_ARCHITECT.succeeded(start, 0, 1);
+			System.out.println("Architect added successfully!");
 		} catch (SQLException e) {
+			ADD_ARCHITECT.failed(start);
 			// Print stack trace for debugging
 			e.printStackTrace();
 		}
 	}
 
 	/**
-	 * Finds an architect by their ID.
+	 * Finds an architect by their ID. Recently used architects are served from memory.
 	 *
 	 * @param architectId The ID of the architect to be found.
 	 * @return The {@link Architect} object if found, or {@code null} if not found.
 	 */
 	public Architect findArchitectById(int architectId) {
-		// SQL query for selecting an architect by ID
-		String sql = "SELECT * FROM Architects WHERE architect_id = ?";
-		Architect architect = null;
-
-		// Try-with-resources to ensure resources are closed automatically
-		try (Connection conn = DatabaseConnection.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-			// Set parameters for the PreparedStatement
-			stmt.setInt(1, architectId);
-			ResultSet rs = stmt.executeQuery();
-
-			// If an architect is found, create an Architect object
-			if (rs.next()) {
-				architect = new Architect(rs.getInt("architect_id"), rs.getString("name"),
-						rs.getString("phone_number"), rs.getString("email"), rs.getString("physical_address"));
+		try {
+			return readArchitectById(architectId);
+		} catch (SQLException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Finds an architect as {@link #findArchitectById(int)} does, but throws if they cannot be read,
+	 * so a failure is not mistaken for a missing architect.
+	 *
+	 * @param architectId The ID of the architect to be found.
+	 * @return The {@link Architect} object if found, or {@code null} if there is no such architect.
+	 * @throws SQLException If the architect cannot be read.
+	 */
+	public Architect readArchitectById(int architectId) throws SQLException {
+		long start = FIND_ARCHITECT.start();
+		try {
+			Architect architect = architectCache.get(architectId, this::loadArchitectById);
+			FIND_ARCHITECT.succeeded(start, architect != null ? 1 : 0, 0);
+			return architect;
+		} catch (LoadException e) {
+			FIND_ARCHITECT.failed(start);
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Updates an existing architect and drops any cached copy of them.
+	 *
+	 * @param architect The {@link Architect} object containing the updated details of the architect.
+	 */
+	public void updateArchitect(Architect architect) {
+		long start = UPDATE_ARCHITECT.start();
+		try {
+			boolean updated = repository.updateArchitect(architect);
+			UPDATE_ARCHITECT.succeeded(start, 0, updated ? 1 : 0);
+			if (updated) {
+				System.out.println("Architect updated successfully!");
+			} else {
+				System.out.println("Architect not found!");
 			}
+		} catch (SQLException e) {
+			UPDATE_ARCHITECT.failed(start);
+			// Print stack trace for debugging
+			e.printStackTrace();
+		} finally {
+			// Drop the cached copy even if the update failed, as its outcome is unknown
+			architectCache.invalidate(architect.getId());
+		}
+	}
+
+	/**
+	 * Gets the cache that serves {@link #findArchitectById(int)}.
+	 *
+	 * @return The architect cache.
+	 */
+	public ParticipantCache<Architect> getArchitectCache() {
+		return architectCache;
+	}
 
+	/**
+	 * Loads an architect from the repository by their ID, bypassing the cache.
+	 *
+	 * @param architectId The ID of the architect to be loaded.
+	 * @return The {@link Architect} object if found, or {@code null} if not found.
+	 * @throws LoadException If the architect could not be read.
+	 */
+	private Architect loadArchitectById(int architectId) {
+		try {
+			return repository.findArchitectById(architectId);
+		} catch (SQLException e) {
+			throw new LoadException(e);
+		}
+	}
+
+	/**
+	 * Adds a new contractor and sets the ID they were given.
+	 *
+	 * @param contractor The {@link Contractor} object containing the details of the contractor.
+	 */
+	public void addContractor(Contractor contractor) {
+		long start = ADD_CONTRACTOR.start();
+		try {
+			repository.insertContractor(contractor);
+			ADD_CONTRACTOR.succeeded(start, 0, 1);
+			System.out.println("Contractor added successfully!");
 		} catch (SQLException e) {
+			ADD_CONTRACTOR.failed(start);
 			// Print stack trace for debugging
 			e.printStackTrace();
 		}
-		return architect;
 	}
 
 	/**
-	 * Finds a contractor by their ID.
+	 * Finds a contractor by their ID. Recently used contractors are served from memory.
 	 *
 	 * @param contractorId The ID of the contractor to be found.
 	 * @return The {@link Contractor} object if found, or {@code null} if not found.
 	 */
 	public Contractor findContractorById(int contractorId) {
-		// SQL query for selecting a contractor by ID
-		String sql = "SELECT * FROM Contractors WHERE contractor_id = ?";
-		Contractor contractor = null;
-
-		// Try-with-resources to ensure resources are closed automatically
-		try (Connection conn = DatabaseConnection.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-			// Set parameters for the PreparedStatement
-			stmt.setInt(1, contractorId);
-			ResultSet rs = stmt.executeQuery();
-
-			// If a contractor is found, create a Contractor object
-			if (rs.next()) {
-				contractor = new Contractor(rs.getInt("contractor_id"), rs.getString("name"),
-						rs.getString("phone_number"), rs.getString("email"), rs.getString("physical_address"));
+		try {
+			return readContractorById(contractorId);
+		} catch (SQLException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Finds a contractor as {@link #findContractorById(int)} does, but throws if they cannot be read,
+	 * so a failure is not mistaken for a missing contractor.
+	 *
+	 * @param contractorId The ID of the contractor to be found.
+	 * @return The {@link Contractor} object if found, or {@code null} if there is no such contractor.
+	 * @throws SQLException If the contractor cannot be read.
+	 */
+	public Contractor readContractorById(int contractorId) throws SQLException {
+		long start = FIND_CONTRACTOR.start();
+		try {
+			Contractor contractor = contractorCache.get(contractorId, this::loadContractorById);
+			FIND_CONTRACTOR.succeeded(start, contractor != null ? 1 : 0, 0);
+			return contractor;
+		} catch (LoadException e) {
+			FIND_CONTRACTOR.failed(start);
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Updates an existing contractor and drops any cached copy of them.
+	 *
+	 * @param contractor The {@link Contractor} object containing the updated details of the contractor.
+	 */
+	public void updateContractor(Contractor contractor) {
+		long start = UPDATE_CONTRACTOR.start();
+		try {
+			boolean updated = repository.updateContractor(contractor);
+			UPDATE_CONTRACTOR.succeeded(start, 0, updated ? 1 : 0);
+			if (updated) {
+				System.out.println("Contractor updated successfully!");
+			} else {
+				System.out.println("Contractor not found!");
 			}
+		} catch (SQLException e) {
+			UPDATE_CONTRACTOR.failed(start);
+			// Print stack trace for debugging
+			e.printStackTrace();
+		} finally {
+			// Drop the cached copy even if the update failed, as its outcome is unknown
+			contractorCache.invalidate(contractor.getId());
+		}
+	}
+
+	/**
+	 * Gets the cache that serves {@link #findContractorById(int)}.
+	 *
+	 * @return The contractor cache.
+	 */
+	public ParticipantCache<Contractor> getContractorCache() {
+		return contractorCache;
+	}
 
+	/**
+	 * Loads a contractor from the repository by their ID, bypassing the cache.
+	 *
+	 * @param contractorId The ID of the contractor to be loaded.
+	 * @return The {@link Contractor} object if found, or {@code null} if not found.
+	 * @throws LoadException If the contractor could not be read.
+	 */
+	private Contractor loadContractorById(int contractorId) {
+		try {
+			return repository.findContractorById(contractorId);
 		} catch (SQLException e) {
+			throw new LoadException(e);
+		}
+	}
+
+	/**
+	 * Adds a new customer and sets the ID they were given.
+	 *
+	 * @param customer The {@link Customer} object containing the details of the customer.
+	 */
+	public void addCustomer(Customer customer) {
+		long start = ADD_CUSTOMER.start();
+		try {
+			repository.insertCustomer(customer);
+			ADD_CUSTOMER.succeeded(start, 0, 1);
+			System.out.println("Customer added successfully!");
+		} catch (SQLException e) {
+			ADD_CUSTOMER.failed(start);
 			// Print stack trace for debugging
 			e.printStackTrace();
 		}
-		return contractor;
 	}
 
 	/**
-	 * Finds a customer by their ID.
+	 * Finds a customer by their ID. Recently used customers are served from memory.
 	 *
 	 * @param customerId The ID of the customer to be found.
 	 * @return The {@link Customer} object if found, or {@code null} if not found.
 	 */
 	public Customer findCustomerById(int customerId) {
-		// SQL query for selecting a customer by ID
-		String sql = "SELECT * FROM Customers WHERE customer_id = ?";
-		Customer customer = null;
-
-		// Try-with-resources to ensure resources are closed automatically
-		try (Connection conn = DatabaseConnection.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-			// Set parameters for the PreparedStatement
-			stmt.setInt(1, customerId);
-			ResultSet rs = stmt.executeQuery();
-
-			// If a customer is found, create a Customer object
-			if (rs.next()) {
-				customer = new Customer(rs.getInt("customer_id"), rs.getString("name"),
-						rs.getString("phone_number"), rs.getString("email"), rs.getString("physical_address"));
-			}
+		try {
+			return readCustomerById(customerId);
+		} catch (SQLException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+			return null;
+		}
+	}
 
+	/**
+	 * Finds a customer as {@link #findCustomerById(int)} does, but throws if they cannot be read,
+	 * so a failure is not mistaken for a missing customer.
+	 *
+	 * @param customerId The ID of the customer to be found.
+	 * @return The {@link Customer} object if found, or {@code null} if there is no such customer.
+	 * @throws SQLException If the customer cannot be read.
+	 */
+	public Customer readCustomerById(int customerId) throws SQLException {
+		long start = FIND_CUSTOMER.start();
+		try {
+			Customer customer = customerCache.get(customerId, this::loadCustomerById);
+			FIND_CUSTOMER.succeeded(start, customer != null ? 1 : 0, 0);
+			return customer;
+		} catch (LoadException e) {
+			FIND_CUSTOMER.failed(start);
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Updates an existing customer and drops any cached copy of them.
+	 *
+	 * @param customer The {@link Customer} object containing the updated details of the customer.
+	 */
+	public void updateCustomer(Customer customer) {
+		long start = UPDATE_CUSTOMER.start();
+		try {
+			boolean updated = repository.updateCustomer(customer);
+			UPDATE_CUSTOMER.succeeded(start, 0, updated ? 1 : 0);
+			if (updated) {
+				System.out.println("Customer updated successfully!");
+			} else {
+				System.out.println("Customer not found!");
+			}
 		} catch (SQLException e) {
+			UPDATE_CUSTOMER.failed(start);
 			// Print stack trace for debugging
 			e.printStackTrace();
+		} finally {
+			// Drop the cached copy even if the update failed, as its outcome is unknown
+			customerCache.invalidate(customer.getId());
 		}
-		return customer;
 	}
 
 	/**
-	 * Finds a project by its name.
+	 * Gets the cache that serves {@link #findCustomerById(int)}.
+	 *
+	 * @return The customer cache.
+	 */
+	public ParticipantCache<Customer> getCustomerCache() {
+		return customerCache;
+	}
+
+	/**
+	 * Loads a customer from the repository by their ID, bypassing the cache.
+	 *
+	 * @param customerId The ID of the customer to be loaded.
+	 * @return The {@link Customer} object if found, or {@code null} if not found.
+	 * @throws LoadException If the customer could not be read.
+	 */
+	private Customer loadCustomerById(int customerId) {
+		try {
+			return repository.findCustomerById(customerId);
+		} catch (SQLException e) {
+			throw new LoadException(e);
+		}
+	}
+
+	/**
+	 * Finds a project by its name. The project is read together with its architect, contractor and
+	 * customer.
 	 *
 	 * @param projectName The name of the project to be found.
 	 * @return The {@link Project} object if found, or {@code null} if not found.
 	 */
 	public Project findProjectByName(String projectName) {
-		// SQL query for selecting a project by its name
-		String sql = "SELECT * FROM Projects WHERE project_name = ?";
-
-		// Try-with-resources to ensure resources are closed automatically
-		try (Connection conn = DatabaseConnection.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-			// Set parameters for the PreparedStatement
-			stmt.setString(1, projectName);
-			ResultSet rs = stmt.executeQuery();
-
-			// If a project is found, create a Project object
-			if (rs.next()) {
-				return new Project(rs.getInt("project_id"), rs.getInt("project_number"),
-						rs.getString("project_name"), rs.getString("building_type"), rs.getString("address"),
-						rs.getString("erf_number"), rs.getDouble("total_fee"), rs.getDouble("amount_paid"),
-						rs.getDate("deadline"), rs.getDate("completion_date"),
-						findArchitectById(rs.getInt("architect_id")),
-						findContractorById(rs.getInt("contractor_id")),
-						findCustomerById(rs.getInt("customer_id")));
-			}
-
+		try {
+			return readProjectByName(projectName);
 		} catch (SQLException e) {
 			// Print stack trace for debugging
 			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Finds a project by its name as {@link #findProjectByName(String)} does, but throws if it
+	 * cannot be read, so a failure is not mistaken for a missing project.
+	 *
+	 * @param projectName The name of the project to be found.
+	 * @return The {@link Project} object if found, or {@code null} if there is no such project.
+	 * @throws SQLException If the project cannot be read.
+	 */
+	public Project readProjectByName(String projectName) throws SQLException {
+		long start = FIND_PROJECT_BY_NAME.start();
+		try {
+			long[] generations = participantGenerations();
+			Project project = cacheParticipants(repository.findProjectByName(projectName),
+					generations);
+			FIND_PROJECT_BY_NAME.succeeded(start, project != null ? 1 : 0, 0);
+			return project;
+		} catch (SQLException e) {
+			FIND_PROJECT_BY_NAME.failed(start);
+			throw e;
 		}
-		return null;
 	}
 
 	/**
-	 * Finds a project by its number.
+	 * Finds a project by its number. The project is read together with its architect, contractor
+	 * and customer.
 	 *
 	 * @param projectNumber The number of the project to be found.
 	 * @return The {@link Project} object if found, or {@code null} if not found.
 	 */
 	public Project findProjectByNumber(int projectNumber) {
-		// SQL query for selecting a project by its number
-		String sql = "SELECT * FROM Projects WHERE project_number = ?";
-
-		// Try-with-resources to ensure resources are closed automatically
-		try (Connection conn = DatabaseConnection.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-			// Set parameters for the PreparedStatement
-			stmt.setInt(1, projectNumber);
-			ResultSet rs = stmt.executeQuery();
-
-			// If a project is found, create a Project object
-			if (rs.next()) {
-				return new Project(rs.getInt("project_id"), rs.getInt("project_number"),
-						rs.getString("project_name"), rs.getString("building_type"), rs.getString("address"),
-						rs.getString("erf_number"), rs.getDouble("total_fee"), rs.getDouble("amount_paid"),
-						rs.getDate("deadline"), rs.getDate("completion_date"),
-						findArchitectById(rs.getInt("architect_id")),
-						findContractorById(rs.getInt("contractor_id")),
-						findCustomerById(rs.getInt("customer_id")));
-			}
+		try {
+			return readProjectByNumber(projectNumber);
+		} catch (SQLException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Finds a project by its number as {@link #findProjectByNumber(int)} does, but throws if it
+	 * cannot be read, so a failure is not mistaken for a missing project.
+	 *
+	 * @param projectNumber The number of the project to be found.
+	 * @return The {@link Project} object if found, or {@code null} if there is no such project.
+	 * @throws SQLException If the project cannot be read.
+	 */
+	public Project readProjectByNumber(int projectNumber) throws SQLException {
+		return readProjectByNumber(projectNumber, false);
+	}
+
+	/**
+	 * Finds a project by its number as {@link #readProjectByNumber(int)} does, but as last written,
+	 * even when finds are served by read replicas that lag behind. A project read to be edited and
+	 * saved should be read this way, so that its version is current.
+	 *
+	 * @param projectNumber The number of the project to be found.
+	 * @return The {@link Project} object if found, or {@code null} if there is no such project.
+	 * @throws SQLException If the project cannot be read.
+	 */
+	public Project readLatestProjectByNumber(int projectNumber) throws SQLException {
+		return readProjectByNumber(projectNumber, true);
+	}
+
+	/**
+	 * Finds a project by its number, with its participants from the caches.
+	 *
+	 * @param projectNumber The number of the project to be found.
+	 * @param latest        Whether to read the project as last written.
+	 * @return The {@link Project} object if found, or {@code null} if there is no such project.
+	 * @throws SQLException If the project cannot be read.
+	 */
+	private Project readProjectByNumber(int projectNumber, boolean latest) throws SQLException {
+		long start = FIND_PROJECT_BY_NUMBER.start();
+		try {
+			long[] generations = participantGenerations();
+			Project project = cacheParticipants(latest ? repository.findLatestProjectByNumber(projectNumber)
+					: repository.findProjectByNumber(projectNumber), generations);
+			FIND_PROJECT_BY_NUMBER.succeeded(start, project != null ? 1 : 0, 0);
+			return project;
+		} catch (SQLException e) {
+			FIND_PROJECT_BY_NUMBER.failed(start);
+			throw e;
+		}
+	}
 
+	/**
+	 * Finds many projects by their numbers. The projects are read in bulk, and their architects,
+	 * contractors and customers are then loaded with one request per role for the whole batch,
+	 * skipping participants that are already cached. Participants shared by several projects are
+	 * read only once and the same object is shared between those projects.
+	 *
+	 * @param projectNumbers The numbers of the projects to be found. Duplicates are ignored.
+	 * @return The projects found, keyed by project number in the order the numbers were given.
+	 *         Numbers with no project are left out.
+	 */
+	public Map<Integer, Project> findProjectsByNumbers(Collection<Integer> projectNumbers) {
+		try {
+			return readProjectsByNumbers(projectNumbers);
 		} catch (SQLException e) {
 			// Print stack trace for debugging
 			e.printStackTrace();
+			return new LinkedHashMap<>();
+		}
+	}
+
+	/**
+	 * Finds many projects by their numbers as {@link #findProjectsByNumbers(Collection)} does, but
+	 * throws if they cannot be read, so a failure is not mistaken for missing projects.
+	 *
+	 * @param projectNumbers The numbers of the projects to be found. Duplicates are ignored.
+	 * @return The projects found, keyed by project number in the order the numbers were given.
+	 *         Numbers with no project are left out.
+	 * @throws SQLException If the projects cannot be read.
+	 */
+	public Map<Integer, Project> readProjectsByNumbers(Collection<Integer> projectNumbers)
+			throws SQLException {
+		List<Integer> numbers = new ArrayList<>(new LinkedHashSet<>(projectNumbers));
+		Map<Integer, Project> projects = new LinkedHashMap<>();
+		if (numbers.isEmpty()) {
+			return projects;
+		}
+
+		long start = FIND_PROJECTS_BY_NUMBERS.start();
+		try {
+			Map<Integer, Project> found = repository.findProjectsByNumbers(numbers);
+			attachParticipants(found.values());
+
+			// Return the projects in the order they were asked for
+			for (Integer projectNumber : numbers) {
+				Project project = found.get(projectNumber);
+				if (project != null) {
+					projects.put(projectNumber, project);
+				}
+			}
+			FIND_PROJECTS_BY_NUMBERS.succeeded(start, projects.size(), 0);
+		} catch (SQLException e) {
+			FIND_PROJECTS_BY_NUMBERS.failed(start);
+			throw e;
+		}
+		return projects;
+	}
+
+	/**
+	 * Replaces the participants of a batch of projects, which may carry only their IDs, with the
+	 * full participants. Each role's participants are loaded once for the whole batch, skipping
+	 * those already cached, and participants shared by several projects are shared objects. The
+	 * projects are then marked clean.
+	 *
+	 * @param projects The projects.
+	 * @throws SQLException If the participants cannot be read.
+	 */
+	private void attachParticipants(Collection<Project> projects) throws SQLException {
+		Map<Integer, Architect> architects = loadParticipants(projects, Project::getArchitect,
+				Architect::getId, architectCache, repository::findArchitectsByIds);
+		Map<Integer, Contractor> contractors = loadParticipants(projects, Project::getContractor,
+				Contractor::getId, contractorCache, repository::findContractorsByIds);
+		Map<Integer, Customer> customers = loadParticipants(projects, Project::getCustomer,
+				Customer::getId, customerCache, repository::findCustomersByIds);
+
+		for (Project project : projects) {
+			if (project.getArchitect() != null) {
+				project.setArchitect(architects.get(project.getArchitect().getId()));
+			}
+			if (project.getContractor() != null) {
+				project.setContractor(contractors.get(project.getContractor().getId()));
+			}
+			if (project.getCustomer() != null) {
+				project.setCustomer(customers.get(project.getCustomer().getId()));
+			}
+			project.markClean();
 		}
-		return null;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Loads the participants of one role referenced by a batch of projects. Participants already in
+	 * the cache are taken from it; the rest are read from the repository in one request and added
+	 * to the cache.
+	 *
+	 * @param projects    The projects.
+	 * @param participant Gets a project's participant in this role, which may carry only its ID.
+	 * @param id          Gets a participant's ID.
+	 * @param cache       The cache for this role.
+	 * @param loader      Reads the participants missing from the cache.
+	 * @return The participants found, keyed by ID.
+	 * @throws SQLException If the participants cannot be read.
+	 */
+	private static <T> Map<Integer, T> loadParticipants(Collection<Project> projects,
+			Function<Project, T> participant, Function<T, Integer> id, ParticipantCache<T> cache,
+			ParticipantLoader<T> loader) throws SQLException {
+		Map<Integer, T> participants = new HashMap<>();
+		Set<Integer> missing = new LinkedHashSet<>();
+		for (Project project : projects) {
+			T reference = participant.apply(project);
+			if (reference == null) {
+				continue;
+			}
+			int participantId = id.apply(reference);
+			if (participants.containsKey(participantId) || missing.contains(participantId)) {
+				continue;
+			}
+			T cached = cache.getIfPresent(participantId);
+			if (cached != null) {
+				participants.put(participantId, cached);
+			} else {
+				missing.add(participantId);
+			}
+		}
+
+		if (!missing.isEmpty()) {
+			long generation = cache.generation();
+			loader.load(missing).forEach((participantId, loaded) -> {
+				participants.put(participantId, loaded);
+				cache.put(participantId, loaded, generation);
+			});
+		}
+		return participants;
+	}
+
+	/**
+	 * Takes the participant caches' generations before projects are read, so that their
+	 * participants can be cached afterwards.
+	 *
+	 * @return The generations of the architect, contractor and customer caches, in that order.
+	 */
+	private long[] participantGenerations() {
+		return new long[] { architectCache.generation(), contractorCache.generation(),
+				customerCache.generation() };
+	}
+
+	/**
+	 * Stores the participants of a project just read in the participant caches, since they are as
+	 * fresh as a cache miss would be. A participant invalidated since the read began is not stored.
+	 *
+	 * @param project     The project, or {@code null}.
+	 * @param generations The caches' generations, taken by {@link #participantGenerations()} before
+	 *                    the project was read.
+	 * @return The project.
+	 */
+	private Project cacheParticipants(Project project, long[] generations) {
+		if (project != null) {
+			if (project.getArchitect() != null) {
+				architectCache.put(project.getArchitect().getId(), project.getArchitect(),
+						generations[0]);
+			}
+			if (project.getContractor() != null) {
+				contractorCache.put(project.getContractor().getId(), project.getContractor(),
+						generations[1]);
+			}
+			if (project.getCustomer() != null) {
+				customerCache.put(project.getCustomer().getId(), project.getCustomer(),
+						generations[2]);
+			}
+		}
+		return project;
+	}
+
+	/**
+	 * A failed participant read, carried out of a cache loader so that nothing is cached for it.
+	 */
+	private static final class LoadException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		LoadException(SQLException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized SQLException getCause() {
+			return (SQLException) super.getCause();
+		}
+	}
+}
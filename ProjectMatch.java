@@ -0,0 +1,84 @@
+package poised;
+
+/**
+ * The ProjectMatch class is a read-only search result returned by {@link ProjectSearchIndex}. It
+ * holds the columns a search is made over and the score the project was ranked by.
+ */
+public class ProjectMatch {
+	private final int projectNumber;
+	private final String projectName;
+	private final String address;
+	private final String erfNumber;
+	private final double score;
+
+	/**
+	 * Constructs a new ProjectMatch object with the provided details.
+	 *
+	 * @param projectNumber The number assigned to the project.
+	 * @param projectName   The name of the project.
+	 * @param address       The physical address of the project.
+	 * @param erfNumber     The ERF number of the project.
+	 * @param score         How well the project matched, higher being better.
+	 */
+	public ProjectMatch(int projectNumber, String projectName, String address, String erfNumber,
+			double score) {
+		this.projectNumber = projectNumber;
+		this.projectName = projectName;
+		this.address = address;
+		this.erfNumber = erfNumber;
+		this.score = score;
+	}
+
+	/**
+	 * Gets the project number.
+	 *
+	 * @return The project number.
+	 */
+	public int getProjectNumber() {
+		return projectNumber;
+	}
+
+	/**
+	 * Gets the project name.
+	 *
+	 * @return The project name.
+	 */
+	public String getProjectName() {
+		return projectName;
+	}
+
+	/**
+	 * Gets the address.
+	 *
+	 * @return The address.
+	 */
+	public String getAddress() {
+		return address;
+	}
+
+	/**
+	 * Gets the ERF number.
+	 *
+	 * @return The ERF number.
+	 */
+	public String getErfNumber() {
+		return erfNumber;
+	}
+
+	/**
+	 * Gets the score the project was ranked by. The share of the search's trigrams found in the
+	 * project, from 0 to 1, is raised by 1 if a column contains the search text and by 2 if a column
+	 * equals it.
+	 *
+	 * @return The score, from 0 to 3.
+	 */
+	public double getScore() {
+		return score;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Project Number: %d, Name: %s, Address: %s, ERF: %s, Score: %.2f",
+				projectNumber, projectName, address, erfNumber, score);
+	}
+}
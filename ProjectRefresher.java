@@ -0,0 +1,161 @@
+package poised;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * The ProjectRefresher class keeps an in-memory copy of the Projects table current for
+ * {@link ProjectIndex} and {@link ProjectSearchIndex}. It loads every project into the copy, and
+ * then reads back at a fixed interval the rows whose {@code updated_at} column changed since the
+ * newest change it has seen, which picks up writes made by other processes. The owner applies the
+ * writes made through the {@link ProjectManager} itself, through {@link #apply(Runnable)}.
+ *
+ * <p>
+ * The database stamps {@code updated_at} when the changing statement runs, not when its transaction
+ * commits, so a row can become visible with a stamp older than changes already read. Each refresh
+ * therefore reads again the rows stamped up to the configured overlap before the newest change it
+ * has seen. A change is picked up as long as its transaction commits within the overlap of the
+ * statement that made it; a change committed later than that may be missed until the row changes
+ * again or {@link #reload()} is called.
+ */
+final class ProjectRefresher implements AutoCloseable {
+	private final ProjectManager projectManager;
+	private final String threadName;
+	private final long refreshMillis;
+	private final long overlapMillis;
+	private final Runnable clear;
+	private final Consumer<Project> put;
+
+	// Serialises refreshes with write-through changes, so a refresh that read a row before a change
+	// cannot apply its stale copy after the change
+	private final ReentrantLock refreshLock = new ReentrantLock();
+	// Change time of the newest row read by a refresh
+	private Timestamp watermark = new Timestamp(0);
+
+	private ProjectChangeListener listener;
+	private ScheduledExecutorService refresher;
+
+	/**
+	 * Constructs a new ProjectRefresher. Nothing is loaded until {@link #start} is called.
+	 *
+	 * @param projectManager The manager to read the projects from.
+	 * @param threadName     The name of the thread that runs the periodic refresh.
+	 * @param refreshMillis  How often rows changed by other processes are read back.
+	 * @param overlapMillis  How far each refresh reaches back before the newest change seen.
+	 * @param clear          Empties the copy; called before every full load.
+	 * @param put            Adds a project read from the database to the copy, replacing any
+	 *                       project with the same number.
+	 */
+	ProjectRefresher(ProjectManager projectManager, String threadName, long refreshMillis,
+			long overlapMillis, Runnable clear, Consumer<Project> put) {
+		this.projectManager = projectManager;
+		this.threadName = threadName;
+		this.refreshMillis = refreshMillis;
+		this.overlapMillis = overlapMillis;
+		this.clear = clear;
+		this.put = put;
+	}
+
+	/**
+	 * Registers the owner for writes made through the {@link ProjectManager}, loads every project
+	 * and schedules the periodic refresh.
+	 *
+	 * @param owner The listener that applies the manager's writes to the copy.
+	 * @throws SQLException If the projects cannot be loaded. The owner is not left registered.
+	 */
+	synchronized void start(ProjectChangeListener owner) throws SQLException {
+		if (refresher != null) {
+			throw new IllegalStateException(owner.getClass().getSimpleName() + " already started");
+		}
+		projectManager.addProjectChangeListener(owner);
+		try {
+			reload();
+		} catch (SQLException e) {
+			projectManager.removeProjectChangeListener(owner);
+			throw e;
+		}
+		listener = owner;
+
+		// Refresh on a single daemon thread so that it never keeps the JVM alive
+		refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, threadName);
+			thread.setDaemon(true);
+			return thread;
+		});
+		refresher.scheduleWithFixedDelay(() -> {
+			try {
+				refresh();
+			} catch (SQLException e) {
+				// Print stack trace for debugging; the next refresh tries again
+				e.printStackTrace();
+			}
+		}, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Empties the copy and loads every project again.
+	 *
+	 * @throws SQLException If the projects cannot be loaded. The copy is left empty.
+	 */
+	void reload() throws SQLException {
+		refreshLock.lock();
+		try {
+			clear.run();
+			watermark = projectManager.forEachProjectUpdatedSince(new Timestamp(0), put);
+		} finally {
+			refreshLock.unlock();
+		}
+	}
+
+	/**
+	 * Reads back every project changed since the last refresh, less the overlap.
+	 *
+	 * @throws SQLException If the changes cannot be read. The copy is left as it was.
+	 */
+	void refresh() throws SQLException {
+		refreshLock.lock();
+		try {
+			Timestamp since = new Timestamp(watermark.getTime() - overlapMillis);
+			Timestamp newest = projectManager.forEachProjectUpdatedSince(since, put);
+			if (newest.after(watermark)) {
+				watermark = newest;
+			}
+		} finally {
+			refreshLock.unlock();
+		}
+	}
+
+	/**
+	 * Applies a write made through the {@link ProjectManager}, never at the same time as a refresh.
+	 *
+	 * @param change The change to the copy.
+	 */
+	void apply(Runnable change) {
+		refreshLock.lock();
+		try {
+			change.run();
+		} finally {
+			refreshLock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the periodic refresh and unregisters the owner. The copy is left as it is.
+	 */
+	@Override
+	public synchronized void close() {
+		if (refresher != null) {
+			refresher.shutdownNow();
+			refresher = null;
+		}
+		if (listener != null) {
+			projectManager.removeProjectChangeListener(listener);
+			listener = null;
+		}
+	}
+}
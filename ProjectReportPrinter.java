@@ -0,0 +1,72 @@
+package poised;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.function.Consumer;
+
+/**
+ * The ProjectReportPrinter class renders {@link ProjectSummary} rows as the console reports for
+ * incomplete and overdue projects. Output is buffered and written out when the printer is flushed
+ * or closed, rather than line by line.
+ */
+public class ProjectReportPrinter implements Consumer<ProjectSummary>, AutoCloseable {
+	private final PrintWriter out;
+	private final String label;
+	private final boolean closeWriter;
+
+	/**
+	 * Constructs a new ProjectReportPrinter that writes to standard output. Closing it flushes the
+	 * report but leaves standard output open.
+	 *
+	 * @param label The label printed before each project number, for example "Project Number".
+	 */
+	public ProjectReportPrinter(String label) {
+		this(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16), label, false);
+	}
+
+	/**
+	 * Constructs a new ProjectReportPrinter that writes to the given writer.
+	 *
+	 * @param writer      The writer to render the report to.
+	 * @param label       The label printed before each project number.
+	 * @param closeWriter {@code true} to close the writer when the printer is closed.
+	 */
+	public ProjectReportPrinter(Writer writer, String label, boolean closeWriter) {
+		this.out = new PrintWriter(writer, false);
+		this.label = label;
+		this.closeWriter = closeWriter;
+	}
+
+	/**
+	 * Renders one project.
+	 *
+	 * @param summary The project to render.
+	 */
+	@Override
+	public void accept(ProjectSummary summary) {
+		out.printf("%s: %d, Name: %s, Type: %s, Address: %s, Deadline: %s%n", label,
+				summary.getProjectNumber(), summary.getProjectName(), summary.getBuildingType(),
+				summary.getAddress(), summary.getDeadline());
+	}
+
+	/**
+	 * Writes out any buffered output.
+	 */
+	public void flush() {
+		out.flush();
+	}
+
+	/**
+	 * Flushes the report and, if requested when the printer was created, closes the writer.
+	 */
+	@Override
+	public void close() {
+		if (closeWriter) {
+			out.close();
+		} else {
+			out.flush();
+		}
+	}
+}
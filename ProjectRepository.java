@@ -0,0 +1,423 @@
+package poised;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The ProjectRepository interface is the storage behind {@link ProjectManager}. The manager keeps
+ * the participant caches, the change listeners and the console messages; a repository only reads
+ * and writes projects and participants, and reports every failure as an {@link SQLException}.
+ *
+ * <p>
+ * Two implementations ship with PoisePMS: {@link JdbcProjectRepository}, which stores everything
+ * in the MySQL database reached through {@link DatabaseConnection}, and
+ * {@link FileProjectRepository}, an embedded single-file store for sites without a database
+ * server. {@link #fromSystemProperties()} picks one from the {@code poised.storage} system
+ * property.
+ *
+ * <p>
+ * Projects returned by a repository are new objects, marked clean at the version they were read
+ * at. Implementations must be safe to use from several threads at once.
+ */
+public interface ProjectRepository extends AutoCloseable {
+
+	/**
+	 * Opens the repository selected by the {@code poised.storage} system property: {@code jdbc}
+	 * (the default) for the MySQL database, or {@code file} for a {@link FileProjectRepository} at
+	 * the path given by {@code poised.storage.file} (default {@code poised.db}).
+	 *
+	 * @return The opened repository.
+	 * @throws SQLException If the storage cannot be opened, or the property names an unknown kind
+	 *                      of storage.
+	 */
+	static ProjectRepository fromSystemProperties() throws SQLException {
+		String storage = System.getProperty("poised.storage", "jdbc");
+		switch (storage) {
+		case "jdbc":
+			return new JdbcProjectRepository();
+		case "file":
+			return FileProjectRepository.open(
+					java.nio.file.Path.of(System.getProperty("poised.storage.file", "poised.db")));
+		default:
+			throw new SQLException("Unknown storage: " + storage);
+		}
+	}
+
+	/**
+	 * Inserts a new project.
+	 *
+	 * @param project The project to insert.
+	 * @throws SQLException If the project cannot be inserted, for example because its number is
+	 *                      taken or a participant does not exist.
+	 */
+	void insertProject(Project project) throws SQLException;
+
+	/**
+	 * Inserts many projects, batching them as the options describe. A project that cannot be
+	 * inserted is recorded as a failure in the result and does not stop the import.
+	 *
+	 * @param projects  The projects to insert.
+	 * @param options   The batch size, commit interval and insert style to use.
+	 * @param committed Receives each project once it is durably stored, or {@code null} if nobody
+	 *                  needs to know. Called after the import has finished.
+	 * @return A {@link BulkImportResult} describing which projects were inserted and which failed.
+	 */
+	BulkImportResult insertProjects(Iterable<Project> projects, BulkImportOptions options,
+			Consumer<? super Project> committed);
+
+	/**
+	 * Writes the given fields of a project, provided it is still at the project's version. The
+	 * project object itself is not changed.
+	 *
+	 * @param project The project holding the new values.
+	 * @param fields  The fields to write, as {@link Project.Field} bits. Must not be empty.
+	 * @return {@link UpdateResult#UPDATED}, {@link UpdateResult#CONFLICT} or
+	 *         {@link UpdateResult#NOT_FOUND}.
+	 * @throws SQLException If the project cannot be written.
+	 */
+	UpdateResult updateProject(Project project, int fields) throws SQLException;
+
+	/**
+	 * Sets the completion date of a project.
+	 *
+	 * @param projectNumber   The project number of the project to finalise.
+	 * @param expectedVersion The version the project must be at, or {@code null} for any version.
+	 * @param completionDate  The completion date to set.
+	 * @return {@link UpdateResult#UPDATED}, {@link UpdateResult#CONFLICT} or
+	 *         {@link UpdateResult#NOT_FOUND}.
+	 * @throws SQLException If the project cannot be written.
+	 */
+	UpdateResult finalizeProject(int projectNumber, Integer expectedVersion, Date completionDate)
+			throws SQLException;
+
+	/**
+	 * Deletes a project.
+	 *
+	 * @param projectNumber The project number of the project to delete.
+	 * @return {@code true} if the project existed.
+	 * @throws SQLException If the project cannot be deleted.
+	 */
+	boolean deleteProject(int projectNumber) throws SQLException;
+
+	/**
+	 * Finds a project, with its architect, contractor and customer, by its number.
+	 *
+	 * @param projectNumber The number of the project.
+	 * @return The project, or {@code null} if there is none.
+	 * @throws SQLException If the project cannot be read.
+	 */
+	Project findProjectByNumber(int projectNumber) throws SQLException;
+
+	/**
+	 * Finds a project by its number as {@link #findProjectByNumber(int)} does, but as last written,
+	 * even if other reads are served from copies that lag behind. Used to read a project that is
+	 * about to be updated, so that its version is current.
+	 *
+	 * @param projectNumber The number of the project.
+	 * @return The project, or {@code null} if there is none.
+	 * @throws SQLException If the project cannot be read.
+	 */
+	Project findLatestProjectByNumber(int projectNumber) throws SQLException;
+
+	/**
+	 * Finds a project, with its architect, contractor and customer, by its name.
+	 *
+	 * @param projectName The name of the project.
+	 * @return The project, or {@code null} if there is none.
+	 * @throws SQLException If the project cannot be read.
+	 */
+	Project findProjectByName(String projectName) throws SQLException;
+
+	/**
+	 * Finds many projects by their numbers. The participants of the projects returned carry only
+	 * their IDs; the caller loads the rest, for example with {@link #findArchitectsByIds}.
+	 *
+	 * @param projectNumbers The numbers of the projects, without duplicates.
+	 * @return The projects found, keyed by project number in no particular order.
+	 * @throws SQLException If the projects cannot be read.
+	 */
+	Map<Integer, Project> findProjectsByNumbers(List<Integer> projectNumbers) throws SQLException;
+
+	/**
+	 * Finds one page of all projects, ordered by project number. The participants of the projects
+	 * returned may carry only their IDs.
+	 *
+	 * @param afterProjectNumber The last project number of the previous page, or
+	 *                           {@link Integer#MIN_VALUE} for the first page.
+	 * @param limit              The maximum number of projects to return.
+	 * @return The page of projects, which is shorter than {@code limit} on the last page.
+	 * @throws SQLException If the page cannot be read.
+	 */
+	List<Project> findProjects(int afterProjectNumber, int limit) throws SQLException;
+
+	/**
+	 * Finds one page of the projects of one architect, contractor or customer, ordered by project
+	 * number. The participants of the projects returned may carry only their IDs.
+	 *
+	 * @param role               The role the participant plays on the projects.
+	 * @param participantId      The ID of the participant.
+	 * @param openOnly           {@code true} to leave out finalised projects.
+	 * @param afterProjectNumber The last project number of the previous page, or
+	 *                           {@link Integer#MIN_VALUE} for the first page.
+	 * @param limit              The maximum number of projects to return.
+	 * @return The page of projects, which is shorter than {@code limit} on the last page.
+	 * @throws SQLException If the page cannot be read.
+	 */
+	List<Project> findProjectsByParticipant(ParticipantRole role, int participantId,
+			boolean openOnly, int afterProjectNumber, int limit) throws SQLException;
+
+	/**
+	 * Finds one page of incomplete projects, ordered by project number.
+	 *
+	 * @param afterProjectNumber The last project number of the previous page, or
+	 *                           {@link Integer#MIN_VALUE} for the first page.
+	 * @param limit              The maximum number of projects to return.
+	 * @return The page of projects, which is shorter than {@code limit} on the last page.
+	 * @throws SQLException If the page cannot be read.
+	 */
+	List<ProjectSummary> findIncompleteProjects(int afterProjectNumber, int limit)
+			throws SQLException;
+
+	/**
+	 * Finds one page of overdue projects, ordered by deadline and then project number.
+	 *
+	 * @param afterDeadline      The deadline of the last project on the previous page, or
+	 *                           {@code null} for the first page.
+	 * @param afterProjectNumber The project number of the last project on the previous page.
+	 * @param limit              The maximum number of projects to return.
+	 * @return The page of projects, which is shorter than {@code limit} on the last page.
+	 * @throws SQLException If the page cannot be read.
+	 */
+	List<ProjectSummary> findOverdueProjects(Date afterDeadline, int afterProjectNumber, int limit)
+			throws SQLException;
+
+	/**
+	 * Passes every project changed at or after the given time, with its architect, contractor and
+	 * customer, to the given consumer in the order the projects were changed.
+	 *
+	 * @param since    The earliest change time to include.
+	 * @param pageSize The number of projects to read at a time.
+	 * @param consumer The consumer to receive each project.
+	 * @return The change time of the last project visited, or {@code since} if there were none.
+	 * @throws SQLException If the projects cannot be read.
+	 */
+	Timestamp forEachProjectUpdatedSince(Timestamp since, int pageSize,
+			Consumer<? super Project> consumer) throws SQLException;
+
+	/**
+	 * Totals the fees of every project.
+	 *
+	 * @return The number of projects, their total fees and the amount paid, with no key.
+	 * @throws SQLException If the projects cannot be read.
+	 */
+	FeeSummary summarizeFees() throws SQLException;
+
+	/**
+	 * Totals the fees of the projects in each group of a grouping. Customer groups are labelled
+	 * with the customer's name.
+	 *
+	 * @param grouping How to group the projects.
+	 * @return One summary per group that holds a project, ordered by key with projects that have
+	 *         no key first.
+	 * @throws SQLException If the projects cannot be read.
+	 */
+	List<FeeSummary> summarizeFees(FeeGrouping grouping) throws SQLException;
+
+	/**
+	 * Writes a set of changes atomically: either every change is stored or none is.
+	 *
+	 * @param changes The changes to write.
+	 * @return The changes that found their project or participant and were applied.
+	 * @throws SQLException If the changes cannot be written, or a
+	 *                      {@link java.sql.SQLTransactionRollbackException} if a project update is
+	 *                      not at the project's current version.
+	 */
+	ChangeSet commit(ChangeSet changes) throws SQLException;
+
+	/**
+	 * Inserts a new architect and sets the ID they were given.
+	 *
+	 * @param architect The architect to insert.
+	 * @throws SQLException If the architect cannot be inserted.
+	 */
+	void insertArchitect(Architect architect) throws SQLException;
+
+	/**
+	 * Finds an architect by their ID.
+	 *
+	 * @param architectId The ID of the architect.
+	 * @return The architect, or {@code null} if there is none.
+	 * @throws SQLException If the architect cannot be read.
+	 */
+	Architect findArchitectById(int architectId) throws SQLException;
+
+	/**
+	 * Finds many architects by their IDs.
+	 *
+	 * @param architectIds The IDs of the architects, without duplicates.
+	 * @return The architects found, keyed by ID.
+	 * @throws SQLException If the architects cannot be read.
+	 */
+	Map<Integer, Architect> findArchitectsByIds(Collection<Integer> architectIds) throws SQLException;
+
+	/**
+	 * Updates an existing architect.
+	 *
+	 * @param architect The architect, identified by their ID.
+	 * @return {@code true} if the architect existed.
+	 * @throws SQLException If the architect cannot be written.
+	 */
+	boolean updateArchitect(Architect architect) throws SQLException;
+
+	/**
+	 * Finds one page of all architects, ordered by ID.
+	 *
+	 * @param afterArchitectId The last ID of the previous page, or {@code 0} for the first page.
+	 * @param limit            The maximum number of architects to return.
+	 * @return The page of architects, which is shorter than {@code limit} on the last page.
+	 * @throws SQLException If the page cannot be read.
+	 */
+	List<Architect> findArchitects(int afterArchitectId, int limit) throws SQLException;
+
+	/**
+	 * Inserts many architects, keeping the IDs they already have, for example when a snapshot is
+	 * restored. Either all of them are inserted or none is.
+	 *
+	 * @param architects The architects to insert.
+	 * @throws SQLException If any architect cannot be inserted, for example because their ID is
+	 *                      taken.
+	 */
+	void insertArchitects(Collection<Architect> architects) throws SQLException;
+
+	/**
+	 * Inserts a new contractor and sets the ID they were given.
+	 *
+	 * @param contractor The contractor to insert.
+	 * @throws SQLException If the contractor cannot be inserted.
+	 */
+	void insertContractor(Contractor contractor) throws SQLException;
+
+	/**
+	 * Finds a contractor by their ID.
+	 *
+	 * @param contractorId The ID of the contractor.
+	 * @return The contractor, or {@code null} if there is none.
+	 * @throws SQLException If the contractor cannot be read.
+	 */
+	Contractor findContractorById(int contractorId) throws SQLException;
+
+	/**
+	 * Finds many contractors by their IDs.
+	 *
+	 * @param contractorIds The IDs of the contractors, without duplicates.
+	 * @return The contractors found, keyed by ID.
+	 * @throws SQLException If the contractors cannot be read.
+	 */
+	Map<Integer, Contractor> findContractorsByIds(Collection<Integer> contractorIds)
+			throws SQLException;
+
+	/**
+	 * Updates an existing contractor.
+	 *
+	 * @param contractor The contractor, identified by their ID.
+	 * @return {@code true} if the contractor existed.
+	 * @throws SQLException If the contractor cannot be written.
+	 */
+	boolean updateContractor(Contractor contractor) throws SQLException;
+
+	/**
+	 * Finds one page of all contractors, ordered by ID.
+	 *
+	 * @param afterContractorId The last ID of the previous page, or {@code 0} for the first page.
+	 * @param limit             The maximum number of contractors to return.
+	 * @return The page of contractors, which is shorter than {@code limit} on the last page.
+	 * @throws SQLException If the page cannot be read.
+	 */
+	List<Contractor> findContractors(int afterContractorId, int limit) throws SQLException;
+
+	/**
+	 * Inserts many contractors, keeping the IDs they already have, for example when a snapshot is
+	 * restored. Either all of them are inserted or none is.
+	 *
+	 * @param contractors The contractors to insert.
+	 * @throws SQLException If any contractor cannot be inserted, for example because their ID is
+	 *                      taken.
+	 */
+	void insertContractors(Collection<Contractor> contractors) throws SQLException;
+
+	/**
+	 * Inserts a new customer and sets the ID they were given.
+	 *
+	 * @param customer The customer to insert.
+	 * @throws SQLException If the customer cannot be inserted.
+	 */
+	void insertCustomer(Customer customer) throws SQLException;
+
+	/**
+	 * Finds a customer by their ID.
+	 *
+	 * @param customerId The ID of the customer.
+	 * @return The customer, or {@code null} if there is none.
+	 * @throws SQLException If the customer cannot be read.
+	 */
+	Customer findCustomerById(int customerId) throws SQLException;
+
+	/**
+	 * Finds many customers by their IDs.
+	 *
+	 * @param customerIds The IDs of the customers, without duplicates.
+	 * @return The customers found, keyed by ID.
+	 * @throws SQLException If the customers cannot be read.
+	 */
+	Map<Integer, Customer> findCustomersByIds(Collection<Integer> customerIds) throws SQLException;
+
+	/**
+	 * Updates an existing customer.
+	 *
+	 * @param customer The customer, identified by their ID.
+	 * @return {@code true} if the customer existed.
+	 * @throws SQLException If the customer cannot be written.
+	 */
+	boolean updateCustomer(Customer customer) throws SQLException;
+
+	/**
+	 * Finds one page of all customers, ordered by ID.
+	 *
+	 * @param afterCustomerId The last ID of the previous page, or {@code 0} for the first page.
+	 * @param limit           The maximum number of customers to return.
+	 * @return The page of customers, which is shorter than {@code limit} on the last page.
+	 * @throws SQLException If the page cannot be read.
+	 */
+	List<Customer> findCustomers(int afterCustomerId, int limit) throws SQLException;
+
+	/**
+	 * Inserts many customers, keeping the IDs they already have, for example when a snapshot is
+	 * restored. Either all of them are inserted or none is.
+	 *
+	 * @param customers The customers to insert.
+	 * @throws SQLException If any customer cannot be inserted, for example because their ID is
+	 *                      taken.
+	 */
+	void insertCustomers(Collection<Customer> customers) throws SQLException;
+
+	/**
+	 * Makes the current {@link ReadSession}'s reads see every write already made, for the given
+	 * time, for storage that serves reads from copies that may lag behind.
+	 *
+	 * @param millis How long, in milliseconds, reads must be up to date.
+	 */
+	void readYourWrites(long millis);
+
+	/**
+	 * Releases the storage. The repository cannot be used afterwards.
+	 *
+	 * @throws SQLException If the storage cannot be released cleanly.
+	 */
+	@Override
+	void close() throws SQLException;
+}
@@ -0,0 +1,545 @@
+package poised;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The ProjectSearchIndex class finds projects by part of their name, address or ERF number. It
+ * keeps an in-memory inverted index from every trigram (run of three characters) of those columns
+ * to the projects containing it, so a search reads only the projects sharing a trigram with the
+ * search text instead of scanning the table with {@code LIKE '%text%'}.
+ *
+ * <p>
+ * Text is compared in lower case with punctuation treated as spaces, and each word is padded with
+ * two spaces before and one after as PostgreSQL's {@code pg_trgm} does, so {@code "Smith House"}
+ * and {@code "smith-house"} match alike and a misspelling still shares most of its trigrams with
+ * the intended word. A project is returned when it holds at least half of the search's trigrams,
+ * ranked by the share it holds and ahead of that when a column contains or equals the search text;
+ * see {@link ProjectMatch#getScore()}.
+ *
+ * <p>
+ * The index is loaded by {@link #start()} and kept current as {@link ProjectIndex} is: writes made
+ * through the {@link ProjectManager} are applied as soon as they succeed, and rows changed by other
+ * processes are read back every {@code poised.search.refreshMillis} milliseconds (default 5000),
+ * reaching back {@code poised.search.refreshOverlapMillis} milliseconds (default 1000) for changes
+ * committed late; see {@link ProjectRefresher}. Rows that other processes delete stay searchable
+ * until {@link #reload()} is called.
+ */
+public class ProjectSearchIndex implements ProjectChangeListener, AutoCloseable {
+	// How often rows changed by other processes are read back
+	private static final long REFRESH_MILLIS = Long.getLong("poised.search.refreshMillis", 5_000L);
+	// How far each refresh reaches back before the newest change already seen
+	private static final long REFRESH_OVERLAP_MILLIS = Long
+			.getLong("poised.search.refreshOverlapMillis", 1_000L);
+	// Share of the search's trigrams a project must hold to be returned
+	private static final double MIN_SIMILARITY = 0.5;
+	// Longest search text, in characters, that is used
+	private static final int MAX_QUERY_LENGTH = 256;
+	// A search counts into an array over every slot, rather than looking up its candidates, once it
+	// has more than one candidate per this many slots
+	private static final int DENSE_COUNT_DIVISOR = 8;
+	// Replaced documents tolerated before the postings are compacted
+	private static final int COMPACT_THRESHOLD = 1_024;
+
+	// Orders matches best first: by score, then project number
+	private static final Comparator<ProjectMatch> RANK_ORDER = Comparator
+			.comparingDouble(ProjectMatch::getScore).reversed()
+			.thenComparingInt(ProjectMatch::getProjectNumber);
+
+	private final ProjectManager projectManager;
+
+	// Guards the fields below; held for reading by searches and for writing by changes
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	// Documents by slot; a replaced or deleted project leaves its slot null until compaction
+	private Document[] documents = new Document[1_024];
+	private int slotCount;
+	private int deadCount;
+	private final Map<Integer, Integer> slotByNumber = new HashMap<>();
+	private final Map<Long, Postings> postings = new HashMap<>();
+
+	// Loads the index and keeps it current with writes made by other processes
+	private final ProjectRefresher refresher;
+
+	/**
+	 * Constructs a new, empty ProjectSearchIndex over the projects of the given manager.
+	 *
+	 * @param projectManager The manager whose writes keep the index current.
+	 */
+	public ProjectSearchIndex(ProjectManager projectManager) {
+		this.projectManager = projectManager;
+		this.refresher = new ProjectRefresher(projectManager, "poised-search-refresh",
+				REFRESH_MILLIS, REFRESH_OVERLAP_MILLIS, this::clear, this::put);
+	}
+
+	/**
+	 * Loads every project, starts listening for writes made through the {@link ProjectManager} and
+	 * schedules the periodic refresh.
+	 *
+	 * @throws SQLException If the projects cannot be loaded.
+	 */
+	public void start() throws SQLException {
+		refresher.start(this);
+	}
+
+	/**
+	 * Discards the index and loads every project again.
+	 *
+	 * @throws SQLException If the projects cannot be loaded. The index is left empty.
+	 */
+	public void reload() throws SQLException {
+		refresher.reload();
+	}
+
+	/**
+	 * Reads back every project changed since the last refresh.
+	 *
+	 * @throws SQLException If the changes cannot be read. The index is left as it was.
+	 */
+	public void refresh() throws SQLException {
+		refresher.refresh();
+	}
+
+	/**
+	 * Stops the periodic refresh and stops listening for writes. The index keeps answering searches
+	 * from what it holds.
+	 */
+	@Override
+	public void close() {
+		refresher.close();
+	}
+
+	/**
+	 * Gets the number of projects in the index.
+	 *
+	 * @return The number of projects.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return slotByNumber.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Finds the projects whose name, address or ERF number best match the given text.
+	 *
+	 * @param text  The text to search for, such as part of a name or a misspelt street.
+	 * @param limit The maximum number of matches to return.
+	 * @return The matches, best first; empty if the text has no letters or digits.
+	 */
+	public List<ProjectMatch> search(String text, int limit) {
+		String query = normalize(text.length() > MAX_QUERY_LENGTH ? text.substring(0, MAX_QUERY_LENGTH)
+				: text);
+		if (query.isEmpty() || limit <= 0) {
+			return new ArrayList<>();
+		}
+		long[] trigrams = trigramsOf(query);
+		int required = Math.max(1, (int) Math.ceil(MIN_SIMILARITY * trigrams.length));
+
+		// Worst match at the head, so it is the one dropped once the limit is reached
+		PriorityQueue<ProjectMatch> best = new PriorityQueue<>(RANK_ORDER.reversed());
+		lock.readLock().lock();
+		try {
+			// The posting lists of the search's trigrams that any document holds, shortest first
+			Postings[] lists = new Postings[trigrams.length];
+			int listCount = 0;
+			for (long trigram : trigrams) {
+				Postings list = postings.get(trigram);
+				if (list != null) {
+					lists[listCount++] = list;
+				}
+			}
+			Arrays.sort(lists, 0, listCount, Comparator.comparingInt((Postings list) -> list.size));
+
+			// A match is missing from at most listCount - required lists, so it is in at least one
+			// of the shortest listCount - required + 1; only their slots are candidates
+			int probed = listCount - required + 1;
+			int candidateCount = 0;
+			for (int i = 0; i < probed; i++) {
+				candidateCount += lists[i].size;
+			}
+
+			if (candidateCount < slotCount / DENSE_COUNT_DIVISOR) {
+				int[] candidates = new int[candidateCount];
+				candidateCount = 0;
+				for (int i = 0; i < probed; i++) {
+					System.arraycopy(lists[i].slots, 0, candidates, candidateCount, lists[i].size);
+					candidateCount += lists[i].size;
+				}
+				Arrays.sort(candidates);
+
+				for (int first = 0, next; first < candidateCount; first = next) {
+					int slot = candidates[first];
+					next = first + 1;
+					while (next < candidateCount && candidates[next] == slot) {
+						next++;
+					}
+					// Look the candidate up in the longer lists, stopping once it cannot qualify
+					int shared = next - first;
+					for (int i = probed; i < listCount && shared + listCount - i >= required; i++) {
+						if (lists[i].contains(slot)) {
+							shared++;
+						}
+					}
+					if (shared >= required && documents[slot] != null) {
+						offer(best, limit, documents[slot], shared, trigrams.length, query);
+					}
+				}
+			} else {
+				// The candidates cover much of the index, so counting every list into one array
+				// costs less than looking each candidate up
+				int[] shared = new int[slotCount];
+				for (int i = 0; i < listCount; i++) {
+					Postings list = lists[i];
+					for (int j = 0; j < list.size; j++) {
+						shared[list.slots[j]]++;
+					}
+				}
+				for (int slot = 0; slot < slotCount; slot++) {
+					if (shared[slot] >= required && documents[slot] != null) {
+						offer(best, limit, documents[slot], shared[slot], trigrams.length, query);
+					}
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		List<ProjectMatch> matches = new ArrayList<>(best);
+		matches.sort(RANK_ORDER);
+		return matches;
+	}
+
+	/**
+	 * Scores a document that holds enough of the search's trigrams and keeps it if it ranks among
+	 * the best found so far.
+	 *
+	 * @param best         The best matches so far, worst at the head.
+	 * @param limit        The maximum number of matches to keep.
+	 * @param document     The document.
+	 * @param shared       The number of the search's trigrams the document holds.
+	 * @param trigramCount The number of trigrams in the search.
+	 * @param query        The normalised search text.
+	 */
+	private static void offer(PriorityQueue<ProjectMatch> best, int limit, Document document,
+			int shared, int trigramCount, String query) {
+		double score = shared / (double) trigramCount;
+		// Text found inside a word lacks at most the padded trigrams of its ends
+		if (shared >= trigramCount - 3) {
+			score += document.bonusFor(query);
+		}
+		if (best.size() == limit) {
+			ProjectMatch worst = best.peek();
+			if (score < worst.getScore() || score == worst.getScore()
+					&& document.projectNumber > worst.getProjectNumber()) {
+				return;
+			}
+			best.poll();
+		}
+		best.add(new ProjectMatch(document.projectNumber, document.projectName, document.address,
+				document.erfNumber, score));
+	}
+
+	@Override
+	public void projectSaved(Project project) {
+		refresher.apply(() -> put(project));
+	}
+
+	@Override
+	public void projectFinalized(int projectNumber, Date completionDate) {
+		// Finalising changes none of the searched columns
+	}
+
+	@Override
+	public void projectDeleted(int projectNumber) {
+		refresher.apply(() -> {
+			lock.writeLock().lock();
+			try {
+				Integer slot = slotByNumber.remove(projectNumber);
+				if (slot != null) {
+					kill(slot);
+					compactIfNeeded();
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+		});
+	}
+
+	/**
+	 * Empties the index.
+	 */
+	private void clear() {
+		lock.writeLock().lock();
+		try {
+			documents = new Document[1_024];
+			slotCount = 0;
+			deadCount = 0;
+			slotByNumber.clear();
+			postings.clear();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds a project to the index, replacing any project with the same number. A project whose
+	 * searched columns have not changed is left as it is.
+	 *
+	 * @param project The project to add.
+	 */
+	private void put(Project project) {
+		Document document = new Document(project);
+		long[] trigrams = trigramsOf(document.text);
+		lock.writeLock().lock();
+		try {
+			Integer previous = slotByNumber.get(document.projectNumber);
+			if (previous != null) {
+				if (documents[previous].hasSameColumns(document)) {
+					return;
+				}
+				kill(previous);
+			}
+
+			if (slotCount == documents.length) {
+				documents = Arrays.copyOf(documents, slotCount * 2);
+			}
+			int slot = slotCount++;
+			documents[slot] = document;
+			slotByNumber.put(document.projectNumber, slot);
+			for (long trigram : trigrams) {
+				postings.computeIfAbsent(trigram, key -> new Postings()).add(slot);
+			}
+			compactIfNeeded();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Marks a slot as no longer holding a project. Its postings are dropped by the next compaction;
+	 * until then searches skip it. The caller holds the write lock.
+	 *
+	 * @param slot The slot to free.
+	 */
+	private void kill(int slot) {
+		documents[slot] = null;
+		deadCount++;
+	}
+
+	/**
+	 * Renumbers the live documents into consecutive slots and drops the dead slots from every
+	 * posting list, once dead slots outnumber live ones. Slots keep their order, so posting lists
+	 * stay sorted. The caller holds the write lock.
+	 */
+	private void compactIfNeeded() {
+		if (deadCount < COMPACT_THRESHOLD || deadCount < slotCount - deadCount) {
+			return;
+		}
+		int[] newSlots = new int[slotCount];
+		int live = 0;
+		for (int slot = 0; slot < slotCount; slot++) {
+			Document document = documents[slot];
+			if (document != null) {
+				newSlots[slot] = live;
+				documents[live] = document;
+				slotByNumber.put(document.projectNumber, live);
+				live++;
+			} else {
+				newSlots[slot] = -1;
+			}
+		}
+		Arrays.fill(documents, live, slotCount, null);
+		slotCount = live;
+		deadCount = 0;
+
+		for (Iterator<Postings> iterator = postings.values().iterator(); iterator.hasNext();) {
+			Postings list = iterator.next();
+			list.renumber(newSlots);
+			if (list.size == 0) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Puts text into the form it is indexed and searched in: lower case, with every run of
+	 * characters other than letters and digits replaced by a single space and none at either end.
+	 *
+	 * @param text The text, or {@code null}.
+	 * @return The normalised text; empty if {@code text} is {@code null}.
+	 */
+	static String normalize(String text) {
+		if (text == null) {
+			return "";
+		}
+		StringBuilder normalized = new StringBuilder(text.length());
+		boolean separate = false;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (Character.isLetterOrDigit(c)) {
+				if (separate && normalized.length() > 0) {
+					normalized.append(' ');
+				}
+				normalized.append(Character.toLowerCase(c));
+				separate = false;
+			} else {
+				separate = true;
+			}
+		}
+		return normalized.toString();
+	}
+
+	/**
+	 * Gets the distinct trigrams of normalised text. Each word is padded with two spaces before and
+	 * one after, so a word of one character still has trigrams and matching the start of a word
+	 * counts for more than matching its middle.
+	 *
+	 * @param normalized Text as returned by {@link #normalize(String)}.
+	 * @return The trigrams, each packed into a long, in ascending order.
+	 */
+	static long[] trigramsOf(String normalized) {
+		long[] trigrams = new long[normalized.length() + 1];
+		int count = 0;
+		// The characters before the current one, with a space standing in before the first word
+		char first = ' ';
+		char second = ' ';
+		for (int i = 0; i <= normalized.length(); i++) {
+			char c = i < normalized.length() ? normalized.charAt(i) : ' ';
+			if (second != ' ' || c != ' ') {
+				trigrams[count++] = (long) first << 32 | (long) second << 16 | c;
+			}
+			first = second;
+			second = c;
+			if (c == ' ') {
+				// The space ends one word and pads the start of the next
+				first = ' ';
+			}
+		}
+		trigrams = Arrays.copyOf(trigrams, count);
+		Arrays.sort(trigrams);
+
+		int distinct = 0;
+		for (int i = 0; i < count; i++) {
+			if (i == 0 || trigrams[i] != trigrams[i - 1]) {
+				trigrams[distinct++] = trigrams[i];
+			}
+		}
+		return Arrays.copyOf(trigrams, distinct);
+	}
+
+	/**
+	 * The searched columns of one project, as given and as normalised.
+	 */
+	private static final class Document {
+		final int projectNumber;
+		final String projectName;
+		final String address;
+		final String erfNumber;
+		final String[] normalizedColumns;
+		// The normalised columns, joined by spaces
+		final String text;
+
+		Document(Project project) {
+			projectNumber = project.getProjectNumber();
+			projectName = project.getProjectName();
+			address = project.getAddress();
+			erfNumber = project.getErfNumber();
+			normalizedColumns = new String[] { normalize(projectName), normalize(address),
+					normalize(erfNumber) };
+			text = String.join(" ", normalizedColumns).trim();
+		}
+
+		/**
+		 * Tells whether another document holds the same columns, as given.
+		 *
+		 * @param other The other document.
+		 * @return {@code true} if the name, address and ERF number are all equal.
+		 */
+		boolean hasSameColumns(Document other) {
+			return Objects.equals(projectName, other.projectName)
+					&& Objects.equals(address, other.address)
+					&& Objects.equals(erfNumber, other.erfNumber);
+		}
+
+		/**
+		 * Gets the score added for a search whose text appears whole in a column.
+		 *
+		 * @param query The normalised search text.
+		 * @return 2 if a column equals the text, 1 if a column contains it, otherwise 0.
+		 */
+		double bonusFor(String query) {
+			double bonus = 0;
+			for (String column : normalizedColumns) {
+				if (column.equals(query)) {
+					return 2;
+				}
+				if (column.contains(query)) {
+					bonus = 1;
+				}
+			}
+			return bonus;
+		}
+	}
+
+	/**
+	 * The slots of the documents holding one trigram, in ascending order.
+	 */
+	private static final class Postings {
+		int[] slots = new int[4];
+		int size;
+
+		/**
+		 * Appends a slot, which is higher than any already held.
+		 *
+		 * @param slot The slot.
+		 */
+		void add(int slot) {
+			if (size == slots.length) {
+				slots = Arrays.copyOf(slots, size * 2);
+			}
+			slots[size++] = slot;
+		}
+
+		/**
+		 * Tells whether a slot is held, by binary search.
+		 *
+		 * @param slot The slot.
+		 * @return {@code true} if the slot is in the list.
+		 */
+		boolean contains(int slot) {
+			return Arrays.binarySearch(slots, 0, size, slot) >= 0;
+		}
+
+		/**
+		 * Moves every slot to its new number and drops the slots that were freed.
+		 *
+		 * @param newSlots The new number of each slot, or -1 if it was freed.
+		 */
+		void renumber(int[] newSlots) {
+			int kept = 0;
+			for (int i = 0; i < size; i++) {
+				int slot = newSlots[slots[i]];
+				if (slot >= 0) {
+					slots[kept++] = slot;
+				}
+			}
+			size = kept;
+			if (slots.length > 4 && size < slots.length / 4) {
+				slots = Arrays.copyOf(slots, Math.max(4, size * 2));
+			}
+		}
+	}
+}
@@ -0,0 +1,760 @@
+package poised;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The ProjectSnapshot class copies every project, architect, contractor and customer in a
+ * {@link ProjectRepository} to a compact binary snapshot, and restores such a snapshot into
+ * another repository, for example to move a portfolio between environments or to keep a backup.
+ *
+ * <p>
+ * A snapshot is a header followed by blocks of up to {@code poised.snapshot.blockRows} rows (4096
+ * by default) of one kind: all architects, then all contractors, all customers and all projects,
+ * and finally an end block holding the number of rows of each kind. Within a block the rows are
+ * stored column by column. IDs and project numbers are stored as the zig-zag varint difference from
+ * the previous row, dates as varint day numbers, amounts as zig-zag varint cents, and each text
+ * column as a dictionary of the distinct values in the block followed by one varint code per row,
+ * so that repeated values such as building types and participant IDs cost a byte or two.
+ * Everything after the header can be compressed with Deflate.
+ *
+ * <p>
+ * Only one block is held in memory at a time, in both directions. Export reads the repository one
+ * page per block; restore inserts each participant block as a single batch and passes the projects
+ * to {@link ProjectManager#addProjects(Iterable, BulkImportOptions)} as they are decoded.
+ * Participants keep their IDs, so projects still refer to them; restored projects are identified
+ * by their project number and start again at version 0.
+ */
+public class ProjectSnapshot {
+	// Identifies a snapshot file: "PSNP"
+	private static final int MAGIC = 0x50534E50;
+	private static final byte FORMAT_VERSION = 2;
+	// Version 1 stored amounts as raw doubles; it can still be restored
+	private static final byte DOUBLE_AMOUNTS_VERSION = 1;
+	// Header flag set when the blocks are Deflate-compressed
+	private static final byte FLAG_DEFLATE = 1;
+
+	// Block types
+	private static final byte END = 0;
+	private static final byte ARCHITECTS = 1;
+	private static final byte CONTRACTORS = 2;
+	private static final byte CUSTOMERS = 3;
+	private static final byte PROJECTS = 4;
+
+	// Maximum number of rows in one block
+	private static final int BLOCK_ROWS = Integer.getInteger("poised.snapshot.blockRows", 4096);
+	// Size of the buffers between the blocks and the stream
+	private static final int BUFFER_BYTES = 64 * 1024;
+	// Longest string accepted when reading a snapshot, to catch a corrupt length early
+	private static final int MAX_STRING_BYTES = 1 << 20;
+
+	private final ProjectManager projectManager;
+
+	/**
+	 * Reads one page of rows of one kind from the repository.
+	 */
+	@FunctionalInterface
+	private interface PageReader<T> {
+		List<T> read(int after, int limit) throws SQLException;
+	}
+
+	/**
+	 * Writes the columns of one block of rows.
+	 */
+	@FunctionalInterface
+	private interface BlockWriter<T> {
+		void write(DataOutputStream out, List<T> rows) throws IOException;
+	}
+
+	/**
+	 * Builds a participant of one role from its columns.
+	 */
+	@FunctionalInterface
+	private interface ParticipantFactory<T> {
+		T create(int id, String name, String phoneNumber, String email, String physicalAddress);
+	}
+
+	/**
+	 * Constructs a new ProjectSnapshot over the repository of the given manager.
+	 *
+	 * @param projectManager The manager whose repository is exported or restored into.
+	 */
+	public ProjectSnapshot(ProjectManager projectManager) {
+		this.projectManager = projectManager;
+	}
+
+	/**
+	 * Writes a snapshot of the repository. Changes made while the snapshot is written may or may
+	 * not be included; export a repository nobody is writing to for an exact copy.
+	 *
+	 * @param out      The stream to write to. It is flushed but not closed.
+	 * @param compress {@code true} to compress the blocks with Deflate.
+	 * @return The number of rows written, of all kinds.
+	 * @throws IOException  If the snapshot cannot be written.
+	 * @throws SQLException If the repository cannot be read.
+	 */
+	public long export(OutputStream out, boolean compress) throws IOException, SQLException {
+		DataOutputStream header = new DataOutputStream(out);
+		header.writeInt(MAGIC);
+		header.writeByte(FORMAT_VERSION);
+		header.writeByte(compress ? FLAG_DEFLATE : 0);
+		header.flush();
+
+		Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+		try {
+			OutputStream body = compress ? new DeflaterOutputStream(out, deflater, BUFFER_BYTES) : out;
+			DataOutputStream data = new DataOutputStream(new BufferedOutputStream(body, BUFFER_BYTES));
+			ProjectRepository repository = projectManager.getRepository();
+
+			long architects = writeBlocks(data, ARCHITECTS, repository::findArchitects, 0,
+					Architect::getId, (block, rows) -> writeParticipants(block, rows, Architect::getId,
+							Architect::getName, Architect::getPhoneNumber, Architect::getEmail,
+							Architect::getPhysicalAddress));
+			long contractors = writeBlocks(data, CONTRACTORS, repository::findContractors, 0,
+					Contractor::getId, (block, rows) -> writeParticipants(block, rows, Contractor::getId,
+							Contractor::getName, Contractor::getPhoneNumber, Contractor::getEmail,
+							Contractor::getPhysicalAddress));
+			long customers = writeBlocks(data, CUSTOMERS, repository::findCustomers, 0,
+					Customer::getId, (block, rows) -> writeParticipants(block, rows, Customer::getId,
+							Customer::getName, Customer::getPhoneNumber, Customer::getEmail,
+							Customer::getPhysicalAddress));
+			long projects = writeBlocks(data, PROJECTS, repository::findProjects, Integer.MIN_VALUE,
+					Project::getProjectNumber, ProjectSnapshot::writeProjects);
+
+			data.writeByte(END);
+			writeVarLong(data, architects);
+			writeVarLong(data, contractors);
+			writeVarLong(data, customers);
+			writeVarLong(data, projects);
+			data.flush();
+			if (body instanceof DeflaterOutputStream deflating) {
+				deflating.finish();
+			}
+			out.flush();
+			return architects + contractors + customers + projects;
+		} finally {
+			if (deflater != null) {
+				deflater.end();
+			}
+		}
+	}
+
+	/**
+	 * Restores a snapshot into the repository, which should hold none of the snapshot's projects
+	 * or participants. Participants are inserted one block at a time, each block all or nothing;
+	 * projects go through the bulk import, so a project that cannot be inserted is reported in the
+	 * result and does not stop the restore.
+	 *
+	 * <p>
+	 * If the snapshot turns out to be truncated or corrupt, the rows restored before the fault stay
+	 * in the repository.
+	 *
+	 * @param in      The stream to read. It is read to the end block but not closed.
+	 * @param options The batch size, commit interval and insert style used for the projects.
+	 * @return A {@link BulkImportResult} describing which projects were restored and which failed.
+	 * @throws IOException  If the snapshot cannot be read or is not a valid snapshot.
+	 * @throws SQLException If a block of participants cannot be inserted.
+	 */
+	public BulkImportResult restore(InputStream in, BulkImportOptions options)
+			throws IOException, SQLException {
+		DataInputStream header = new DataInputStream(in);
+		if (header.readInt() != MAGIC) {
+			throw new IOException("Not a project snapshot");
+		}
+		byte version = header.readByte();
+		if (version != FORMAT_VERSION && version != DOUBLE_AMOUNTS_VERSION) {
+			throw new IOException("Unsupported snapshot version " + version);
+		}
+		boolean compressed = (header.readByte() & FLAG_DEFLATE) != 0;
+
+		Inflater inflater = compressed ? new Inflater() : null;
+		try {
+			InputStream body = compressed ? new InflaterInputStream(in, inflater, BUFFER_BYTES) : in;
+			return restoreBlocks(new DataInputStream(new BufferedInputStream(body, BUFFER_BYTES)),
+					version, options);
+		} finally {
+			if (inflater != null) {
+				inflater.end();
+			}
+		}
+	}
+
+	/**
+	 * Restores the blocks of a snapshot.
+	 *
+	 * @param data    The stream, positioned after the header.
+	 * @param version The snapshot's format version.
+	 * @param options The batch size, commit interval and insert style used for the projects.
+	 * @return A {@link BulkImportResult} describing which projects were restored and which failed.
+	 * @throws IOException  If the snapshot cannot be read or is not a valid snapshot.
+	 * @throws SQLException If a block of participants cannot be inserted.
+	 */
+	private BulkImportResult restoreBlocks(DataInputStream data, byte version,
+			BulkImportOptions options)
+			throws IOException, SQLException {
+		ProjectRepository repository = projectManager.getRepository();
+		long architects = 0;
+		long contractors = 0;
+		long customers = 0;
+
+		// Participants come first, so that the projects find them
+		byte type;
+		while ((type = data.readByte()) != PROJECTS && type != END) {
+			switch (type) {
+			case ARCHITECTS -> {
+				List<Architect> rows = readParticipants(data, Architect::new);
+				repository.insertArchitects(rows);
+				architects += rows.size();
+			}
+			case CONTRACTORS -> {
+				List<Contractor> rows = readParticipants(data, Contractor::new);
+				repository.insertContractors(rows);
+				contractors += rows.size();
+			}
+			case CUSTOMERS -> {
+				List<Customer> rows = readParticipants(data, Customer::new);
+				repository.insertCustomers(rows);
+				customers += rows.size();
+			}
+			default -> throw new IOException("Unknown snapshot block type " + type);
+			}
+		}
+		projectManager.getArchitectCache().invalidateAll();
+		projectManager.getContractorCache().invalidateAll();
+		projectManager.getCustomerCache().invalidateAll();
+
+		// Projects are decoded one block at a time as the import asks for them
+		ProjectBlocks projects = new ProjectBlocks(data, version, type == PROJECTS);
+		BulkImportResult result;
+		try {
+			result = projectManager.addProjects(() -> projects, options);
+			if (projects.hasNext()) {
+				// The import stopped early; the rest of the snapshot is not needed
+				return result;
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		// The end block says how many rows of each kind the snapshot holds
+		if (readVarLong(data) != architects || readVarLong(data) != contractors
+				|| readVarLong(data) != customers || readVarLong(data) != projects.count) {
+			throw new IOException("Snapshot row counts do not match its end block");
+		}
+		return result;
+	}
+
+	/**
+	 * Exports or restores a snapshot of the repository selected by the {@code poised.storage}
+	 * system property.
+	 *
+	 * @param args {@code export <file> [--compress]} or {@code restore <file>}.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2 || !(args[0].equals("export") || args[0].equals("restore"))) {
+			System.err.println("Usage: ProjectSnapshot export <file> [--compress] | restore <file>");
+			System.exit(2);
+		}
+		Path file = Path.of(args[1]);
+
+		// Try-with-resources to ensure resources are closed automatically
+		try (ProjectRepository repository = ProjectRepository.fromSystemProperties()) {
+			if (repository instanceof JdbcProjectRepository) {
+				new SchemaMigrator().migrate();
+			}
+			ProjectSnapshot snapshot = new ProjectSnapshot(new ProjectManager(repository));
+			long start = System.nanoTime();
+			if (args[0].equals("export")) {
+				boolean compress = args.length > 2 && args[2].equals("--compress");
+				try (OutputStream out = Files.newOutputStream(file)) {
+					long rows = snapshot.export(out, compress);
+					System.out.printf("Exported %d rows to %s (%d bytes) in %.3f s%n", rows, file,
+							Files.size(file), (System.nanoTime() - start) / 1e9);
+				}
+			} else {
+				try (InputStream in = Files.newInputStream(file)) {
+					BulkImportResult result = snapshot.restore(in, BulkImportOptions.defaults());
+					System.out.printf("Restored %s from %s in %.3f s%n", result, file,
+							(System.nanoTime() - start) / 1e9);
+				}
+			}
+		} catch (IOException | SQLException e) {
+			// Print stack trace for debugging
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Reads every row of one kind from the repository a page at a time and writes each page as a
+	 * block.
+	 *
+	 * @param out    The stream to write to.
+	 * @param type   The block type.
+	 * @param pages  Reads one page of rows.
+	 * @param first  The key to read the first page after.
+	 * @param key    Gets the key of a row, to read the next page after.
+	 * @param writer Writes the columns of a block.
+	 * @return The number of rows written.
+	 * @throws IOException  If a block cannot be written.
+	 * @throws SQLException If a page cannot be read.
+	 */
+	private static <T> long writeBlocks(DataOutputStream out, byte type, PageReader<T> pages,
+			int first, Function<T, Integer> key, BlockWriter<T> writer)
+			throws IOException, SQLException {
+		long rows = 0;
+		int after = first;
+		List<T> page;
+		do {
+			page = pages.read(after, BLOCK_ROWS);
+			if (page.isEmpty()) {
+				break;
+			}
+			out.writeByte(type);
+			writeVarLong(out, page.size());
+			writer.write(out, page);
+			rows += page.size();
+			after = key.apply(page.get(page.size() - 1));
+		} while (page.size() == BLOCK_ROWS);
+		return rows;
+	}
+
+	/**
+	 * Writes the columns of a block of participants.
+	 *
+	 * @param out             The stream to write to.
+	 * @param rows            The participants.
+	 * @param id              Gets a participant's ID.
+	 * @param name            Gets a participant's name.
+	 * @param phoneNumber     Gets a participant's phone number.
+	 * @param email           Gets a participant's email address.
+	 * @param physicalAddress Gets a participant's physical address.
+	 * @throws IOException If the block cannot be written.
+	 */
+	private static <T> void writeParticipants(DataOutputStream out, List<T> rows,
+			Function<T, Integer> id, Function<T, String> name, Function<T, String> phoneNumber,
+			Function<T, String> email, Function<T, String> physicalAddress) throws IOException {
+		writeDeltas(out, rows, id);
+		writeStrings(out, rows, name);
+		writeStrings(out, rows, phoneNumber);
+		writeStrings(out, rows, email);
+		writeStrings(out, rows, physicalAddress);
+	}
+
+	/**
+	 * Writes the columns of a block of projects.
+	 *
+	 * @param out  The stream to write to.
+	 * @param rows The projects.
+	 * @throws IOException If the block cannot be written.
+	 */
+	private static void writeProjects(DataOutputStream out, List<Project> rows) throws IOException {
+		writeDeltas(out, rows, Project::getProjectNumber);
+		writeStrings(out, rows, Project::getProjectName);
+		writeStrings(out, rows, Project::getBuildingType);
+		writeStrings(out, rows, Project::getAddress);
+		writeStrings(out, rows, Project::getErfNumber);
+		for (Project project : rows) {
+			writeVarLong(out, zigZag(project.getTotalFeeCents()));
+		}
+		for (Project project : rows) {
+			writeVarLong(out, zigZag(project.getAmountPaidCents()));
+		}
+		for (Project project : rows) {
+			writeNullable(out, epochDay(project.getDeadline()));
+		}
+		for (Project project : rows) {
+			writeNullable(out, epochDay(project.getCompletionDate()));
+		}
+		for (Project project : rows) {
+			writeNullable(out, project.getArchitect() != null ? (long) project.getArchitect().getId() : null);
+		}
+		for (Project project : rows) {
+			writeNullable(out,
+					project.getContractor() != null ? (long) project.getContractor().getId() : null);
+		}
+		for (Project project : rows) {
+			writeNullable(out, project.getCustomer() != null ? (long) project.getCustomer().getId() : null);
+		}
+	}
+
+	/**
+	 * Reads the columns of a block of participants.
+	 *
+	 * @param in      The stream, positioned after the block type.
+	 * @param factory Builds a participant.
+	 * @return The participants in the block.
+	 * @throws IOException If the block cannot be read.
+	 */
+	private static <T> List<T> readParticipants(DataInputStream in, ParticipantFactory<T> factory)
+			throws IOException {
+		int size = readBlockSize(in);
+		int[] ids = readDeltas(in, size);
+		String[] names = readStrings(in, size);
+		String[] phoneNumbers = readStrings(in, size);
+		String[] emails = readStrings(in, size);
+		String[] physicalAddresses = readStrings(in, size);
+
+		List<T> rows = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			rows.add(factory.create(ids[i], names[i], phoneNumbers[i], emails[i], physicalAddresses[i]));
+		}
+		return rows;
+	}
+
+	/**
+	 * Reads the columns of a block of projects. The projects' participants carry only their IDs.
+	 *
+	 * @param in      The stream, positioned after the block type.
+	 * @param version The snapshot's format version.
+	 * @return The projects in the block.
+	 * @throws IOException If the block cannot be read.
+	 */
+	private static List<Project> readProjects(DataInputStream in, byte version) throws IOException {
+		int size = readBlockSize(in);
+		int[] numbers = readDeltas(in, size);
+		String[] names = readStrings(in, size);
+		String[] buildingTypes = readStrings(in, size);
+		String[] addresses = readStrings(in, size);
+		String[] erfNumbers = readStrings(in, size);
+		long[] totalFees = readAmounts(in, size, version);
+		long[] amountsPaid = readAmounts(in, size, version);
+		Long[] deadlines = readNullables(in, size);
+		Long[] completionDates = readNullables(in, size);
+		Long[] architectIds = readNullables(in, size);
+		Long[] contractorIds = readNullables(in, size);
+		Long[] customerIds = readNullables(in, size);
+
+		List<Project> rows = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			rows.add(new Project(0, numbers[i], names[i], buildingTypes[i], addresses[i],
+					erfNumbers[i], totalFees[i], amountsPaid[i], toDate(deadlines[i]),
+					toDate(completionDates[i]),
+					architectIds[i] != null
+							? new Architect(architectIds[i].intValue(), null, null, null, null)
+							: null,
+					contractorIds[i] != null
+							? new Contractor(contractorIds[i].intValue(), null, null, null, null)
+							: null,
+					customerIds[i] != null
+							? new Customer(customerIds[i].intValue(), null, null, null, null)
+							: null));
+		}
+		return rows;
+	}
+
+	/**
+	 * Decodes the project blocks of a snapshot one block at a time as they are iterated, stopping
+	 * at the end block. Read failures are thrown as {@link UncheckedIOException}.
+	 */
+	private static final class ProjectBlocks implements Iterator<Project> {
+		private final DataInputStream in;
+		private final byte version;
+		private List<Project> block = List.of();
+		private int next;
+		private boolean atBlock;
+		private boolean ended;
+		private long count;
+
+		/**
+		 * Constructs a new ProjectBlocks.
+		 *
+		 * @param in      The stream, positioned after a block type.
+		 * @param version The snapshot's format version.
+		 * @param atBlock {@code true} if that block type was a project block, {@code false} if it
+		 *                was the end block.
+		 */
+		ProjectBlocks(DataInputStream in, byte version, boolean atBlock) {
+			this.in = in;
+			this.version = version;
+			this.atBlock = atBlock;
+			this.ended = !atBlock;
+		}
+
+		@Override
+		public boolean hasNext() {
+			try {
+				while (next == block.size() && !ended) {
+					if (!atBlock) {
+						byte type = in.readByte();
+						if (type == END) {
+							ended = true;
+							break;
+						}
+						if (type != PROJECTS) {
+							throw new IOException("Unexpected snapshot block type " + type);
+						}
+					}
+					atBlock = false;
+					block = readProjects(in, version);
+					next = 0;
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return next < block.size();
+		}
+
+		@Override
+		public Project next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			count++;
+			return block.get(next++);
+		}
+	}
+
+	/**
+	 * Writes a column of ints as the zig-zag varint difference of each value from the one before.
+	 *
+	 * @param out   The stream to write to.
+	 * @param rows  The rows.
+	 * @param value Gets the value of a row.
+	 * @throws IOException If the column cannot be written.
+	 */
+	private static <T> void writeDeltas(DataOutputStream out, List<T> rows, Function<T, Integer> value)
+			throws IOException {
+		long previous = 0;
+		for (T row : rows) {
+			long current = value.apply(row);
+			writeVarLong(out, zigZag(current - previous));
+			previous = current;
+		}
+	}
+
+	/**
+	 * Reads a column written by {@link #writeDeltas}.
+	 *
+	 * @param in   The stream to read.
+	 * @param size The number of rows.
+	 * @return The values.
+	 * @throws IOException If the column cannot be read.
+	 */
+	private static int[] readDeltas(DataInputStream in, int size) throws IOException {
+		int[] values = new int[size];
+		long previous = 0;
+		for (int i = 0; i < size; i++) {
+			previous += unZigZag(readVarLong(in));
+			values[i] = (int) previous;
+		}
+		return values;
+	}
+
+	/**
+	 * Writes a column of strings as a dictionary of its distinct values followed by the code of
+	 * each row's value: 0 for {@code null}, or the value's position in the dictionary plus one.
+	 *
+	 * @param out   The stream to write to.
+	 * @param rows  The rows.
+	 * @param value Gets the value of a row.
+	 * @throws IOException If the column cannot be written.
+	 */
+	private static <T> void writeStrings(DataOutputStream out, List<T> rows, Function<T, String> value)
+			throws IOException {
+		Map<String, Integer> dictionary = new LinkedHashMap<>();
+		int[] codes = new int[rows.size()];
+		for (int i = 0; i < codes.length; i++) {
+			String string = value.apply(rows.get(i));
+			codes[i] = string == null ? 0 : dictionary.computeIfAbsent(string, s -> dictionary.size() + 1);
+		}
+
+		writeVarLong(out, dictionary.size());
+		for (String string : dictionary.keySet()) {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			writeVarLong(out, bytes.length);
+			out.write(bytes);
+		}
+		for (int code : codes) {
+			writeVarLong(out, code);
+		}
+	}
+
+	/**
+	 * Reads a column written by {@link #writeStrings}.
+	 *
+	 * @param in   The stream to read.
+	 * @param size The number of rows.
+	 * @return The values.
+	 * @throws IOException If the column cannot be read.
+	 */
+	private static String[] readStrings(DataInputStream in, int size) throws IOException {
+		int entries = readCount(in, size);
+		String[] dictionary = new String[entries + 1];
+		for (int i = 1; i <= entries; i++) {
+			byte[] bytes = new byte[readCount(in, MAX_STRING_BYTES)];
+			in.readFully(bytes);
+			dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		String[] values = new String[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = dictionary[readCount(in, entries)];
+		}
+		return values;
+	}
+
+	/**
+	 * Writes a value that may be {@code null}: 0 for {@code null}, otherwise the zig-zag form of
+	 * the value plus one.
+	 *
+	 * @param out   The stream to write to.
+	 * @param value The value, or {@code null}.
+	 * @throws IOException If the value cannot be written.
+	 */
+	private static void writeNullable(DataOutputStream out, Long value) throws IOException {
+		writeVarLong(out, value == null ? 0 : zigZag(value) + 1);
+	}
+
+	/**
+	 * Reads a column of values written by {@link #writeNullable}.
+	 *
+	 * @param in   The stream to read.
+	 * @param size The number of rows.
+	 * @return The values.
+	 * @throws IOException If the column cannot be read.
+	 */
+	private static Long[] readNullables(DataInputStream in, int size) throws IOException {
+		Long[] values = new Long[size];
+		for (int i = 0; i < size; i++) {
+			long encoded = readVarLong(in);
+			values[i] = encoded == 0 ? null : unZigZag(encoded - 1);
+		}
+		return values;
+	}
+
+	/**
+	 * Reads a column of amounts: zig-zag varint cents, or raw doubles in version 1 snapshots.
+	 *
+	 * @param in      The stream to read.
+	 * @param size    The number of rows.
+	 * @param version The snapshot's format version.
+	 * @return The amounts in cents.
+	 * @throws IOException If the column cannot be read.
+	 */
+	private static long[] readAmounts(DataInputStream in, int size, byte version) throws IOException {
+		long[] values = new long[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = version == DOUBLE_AMOUNTS_VERSION ? Money.fromDouble(in.readDouble())
+					: unZigZag(readVarLong(in));
+		}
+		return values;
+	}
+
+	/**
+	 * Reads the row count at the start of a block.
+	 *
+	 * @param in The stream to read.
+	 * @return The number of rows in the block.
+	 * @throws IOException If the count cannot be read or is out of range.
+	 */
+	private static int readBlockSize(DataInputStream in) throws IOException {
+		return readCount(in, Math.max(BLOCK_ROWS, 65_536));
+	}
+
+	/**
+	 * Reads a varint that must lie between 0 and a maximum.
+	 *
+	 * @param in  The stream to read.
+	 * @param max The largest valid value.
+	 * @return The value.
+	 * @throws IOException If the value cannot be read or is out of range.
+	 */
+	private static int readCount(DataInputStream in, int max) throws IOException {
+		long value = readVarLong(in);
+		if (value < 0 || value > max) {
+			throw new IOException("Corrupt snapshot: " + value + " is out of range");
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Writes an unsigned value seven bits at a time, lowest bits first.
+	 *
+	 * @param out   The stream to write to.
+	 * @param value The value.
+	 * @throws IOException If the value cannot be written.
+	 */
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	/**
+	 * Reads a value written by {@link #writeVarLong}.
+	 *
+	 * @param in The stream to read.
+	 * @return The value.
+	 * @throws IOException If the value cannot be read or is too long.
+	 */
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Corrupt snapshot: varint is too long");
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Converts a date to its day number, counted from 1970-01-01 in the local time zone.
+	 *
+	 * @param date The date, or {@code null}.
+	 * @return The day number, or {@code null}.
+	 */
+	private static Long epochDay(Date date) {
+		if (date == null) {
+			return null;
+		}
+		LocalDate day = date instanceof java.sql.Date sqlDate ? sqlDate.toLocalDate()
+				: new java.sql.Date(date.getTime()).toLocalDate();
+		return day.toEpochDay();
+	}
+
+	/**
+	 * Converts a day number back to a date.
+	 *
+	 * @param epochDay The day number, or {@code null}.
+	 * @return The date, or {@code null}.
+	 */
+	private static java.sql.Date toDate(Long epochDay) {
+		return epochDay != null ? java.sql.Date.valueOf(LocalDate.ofEpochDay(epochDay)) : null;
+	}
+}
@@ -0,0 +1,79 @@
+package poised;
+
+import java.util.Date;
+
+/**
+ * The ProjectSummary class is a lightweight, read-only row used by the project reports. It holds
+ * only the columns the reports display, so listing many projects does not load their fees,
+ * participants or other details.
+ */
+public class ProjectSummary {
+	private final int projectNumber;
+	private final String projectName;
+	private final String buildingType;
+	private final String address;
+	private final Date deadline;
+
+	/**
+	 * Constructs a new ProjectSummary object with the provided details.
+	 *
+	 * @param projectNumber The number assigned to the project.
+	 * @param projectName   The name of the project.
+	 * @param buildingType  The type of building for the project.
+	 * @param address       The physical address of the project.
+	 * @param deadline      The deadline for the project's completion.
+	 */
+	public ProjectSummary(int projectNumber, String projectName, String buildingType, String address,
+			Date deadline) {
+		this.projectNumber = projectNumber;
+		this.projectName = projectName;
+		this.buildingType = buildingType;
+		this.address = address;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Gets the project number.
+	 *
+	 * @return The project number.
+	 */
+	public int getProjectNumber() {
+		return projectNumber;
+	}
+
+	/**
+	 * Gets the project name.
+	 *
+	 * @return The project name.
+	 */
+	public String getProjectName() {
+		return projectName;
+	}
+
+	/**
+	 * Gets the building type.
+	 *
+	 * @return The building type.
+	 */
+	public String getBuildingType() {
+		return buildingType;
+	}
+
+	/**
+	 * Gets the project address.
+	 *
+	 * @return The project address.
+	 */
+	public String getAddress() {
+		return address;
+	}
+
+	/**
+	 * Gets the deadline for the project.
+	 *
+	 * @return The deadline.
+	 */
+	public Date getDeadline() {
+		return deadline;
+	}
+}
@@ -0,0 +1,260 @@
+package poised;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The QueryPlanVerifier class checks that every query issued by {@link JdbcProjectRepository} is answered
+ * from an index. It runs {@code EXPLAIN} on each query with sample parameters and reports any table
+ * the database would read with a full scan, so that a missing or unusable index is caught before it
+ * reaches production.
+ *
+ * <p>
+ * MySQL and H2 plans are understood. On MySQL an access type of {@code ALL} (full table scan) or
+ * {@code index} (full index scan) is a violation; on H2 a {@code tableScan} is. The MySQL optimizer
+ * may prefer a full scan on nearly empty tables, so the check should run against a database holding
+ * a realistic amount of data, for example one seeded by {@code ProjectManagerBenchmark} in the
+ * {@code benchmarks} module.
+ *
+ * <p>
+ * The fee totals are left out: they read every project by design.
+ */
+public class QueryPlanVerifier {
+	// Every JdbcProjectRepository query apart from the fee totals, with sample parameters for EXPLAIN.
+	// Lookups by many keys are checked at their widest IN (...) list, and by number also at one key.
+	private static final List<CheckedQuery> QUERIES = List.of(
+			new CheckedQuery("findProjectByNumber", JdbcProjectRepository.FIND_PROJECT_BY_NUMBER_SQL,
+					stmt -> stmt.setInt(1, 1)),
+			byNumbers(1),
+			byNumbers(JdbcProjectRepository.IN_LIST_CHUNK_SIZE),
+			new CheckedQuery("findProjectByName", JdbcProjectRepository.FIND_PROJECT_BY_NAME_SQL,
+					stmt -> stmt.setString(1, "Project 1")),
+			new CheckedQuery("findIncompleteProjects", JdbcProjectRepository.INCOMPLETE_PAGE_SQL, stmt -> {
+				stmt.setInt(1, Integer.MIN_VALUE);
+				stmt.setInt(2, 500);
+			}),
+			new CheckedQuery("findOverdueProjects", JdbcProjectRepository.OVERDUE_PAGE_SQL, stmt -> {
+				stmt.setDate(1, java.sql.Date.valueOf("1000-01-01"));
+				stmt.setDate(2, java.sql.Date.valueOf("1000-01-01"));
+				stmt.setInt(3, Integer.MIN_VALUE);
+				stmt.setInt(4, 500);
+			}),
+			new CheckedQuery("updateProject", JdbcProjectRepository.UPDATE_PROJECT_SQL, stmt -> {
+				stmt.setString(1, "Project 1");
+				stmt.setString(2, "House");
+				stmt.setString(3, "1 Main St");
+				stmt.setString(4, "ERF1");
+				stmt.setBigDecimal(5, Money.toBigDecimal(0));
+				stmt.setBigDecimal(6, Money.toBigDecimal(0));
+				stmt.setDate(7, java.sql.Date.valueOf("2030-01-01"));
+				stmt.setDate(8, null);
+				stmt.setInt(9, 1);
+				stmt.setInt(10, 1);
+				stmt.setInt(11, 1);
+				stmt.setInt(12, 1);
+				stmt.setInt(13, 0);
+			}),
+			new CheckedQuery("finalizeProject", JdbcProjectRepository.FINALIZE_PROJECT_SQL, stmt -> {
+				stmt.setDate(1, java.sql.Date.valueOf("2030-01-01"));
+				stmt.setInt(2, 1);
+			}),
+			new CheckedQuery("finalizeProject (versioned)", JdbcProjectRepository.FINALIZE_PROJECT_VERSIONED_SQL,
+					stmt -> {
+						stmt.setDate(1, java.sql.Date.valueOf("2030-01-01"));
+						stmt.setInt(2, 1);
+						stmt.setInt(3, 0);
+					}),
+			new CheckedQuery("readProjectVersion", JdbcProjectRepository.PROJECT_VERSION_SQL,
+					stmt -> stmt.setInt(1, 1)),
+			new CheckedQuery("deleteProject", JdbcProjectRepository.DELETE_PROJECT_SQL,
+					stmt -> stmt.setInt(1, 1)),
+			new CheckedQuery("findArchitectById", JdbcProjectRepository.FIND_ARCHITECT_SQL,
+					stmt -> stmt.setInt(1, 1)),
+			new CheckedQuery("findContractorById", JdbcProjectRepository.FIND_CONTRACTOR_SQL,
+					stmt -> stmt.setInt(1, 1)),
+			new CheckedQuery("findCustomerById", JdbcProjectRepository.FIND_CUSTOMER_SQL,
+					stmt -> stmt.setInt(1, 1)),
+			byIds("findArchitectsByIds", "Architects", "architect_id"),
+			byIds("findContractorsByIds", "Contractors", "contractor_id"),
+			byIds("findCustomersByIds", "Customers", "customer_id"),
+			new CheckedQuery("forEachProjectUpdatedSince", JdbcProjectRepository.PROJECTS_UPDATED_PAGE_SQL,
+					stmt -> {
+						stmt.setTimestamp(1, java.sql.Timestamp.valueOf("2030-01-01 00:00:00"));
+						stmt.setTimestamp(2, java.sql.Timestamp.valueOf("2030-01-01 00:00:00"));
+						stmt.setInt(3, Integer.MIN_VALUE);
+						stmt.setInt(4, 500);
+					}),
+			byParticipant(ParticipantRole.ARCHITECT, false),
+			byParticipant(ParticipantRole.ARCHITECT, true),
+			byParticipant(ParticipantRole.CONTRACTOR, false),
+			byParticipant(ParticipantRole.CONTRACTOR, true),
+			byParticipant(ParticipantRole.CUSTOMER, false),
+			byParticipant(ParticipantRole.CUSTOMER, true),
+			new CheckedQuery("findProjects", JdbcProjectRepository.PROJECT_PAGE_SQL, stmt -> {
+				stmt.setInt(1, Integer.MIN_VALUE);
+				stmt.setInt(2, 4096);
+			}),
+			new CheckedQuery("findArchitects", JdbcProjectRepository.ARCHITECT_PAGE_SQL, stmt -> {
+				stmt.setInt(1, 0);
+				stmt.setInt(2, 4096);
+			}),
+			new CheckedQuery("findContractors", JdbcProjectRepository.CONTRACTOR_PAGE_SQL, stmt -> {
+				stmt.setInt(1, 0);
+				stmt.setInt(2, 4096);
+			}),
+			new CheckedQuery("findCustomers", JdbcProjectRepository.CUSTOMER_PAGE_SQL, stmt -> {
+				stmt.setInt(1, 0);
+				stmt.setInt(2, 4096);
+			}));
+
+	/**
+	 * Applies any pending schema migrations, verifies every query plan and exits with status 1 if
+	 * any query would use a full scan.
+	 *
+	 * @param args Command-line arguments (not used).
+	 * @throws SQLException If the migrations or the verification cannot run.
+	 */
+	public static void main(String[] args) throws SQLException {
+		new SchemaMigrator().migrate();
+		List<String> violations = new QueryPlanVerifier().verify();
+		DatabaseConnection.shutdown();
+
+		if (violations.isEmpty()) {
+			System.out.println("All " + QUERIES.size() + " queries are answered from indexes.");
+			return;
+		}
+		for (String violation : violations) {
+			System.out.println(violation);
+		}
+		System.exit(1);
+	}
+
+	/**
+	 * Runs {@code EXPLAIN} on every {@link JdbcProjectRepository} query.
+	 *
+	 * @return A description of every full scan found, or an empty list if there are none.
+	 * @throws SQLException If a plan cannot be read, or the database is neither MySQL nor H2.
+	 */
+	public List<String> verify() throws SQLException {
+		List<String> violations = new ArrayList<>();
+
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = DatabaseConnection.getConnection()) {
+			String product = conn.getMetaData().getDatabaseProductName();
+			boolean mysql = product.equalsIgnoreCase("MySQL") || product.equalsIgnoreCase("MariaDB");
+			if (!mysql && !product.equalsIgnoreCase("H2")) {
+				throw new SQLException("Query plans cannot be verified on " + product);
+			}
+
+			for (CheckedQuery query : QUERIES) {
+				try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + query.sql)) {
+					query.binder.bind(stmt);
+					try (ResultSet rs = stmt.executeQuery()) {
+						while (rs.next()) {
+							if (mysql) {
+								// One row per table; the access type tells how the table is read
+								String type = rs.getString("type");
+								if ("ALL".equalsIgnoreCase(type)) {
+									violations.add(query.name + ": full table scan of " + rs.getString("table"));
+								} else if ("index".equalsIgnoreCase(type)) {
+									violations.add(query.name + ": full index scan of " + rs.getString("table"));
+								}
+							} else {
+								// A single row holding the plan as annotated SQL
+								String plan = rs.getString(1);
+								if (plan.contains("tableScan")) {
+									violations.add(
+											query.name + ": table scan in plan " + plan.replaceAll("\\s+", " "));
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		return violations;
+	}
+
+	/**
+	 * Builds the check of the query that reads one page of a participant's projects.
+	 *
+	 * @param role     The role the participant plays on the projects.
+	 * @param openOnly {@code true} for the query that leaves out finalised projects.
+	 * @return The check, with sample parameters.
+	 */
+	private static CheckedQuery byParticipant(ParticipantRole role, boolean openOnly) {
+		return new CheckedQuery(
+				"findProjectsByParticipant (" + role.getTitle() + (openOnly ? ", open" : "") + ")",
+				JdbcProjectRepository.projectsByParticipantSql(role, openOnly), stmt -> {
+					stmt.setInt(1, 1);
+					stmt.setInt(2, Integer.MIN_VALUE);
+					stmt.setInt(3, 500);
+				});
+	}
+
+	/**
+	 * Builds the check of one chunk of a lookup of projects by number.
+	 *
+	 * @param size The number of project numbers in the chunk.
+	 * @return The check, with sample parameters.
+	 */
+	private static CheckedQuery byNumbers(int size) {
+		return new CheckedQuery("findProjectsByNumbers (" + size + ")",
+				JdbcProjectRepository.projectsByNumbersSql(size), stmt -> bindSampleIds(stmt, size));
+	}
+
+	/**
+	 * Builds the check of a full chunk of a lookup of participants by ID, the widest
+	 * {@code IN (...)} list the repository sends.
+	 *
+	 * @param name     The name of the lookup.
+	 * @param table    The participant table.
+	 * @param idColumn The participant table's ID column.
+	 * @return The check, with sample parameters.
+	 */
+	private static CheckedQuery byIds(String name, String table, String idColumn) {
+		return new CheckedQuery(name, JdbcProjectRepository.participantsByIdsSql(table, idColumn,
+				JdbcProjectRepository.IN_LIST_CHUNK_SIZE),
+				stmt -> bindSampleIds(stmt, JdbcProjectRepository.IN_LIST_CHUNK_SIZE));
+	}
+
+	/**
+	 * Binds the IDs 1, 2, 3 and so on to the parameters of an {@code IN (...)} query.
+	 *
+	 * @param stmt  The statement to bind.
+	 * @param count The number of parameters.
+	 * @throws SQLException If a parameter cannot be set.
+	 */
+	private static void bindSampleIds(PreparedStatement stmt, int count) throws SQLException {
+		for (int i = 1; i <= count; i++) {
+			stmt.setInt(i, i);
+		}
+	}
+
+	/**
+	 * Sets the sample parameters of a query.
+	 */
+	@FunctionalInterface
+	private interface ParameterBinder {
+		void bind(PreparedStatement stmt) throws SQLException;
+	}
+
+	/**
+	 * A query to verify, with its name and sample parameters.
+	 */
+	private static final class CheckedQuery {
+		private final String name;
+		private final String sql;
+		private final ParameterBinder binder;
+
+		CheckedQuery(String name, String sql, ParameterBinder binder) {
+			this.name = name;
+			this.sql = sql;
+			this.binder = binder;
+		}
+	}
+}
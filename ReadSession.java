@@ -0,0 +1,121 @@
+package poised;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ReadSession class follows the writes one caller has made, so that the caller's reads from read
+ * replicas see them while other callers' reads are not held back. After each write through a
+ * {@link JdbcProjectRepository}, the session notes the primary's position: the heartbeat the replica
+ * health check last wrote there, read back from the database once the write has committed. The
+ * session's reads then only go to replicas that show a later heartbeat, and otherwise to the primary.
+ * Positions are counted by the database, so clocks that differ between processes do not matter.
+ *
+ * <p>
+ * Each thread has a session of its own, {@link #current()}. A caller whose work moves between
+ * threads binds its session on the thread doing the work with {@link #bind()}, as
+ * {@link AsyncProjectManager} does; a client of {@link ApiServer} carries its position from one
+ * request to the next in the {@code Poised-Read-After} header.
+ */
+public final class ReadSession {
+	private static final ThreadLocal<ReadSession> CURRENT = ThreadLocal.withInitial(ReadSession::new);
+
+	// The newest primary position this session has written at; Long.MIN_VALUE before its first write
+	private final AtomicLong position;
+	// The System.nanoTime() until which this session reads from the primary, as asked by readYourWrites
+	private final AtomicLong primaryUntil = new AtomicLong(System.nanoTime());
+
+	/**
+	 * Constructs a new ReadSession that has not written anything.
+	 */
+	public ReadSession() {
+		this(Long.MIN_VALUE);
+	}
+
+	/**
+	 * Constructs a new ReadSession that carries on from a position another session reached, for
+	 * example in an earlier request from the same client.
+	 *
+	 * @param position The position, as given by {@link #getPosition()}.
+	 */
+	public ReadSession(long position) {
+		this.position = new AtomicLong(position);
+	}
+
+	/**
+	 * Returns the session the current thread reads and writes in.
+	 *
+	 * @return The session bound to the current thread, or the thread's own session if none is.
+	 */
+	public static ReadSession current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Makes this the current thread's session until the returned scope is closed, when the session
+	 * that was current before is restored.
+	 *
+	 * @return The scope, which the caller must close on the same thread.
+	 */
+	public Scope bind() {
+		ReadSession previous = CURRENT.get();
+		CURRENT.set(this);
+		return () -> CURRENT.set(previous);
+	}
+
+	/**
+	 * Gets the newest primary position this session has written at. Its reads only go to replicas
+	 * that show a later heartbeat.
+	 *
+	 * @return The position, or {@link Long#MIN_VALUE} if the session has not written anything.
+	 */
+	public long getPosition() {
+		return position.get();
+	}
+
+	/**
+	 * Notes that this session wrote at a position. An older position than one already noted has no
+	 * effect.
+	 *
+	 * @param written The primary's position, read after the write committed.
+	 */
+	void wroteAt(long written) {
+		position.accumulateAndGet(written, Math::max);
+	}
+
+	/**
+	 * Sends this session's reads to the primary for a while. A shorter period than one already asked
+	 * for has no effect.
+	 *
+	 * @param millis How long, in milliseconds, reads go to the primary.
+	 */
+	void readFromPrimary(long millis) {
+		if (millis <= 0) {
+			return;
+		}
+		long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+		primaryUntil.accumulateAndGet(until, (current, next) -> next - current > 0 ? next : current);
+	}
+
+	/**
+	 * Tells whether this session's reads must go to the primary, as asked by
+	 * {@link #readFromPrimary(long)}.
+	 *
+	 * @return {@code true} within a read-from-primary period.
+	 */
+	boolean readsFromPrimary() {
+		return primaryUntil.get() - System.nanoTime() > 0;
+	}
+
+	/**
+	 * The time a session is bound to a thread, closed to restore the session bound before.
+	 */
+	@FunctionalInterface
+	public interface Scope extends AutoCloseable {
+		/**
+		 * Restores the session that was current before.
+		 */
+		@Override
+		void close();
+	}
+}
@@ -0,0 +1,29 @@
+package poised;
+
+/**
+ * The ReplicaHealthListener interface is notified by {@link DatabaseConnection} when a read replica
+ * is taken out of the rotation or put back into it.
+ *
+ * <p>
+ * Notifications are delivered on the thread that found the change: the health check's own thread,
+ * or a reader that failed to get a connection from the replica. A listener should therefore return
+ * quickly and must not read from the database itself.
+ */
+public interface ReplicaHealthListener {
+
+	/**
+	 * Called when a replica is taken out of the rotation. Its reads go to the other replicas, or to
+	 * the primary if none is left.
+	 *
+	 * @param url    The JDBC URL of the replica.
+	 * @param reason Why the replica was taken out.
+	 */
+	void replicaUnavailable(String url, String reason);
+
+	/**
+	 * Called when a replica that was out of the rotation answers the health check again.
+	 *
+	 * @param url The JDBC URL of the replica.
+	 */
+	void replicaAvailable(String url);
+}
@@ -0,0 +1,311 @@
+package poised;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The ReplicaSet class spreads reads over read-only copies of the database. Each replica has its
+ * own {@link ConnectionPool}, and connections are handed out from the replicas in turn.
+ *
+ * <p>
+ * A replica that cannot give a connection is taken out of the rotation at once, and the reads it
+ * would have served go to the next replica. A background check validates every replica at a fixed
+ * interval, taking out those that stop answering and putting back those that answer again. When no
+ * replica is healthy, {@link #borrow(long)} returns {@code null} and the caller reads from the primary.
+ *
+ * <p>
+ * Before each check the primary's {@code ReplicaHeartbeat} row is counted on by one, and the
+ * check notes the newest heartbeat each replica's copy of the row shows. The count is kept by the
+ * database, so it only goes forward however many processes check and whatever their clocks say. A
+ * replica that shows a heartbeat has every write that committed on the primary before the heartbeat
+ * was written, so {@link #borrow(long)} can pick only replicas that are past the position read from
+ * the primary after a given write. The check also takes out replicas whose copy is missing a
+ * heartbeat this process wrote more than the maximum lag ago, timed by {@link System#nanoTime()},
+ * until they catch up. Heartbeats are only written every check, so positions and lag are known to
+ * within the check interval. Each change is reported to a {@link ReplicaHealthListener}, and each check of a replica
+ * is recorded by {@link Metrics} as the {@code replicaHealthCheck} operation, failed if the replica
+ * is taken out.
+ */
+final class ReplicaSet implements AutoCloseable {
+	// Timeout, in seconds, for the health check to borrow a connection and for Connection.isValid
+	private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 2;
+
+	// Time taken to check each replica
+	private static final OperationMetrics HEALTH_CHECK = Metrics.operation("replicaHealthCheck");
+	// Time taken to write the heartbeat on the primary and read it back
+	private static final OperationMetrics HEARTBEAT = Metrics.operation("replicaHeartbeat");
+
+	private final List<Replica> replicas;
+	private final AtomicInteger next = new AtomicInteger();
+	private final ReplicaHealthListener listener;
+	private final long maxLagMillis;
+	// The System.nanoTime() when each heartbeat this process wrote to the primary was written, oldest
+	// first; only used by the health check thread
+	private final NavigableMap<Long, Long> heartbeats = new TreeMap<>();
+	private final ScheduledExecutorService healthCheck;
+
+	/**
+	 * Constructs a new ReplicaSet and starts checking the replicas' health.
+	 *
+	 * @param urls              The JDBC URL of each replica.
+	 * @param poolFactory       Creates the connection pool for a replica's URL.
+	 * @param healthCheckMillis How often every replica is checked.
+	 * @param maxLagMillis      How far, in milliseconds, a replica may fall behind the primary
+	 *                          before it is taken out, or 0 not to check the lag.
+	 * @param listener          Told when a replica is taken out of the rotation or put back.
+	 */
+	ReplicaSet(List<String> urls, Function<String, ConnectionPool> poolFactory,
+			long healthCheckMillis, long maxLagMillis, ReplicaHealthListener listener) {
+		if (urls.isEmpty()) {
+			throw new IllegalArgumentException("At least one replica is needed");
+		}
+		List<Replica> created = new ArrayList<>(urls.size());
+		for (String url : urls) {
+			created.add(new Replica(url, poolFactory.apply(url)));
+		}
+		this.replicas = List.copyOf(created);
+		this.maxLagMillis = maxLagMillis;
+		this.listener = listener;
+
+		// Check on a single daemon thread so that it never keeps the JVM alive
+		this.healthCheck = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "poised-replica-health");
+			thread.setDaemon(true);
+			return thread;
+		});
+		healthCheck.scheduleWithFixedDelay(this::checkHealth, healthCheckMillis, healthCheckMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Borrows a connection from the next healthy replica that is past the given primary position,
+	 * without waiting. A replica whose connections are all in use is
+	 * passed over at once, and one that fails to give a connection is also marked unhealthy; either
+	 * way the one after it is tried.
+	 *
+	 * @param position The primary's position read after the writes the caller must see, or
+	 *                 {@link Long#MIN_VALUE} if it need not see any.
+	 * @return A pooled connection to a replica, which the caller must close, or {@code null} if no
+	 *         replica is healthy, free and far enough along.
+	 */
+	Connection borrow(long position) {
+		int count = replicas.size();
+		int first = Math.floorMod(next.getAndIncrement(), count);
+		for (int i = 0; i < count; i++) {
+			Replica replica = replicas.get((first + i) % count);
+			// Showing the position itself is not enough: that heartbeat was written before the write
+			if (!replica.healthy || replica.heartbeat <= position) {
+				continue;
+			}
+			try {
+				return replica.pool.borrow(0);
+			} catch (SQLTimeoutException e) {
+				// Every connection to the replica is in use, which does not make it unhealthy
+			} catch (SQLException e) {
+				markUnhealthy(replica, e.getMessage());
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the number of replicas currently in the rotation.
+	 *
+	 * @return The number of healthy replicas.
+	 */
+	int getHealthyCount() {
+		int healthy = 0;
+		for (Replica replica : replicas) {
+			if (replica.healthy) {
+				healthy++;
+			}
+		}
+		return healthy;
+	}
+
+	/**
+	 * Tells whether any healthy replica is past the given primary position, so that
+	 * {@link #borrow(long)} could give a connection for it if the replica has one free.
+	 *
+	 * @param position The primary's position read after the writes to be seen.
+	 * @return {@code true} if a healthy replica shows a later heartbeat.
+	 */
+	boolean hasReached(long position) {
+		for (Replica replica : replicas) {
+			if (replica.healthy && replica.heartbeat > position) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Validates a connection from every replica, notes the newest heartbeat each shows and how far
+	 * it lags behind the primary, and updates whether it is in the rotation. Neither is read if the
+	 * heartbeat cannot be written to the primary.
+	 */
+	void checkHealth() {
+		boolean beat = writeHeartbeat();
+		for (Replica replica : replicas) {
+			long start = HEALTH_CHECK.start();
+			// Try-with-resources to ensure resources are closed automatically
+			try (Connection conn = replica.pool
+					.borrow(TimeUnit.SECONDS.toMillis(HEALTH_CHECK_TIMEOUT_SECONDS))) {
+				if (!conn.isValid(HEALTH_CHECK_TIMEOUT_SECONDS)) {
+					HEALTH_CHECK.failed(start);
+					markUnhealthy(replica, "the connection is no longer valid");
+					continue;
+				}
+				long lagMillis = 0;
+				if (beat) {
+					long seen = readHeartbeat(conn);
+					replica.heartbeat = Math.max(replica.heartbeat, seen);
+					lagMillis = maxLagMillis > 0 ? lag(seen) : 0;
+				}
+				if (lagMillis > maxLagMillis) {
+					HEALTH_CHECK.failed(start);
+					markUnhealthy(replica, "it is at least " + lagMillis + " ms behind the primary");
+				} else {
+					HEALTH_CHECK.succeeded(start, beat ? 1 : 0, 0);
+					markHealthy(replica);
+				}
+			} catch (SQLTimeoutException e) {
+				// Busy rather than down; the next check tries again
+			} catch (SQLException e) {
+				HEALTH_CHECK.failed(start);
+				markUnhealthy(replica, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Counts the primary's heartbeat row on by one, notes when, and forgets the heartbeats no longer
+	 * needed to measure the maximum lag.
+	 *
+	 * @return {@code true} if the heartbeat was written.
+	 */
+	private boolean writeHeartbeat() {
+		long start = HEARTBEAT.start();
+		long beat;
+		String sql = "UPDATE ReplicaHeartbeat SET beat = beat + 1 WHERE id = 1";
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			if (stmt.executeUpdate() == 0) {
+				// The row is created by the schema migration; without it there is nothing to compare
+				HEARTBEAT.failed(start);
+				return false;
+			}
+			// Another process may have counted on since, which only makes the noted time early
+			beat = readHeartbeat(conn);
+			HEARTBEAT.succeeded(start, 1, 1);
+		} catch (SQLException e) {
+			HEARTBEAT.failed(start);
+			return false;
+		}
+		long now = System.nanoTime();
+		heartbeats.put(beat, now);
+		// Keep the newest heartbeat old enough to show the maximum lag, and every one after it
+		long horizon = now - TimeUnit.MILLISECONDS.toNanos(maxLagMillis);
+		while (heartbeats.size() > 1
+				&& heartbeats.higherEntry(heartbeats.firstKey()).getValue() - horizon <= 0) {
+			heartbeats.pollFirstEntry();
+		}
+		return true;
+	}
+
+	/**
+	 * Reads a copy of the heartbeat row: on a replica, how far it has caught up, and on the primary,
+	 * its current position.
+	 *
+	 * @param conn A connection to a replica or the primary.
+	 * @return The newest heartbeat the database shows, or 0 if it has none.
+	 * @throws SQLException If the heartbeat row cannot be read.
+	 */
+	static long readHeartbeat(Connection conn) throws SQLException {
+		String sql = "SELECT beat FROM ReplicaHeartbeat WHERE id = 1";
+		// Try-with-resources to ensure resources are closed automatically
+		try (PreparedStatement stmt = conn.prepareStatement(sql);
+				ResultSet rs = stmt.executeQuery()) {
+			return rs.next() ? rs.getLong("beat") : 0;
+		}
+	}
+
+	/**
+	 * Measures how far a replica lags behind the primary: the time since this process wrote the first
+	 * heartbeat that the replica's copy of the heartbeat row does not show yet.
+	 *
+	 * @param seen The newest heartbeat the replica shows.
+	 * @return The lag in milliseconds, which is 0 if the replica shows the latest heartbeat.
+	 */
+	private long lag(long seen) {
+		Map.Entry<Long, Long> missed = heartbeats.higherEntry(seen);
+		return missed == null ? 0
+				: Math.max(0, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - missed.getValue()));
+	}
+
+	/**
+	 * Stops the health check and closes every replica's pool.
+	 */
+	@Override
+	public void close() {
+		healthCheck.shutdownNow();
+		for (Replica replica : replicas) {
+			replica.pool.close();
+		}
+	}
+
+	/**
+	 * Puts a replica back into the rotation, telling the listener if it was out.
+	 *
+	 * @param replica The replica that answered.
+	 */
+	private void markHealthy(Replica replica) {
+		if (!replica.healthy) {
+			replica.healthy = true;
+			listener.replicaAvailable(replica.url);
+		}
+	}
+
+	/**
+	 * Takes a replica out of the rotation, telling the listener if it was in.
+	 *
+	 * @param replica The replica that failed.
+	 * @param reason  Why it is taken out.
+	 */
+	private void markUnhealthy(Replica replica, String reason) {
+		if (replica.healthy) {
+			replica.healthy = false;
+			listener.replicaUnavailable(replica.url, reason);
+		}
+	}
+
+	/**
+	 * One replica, its pool, whether it is in the rotation and how far along it is.
+	 */
+	private static final class Replica {
+		private final String url;
+		private final ConnectionPool pool;
+		private volatile boolean healthy = true;
+		// Newest heartbeat the replica showed; 0 until the first check reads one
+		private volatile long heartbeat;
+
+		Replica(String url, ConnectionPool pool) {
+			this.url = url;
+			this.pool = pool;
+		}
+	}
+}
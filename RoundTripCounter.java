@@ -0,0 +1,55 @@
+package poised;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The RoundTripCounter class counts statement executions made through pooled connections. Every
+ * call to {@code execute}, {@code executeQuery}, {@code executeUpdate} or {@code executeBatch} on a
+ * statement prepared from a {@link DatabaseConnection} connection counts as one round trip to the
+ * database.
+ *
+ * <p>
+ * Counts are kept both globally and per thread, so a caller can {@link #reset()} its own count,
+ * perform an operation and then check with {@link #get()} exactly how many queries that operation
+ * issued.
+ */
+public final class RoundTripCounter {
+	private static final LongAdder TOTAL = new LongAdder();
+	private static final ThreadLocal<long[]> CURRENT = ThreadLocal.withInitial(() -> new long[1]);
+
+	private RoundTripCounter() {
+	}
+
+	/**
+	 * Records a single round trip made by the current thread.
+	 */
+	static void increment() {
+		TOTAL.increment();
+		CURRENT.get()[0]++;
+	}
+
+	/**
+	 * Resets the current thread's round-trip count to zero.
+	 */
+	public static void reset() {
+		CURRENT.get()[0] = 0;
+	}
+
+	/**
+	 * Gets the number of round trips made by the current thread since its last {@link #reset()}.
+	 *
+	 * @return The current thread's round-trip count.
+	 */
+	public static long get() {
+		return CURRENT.get()[0];
+	}
+
+	/**
+	 * Gets the number of round trips made by all threads since the application started.
+	 *
+	 * @return The total round-trip count.
+	 */
+	public static long getTotal() {
+		return TOTAL.sum();
+	}
+}
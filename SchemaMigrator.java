@@ -0,0 +1,186 @@
+package poised;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The SchemaMigrator class brings the PoisePMS database schema up to date. Every schema change is a
+ * numbered migration; the migrations already applied are recorded in a {@code schema_version}
+ * table, so each one runs exactly once per database and new installations and upgrades end up with
+ * the same schema.
+ *
+ * <p>
+ * Version 1 creates the tables described in the README, skipping any that already exist, so that
+ * databases created by hand before migrations existed can be adopted. Later versions add the
+ * indexes that the {@link ProjectManager} queries rely on; {@link QueryPlanVerifier} checks that the
+ * queries actually use them.
+ *
+ * <p>
+ * MySQL commits DDL statements implicitly, so a migration that fails part-way is not rolled back.
+ * Its version is not recorded, and the failing statement must be fixed by hand before the migration
+ * is retried.
+ *
+ * <p>
+ * The migrator writes nothing to the console; {@link #migrate()} returns what it applied, for the
+ * caller to report where its output goes.
+ */
+public class SchemaMigrator {
+	// Every migration, in version order. Append new migrations; never edit one that has shipped.
+	private static final List<Migration> MIGRATIONS = List.of(
+			new Migration(1, "Create tables",
+					"CREATE TABLE IF NOT EXISTS Architects (architect_id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR (100), phone_number VARCHAR (20), email VARCHAR (100), physical_address VARCHAR (255))",
+					"CREATE TABLE IF NOT EXISTS Contractors (contractor_id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR (100), phone_number VARCHAR (20), email VARCHAR (100), physical_address VARCHAR (255))",
+					"CREATE TABLE IF NOT EXISTS Customers (customer_id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR (100), phone_number VARCHAR (20), email VARCHAR (100), physical_address VARCHAR (255))",
+					"CREATE TABLE IF NOT EXISTS Projects (project_id INT AUTO_INCREMENT PRIMARY KEY, project_number INT, project_name VARCHAR (100), building_type VARCHAR (100), address VARCHAR (255), erf_number VARCHAR (50), total_fee DOUBLE, amount_paid DOUBLE, deadline DATE, completion_date DATE, architect_id INT, contractor_id INT, customer_id INT, "
+							+ "CONSTRAINT fk_architect FOREIGN KEY (architect_id) REFERENCES Architects (architect_id), "
+							+ "CONSTRAINT fk_contractor FOREIGN KEY (contractor_id) REFERENCES Contractors (contractor_id), "
+							+ "CONSTRAINT fk_customer FOREIGN KEY (customer_id) REFERENCES Customers (customer_id))"),
+			new Migration(2, "Index project lookups and reports",
+					// findProjectByNumber, updateProject, finalizeProject and deleteProject
+					"CREATE UNIQUE INDEX ux_projects_project_number ON Projects (project_number)",
+					// findProjectByName
+					"CREATE INDEX ix_projects_project_name ON Projects (project_name)",
+					// Incomplete projects report: completion_date IS NULL, seek and order on project_number
+					"CREATE INDEX ix_projects_open_number ON Projects (completion_date, project_number)",
+					// Overdue projects report: completion_date IS NULL, seek and order on deadline
+					"CREATE INDEX ix_projects_open_deadline ON Projects (completion_date, deadline, project_number)"),
+			new Migration(3, "Track when projects change",
+					// Set by the database on every insert and update, whichever client makes it
+					"ALTER TABLE Projects ADD COLUMN updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)",
+					// ProjectIndex change polling: seek and order on updated_at, then project_number
+					"CREATE INDEX ix_projects_updated_at ON Projects (updated_at, project_number)"),
+			new Migration(4, "Version projects for optimistic concurrency",
+					// Incremented by every update, which only applies at the version the writer read
+					"ALTER TABLE Projects ADD COLUMN version INT NOT NULL DEFAULT 0"),
+			new Migration(5, "Store fees as exact decimals",
+					// Amounts are held in cents; existing values are rounded to the nearest cent
+					"ALTER TABLE Projects MODIFY COLUMN total_fee DECIMAL (15, 2)",
+					"ALTER TABLE Projects MODIFY COLUMN amount_paid DECIMAL (15, 2)"),
+			new Migration(6, "Index projects by participant",
+					// Projects of one participant: seek on the participant, order on project_number. The
+					// completion date is carried so the open-only filter never reads the row. Each index
+					// also serves its foreign key, so MySQL drops the one it created for the key.
+					"CREATE INDEX ix_projects_architect ON Projects (architect_id, project_number, completion_date)",
+					"CREATE INDEX ix_projects_contractor ON Projects (contractor_id, project_number, completion_date)",
+					"CREATE INDEX ix_projects_customer ON Projects (customer_id, project_number, completion_date)"),
+			new Migration(7, "Track replica lag",
+					// One row, counted on by ReplicaSet on the primary; a replica's copy shows how far behind it is
+					"CREATE TABLE IF NOT EXISTS ReplicaHeartbeat (id INT PRIMARY KEY, beat BIGINT NOT NULL)",
+					"INSERT INTO ReplicaHeartbeat (id, beat) VALUES (1, 0)"));
+
+	/**
+	 * Applies every migration that has not yet been applied to the database.
+	 *
+	 * @return The migrations applied, in order, each as its version and description, for example
+	 *         {@code "2: Index project lookups and reports"}; empty if the schema was up to date.
+	 * @throws SQLException If a migration fails. Migrations before it stay applied.
+	 */
+	public List<String> migrate() throws SQLException {
+		List<String> applied = new ArrayList<>();
+
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = DatabaseConnection.getConnection()) {
+			createVersionTable(conn);
+			int current = getCurrentVersion(conn);
+
+			for (Migration migration : MIGRATIONS) {
+				if (migration.version <= current) {
+					continue;
+				}
+				try (Statement stmt = conn.createStatement()) {
+					for (String sql : migration.statements) {
+						stmt.executeUpdate(sql);
+					}
+				}
+				recordVersion(conn, migration);
+				applied.add(migration.version + ": " + migration.description);
+			}
+		}
+		return applied;
+	}
+
+	/**
+	 * Gets the version of the most recent migration applied to the database.
+	 *
+	 * @return The schema version, or {@code 0} if no migration has been applied.
+	 * @throws SQLException If a database access error occurs.
+	 */
+	public int getCurrentVersion() throws SQLException {
+		try (Connection conn = DatabaseConnection.getConnection()) {
+			createVersionTable(conn);
+			return getCurrentVersion(conn);
+		}
+	}
+
+	/**
+	 * Gets the version of the newest migration this build knows about.
+	 *
+	 * @return The latest schema version.
+	 */
+	public int getLatestVersion() {
+		return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+	}
+
+	/**
+	 * Creates the table that records applied migrations, if it does not exist.
+	 *
+	 * @param conn The connection to use.
+	 * @throws SQLException If the table cannot be created.
+	 */
+	private static void createVersionTable(Connection conn) throws SQLException {
+		try (Statement stmt = conn.createStatement()) {
+			stmt.executeUpdate(
+					"CREATE TABLE IF NOT EXISTS schema_version (version INT PRIMARY KEY, description VARCHAR (255), applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+		}
+	}
+
+	/**
+	 * Reads the highest applied migration version.
+	 *
+	 * @param conn The connection to use.
+	 * @return The schema version, or {@code 0} if no migration has been applied.
+	 * @throws SQLException If the version cannot be read.
+	 */
+	private static int getCurrentVersion(Connection conn) throws SQLException {
+		try (Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+
+	/**
+	 * Records that a migration has been applied.
+	 *
+	 * @param conn      The connection to use.
+	 * @param migration The migration that was applied.
+	 * @throws SQLException If the version cannot be recorded.
+	 */
+	private static void recordVersion(Connection conn, Migration migration) throws SQLException {
+		String sql = "INSERT INTO schema_version (version, description) VALUES (?, ?)";
+		try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setInt(1, migration.version);
+			stmt.setString(2, migration.description);
+			stmt.executeUpdate();
+		}
+	}
+
+	/**
+	 * A numbered schema change made up of one or more SQL statements.
+	 */
+	private static final class Migration {
+		private final int version;
+		private final String description;
+		private final String[] statements;
+
+		Migration(int version, String description, String... statements) {
+			this.version = version;
+			this.description = description;
+			this.statements = statements;
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package poised;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The UnitOfWork class collects changes to projects and participants and writes them together.
+ * Nothing is written until {@link #commit()}, which hands every change to the
+ * {@link ProjectRepository} as one {@link ChangeSet}. The database repository borrows a single
+ * connection, sends each kind of statement as one JDBC batch and commits everything in one
+ * transaction, so a group of edits costs one connection and one commit instead of one of each per
+ * edit; the file repository writes the whole unit as one log frame.
+ *
+ * <p>
+ * Changes are written in this order: architects, contractors, customers, project updates,
+ * finalisations and deletions. Registering the same project or participant twice keeps only the
+ * latest change. Project updates only apply at the version each project was read at, and so do
+ * finalisations of projects the unit also updates or that are registered with
+ * {@link #finalizeProject(Project, Date)}; if another session has written one of the projects
+ * since, the whole unit is rolled back. Once committed, each project object registered with the
+ * unit has its version moved on once for every row written to it, so it can be saved again. A
+ * UnitOfWork is not thread-safe.
+ *
+ * <pre>
+ * UnitOfWork work = projectManager.beginUnitOfWork();
+ * work.updateProject(project);
+ * work.finalizeProject(project.getProjectNumber(), new java.util.Date());
+ * work.commit();
+ * </pre>
+ */
+public class UnitOfWork {
+	// Time and rows of each commit, shared by every unit of work
+	private static final OperationMetrics COMMIT = Metrics.operation("commitUnitOfWork");
+
+	private final ProjectManager projectManager;
+
+	// Pending changes, keyed by participant ID or project number
+	private final Map<Integer, Architect> architects = new LinkedHashMap<>();
+	private final Map<Integer, Contractor> contractors = new LinkedHashMap<>();
+	private final Map<Integer, Customer> customers = new LinkedHashMap<>();
+	private final Map<Integer, Project> projectUpdates = new LinkedHashMap<>();
+	private final Map<Integer, Date> finalizations = new LinkedHashMap<>();
+	// Projects whose finalisation is checked against the version they were read at
+	private final Map<Integer, Project> finalizedProjects = new LinkedHashMap<>();
+	private final Set<Integer> deletions = new LinkedHashSet<>();
+
+	/**
+	 * Constructs a new, empty UnitOfWork. Use {@link ProjectManager#beginUnitOfWork()}.
+	 *
+	 * @param projectManager The manager whose caches and listeners are told about the changes.
+	 */
+	UnitOfWork(ProjectManager projectManager) {
+		this.projectManager = projectManager;
+	}
+
+	/**
+	 * Registers an update of a project. The columns of the fields that are changed when the unit is
+	 * committed are written; a project with no changed fields is skipped.
+	 *
+	 * @param project The project, identified by its project number.
+	 */
+	public void updateProject(Project project) {
+		projectUpdates.put(project.getProjectNumber(), project);
+	}
+
+	/**
+	 * Registers the finalisation of a project. If the unit also updates the project, the
+	 * finalisation only applies at the version that update leaves; otherwise it applies at any
+	 * version.
+	 *
+	 * @param projectNumber  The project number of the project to be finalised.
+	 * @param completionDate The completion date to be set for the project.
+	 */
+	public void finalizeProject(int projectNumber, Date completionDate) {
+		finalizations.put(projectNumber, completionDate);
+		finalizedProjects.remove(projectNumber);
+	}
+
+	/**
+	 * Registers the finalisation of a project, which only applies at the version the project was
+	 * read at, or at the version left by the update of the same project in this unit.
+	 *
+	 * @param project        The project to be finalised, identified by its project number.
+	 * @param completionDate The completion date to be set for the project.
+	 */
+	public void finalizeProject(Project project, Date completionDate) {
+		finalizations.put(project.getProjectNumber(), completionDate);
+		finalizedProjects.put(project.getProjectNumber(), project);
+	}
+
+	/**
+	 * Registers the deletion of a project.
+	 *
+	 * @param projectNumber The project number of the project to be deleted.
+	 */
+	public void deleteProject(int projectNumber) {
+		deletions.add(projectNumber);
+	}
+
+	/**
+	 * Registers an update of an architect.
+	 *
+	 * @param architect The architect, identified by their ID.
+	 */
+	public void updateArchitect(Architect architect) {
+		architects.put(architect.getId(), architect);
+	}
+
+	/**
+	 * Registers an update of a contractor.
+	 *
+	 * @param contractor The contractor, identified by their ID.
+	 */
+	public void updateContractor(Contractor contractor) {
+		contractors.put(contractor.getId(), contractor);
+	}
+
+	/**
+	 * Registers an update of a customer.
+	 *
+	 * @param customer The customer, identified by their ID.
+	 */
+	public void updateCustomer(Customer customer) {
+		customers.put(customer.getId(), customer);
+	}
+
+	/**
+	 * Checks whether any changes are waiting to be committed.
+	 *
+	 * @return {@code true} if there is nothing to commit.
+	 */
+	public boolean isEmpty() {
+		return architects.isEmpty() && contractors.isEmpty() && customers.isEmpty()
+				&& projectUpdates.isEmpty() && finalizations.isEmpty() && deletions.isEmpty();
+	}
+
+	/**
+	 * Writes every registered change in a single transaction. On success the changes are cleared,
+	 * the participants written are dropped from the {@link ProjectManager}'s caches and its
+	 * {@link ProjectChangeListener}s are told about every project that was found and changed.
+	 *
+	 * @return The number of rows changed. Changes to rows that do not exist are not counted.
+	 * @throws SQLException If any change fails, or a {@link SQLTransactionRollbackException} if a
+	 *                      project was changed by another session since it was read. Nothing is
+	 *                      written and the changes stay registered; after a conflict the project
+	 *                      must be read again before it is registered again.
+	 */
+	public int commit() throws SQLException {
+		if (isEmpty()) {
+			return 0;
+		}
+
+		// Remember the fields each project update writes, as they are cleaned once it succeeds
+		Map<Project, Integer> dirtyFields = new LinkedHashMap<>();
+		for (Project project : projectUpdates.values()) {
+			int fields = project.getDirtyFieldBits();
+			if (fields != 0) {
+				dirtyFields.put(project, fields);
+			}
+		}
+
+		// Each checked finalisation applies at the version its project is left at by the update
+		Map<Integer, Project> versionedProjects = new LinkedHashMap<>();
+		Map<Integer, Integer> finalizationVersions = new LinkedHashMap<>();
+		for (Integer projectNumber : finalizations.keySet()) {
+			Project project = finalizedProjects.getOrDefault(projectNumber,
+					projectUpdates.get(projectNumber));
+			if (project != null) {
+				versionedProjects.put(projectNumber, project);
+				finalizationVersions.put(projectNumber,
+						project.getVersion() + (dirtyFields.containsKey(project) ? 1 : 0));
+			}
+		}
+
+		ChangeSet applied;
+		long start = COMMIT.start();
+		try {
+			applied = projectManager.getRepository().commit(new ChangeSet(architects.values(),
+					contractors.values(), customers.values(), dirtyFields.keySet(), finalizations,
+					finalizationVersions, deletions));
+			COMMIT.succeeded(start, 0, applied.size());
+		} catch (SQLException e) {
+			COMMIT.failed(start);
+			throw e;
+		} finally {
+			// Drop the cached copies even if the commit failed, as its outcome is unknown
+			architects.keySet().forEach(projectManager.getArchitectCache()::invalidate);
+			contractors.keySet().forEach(projectManager.getContractorCache()::invalidate);
+			customers.keySet().forEach(projectManager.getCustomerCache()::invalidate);
+		}
+
+		// Only clear once committed, then notify with the storage released
+		architects.clear();
+		contractors.clear();
+		customers.clear();
+		projectUpdates.clear();
+		finalizations.clear();
+		finalizedProjects.clear();
+		deletions.clear();
+		for (Project project : applied.getProjectUpdates()) {
+			project.setVersion(project.getVersion() + 1);
+			project.markClean(dirtyFields.get(project));
+			projectManager.fireProjectSaved(project);
+		}
+		// A finalisation moves the version on again
+		for (Map.Entry<Integer, Date> finalization : applied.getFinalizations().entrySet()) {
+			Project project = versionedProjects.get(finalization.getKey());
+			if (project != null) {
+				project.setCompletionDate(finalization.getValue());
+				project.setVersion(project.getVersion() + 1);
+				project.markClean(Project.Field.COMPLETION_DATE.bit());
+			}
+		}
+		applied.getFinalizations().forEach(projectManager::fireProjectFinalized);
+		applied.getDeletions().forEach(projectManager::fireProjectDeleted);
+		return applied.size();
+	}
+}
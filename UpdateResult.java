@@ -0,0 +1,19 @@
+package poised;
+
+/**
+ * The UpdateResult enum tells how a write to an existing project turned out. Projects carry the
+ * version they were read at, and a write only succeeds if nobody else has written the project
+ * since, so concurrent sessions never overwrite each other's changes without noticing.
+ */
+public enum UpdateResult {
+	/** The project was written and its version moved on. */
+	UPDATED,
+	/** No field had changed, so nothing was written. */
+	UNCHANGED,
+	/** No project with that number exists. */
+	NOT_FOUND,
+	/** The project was changed by someone else after it was read; reload it and try again. */
+	CONFLICT,
+	/** The write failed with a database error. */
+	FAILED;
+}
@@ -0,0 +1,48 @@
+package poised;
+
+import java.util.Arrays;
+
+/**
+ * The BenchmarkDatabase class keeps the benchmarks that empty tables away from real data. Such a
+ * benchmark only runs when {@code poised.db.url} is set explicitly to an embedded H2 database, or
+ * when {@value #DESTROY_DATA_FLAG} is given on the command line to confirm that the configured
+ * database may be wiped.
+ */
+final class BenchmarkDatabase {
+	/** The command-line flag that allows a benchmark to delete data in any database. */
+	static final String DESTROY_DATA_FLAG = "--destroy-data";
+
+	private BenchmarkDatabase() {
+	}
+
+	/**
+	 * Checks that the configured database may be emptied by a benchmark.
+	 *
+	 * @param benchmark The name of the benchmark, for the error message.
+	 * @param args      The benchmark's command-line arguments.
+	 * @return The arguments without {@value #DESTROY_DATA_FLAG}.
+	 * @throws IllegalStateException If the database is not an explicitly configured embedded one
+	 *                               and the flag was not given.
+	 */
+	static String[] requireDisposable(String benchmark, String[] args) {
+		String[] remaining = Arrays.stream(args).filter(arg -> !arg.equals(DESTROY_DATA_FLAG))
+				.toArray(String[]::new);
+		if (remaining.length < args.length || isEmbedded()) {
+			return remaining;
+		}
+		throw new IllegalStateException(benchmark + " deletes data in the database it runs against. "
+				+ "Set poised.db.url to an embedded jdbc:h2: database, or pass " + DESTROY_DATA_FLAG
+				+ " to run it against " + System.getProperty("poised.db.url", "the default database")
+				+ " anyway.");
+	}
+
+	/**
+	 * Tells whether {@code poised.db.url} is set explicitly to an H2 database.
+	 *
+	 * @return {@code true} if the benchmark runs against an embedded database.
+	 */
+	static boolean isEmbedded() {
+		String url = System.getProperty("poised.db.url");
+		return url != null && url.startsWith("jdbc:h2:");
+	}
+}
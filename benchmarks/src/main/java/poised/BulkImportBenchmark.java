@@ -0,0 +1,125 @@
+package poised;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The BulkImportBenchmark class measures project import throughput against the database configured
+ * in {@link DatabaseConnection}. It inserts the same set of generated projects three ways, one row
+ * per {@link ProjectManager#addProject(Project)} call, as JDBC batches and as multi-row inserts,
+ * and prints the rows per second achieved by each.
+ *
+ * <p>
+ * The generated projects use project numbers starting at the given base number and reference an
+ * existing architect, contractor and customer with ID 1. They are deleted again after each run, so
+ * the base number must not overlap real projects.
+ */
+public class BulkImportBenchmark {
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args Optional arguments: the number of projects to import (default 10000), the first
+	 *             project number to use (default 900000000) and the batch size (default 500).
+	 * @throws SQLException If the generated projects cannot be cleaned up.
+	 */
+	public static void main(String[] args) throws SQLException {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+		int baseNumber = args.length > 1 ? Integer.parseInt(args[1]) : 900_000_000;
+		int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+		ProjectManager projectManager = new ProjectManager();
+		List<Project> projects = generateProjects(rows, baseNumber);
+
+		System.out.printf("Importing %d projects, batch size %d%n", rows, batchSize);
+
+		// Single-row path; its per-row console output is discarded so only the inserts are measured
+		deleteGenerated(baseNumber, rows);
+		PrintStream console = System.out;
+		long start = System.nanoTime();
+		try {
+			System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+			for (Project project : projects) {
+				projectManager.addProject(project);
+			}
+		} finally {
+			System.setOut(console);
+		}
+		report("addProject (one row per call)", rows, System.nanoTime() - start);
+
+		// JDBC batch path
+		deleteGenerated(baseNumber, rows);
+		start = System.nanoTime();
+		BulkImportResult batched = projectManager.addProjects(projects,
+				new BulkImportOptions(batchSize, 10, false));
+		report("addProjects (executeBatch)", batched.getInsertedCount(), System.nanoTime() - start);
+
+		// Multi-row VALUES path
+		deleteGenerated(baseNumber, rows);
+		start = System.nanoTime();
+		BulkImportResult multiRow = projectManager.addProjects(projects,
+				new BulkImportOptions(batchSize, 10, true));
+		report("addProjects (multi-row VALUES)", multiRow.getInsertedCount(),
+				System.nanoTime() - start);
+
+		deleteGenerated(baseNumber, rows);
+		DatabaseConnection.shutdown();
+	}
+
+	/**
+	 * Generates projects with consecutive project numbers.
+	 *
+	 * @param rows       The number of projects to generate.
+	 * @param baseNumber The project number of the first project.
+	 * @return The generated projects.
+	 */
+	private static List<Project> generateProjects(int rows, int baseNumber) {
+		Architect architect = new Architect(1, null, null, null, null);
+		Contractor contractor = new Contractor(1, null, null, null, null);
+		Customer customer = new Customer(1, null, null, null, null);
+		java.sql.Date deadline = java.sql.Date.valueOf("2030-12-31");
+
+		List<Project> projects = new ArrayList<>(rows);
+		for (int i = 0; i < rows; i++) {
+			projects.add(new Project(0, baseNumber + i, "Benchmark Project " + i, "House",
+					i + " Benchmark St", "ERF" + i, 10_000_000, 5_000_000, deadline, null, architect,
+					contractor, customer));
+		}
+		return projects;
+	}
+
+	/**
+	 * Deletes the generated projects.
+	 *
+	 * @param baseNumber The project number of the first generated project.
+	 * @param rows       The number of generated projects.
+	 * @throws SQLException If the projects cannot be deleted.
+	 */
+	private static void deleteGenerated(int baseNumber, int rows) throws SQLException {
+		String sql = "DELETE FROM Projects WHERE project_number BETWEEN ? AND ?";
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setInt(1, baseNumber);
+			stmt.setInt(2, baseNumber + rows - 1);
+			stmt.executeUpdate();
+		}
+	}
+
+	/**
+	 * Prints the throughput of one run.
+	 *
+	 * @param label   The name of the run.
+	 * @param rows    The number of projects inserted.
+	 * @param elapsed The elapsed time in nanoseconds.
+	 */
+	private static void report(String label, int rows, long elapsed) {
+		double seconds = elapsed / 1_000_000_000.0;
+		System.out.printf("%-32s %8d rows in %8.3f s  %12.1f rows/s%n", label, rows, seconds,
+				rows / seconds);
+	}
+}
@@ -0,0 +1,277 @@
+package poised;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * The ProjectManagerBenchmark class measures the throughput and latency of the
+ * {@link ProjectManager} hot paths against the database configured in {@link DatabaseConnection}.
+ * It is meant to run against an embedded, MySQL-compatible database such as H2 in MySQL mode, so
+ * that every performance change can be compared against the same baseline:
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar -Dpoised.db.url="jdbc:h2:mem:poised;MODE=MySQL;DB_CLOSE_DELAY=-1" \
+ *     -Dpoised.db.user=sa -Dpoised.db.password= poised.ProjectManagerBenchmark 1000 100000 1000000
+ * </pre>
+ *
+ * <p>
+ * For each data volume given on the command line the Projects table is emptied and seeded with that
+ * many projects, a quarter of which are finalised and many of which are overdue. Every operation is
+ * then warmed up and measured, and its throughput and p50, p99 and p99.9 latencies are printed. The
+ * number of measured iterations can be set with the {@code poised.bench.iterations} and
+ * {@code poised.bench.listIterations} system properties.
+ *
+ * <p>
+ * The benchmark applies the schema migrations and deletes every project in the database, so it
+ * refuses to start unless {@code poised.db.url} names an embedded H2 database or
+ * {@code --destroy-data} is given; see {@link BenchmarkDatabase}. The same operations are measured
+ * by the JMH suite in the {@code benchmarks} module.
+ */
+public class ProjectManagerBenchmark {
+	// Measured iterations for single-project operations
+	private static final int ITERATIONS = Integer.getInteger("poised.bench.iterations", 2_000);
+	// Measured iterations for the list operations, which read many rows each
+	private static final int LIST_ITERATIONS = Integer.getInteger("poised.bench.listIterations", 5);
+	// Number of projects kept in memory and rewritten by the update benchmark
+	private static final int UPDATE_SAMPLE_SIZE = 64;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args The data volumes to benchmark, in number of projects (default 1000), and
+	 *             {@code --destroy-data} to allow a database other than an embedded one.
+	 * @throws SQLException If the schema cannot be created or seeded.
+	 */
+	public static void main(String[] args) throws SQLException {
+		try {
+			args = BenchmarkDatabase.requireDisposable("ProjectManagerBenchmark", args);
+		} catch (IllegalStateException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+		}
+		int[] volumes = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+				: new int[] { 1_000 };
+
+		createSchema();
+		ProjectManager projectManager = new ProjectManager();
+		PrintStream console = System.out;
+
+		for (int volume : volumes) {
+			console.printf("%n== %d projects ==%n", volume);
+			seed(projectManager, volume);
+			console.printf("%-28s %12s %12s %12s %12s%n", "operation", "ops/s", "p50 us", "p99 us",
+					"p99.9 us");
+
+			// The manager prints a line for every write; discard it so only the work is measured
+			System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+			try {
+				SplittableRandom random = new SplittableRandom(42);
+				report(console, "findProjectByNumber", ITERATIONS,
+						i -> projectManager.findProjectByNumber(1 + random.nextInt(volume)));
+				report(console, "findProjectByName", ITERATIONS,
+						i -> projectManager.findProjectByName("Project " + (1 + random.nextInt(volume))));
+
+				List<Project> sample = updateSample(projectManager, random, volume);
+				report(console, "updateProject", ITERATIONS, i -> {
+					Project project = sample.get(i % sample.size());
+					project.setAmountPaidCents(project.getAmountPaidCents() + 100);
+					projectManager.updateProject(project);
+				});
+				report(console, "unitOfWork (4 updates)", ITERATIONS / 4, i -> {
+					UnitOfWork work = projectManager.beginUnitOfWork();
+					for (int j = 0; j < 4; j++) {
+						Project project = sample.get((4 * i + j) % sample.size());
+						project.setAmountPaidCents(project.getAmountPaidCents() + 100);
+						work.updateProject(project);
+					}
+					try {
+						work.commit();
+					} catch (SQLException e) {
+						throw new IllegalStateException(e);
+					}
+				});
+
+				int[] rows = new int[1];
+				report(console, "listIncompleteProjects", LIST_ITERATIONS,
+						i -> projectManager.forEachIncompleteProject(summary -> rows[0]++));
+				report(console, "listOverdueProjects", LIST_ITERATIONS,
+						i -> projectManager.forEachOverdueProject(summary -> rows[0]++));
+
+				// Every seeded project shares participant 1, so this walks all open projects
+				report(console, "projectsByContractor (open)", LIST_ITERATIONS,
+						i -> projectManager.forEachProjectByParticipant(ParticipantRole.CONTRACTOR, 1,
+								true, project -> rows[0]++));
+
+				// Fee totals, grouped by the database and from the running totals of the index
+				report(console, "summarizeFees (SQL)", LIST_ITERATIONS, i -> {
+					projectManager.summarizeFees();
+					for (FeeGrouping grouping : FeeGrouping.values()) {
+						projectManager.summarizeFees(grouping);
+					}
+				});
+				// Overdue list kept by the scheduler instead of queried
+				try (OverdueScheduler scheduler = new OverdueScheduler(projectManager)) {
+					scheduler.start();
+					report(console, "listOverdue (scheduler)", ITERATIONS,
+							i -> scheduler.forEachOverdueProject(summary -> rows[0]++));
+				}
+				try (ProjectIndex index = new ProjectIndex(projectManager)) {
+					index.start();
+					report(console, "summarizeFees (index)", ITERATIONS, i -> {
+						index.summarizeFees();
+						for (FeeGrouping grouping : FeeGrouping.values()) {
+							index.summarizeFees(grouping);
+						}
+					});
+				}
+
+				// Partial and misspelt searches answered by the trigram index
+				try (ProjectSearchIndex search = new ProjectSearchIndex(projectManager)) {
+					search.start();
+					report(console, "search (trigram)", ITERATIONS,
+							i -> search.search((1 + random.nextInt(volume)) + " Benchmrk", 20));
+				}
+
+				// Adds run last so that they do not change the data the other operations read
+				int[] nextProjectNumber = { volume + 1 };
+				report(console, "addProject", ITERATIONS,
+						i -> projectManager.addProject(newProject(nextProjectNumber[0]++)));
+			} finally {
+				System.setOut(console);
+			}
+		}
+		DatabaseConnection.shutdown();
+	}
+
+	/**
+	 * Brings the schema up to date and makes sure the participant with ID 1 exists in each
+	 * participant table.
+	 *
+	 * @throws SQLException If the schema cannot be created.
+	 */
+	static void createSchema() throws SQLException {
+		new SchemaMigrator().migrate();
+		try (Connection conn = DatabaseConnection.getConnection();
+				Statement stmt = conn.createStatement()) {
+			// Projects reference the participants, so they have to go first
+			stmt.executeUpdate("DELETE FROM Projects");
+			for (String table : new String[] { "Architects", "Contractors", "Customers" }) {
+				String id = table.substring(0, table.length() - 1).toLowerCase() + "_id";
+				stmt.executeUpdate("DELETE FROM " + table + " WHERE " + id + " = 1");
+				stmt.executeUpdate("INSERT INTO " + table + " (" + id
+						+ ", name, phone_number, email, physical_address) VALUES (1, 'Benchmark "
+						+ table + "', '0000000000', 'bench@example.com', '1 Benchmark Rd')");
+			}
+		}
+	}
+
+	/**
+	 * Replaces every project with {@code volume} generated ones and finalises a quarter of them.
+	 *
+	 * @param projectManager The manager used to bulk-load the projects.
+	 * @param volume         The number of projects to generate.
+	 * @throws SQLException If the table cannot be emptied or updated.
+	 */
+	static void seed(ProjectManager projectManager, int volume) throws SQLException {
+		try (Connection conn = DatabaseConnection.getConnection();
+				Statement stmt = conn.createStatement()) {
+			stmt.executeUpdate("DELETE FROM Projects");
+		}
+
+		Stream<Project> projects = IntStream.rangeClosed(1, volume)
+				.mapToObj(ProjectManagerBenchmark::newProject);
+		BulkImportResult result = projectManager.addProjects(projects,
+				new BulkImportOptions(1_000, 10, true));
+		if (result.isAborted() || !result.getFailedRows().isEmpty()) {
+			throw new SQLException("Seeding failed: " + result, result.getAbortCause());
+		}
+
+		try (Connection conn = DatabaseConnection.getConnection();
+				Statement stmt = conn.createStatement()) {
+			stmt.executeUpdate(
+					"UPDATE Projects SET completion_date = deadline WHERE MOD(project_number, 4) = 0");
+		}
+	}
+
+	/**
+	 * Loads {@value #UPDATE_SAMPLE_SIZE} distinct projects, or all of them for a smaller volume, to be
+	 * updated in turn. Each project appears once so that no copy holds a stale version.
+	 *
+	 * @param projectManager The manager to load the projects with.
+	 * @param random         The source of the project numbers.
+	 * @param volume         The number of seeded projects.
+	 * @return The projects to update.
+	 */
+	static List<Project> updateSample(ProjectManager projectManager, SplittableRandom random,
+			int volume) {
+		return random.ints(1, volume + 1).distinct().limit(Math.min(UPDATE_SAMPLE_SIZE, volume))
+				.mapToObj(projectManager::findProjectByNumber).toList();
+	}
+
+	/**
+	 * Generates a project. Deadlines are spread over ten years around today, so roughly half of the
+	 * open projects are overdue.
+	 *
+	 * @param projectNumber The project number.
+	 * @return The generated project.
+	 */
+	static Project newProject(int projectNumber) {
+		LocalDate deadline = LocalDate.now().minusYears(5).plusDays(projectNumber % 3_650);
+		return new Project(0, projectNumber, "Project " + projectNumber, "House",
+				projectNumber + " Benchmark St", "ERF" + projectNumber, 10_000_000, 5_000_000,
+				java.sql.Date.valueOf(deadline), null, new Architect(1, null, null, null, null),
+				new Contractor(1, null, null, null, null), new Customer(1, null, null, null, null));
+	}
+
+	/**
+	 * Warms up and measures one operation, then prints its throughput and latency percentiles.
+	 *
+	 * @param console    The stream to print to.
+	 * @param name       The name of the operation.
+	 * @param iterations The number of measured iterations.
+	 * @param operation  The operation, given the iteration number.
+	 */
+	private static void report(PrintStream console, String name, int iterations,
+			IntConsumer operation) {
+		// Warm up with half as many iterations as are measured
+		for (int i = 0; i < Math.max(1, iterations / 2); i++) {
+			operation.accept(i);
+		}
+
+		long[] samples = new long[iterations];
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			long begin = System.nanoTime();
+			operation.accept(i);
+			samples[i] = System.nanoTime() - begin;
+		}
+		long elapsed = System.nanoTime() - start;
+
+		Arrays.sort(samples);
+		console.printf("%-28s %12.1f %12.1f %12.1f %12.1f%n", name,
+				iterations / (elapsed / 1_000_000_000.0), percentile(samples, 0.50) / 1_000.0,
+				percentile(samples, 0.99) / 1_000.0, percentile(samples, 0.999) / 1_000.0);
+	}
+
+	/**
+	 * Returns a percentile of sorted samples using the nearest-rank method.
+	 *
+	 * @param sorted   The samples, in ascending order.
+	 * @param fraction The percentile, between 0 and 1.
+	 * @return The sample at that percentile.
+	 */
+	private static long percentile(long[] sorted, double fraction) {
+		int rank = (int) Math.ceil(fraction * sorted.length);
+		return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+	}
+}
@@ -0,0 +1,136 @@
+package poised;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The ProjectManagerJmhBenchmark class measures the {@link ProjectManager} hot paths with JMH, at
+ * 1k, 100k and 1M projects. Each fork runs against its own in-memory H2 database in MySQL mode,
+ * which is created and seeded by {@link ProjectManagerBenchmark} once per volume:
+ *
+ * <pre>
+ * mvn -f benchmarks/pom.xml package
+ * java -jar benchmarks/target/benchmarks.jar -p volume=1000,100000
+ * </pre>
+ *
+ * <p>
+ * Sampling mode reports the latency percentiles as well as the throughput. The fork is refused if
+ * {@code poised.db.url} is overridden with anything but an embedded H2 database, since seeding
+ * empties the Projects table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+		"-Dpoised.db.url=jdbc:h2:mem:poised;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"-Dpoised.db.user=sa", "-Dpoised.db.password=" })
+public class ProjectManagerJmhBenchmark {
+	/** The number of projects seeded before the measurements. */
+	@Param({ "1000", "100000", "1000000" })
+	public int volume;
+
+	private ProjectManager projectManager;
+	private PrintStream console;
+	private SplittableRandom random;
+	private List<Project> sample;
+	private int nextProjectNumber;
+
+	/**
+	 * Creates the schema and seeds the database with {@link #volume} projects.
+	 *
+	 * @throws SQLException If the schema cannot be created or seeded.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		BenchmarkDatabase.requireDisposable("ProjectManagerJmhBenchmark", new String[0]);
+		ProjectManagerBenchmark.createSchema();
+		projectManager = new ProjectManager();
+		ProjectManagerBenchmark.seed(projectManager, volume);
+
+		// The manager prints a line for every write; discard it so only the work is measured
+		console = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+		random = new SplittableRandom(42);
+		sample = ProjectManagerBenchmark.updateSample(projectManager, random, volume);
+		nextProjectNumber = volume + 1;
+	}
+
+	/**
+	 * Restores the console and closes the connection pool.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.setOut(console);
+		DatabaseConnection.shutdown();
+	}
+
+	@Benchmark
+	public Project findProjectByNumber() {
+		return projectManager.findProjectByNumber(randomProjectNumber());
+	}
+
+	@Benchmark
+	public Project findProjectByName() {
+		return projectManager.findProjectByName("Project " + randomProjectNumber());
+	}
+
+	@Benchmark
+	public UpdateResult updateProject() {
+		Project project = sample.get(random.nextInt(sample.size()));
+		project.setAmountPaidCents(project.getAmountPaidCents() + 100);
+		return projectManager.updateProject(project);
+	}
+
+	@Benchmark
+	public void listIncompleteProjects(Blackhole blackhole) {
+		projectManager.forEachIncompleteProject(blackhole::consume);
+	}
+
+	@Benchmark
+	public void listOverdueProjects(Blackhole blackhole) {
+		projectManager.forEachOverdueProject(blackhole::consume);
+	}
+
+	@Benchmark
+	public void summarizeFees(Blackhole blackhole) {
+		blackhole.consume(projectManager.summarizeFees());
+		for (FeeGrouping grouping : FeeGrouping.values()) {
+			blackhole.consume(projectManager.summarizeFees(grouping));
+		}
+	}
+
+	/**
+	 * Adds a new project. The table grows during the measurement, which is negligible next to the
+	 * seeded volume except at the smallest one.
+	 */
+	@Benchmark
+	public void addProject() {
+		projectManager.addProject(ProjectManagerBenchmark.newProject(nextProjectNumber++));
+	}
+
+	private int randomProjectNumber() {
+		return 1 + random.nextInt(volume);
+	}
+}
@@ -0,0 +1,254 @@
+package poised;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The SnapshotBenchmark class compares {@link ProjectSnapshot} with the per-row path it replaces
+ * against the database configured in {@link DatabaseConnection}:
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar -Dpoised.db.url="jdbc:h2:mem:poised;MODE=MySQL;DB_CLOSE_DELAY=-1" \
+ *     -Dpoised.db.user=sa -Dpoised.db.password= poised.SnapshotBenchmark 100000 1000
+ * </pre>
+ *
+ * <p>
+ * The database is seeded with the given numbers of projects and participants of each role. The
+ * benchmark then exports them to a temporary file, plain and compressed, and reads them back one
+ * {@link ProjectManager#findProjectByNumber(int)} call per project; and it empties the tables and
+ * reloads them from each snapshot, and one {@link ProjectManager#addProject(Project)} call per
+ * project. The rows per second and, for the exports, the size of the file are printed for each.
+ *
+ * <p>
+ * The benchmark applies the schema migrations and deletes every project and participant in the
+ * database, so it refuses to start unless {@code poised.db.url} names an embedded H2 database or
+ * {@code --destroy-data} is given; see {@link BenchmarkDatabase}.
+ */
+public class SnapshotBenchmark {
+	// Building types given to the generated projects in turn
+	private static final String[] BUILDING_TYPES = { "House", "Apartment", "Office", "Warehouse",
+			"Retail" };
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args Optional arguments: the number of projects (default 100000) and the number of
+	 *             participants of each role (default 1000), and {@code --destroy-data} to allow a
+	 *             database other than an embedded one.
+	 * @throws IOException  If a snapshot file cannot be written or read.
+	 * @throws SQLException If the database cannot be seeded or emptied.
+	 */
+	public static void main(String[] args) throws IOException, SQLException {
+		try {
+			args = BenchmarkDatabase.requireDisposable("SnapshotBenchmark", args);
+		} catch (IllegalStateException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+		}
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		int participants = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+
+		new SchemaMigrator().migrate();
+		ProjectManager projectManager = new ProjectManager();
+		ProjectRepository repository = projectManager.getRepository();
+		ProjectSnapshot snapshot = new ProjectSnapshot(projectManager);
+		List<Architect> architects = new ArrayList<>(participants);
+		List<Contractor> contractors = new ArrayList<>(participants);
+		List<Customer> customers = new ArrayList<>(participants);
+		for (int id = 1; id <= participants; id++) {
+			architects.add(new Architect(id, "Architect " + id, "011" + id, "architect" + id + "@example.com",
+					id + " Architect St"));
+			contractors.add(new Contractor(id, "Contractor " + id, "012" + id,
+					"contractor" + id + "@example.com", id + " Contractor Rd"));
+			customers.add(new Customer(id, "Customer " + id, "013" + id, "customer" + id + "@example.com",
+					id + " Customer Ave"));
+		}
+		List<Project> projects = generateProjects(rows, participants);
+		int total = rows + 3 * participants;
+
+		System.out.printf("Snapshot of %d projects and %d participants of each role%n", rows,
+				participants);
+		clear();
+		seed(projectManager, architects, contractors, customers, projects);
+
+		Path plain = Files.createTempFile("poised", ".snapshot");
+		Path compressed = Files.createTempFile("poised", ".snapshot.z");
+		Path perRow = Files.createTempFile("poised", ".rows");
+		PrintStream console = System.out;
+		try {
+			// Exports
+			long start = System.nanoTime();
+			try (OutputStream out = Files.newOutputStream(plain)) {
+				snapshot.export(out, false);
+			}
+			report("export", total, System.nanoTime() - start, Files.size(plain));
+
+			start = System.nanoTime();
+			try (OutputStream out = Files.newOutputStream(compressed)) {
+				snapshot.export(out, true);
+			}
+			report("export (compressed)", total, System.nanoTime() - start, Files.size(compressed));
+
+			start = System.nanoTime();
+			exportPerRow(projectManager, projects, perRow);
+			report("findProjectByNumber (per row)", rows, System.nanoTime() - start, Files.size(perRow));
+
+			// Restores
+			clear();
+			start = System.nanoTime();
+			try (InputStream in = Files.newInputStream(plain)) {
+				snapshot.restore(in, BulkImportOptions.defaults());
+			}
+			report("restore", total, System.nanoTime() - start, Files.size(plain));
+
+			clear();
+			start = System.nanoTime();
+			try (InputStream in = Files.newInputStream(compressed)) {
+				snapshot.restore(in, BulkImportOptions.defaults());
+			}
+			report("restore (compressed)", total, System.nanoTime() - start, Files.size(compressed));
+
+			// Per-row path; its per-row console output is discarded so only the inserts are measured
+			clear();
+			start = System.nanoTime();
+			try {
+				System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+				for (int i = 0; i < participants; i++) {
+					repository.insertArchitects(List.of(architects.get(i)));
+					repository.insertContractors(List.of(contractors.get(i)));
+					repository.insertCustomers(List.of(customers.get(i)));
+				}
+				for (Project project : projects) {
+					projectManager.addProject(project);
+				}
+			} finally {
+				System.setOut(console);
+			}
+			report("addProject (one row per call)", total, System.nanoTime() - start, 0);
+		} finally {
+			Files.deleteIfExists(plain);
+			Files.deleteIfExists(compressed);
+			Files.deleteIfExists(perRow);
+			clear();
+			repository.close();
+		}
+	}
+
+	/**
+	 * Generates projects with consecutive project numbers, spread over the participants.
+	 *
+	 * @param rows         The number of projects to generate.
+	 * @param participants The number of participants of each role.
+	 * @return The generated projects.
+	 */
+	private static List<Project> generateProjects(int rows, int participants) {
+		java.sql.Date deadline = java.sql.Date.valueOf("2030-12-31");
+		java.sql.Date completed = java.sql.Date.valueOf("2024-06-30");
+
+		List<Project> projects = new ArrayList<>(rows);
+		for (int i = 0; i < rows; i++) {
+			int participant = 1 + i % participants;
+			projects.add(new Project(0, i + 1, "Project " + (i + 1), BUILDING_TYPES[i % BUILDING_TYPES.length],
+					(i + 1) + " Main St", "ERF" + (i + 1), (100_000 + i) * 100L, 5_000_000, deadline,
+					i % 4 == 0 ? completed : null, new Architect(participant, null, null, null, null),
+					new Contractor(participant, null, null, null, null),
+					new Customer(participant, null, null, null, null)));
+		}
+		return projects;
+	}
+
+	/**
+	 * Inserts the participants and projects.
+	 *
+	 * @param projectManager The manager to insert through.
+	 * @param architects     The architects.
+	 * @param contractors    The contractors.
+	 * @param customers      The customers.
+	 * @param projects       The projects.
+	 * @throws SQLException If the data cannot be inserted.
+	 */
+	private static void seed(ProjectManager projectManager, List<Architect> architects,
+			List<Contractor> contractors, List<Customer> customers, List<Project> projects)
+			throws SQLException {
+		ProjectRepository repository = projectManager.getRepository();
+		repository.insertArchitects(architects);
+		repository.insertContractors(contractors);
+		repository.insertCustomers(customers);
+		BulkImportResult result = projectManager.addProjects(projects);
+		if (result.getInsertedCount() != projects.size()) {
+			throw new SQLException("Seeding failed: " + result);
+		}
+	}
+
+	/**
+	 * Reads every project with its participants one call at a time and writes each one to a file
+	 * field by field, as a caller without the snapshot would.
+	 *
+	 * @param projectManager The manager to read through.
+	 * @param projects       The projects to read.
+	 * @param file           The file to write.
+	 * @throws IOException If the file cannot be written.
+	 */
+	private static void exportPerRow(ProjectManager projectManager, List<Project> projects, Path file)
+			throws IOException {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(file)))) {
+			for (Project generated : projects) {
+				Project project = projectManager.findProjectByNumber(generated.getProjectNumber());
+				out.writeInt(project.getProjectNumber());
+				out.writeUTF(project.getProjectName());
+				out.writeUTF(project.getBuildingType());
+				out.writeUTF(project.getAddress());
+				out.writeUTF(project.getErfNumber());
+				out.writeLong(project.getTotalFeeCents());
+				out.writeLong(project.getAmountPaidCents());
+				out.writeLong(project.getDeadline().getTime());
+				out.writeLong(project.getCompletionDate() != null ? project.getCompletionDate().getTime() : 0);
+				out.writeUTF(project.getArchitect().getName());
+				out.writeUTF(project.getContractor().getName());
+				out.writeUTF(project.getCustomer().getName());
+			}
+		}
+	}
+
+	/**
+	 * Deletes every project and participant.
+	 *
+	 * @throws SQLException If the tables cannot be emptied.
+	 */
+	private static void clear() throws SQLException {
+		try (Connection conn = DatabaseConnection.getConnection();
+				Statement stmt = conn.createStatement()) {
+			// Projects reference the participants, so they have to go first
+			stmt.executeUpdate("DELETE FROM Projects");
+			stmt.executeUpdate("DELETE FROM Architects");
+			stmt.executeUpdate("DELETE FROM Contractors");
+			stmt.executeUpdate("DELETE FROM Customers");
+		}
+	}
+
+	/**
+	 * Prints the throughput of one run.
+	 *
+	 * @param label   The name of the run.
+	 * @param rows    The number of rows exported or restored.
+	 * @param elapsed The elapsed time in nanoseconds.
+	 * @param bytes   The size of the file written or read, or 0 if there was none.
+	 */
+	private static void report(String label, int rows, long elapsed, long bytes) {
+		double seconds = elapsed / 1_000_000_000.0;
+		System.out.printf("%-32s %8d rows in %8.3f s  %12.1f rows/s  %12d bytes%n", label, rows,
+				seconds, rows / seconds, bytes);
+	}
+}
@@ -0,0 +1,207 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link ApiServer} over HTTP, on a free port, against the database.
+ */
+class ApiServerTest {
+	private static final java.sql.Date DEADLINE = java.sql.Date.valueOf("2030-01-31");
+
+	private final HttpClient client = HttpClient.newHttpClient();
+	private ProjectManager projectManager;
+	private ApiServer server;
+	private Architect architect;
+	private Contractor contractor;
+	private Customer customer;
+
+	@BeforeEach
+	void startServer() throws SQLException, IOException {
+		new SchemaMigrator().migrate();
+		execute("DELETE FROM Projects");
+		execute("DELETE FROM Architects");
+		execute("DELETE FROM Contractors");
+		execute("DELETE FROM Customers");
+		projectManager = new ProjectManager(new JdbcProjectRepository());
+		architect = new Architect(0, "Architect", "1", "a@example.com", "Address");
+		contractor = new Contractor(0, "Contractor", "2", "c@example.com", "Address");
+		customer = new Customer(0, "Customer", "3", "u@example.com", "Address");
+		projectManager.addArchitect(architect);
+		projectManager.addContractor(contractor);
+		projectManager.addCustomer(customer);
+		projectManager.addProject(new Project(0, 1, "Smith House", "House", "12 Main Road", "ERF1",
+				100_000, 0, DEADLINE, null, architect, contractor, customer));
+
+		server = new ApiServer(projectManager,
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		server.start();
+	}
+
+	@AfterEach
+	void stopServer() throws SQLException {
+		server.close();
+		projectManager.getRepository().close();
+	}
+
+	@Test
+	void addsAndFindsProjects() throws IOException, InterruptedException {
+		String body = "{\"number\": 2, \"name\": \"Jones \\\"Block\\\"\", "
+				+ "\"buildingType\": \"Apartment\", \"address\": \"1 Long Street\", "
+				+ "\"erfNumber\": \"ERF2\", \"totalFee\": \"2500.50\", \"amountPaid\": 0, "
+				+ "\"deadline\": \"2030-03-01\", \"architectId\": " + architect.getId()
+				+ ", \"contractorId\": " + contractor.getId()
+				+ ", \"customerId\": " + customer.getId() + "}";
+		HttpResponse<String> added = send("POST", "/projects", body);
+		assertEquals(201, added.statusCode());
+		assertEquals("/projects/2", added.headers().firstValue("Location").orElse(null));
+
+		HttpResponse<String> found = send("GET", "/projects/2", null);
+		assertEquals(200, found.statusCode());
+		Map<String, String> project = Json.parseObject(found.body().strip());
+		assertEquals("Jones \"Block\"", project.get("name"));
+		assertEquals("2500.50", project.get("totalFee"));
+		assertEquals("2030-03-01", project.get("deadline"));
+		assertEquals(null, project.get("completionDate"));
+		assertEquals(Integer.toString(customer.getId()), project.get("customerId"));
+
+		// The same number again is a conflict
+		assertEquals(409, send("POST", "/projects", body).statusCode());
+		// A field the server does not know is rejected
+		assertEquals(400, send("POST", "/projects", found.body()).statusCode());
+	}
+
+	@Test
+	void answersUnknownResourcesAndMethods() throws IOException, InterruptedException {
+		assertEquals(404, send("GET", "/projects/99", null).statusCode());
+		assertEquals(404, send("GET", "/projects/abc", null).statusCode());
+		assertEquals(404, send("GET", "/buildings", null).statusCode());
+		assertEquals(404, send("GET", "/architects/1/clients", null).statusCode());
+
+		HttpResponse<String> deleted = send("DELETE", "/projects/1", null);
+		assertEquals(405, deleted.statusCode());
+		assertEquals("GET, PATCH", deleted.headers().firstValue("Allow").orElse(null));
+		assertTrue(Json.parseObject(deleted.body().strip()).get("error").contains("DELETE"));
+
+		assertEquals(400, send("PATCH", "/projects/1", "{\"colour\": \"red\"}").statusCode());
+		assertEquals(400, send("PATCH", "/projects/1", "{\"name\": ").statusCode());
+	}
+
+	@Test
+	void updatesWithAndWithoutAVersion() throws IOException, InterruptedException {
+		// Without a version, the update applies to the latest one
+		HttpResponse<String> updated = send("PATCH", "/projects/1", "{\"amountPaid\": \"250.00\"}");
+		assertEquals(200, updated.statusCode());
+		Map<String, String> project = Json.parseObject(updated.body().strip());
+		assertEquals("250.00", project.get("amountPaid"));
+		assertEquals("1", project.get("version"));
+
+		// With the version just read, it applies once; the same version again is a conflict
+		assertEquals(200,
+				send("PATCH", "/projects/1", "{\"version\": 1, \"name\": \"Mokoena Lodge\"}").statusCode());
+		assertEquals(409,
+				send("PATCH", "/projects/1", "{\"version\": 1, \"name\": \"Old\"}").statusCode());
+		assertEquals("Mokoena Lodge",
+				Json.parseObject(send("GET", "/projects/1", null).body().strip()).get("name"));
+
+		assertEquals(404, send("PATCH", "/projects/99", "{\"name\": \"Nowhere\"}").statusCode());
+
+		assertEquals(204, send("POST", "/projects/1/finalize", "{\"completionDate\": \"2030-02-15\"}")
+				.statusCode());
+		assertEquals("2030-02-15",
+				Json.parseObject(send("GET", "/projects/1", null).body().strip()).get("completionDate"));
+	}
+
+	@Test
+	void streamsListsAsJsonArrays() throws IOException, InterruptedException, SQLException {
+		for (int number = 2; number <= 5; number++) {
+			projectManager.addProject(new Project(0, number, "Project " + number, "House", "Address",
+					"ERF" + number, 100_000, 0, DEADLINE, null, architect, contractor, customer));
+		}
+		projectManager.finalizeProject(3, java.sql.Date.valueOf("2030-02-15"));
+
+		HttpResponse<String> incomplete = send("GET", "/projects/incomplete", null);
+		assertEquals(200, incomplete.statusCode());
+		assertEquals("[1, 2, 4, 5]", numbers(incomplete.body()));
+
+		HttpResponse<String> all = send("GET", "/customers/" + customer.getId() + "/projects", null);
+		assertEquals("[1, 2, 3, 4, 5]", numbers(all.body()));
+		HttpResponse<String> open = send("GET",
+				"/customers/" + customer.getId() + "/projects?open=true", null);
+		assertEquals("[1, 2, 4, 5]", numbers(open.body()));
+
+		// An empty list is still an array
+		assertEquals("[]", numbers(send("GET", "/architects/0/projects", null).body()));
+	}
+
+	@Test
+	void writesAMissingParticipantAsNull() throws IOException, InterruptedException, SQLException {
+		execute("UPDATE Projects SET customer_id = NULL WHERE project_number = 1");
+
+		HttpResponse<String> found = send("GET", "/projects/1", null);
+		assertEquals(200, found.statusCode());
+		Map<String, String> project = Json.parseObject(found.body().strip());
+		assertTrue(project.containsKey("customerId"));
+		assertEquals(null, project.get("customerId"));
+		assertEquals(Integer.toString(architect.getId()), project.get("architectId"));
+
+		HttpResponse<String> listed = send("GET", "/architects/" + architect.getId() + "/projects",
+				null);
+		assertEquals(200, listed.statusCode());
+		assertEquals("[1]", numbers(listed.body()));
+	}
+
+	private HttpResponse<String> send(String method, String path, String body)
+			throws IOException, InterruptedException {
+		HttpRequest request = HttpRequest
+				.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+				.method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+						: HttpRequest.BodyPublishers.ofString(body))
+				.build();
+		return client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	/**
+	 * Lists the project numbers in a JSON array of projects, which must be complete.
+	 */
+	private static String numbers(String array) {
+		String text = array.strip();
+		assertTrue(text.startsWith("[") && text.endsWith("]"), text);
+		String items = text.substring(1, text.length() - 1).strip();
+		if (items.isEmpty()) {
+			return "[]";
+		}
+		StringBuilder numbers = new StringBuilder("[");
+		for (String item : items.split(",\n")) {
+			if (numbers.length() > 1) {
+				numbers.append(", ");
+			}
+			numbers.append(Json.parseObject(item.strip()).get("number"));
+		}
+		return numbers.append(']').toString();
+	}
+
+	private static void execute(String sql) throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = DatabaseConnection.getConnection();
+				Statement stmt = conn.createStatement()) {
+			stmt.executeUpdate(sql);
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link AsyncProjectManager} against the file repository.
+ */
+class AsyncProjectManagerTest {
+	private static final Date DEADLINE = Date.valueOf("2030-01-31");
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void missingProjectIsToldApartFromAFailure() throws SQLException {
+		ProjectManager projectManager = new ProjectManager(
+				FileProjectRepository.open(directory.resolve("projects.db")));
+		try (AsyncProjectManager async = new AsyncProjectManager(projectManager, 2)) {
+			assertNull(async.findProjectByNumber(1).join());
+			assertFalse(async.deleteProject(1).join());
+
+			projectManager.getRepository().close();
+			CompletionException e = assertThrows(CompletionException.class,
+					() -> async.findProjectByNumber(1).join());
+			assertInstanceOf(SQLException.class, e.getCause());
+			e = assertThrows(CompletionException.class, () -> async.deleteProject(1).join());
+			assertInstanceOf(SQLException.class, e.getCause());
+		}
+	}
+
+	@Test
+	void runsNoMoreOperationsAtOnceThanTheLimit() throws SQLException, InterruptedException {
+		ProjectManager projectManager = fileProjectManager();
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger mostRunning = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		// Listeners are told on the thread that made the change, so each add holds its permit here
+		projectManager.addProjectChangeListener(new ChangeListener() {
+			@Override
+			public void projectSaved(Project project) {
+				mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				running.decrementAndGet();
+			}
+		});
+
+		try (AsyncProjectManager async = new AsyncProjectManager(projectManager, 2)) {
+			List<CompletableFuture<Void>> adds = new ArrayList<>();
+			for (int number = 1; number <= 6; number++) {
+				adds.add(async.addProject(newProject(projectManager, number)));
+			}
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (running.get() < 2 && System.nanoTime() < deadline) {
+				Thread.sleep(1);
+			}
+			// Give the waiting operations a chance to start, which they must not take
+			Thread.sleep(50);
+			assertEquals(2, running.get());
+			release.countDown();
+			adds.forEach(CompletableFuture::join);
+		}
+		assertEquals(2, mostRunning.get());
+		assertEquals(6, projectManager.readProjectsByNumbers(List.of(1, 2, 3, 4, 5, 6)).size());
+	}
+
+	@Test
+	void operationsRunInTheCallersReadSession() throws SQLException {
+		ProjectManager projectManager = fileProjectManager();
+		List<ReadSession> sessions = new ArrayList<>();
+		projectManager.addProjectChangeListener(new ChangeListener() {
+			@Override
+			public void projectSaved(Project project) {
+				sessions.add(ReadSession.current());
+			}
+		});
+
+		ReadSession session = new ReadSession();
+		try (AsyncProjectManager async = new AsyncProjectManager(projectManager, 2)) {
+			ReadSession.Scope scope = session.bind();
+			try {
+				async.addProject(newProject(projectManager, 1)).join();
+			} finally {
+				scope.close();
+			}
+			// Without a bound session, the caller's own thread session is carried instead
+			async.addProject(newProject(projectManager, 2)).join();
+		}
+		assertEquals(2, sessions.size());
+		assertSame(session, sessions.get(0));
+		assertSame(ReadSession.current(), sessions.get(1));
+		assertNotSame(session, sessions.get(1));
+	}
+
+	private ProjectManager fileProjectManager() throws SQLException {
+		return new ProjectManager(FileProjectRepository.open(directory.resolve("projects.db")));
+	}
+
+	/**
+	 * Builds a project with participants of its own, added first as the file repository requires.
+	 */
+	private static Project newProject(ProjectManager projectManager, int projectNumber) {
+		Architect architect = new Architect(0, "Architect", "1", "a@example.com", "Address");
+		Contractor contractor = new Contractor(0, "Contractor", "2", "c@example.com", "Address");
+		Customer customer = new Customer(0, "Customer", "3", "u@example.com", "Address");
+		projectManager.addArchitect(architect);
+		projectManager.addContractor(contractor);
+		projectManager.addCustomer(customer);
+		return new Project(0, projectNumber, "Project " + projectNumber, "House", "Address",
+				"ERF" + projectNumber, 100_000, 0, DEADLINE, null, architect, contractor, customer);
+	}
+
+	/**
+	 * A change listener that ignores everything it is not given a body for.
+	 */
+	private abstract static class ChangeListener implements ProjectChangeListener {
+		@Override
+		public void projectSaved(Project project) {
+		}
+
+		@Override
+		public void projectFinalized(int projectNumber, java.util.Date completionDate) {
+		}
+
+		@Override
+		public void projectDeleted(int projectNumber) {
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link BatchRunner} against the file repository and the database.
+ */
+class BatchRunnerTest {
+	private static final java.sql.Date DEADLINE = java.sql.Date.valueOf("2030-01-31");
+
+	@TempDir
+	Path directory;
+
+	private Architect architect;
+	private Contractor contractor;
+	private Customer customer;
+
+	@Test
+	void storageFailuresFailTheirCommands() throws IOException, SQLException {
+		ProjectManager projectManager = new ProjectManager(
+				FileProjectRepository.open(directory.resolve("projects.db")));
+		projectManager.getRepository().close();
+
+		StringWriter out = new StringWriter();
+		StringWriter err = new StringWriter();
+		BatchRunner runner = new BatchRunner(projectManager, out, err, 10);
+		String commands = String.join("\n", "find,1", "fees", "incomplete", "overdue",
+				"projects,architect,1", "delete,1");
+		assertEquals(6, runner.run(new BufferedReader(new StringReader(commands))));
+
+		assertFalse(out.toString().contains("not found"));
+		for (int line = 1; line <= 6; line++) {
+			assertTrue(err.toString().contains("Line " + line + ": "), err.toString());
+		}
+		assertTrue(err.toString().contains("0 succeeded, 6 failed"), err.toString());
+	}
+
+	@Test
+	void runsAMixedScript() throws IOException, SQLException {
+		ProjectManager projectManager = jdbcProjectManager();
+		String participants = architect.getId() + "," + contractor.getId() + "," + customer.getId();
+		String commands = String.join("\n",
+				"# Nightly changes",
+				"add,1,\"Smith House, East Wing\",House,\"12 Main Road, Cape Town\",ERF1,2500.00,0.00,"
+						+ "2030-06-30," + participants,
+				"{\"op\": \"add\", \"number\": 2, \"name\": \"Jones \\\"Block\\\"\", "
+						+ "\"buildingType\": \"Apartment\", \"address\": \"1 Long Street\", "
+						+ "\"erfNumber\": \"ERF2\", \"totalFee\": \"1000.00\", \"amountPaid\": \"0\", "
+						+ "\"deadline\": \"2030-03-01\", \"architectId\": " + architect.getId()
+						+ ", \"contractorId\": " + contractor.getId() + ", \"customerId\": "
+						+ customer.getId() + "}",
+				"update,1,amountPaid=500.00,\"name=Smith \"\"Big\"\" House\"",
+				// Touches a project already in the group, so the group is written first
+				"update,1,deadline=2030-09-30",
+				"{\"op\": \"finalize\", \"number\": 2, \"completionDate\": \"2030-05-01\"}",
+				"",
+				"find,1",
+				"find,2");
+
+		StringWriter out = new StringWriter();
+		StringWriter err = new StringWriter();
+		BatchRunner runner = new BatchRunner(projectManager, out, err, 10);
+		assertEquals(0, runner.run(new BufferedReader(new StringReader(commands))), err.toString());
+
+		assertTrue(out.toString().contains("Name: Smith \"Big\" House, Type: House, "
+				+ "Address: 12 Main Road, Cape Town, ERF: ERF1, Total Fee: " + Money.format(250_000)
+				+ ", Amount Paid: " + Money.format(50_000) + ", Deadline: 2030-09-30, Completed: null"),
+				out.toString());
+		assertTrue(out.toString().contains("Name: Jones \"Block\", Type: Apartment"), out.toString());
+		assertTrue(out.toString().contains("Completed: 2030-05-01"), out.toString());
+		assertTrue(err.toString().startsWith("Ran 7 commands in "), err.toString());
+		assertTrue(err.toString().contains(": 7 succeeded, 0 failed"), err.toString());
+		projectManager.getRepository().close();
+	}
+
+	@Test
+	void groupsChangesIntoOneUnitOfWork() throws IOException, SQLException {
+		ProjectManager projectManager = jdbcProjectManager();
+		for (int number = 1; number <= 16; number++) {
+			addProject(projectManager, number);
+		}
+
+		// The same eight changes, sent together and then one at a time, which reads and writes each
+		long grouped = roundTrips(new BatchRunner(projectManager, new StringWriter(),
+				new StringWriter(), 10), 1);
+		long alone = roundTrips(new BatchRunner(projectManager, new StringWriter(),
+				new StringWriter(), 1), 9);
+		assertTrue(grouped * 2 < alone, grouped + " round trips grouped, " + alone + " alone");
+
+		assertEquals(10_000, projectManager.readProjectByNumber(7).getAmountPaidCents());
+		assertEquals(java.sql.Date.valueOf("2030-05-01"),
+				projectManager.readProjectByNumber(16).getCompletionDate());
+		projectManager.getRepository().close();
+	}
+
+	@Test
+	void aFailedGroupIsRunAgainOneCommandAtATime() throws IOException, SQLException {
+		ProjectManager projectManager = jdbcProjectManager();
+		for (int number = 1; number <= 3; number++) {
+			addProject(projectManager, number);
+		}
+		// The second update names an architect that does not exist, which fails the whole group
+		String commands = String.join("\n", "update,1,amountPaid=100.00",
+				"update,2,architectId=" + (architect.getId() + 1_000), "finalize,3,2030-05-01");
+
+		StringWriter err = new StringWriter();
+		BatchRunner runner = new BatchRunner(projectManager, new StringWriter(), err, 10);
+		assertEquals(1, runner.run(new BufferedReader(new StringReader(commands))));
+
+		assertTrue(err.toString().contains("Line 2: "), err.toString());
+		assertFalse(err.toString().contains("Line 1: "), err.toString());
+		assertFalse(err.toString().contains("Line 3: "), err.toString());
+		assertEquals(10_000, projectManager.readProjectByNumber(1).getAmountPaidCents());
+		assertEquals(architect.getId(), projectManager.readProjectByNumber(2).getArchitect().getId());
+		assertEquals(java.sql.Date.valueOf("2030-05-01"),
+				projectManager.readProjectByNumber(3).getCompletionDate());
+		projectManager.getRepository().close();
+	}
+
+	/**
+	 * Runs updates of the odd projects and finalisations of the even ones among eight projects.
+	 *
+	 * @return The number of round trips the run made.
+	 */
+	private static long roundTrips(BatchRunner runner, int firstNumber) throws IOException {
+		StringBuilder commands = new StringBuilder();
+		for (int number = firstNumber; number < firstNumber + 8; number++) {
+			commands.append(number % 2 == 0 ? "finalize," + number + ",2030-05-01"
+					: "update," + number + ",amountPaid=100.00").append('\n');
+		}
+		RoundTripCounter.reset();
+		assertEquals(0, runner.run(new BufferedReader(new StringReader(commands.toString()))));
+		return RoundTripCounter.get();
+	}
+
+	/**
+	 * Empties the test database and adds one participant of each role.
+	 */
+	private ProjectManager jdbcProjectManager() throws SQLException {
+		new SchemaMigrator().migrate();
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = DatabaseConnection.getConnection();
+				Statement stmt = conn.createStatement()) {
+			stmt.executeUpdate("DELETE FROM Projects");
+			stmt.executeUpdate("DELETE FROM Architects");
+			stmt.executeUpdate("DELETE FROM Contractors");
+			stmt.executeUpdate("DELETE FROM Customers");
+		}
+		ProjectManager projectManager = new ProjectManager(new JdbcProjectRepository());
+		architect = new Architect(0, "Architect", "1", "a@example.com", "Address");
+		contractor = new Contractor(0, "Contractor", "2", "c@example.com", "Address");
+		customer = new Customer(0, "Customer", "3", "u@example.com", "Address");
+		projectManager.addArchitect(architect);
+		projectManager.addContractor(contractor);
+		projectManager.addCustomer(customer);
+		return projectManager;
+	}
+
+	private void addProject(ProjectManager projectManager, int projectNumber) {
+		projectManager.addProject(new Project(0, projectNumber, "Project " + projectNumber, "House",
+				"Address", "ERF" + projectNumber, 100_000, 0, DEADLINE, null, architect, contractor,
+				customer));
+	}
+}
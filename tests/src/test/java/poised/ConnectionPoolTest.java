@@ -0,0 +1,228 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link ConnectionPool} against an in-memory database of its own.
+ */
+class ConnectionPoolTest {
+	private static final String URL = "jdbc:h2:mem:poised-pool;DB_CLOSE_DELAY=-1";
+
+	@Test
+	void borrowWaitsForAReturnedConnectionUntilItsTimeout() throws Exception {
+		// Try-with-resources to ensure resources are closed automatically
+		try (ConnectionPool pool = new ConnectionPool(URL, "sa", "", 0, 1, 60_000, 200, 4)) {
+			Connection held = pool.borrow();
+			long start = System.nanoTime();
+			assertThrows(SQLTimeoutException.class, pool::borrow);
+			assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+			assertEquals(1, pool.getMetrics().getTimeoutCount());
+
+			// A connection returned while a caller waits goes to that caller
+			CompletableFuture<Connection> waiter = CompletableFuture.supplyAsync(() -> {
+				try {
+					return pool.borrow(10_000);
+				} catch (SQLException e) {
+					throw new CompletionException(e);
+				}
+			});
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (pool.getMetrics().getWaitingThreads() == 0 && System.nanoTime() < deadline) {
+				Thread.sleep(1);
+			}
+			held.close();
+			try (Connection conn = waiter.get(10, TimeUnit.SECONDS)) {
+				assertFalse(conn.isClosed());
+			}
+			assertEquals(1, pool.getMetrics().getTotalConnections());
+		}
+	}
+
+	@Test
+	void borrowWithoutWaitingIsTurnedAwayAtOnce() throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (ConnectionPool pool = new ConnectionPool(URL, "sa", "", 0, 1, 60_000, 60_000, 4);
+				Connection held = pool.borrow()) {
+			long start = System.nanoTime();
+			assertThrows(SQLTimeoutException.class, () -> pool.borrow(0));
+			assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+			// Being turned away is not a timeout
+			assertEquals(0, pool.getMetrics().getTimeoutCount());
+		}
+	}
+
+	@Test
+	void validatesAConnectionThatHasBeenIdle() throws Exception {
+		// Try-with-resources to ensure resources are closed automatically
+		try (ConnectionPool pool = pool(0, 2, 4)) {
+			int session;
+			try (Connection conn = pool.borrow();
+					PreparedStatement stmt = conn.prepareStatement("SELECT SESSION_ID()")) {
+				session = single(stmt);
+			}
+			// The idle connection dies in the pool, for example when the server drops it
+			try (Connection other = DriverManager.getConnection(URL, "sa", "");
+					PreparedStatement stmt = other.prepareStatement("SELECT ABORT_SESSION(?)")) {
+				stmt.setInt(1, session);
+				stmt.executeQuery().close();
+			}
+
+			// Connections idle for a second or more are checked before they are handed out
+			Thread.sleep(1_100);
+			try (Connection conn = pool.borrow();
+					PreparedStatement stmt = conn.prepareStatement("SELECT SESSION_ID()")) {
+				assertTrue(single(stmt) != session);
+			}
+			assertEquals(1, pool.getMetrics().getValidationFailureCount());
+			assertEquals(2, pool.getMetrics().getCreatedCount());
+			assertEquals(1, pool.getMetrics().getTotalConnections());
+		}
+	}
+
+	@Test
+	void maintenanceEvictsIdleConnectionsDownToTheMinimum() throws Exception {
+		// Try-with-resources to ensure resources are closed automatically
+		try (ConnectionPool pool = new ConnectionPool(URL, "sa", "", 1, 3, 100, 1_000, 4)) {
+			List<Connection> borrowed = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				borrowed.add(pool.borrow());
+			}
+			for (Connection conn : borrowed) {
+				conn.close();
+			}
+			assertEquals(3, pool.getMetrics().getIdleConnections());
+
+			// Maintenance runs every second at most
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (pool.getMetrics().getTotalConnections() > 1 && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(1, pool.getMetrics().getTotalConnections());
+			assertEquals(1, pool.getMetrics().getIdleConnections());
+			assertEquals(2, pool.getMetrics().getEvictedCount());
+		}
+	}
+
+	@Test
+	void reusesStatementsPreparedOnTheSameConnection() throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (ConnectionPool pool = pool(1, 1, 4)) {
+			for (int i = 0; i < 3; i++) {
+				try (Connection conn = pool.borrow();
+						PreparedStatement stmt = conn.prepareStatement("SELECT ? + 1")) {
+					stmt.setInt(1, i);
+					assertEquals(i + 1, single(stmt));
+				}
+			}
+			assertEquals(1, pool.getMetrics().getStatementCacheMisses());
+			assertEquals(2, pool.getMetrics().getStatementCacheHits());
+
+			// The same SQL prepared twice at once gives a second, uncached statement
+			try (Connection conn = pool.borrow();
+					PreparedStatement first = conn.prepareStatement("SELECT ? + 1");
+					PreparedStatement second = conn.prepareStatement("SELECT ? + 1")) {
+				first.setInt(1, 10);
+				second.setInt(1, 20);
+				assertEquals(11, single(first));
+				assertEquals(21, single(second));
+			}
+		}
+	}
+
+	@Test
+	void evictsTheLeastRecentlyUsedStatement() throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (ConnectionPool pool = pool(1, 1, 2)) {
+			for (String sql : new String[] { "SELECT 1", "SELECT 2", "SELECT 1", "SELECT 3" }) {
+				prepare(pool, sql);
+			}
+			assertEquals(3, pool.getMetrics().getStatementCacheMisses());
+			assertEquals(1, pool.getMetrics().getStatementCacheHits());
+
+			// SELECT 2 was used least recently when SELECT 3 came in; SELECT 1 stayed
+			prepare(pool, "SELECT 1");
+			assertEquals(2, pool.getMetrics().getStatementCacheHits());
+			prepare(pool, "SELECT 2");
+			assertEquals(4, pool.getMetrics().getStatementCacheMisses());
+		}
+	}
+
+	@Test
+	void restoresStatementSettingsForTheNextCaller() throws SQLException {
+		String sql = "SELECT X FROM SYSTEM_RANGE(1, ?)";
+		// Try-with-resources to ensure resources are closed automatically
+		try (ConnectionPool pool = pool(1, 1, 4)) {
+			int fetchSize;
+			try (Connection conn = pool.borrow();
+					PreparedStatement stmt = conn.prepareStatement(sql)) {
+				fetchSize = stmt.getFetchSize();
+				stmt.setInt(1, 10);
+				stmt.setMaxRows(3);
+				stmt.setFetchSize(2);
+				stmt.setQueryTimeout(5);
+				assertEquals(3, count(stmt));
+			}
+
+			try (Connection conn = pool.borrow();
+					PreparedStatement stmt = conn.prepareStatement(sql)) {
+				assertEquals(1, pool.getMetrics().getStatementCacheHits());
+				assertEquals(0, stmt.getMaxRows());
+				assertEquals(fetchSize, stmt.getFetchSize());
+				assertEquals(0, stmt.getQueryTimeout());
+				// The last caller's parameter is gone too
+				assertThrows(SQLException.class, stmt::executeQuery);
+				stmt.setInt(1, 10);
+				assertEquals(10, count(stmt));
+			}
+		}
+	}
+
+	private static ConnectionPool pool(int minSize, int maxSize, int statementCacheSize) {
+		return new ConnectionPool(URL, "sa", "", minSize, maxSize, 60_000, 1_000,
+				statementCacheSize);
+	}
+
+	private static void prepare(ConnectionPool pool, String sql) throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = pool.borrow();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			single(stmt);
+		}
+	}
+
+	private static int single(PreparedStatement stmt) throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (ResultSet rs = stmt.executeQuery()) {
+			assertTrue(rs.next());
+			return rs.getInt(1);
+		}
+	}
+
+	private static int count(PreparedStatement stmt) throws SQLException {
+		int rows = 0;
+		// Try-with-resources to ensure resources are closed automatically
+		try (ResultSet rs = stmt.executeQuery()) {
+			while (rs.next()) {
+				rows++;
+			}
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,115 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link FileProjectRepository}.
+ */
+class FileProjectRepositoryTest {
+	private static final java.sql.Date DEADLINE = java.sql.Date.valueOf("2030-01-31");
+	private static final java.sql.Date COMPLETED = java.sql.Date.valueOf("2030-02-15");
+
+	@TempDir
+	Path directory;
+
+	private final Architect architect = new Architect(0, "Architect", "1", "a@example.com",
+			"Address");
+	private final Contractor contractor = new Contractor(0, "Contractor", "2", "c@example.com",
+			"Address");
+	private final Customer customer = new Customer(0, "Customer", "3", "u@example.com", "Address");
+
+	@Test
+	void writesSurviveReopening() throws SQLException {
+		Path path = directory.resolve("projects.db");
+		// Try-with-resources to ensure resources are closed automatically
+		try (FileProjectRepository repository = FileProjectRepository.open(path)) {
+			insertParticipants(repository);
+			repository.insertProject(project(1));
+			repository.insertProject(project(2));
+			repository.insertProject(project(3));
+
+			Project updated = repository.findLatestProjectByNumber(1);
+			updated.setAmountPaidCents(25_000);
+			assertEquals(UpdateResult.UPDATED,
+					repository.updateProject(updated, updated.getDirtyFieldBits()));
+			assertEquals(UpdateResult.UPDATED, repository.finalizeProject(2, null, COMPLETED));
+			assertTrue(repository.deleteProject(3));
+		}
+
+		try (FileProjectRepository repository = FileProjectRepository.open(path)) {
+			Project first = repository.findProjectByNumber(1);
+			assertEquals(25_000, first.getAmountPaidCents());
+			assertEquals(1, first.getVersion());
+			assertEquals(architect.getId(), first.getArchitect().getId());
+			assertEquals("Architect", first.getArchitect().getName());
+			assertEquals(COMPLETED, repository.findProjectByNumber(2).getCompletionDate());
+			assertNull(repository.findProjectByNumber(3));
+			assertEquals(2, repository.summarizeFees().getProjectCount());
+		}
+	}
+
+	@Test
+	void staleUpdateIsAConflict() throws SQLException {
+		try (FileProjectRepository repository = FileProjectRepository
+				.open(directory.resolve("projects.db"))) {
+			insertParticipants(repository);
+			repository.insertProject(project(1));
+
+			Project first = repository.findLatestProjectByNumber(1);
+			Project second = repository.findLatestProjectByNumber(1);
+			first.setAmountPaidCents(10_000);
+			second.setAmountPaidCents(20_000);
+			assertEquals(UpdateResult.UPDATED,
+					repository.updateProject(first, first.getDirtyFieldBits()));
+			assertEquals(UpdateResult.CONFLICT,
+					repository.updateProject(second, second.getDirtyFieldBits()));
+			assertEquals(10_000, repository.findProjectByNumber(1).getAmountPaidCents());
+		}
+	}
+
+	@Test
+	void schemaConstraintsAreEnforced() throws SQLException {
+		try (FileProjectRepository repository = FileProjectRepository
+				.open(directory.resolve("projects.db"))) {
+			insertParticipants(repository);
+			repository.insertProject(project(1));
+
+			assertThrows(SQLIntegrityConstraintViolationException.class,
+					() -> repository.insertProject(project(1)));
+			Project orphan = project(2);
+			orphan.setArchitect(new Architect(architect.getId() + 1, "Missing", "1", "m@example.com",
+					"Address"));
+			assertThrows(SQLIntegrityConstraintViolationException.class,
+					() -> repository.insertProject(orphan));
+		}
+	}
+
+	@Test
+	void fileCanOnlyBeOpenOnce() throws SQLException {
+		Path path = directory.resolve("projects.db");
+		try (FileProjectRepository repository = FileProjectRepository.open(path)) {
+			assertThrows(SQLException.class, () -> FileProjectRepository.open(path));
+		}
+	}
+
+	private void insertParticipants(FileProjectRepository repository) throws SQLException {
+		repository.insertArchitect(architect);
+		repository.insertContractor(contractor);
+		repository.insertCustomer(customer);
+	}
+
+	private Project project(int projectNumber) {
+		return new Project(0, projectNumber, "Project " + projectNumber, "House", "Address",
+				"ERF" + projectNumber, 100_000, 0, DEADLINE, null, architect, contractor, customer);
+	}
+}
@@ -0,0 +1,212 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link ProjectManager} against the database.
+ */
+class JdbcProjectManagerTest {
+	private static final java.sql.Date DEADLINE = java.sql.Date.valueOf("2030-01-31");
+	private static final java.sql.Date COMPLETED = java.sql.Date.valueOf("2030-02-15");
+
+	private ProjectManager projectManager;
+	private Architect architect;
+	private Contractor contractor;
+	private Customer customer;
+
+	@BeforeEach
+	void addProject() throws SQLException {
+		new SchemaMigrator().migrate();
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = DatabaseConnection.getConnection();
+				Statement stmt = conn.createStatement()) {
+			stmt.executeUpdate("DELETE FROM Projects");
+			stmt.executeUpdate("DELETE FROM Architects");
+			stmt.executeUpdate("DELETE FROM Contractors");
+			stmt.executeUpdate("DELETE FROM Customers");
+		}
+		projectManager = new ProjectManager(new JdbcProjectRepository());
+
+		architect = new Architect(0, "Architect", "1", "a@example.com", "Address");
+		contractor = new Contractor(0, "Contractor", "2", "c@example.com", "Address");
+		customer = new Customer(0, "Customer", "3", "u@example.com", "Address");
+		projectManager.addArchitect(architect);
+		projectManager.addContractor(contractor);
+		projectManager.addCustomer(customer);
+		projectManager.addProject(new Project(0, 1, "Project 1", "House", "Address", "ERF1", 100_000,
+				0, DEADLINE, null, architect, contractor, customer));
+	}
+
+	@AfterEach
+	void closeRepository() throws SQLException {
+		projectManager.getRepository().close();
+	}
+
+	@Test
+	void findingAProjectTakesOneQuery() {
+		RoundTripCounter.reset();
+		Project project = projectManager.findProjectByNumber(1);
+		assertNotNull(project);
+		assertNotNull(project.getArchitect());
+		assertNotNull(project.getContractor());
+		assertNotNull(project.getCustomer());
+		assertEquals(1, RoundTripCounter.get());
+
+		RoundTripCounter.reset();
+		project = projectManager.findProjectByName("Project 1");
+		assertNotNull(project);
+		assertNotNull(project.getArchitect());
+		assertNotNull(project.getContractor());
+		assertNotNull(project.getCustomer());
+		assertEquals(1, RoundTripCounter.get());
+	}
+
+	@Test
+	void readsAndSavesThrowWhenTheTableIsMissing() throws SQLException {
+		Project project = projectManager.readLatestProjectByNumber(1);
+		project.setAmountPaidCents(10_000);
+		int architectId = project.getArchitect().getId();
+
+		execute("ALTER TABLE Projects RENAME TO ProjectsHidden");
+		try {
+			assertThrows(SQLException.class, () -> projectManager.readProjectByNumber(1));
+			assertThrows(SQLException.class, () -> projectManager.readLatestProjectByNumber(1));
+			assertThrows(SQLException.class, () -> projectManager.readIncompleteProjects(summary -> {
+			}));
+			assertThrows(SQLException.class, () -> projectManager.readOverdueProjects(summary -> {
+			}));
+			assertThrows(SQLException.class, () -> projectManager.readProjectsByParticipant(
+					ParticipantRole.ARCHITECT, architectId, false, found -> {
+					}));
+			assertThrows(SQLException.class, () -> projectManager.saveProject(project));
+			assertThrows(SQLException.class, () -> projectManager.saveFinalization(1, COMPLETED));
+		} finally {
+			execute("ALTER TABLE ProjectsHidden RENAME TO Projects");
+		}
+	}
+
+	@Test
+	void incompleteReportPagesByProjectNumber() throws SQLException {
+		for (int number = 2; number <= 12; number++) {
+			addProject(number, DEADLINE, architect);
+		}
+		projectManager.saveFinalization(4, COMPLETED);
+		projectManager.saveFinalization(9, COMPLETED);
+
+		List<Integer> numbers = new ArrayList<>();
+		List<Integer> pageSizes = new ArrayList<>();
+		int after = Integer.MIN_VALUE;
+		List<ProjectSummary> page;
+		do {
+			page = projectManager.readIncompleteProjects(after, 3);
+			pageSizes.add(page.size());
+			for (ProjectSummary summary : page) {
+				numbers.add(summary.getProjectNumber());
+				after = summary.getProjectNumber();
+			}
+		} while (page.size() == 3);
+
+		assertEquals(List.of(1, 2, 3, 5, 6, 7, 8, 10, 11, 12), numbers);
+		assertEquals(List.of(3, 3, 3, 1), pageSizes);
+		List<Integer> streamed = new ArrayList<>();
+		projectManager.readIncompleteProjects(summary -> streamed.add(summary.getProjectNumber()));
+		assertEquals(numbers, streamed);
+	}
+
+	@Test
+	void overdueReportPagesByDeadlineThenProjectNumber() throws SQLException {
+		java.sql.Date january = java.sql.Date.valueOf("2020-01-01");
+		java.sql.Date february = java.sql.Date.valueOf("2020-02-01");
+		addProject(20, java.sql.Date.valueOf("2020-03-01"), architect);
+		addProject(21, january, architect);
+		for (int number : new int[] { 27, 22, 25, 23, 24 }) {
+			addProject(number, february, architect);
+		}
+		addProject(26, january, architect);
+		projectManager.saveFinalization(26, COMPLETED);
+
+		// Pages of two split the projects due in February
+		List<Integer> numbers = new ArrayList<>();
+		java.util.Date afterDeadline = null;
+		int afterNumber = Integer.MIN_VALUE;
+		List<ProjectSummary> page;
+		do {
+			page = projectManager.readOverdueProjects(afterDeadline, afterNumber, 2);
+			for (ProjectSummary summary : page) {
+				numbers.add(summary.getProjectNumber());
+				afterDeadline = summary.getDeadline();
+				afterNumber = summary.getProjectNumber();
+			}
+		} while (page.size() == 2);
+
+		assertEquals(List.of(21, 22, 23, 24, 25, 27, 20), numbers);
+		List<Integer> streamed = new ArrayList<>();
+		projectManager.readOverdueProjects(summary -> streamed.add(summary.getProjectNumber()));
+		assertEquals(numbers, streamed);
+	}
+
+	@Test
+	void participantPagesLeaveOutOtherParticipantsAndFinalisedProjects() throws SQLException {
+		Architect other = new Architect(0, "Other", "4", "o@example.com", "Address");
+		projectManager.addArchitect(other);
+		for (int number = 2; number <= 11; number++) {
+			addProject(number, DEADLINE, number % 3 == 0 ? other : architect);
+		}
+		projectManager.saveFinalization(2, COMPLETED);
+		projectManager.saveFinalization(7, COMPLETED);
+
+		assertEquals(List.of(1, 2, 4, 5, 7, 8, 10, 11), participantProjects(architect, false));
+		assertEquals(List.of(1, 4, 5, 8, 10, 11), participantProjects(architect, true));
+		assertEquals(List.of(3, 6, 9), participantProjects(other, false));
+	}
+
+	/**
+	 * Lists an architect's projects in pages of two, checking each project's participants.
+	 */
+	private List<Integer> participantProjects(Architect owner, boolean openOnly) {
+		List<Integer> numbers = new ArrayList<>();
+		int after = Integer.MIN_VALUE;
+		List<Project> page;
+		do {
+			page = projectManager.findProjectsByParticipant(ParticipantRole.ARCHITECT, owner.getId(),
+					openOnly, after, 2);
+			for (Project project : page) {
+				assertEquals(owner.getName(), project.getArchitect().getName());
+				assertEquals(customer.getName(), project.getCustomer().getName());
+				if (openOnly) {
+					assertNull(project.getCompletionDate());
+				}
+				numbers.add(project.getProjectNumber());
+				after = project.getProjectNumber();
+			}
+		} while (page.size() == 2);
+		return numbers;
+	}
+
+	private void addProject(int projectNumber, java.sql.Date deadline, Architect owner) {
+		projectManager.addProject(new Project(0, projectNumber, "Project " + projectNumber, "House",
+				"Address", "ERF" + projectNumber, 100_000, 0, deadline, null, owner, contractor,
+				customer));
+	}
+
+	private static void execute(String sql) throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = DatabaseConnection.getConnection();
+				Statement stmt = conn.createStatement()) {
+			stmt.executeUpdate(sql);
+		}
+	}
+}
@@ -0,0 +1,270 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Tests {@link JdbcProjectRepository} against the database.
+ */
+class JdbcProjectRepositoryTest {
+	private static final java.sql.Date DEADLINE = java.sql.Date.valueOf("2030-01-31");
+
+	private JdbcProjectRepository repository;
+	private Architect architect;
+	private Contractor contractor;
+	private Customer customer;
+
+	@BeforeEach
+	void addParticipants() throws SQLException {
+		new SchemaMigrator().migrate();
+		execute("DELETE FROM Projects");
+		execute("DELETE FROM Architects");
+		execute("DELETE FROM Contractors");
+		execute("DELETE FROM Customers");
+		repository = new JdbcProjectRepository();
+		ProjectManager projectManager = new ProjectManager(repository);
+		architect = new Architect(0, "Architect", "1", "a@example.com", "Address");
+		contractor = new Contractor(0, "Contractor", "2", "c@example.com", "Address");
+		customer = new Customer(0, "Customer", "3", "u@example.com", "Address");
+		projectManager.addArchitect(architect);
+		projectManager.addContractor(contractor);
+		projectManager.addCustomer(customer);
+	}
+
+	@AfterEach
+	void closeRepository() throws SQLException {
+		repository.close();
+	}
+
+	static Stream<Boolean> multiRowValues() {
+		return Stream.of(false, true);
+	}
+
+	@ParameterizedTest
+	@MethodSource("multiRowValues")
+	void bulkImportRecordsEachRejectedRow(boolean multiRowValues) throws SQLException {
+		repository.insertProject(project(100));
+		List<Project> projects = new ArrayList<>();
+		for (int number = 1; number <= 10; number++) {
+			projects.add(project(number));
+		}
+		// An architect that does not exist, no customer, and two numbers that are already taken
+		projects.get(2).setArchitect(new Architect(architect.getId() + 1_000, null, null, null, null));
+		projects.get(4).setCustomer(null);
+		projects.get(7).setProjectNumber(100);
+		projects.get(8).setProjectNumber(1);
+
+		List<Project> committed = new ArrayList<>();
+		BulkImportResult result = repository.insertProjects(projects,
+				new BulkImportOptions(3, 2, multiRowValues), committed::add);
+
+		assertFalse(result.isAborted());
+		assertEquals(10, result.getProcessedCount());
+		assertEquals(6, result.getInsertedCount());
+		List<Integer> indexes = new ArrayList<>();
+		List<Integer> batchNumbers = new ArrayList<>();
+		for (BulkImportResult.FailedRow row : result.getFailedRows()) {
+			indexes.add(row.getIndex());
+			batchNumbers.add(row.getBatchNumber());
+			assertEquals(projects.get(row.getIndex()), row.getProject());
+		}
+		// Batches of three: indexes 0-2, 3-5, 6-8 and 9
+		assertEquals(List.of(2, 4, 7, 8), indexes.stream().sorted().toList());
+		assertEquals(List.of(0, 1, 2, 2), batchNumbers.stream().sorted().toList());
+
+		List<Integer> inserted = new ArrayList<>();
+		for (Project project : committed) {
+			inserted.add(project.getProjectNumber());
+		}
+		assertEquals(List.of(1, 2, 4, 6, 7, 10), inserted);
+		assertEquals(7, repository.findProjectsByNumbers(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 100))
+				.size());
+		assertEquals("Project 1", repository.findProjectByNumber(1).getProjectName());
+		assertEquals("Project 100", repository.findProjectByNumber(100).getProjectName());
+	}
+
+	@ParameterizedTest
+	@MethodSource("multiRowValues")
+	void bulkImportStopsWhenTheConnectionIsLost(boolean multiRowValues) throws SQLException {
+		List<Project> projects = new ArrayList<>();
+		for (int number = 1; number <= 10; number++) {
+			projects.add(project(number));
+		}
+		// Batches of two, committed every second batch: after indexes 3 and 7
+		Iterable<Project> input = () -> new Iterator<>() {
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < projects.size();
+			}
+
+			@Override
+			public Project next() {
+				if (next == 6) {
+					// Indexes 4 and 5 are written but not committed; drop the connection that holds them
+					try {
+						execute("SELECT ABORT_SESSION(SESSION_ID) FROM INFORMATION_SCHEMA.SESSIONS "
+								+ "WHERE CONTAINS_UNCOMMITTED AND SESSION_ID <> SESSION_ID()");
+					} catch (SQLException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+				return projects.get(next++);
+			}
+		};
+
+		List<Project> committed = new ArrayList<>();
+		BulkImportResult result = repository.insertProjects(input,
+				new BulkImportOptions(2, 2, multiRowValues), committed::add);
+
+		assertTrue(result.isAborted());
+		assertInstanceOf(SQLNonTransientConnectionException.class, result.getAbortCause());
+		assertEquals(List.of(), result.getFailedRows());
+		assertEquals(4, result.getInsertedCount());
+		assertEquals(8, result.getProcessedCount());
+		assertEquals(4, committed.size());
+		for (int number = 1; number <= 10; number++) {
+			if (number <= 4) {
+				assertEquals("Project " + number, repository.findProjectByNumber(number).getProjectName());
+			} else {
+				assertNull(repository.findProjectByNumber(number));
+			}
+		}
+	}
+
+	@ParameterizedTest
+	@MethodSource("lookupSizes")
+	void findsProjectsByNumbersInChunks(int count) throws SQLException {
+		List<Project> projects = new ArrayList<>();
+		for (int number = 1; number <= 1_100; number++) {
+			projects.add(project(number));
+		}
+		assertEquals(1_100, repository.insertProjects(projects, BulkImportOptions.defaults(), null)
+				.getInsertedCount());
+
+		// Every other number, counting down, and one that does not exist
+		List<Integer> numbers = new ArrayList<>();
+		for (int number = 2 * count; number > 0; number -= 2) {
+			numbers.add(number > 1_100 ? -number : number);
+		}
+		RoundTripCounter.reset();
+		Map<Integer, Project> found = repository.findProjectsByNumbers(numbers);
+		assertEquals((count + JdbcProjectRepository.IN_LIST_CHUNK_SIZE - 1)
+				/ JdbcProjectRepository.IN_LIST_CHUNK_SIZE, RoundTripCounter.get());
+		long present = numbers.stream().filter(number -> number > 0).count();
+		assertEquals(present, found.size());
+		for (Map.Entry<Integer, Project> entry : found.entrySet()) {
+			assertEquals(entry.getKey(), entry.getValue().getProjectNumber());
+			assertTrue(numbers.contains(entry.getKey()));
+		}
+	}
+
+	static Stream<Integer> lookupSizes() {
+		// One number, a padded list, a full chunk, one more, and two chunks with a missing number
+		return Stream.of(1, 5, 512, 513, 551);
+	}
+
+	@Test
+	void padsInListsToAPowerOfTwo() {
+		// Values in the list, and placeholders sent for them
+		int[][] sizes = { { 1, 1 }, { 2, 2 }, { 3, 4 }, { 5, 8 }, { 257, 512 }, { 512, 512 } };
+		for (int[] size : sizes) {
+			String sql = JdbcProjectRepository.projectsByNumbersSql(size[0]);
+			assertEquals(size[1], sql.chars().filter(c -> c == '?').count(), sql);
+			assertEquals(sql, JdbcProjectRepository.projectsByNumbersSql(size[1]));
+		}
+	}
+
+	@Test
+	void paddedAndRepeatedNumbersFindEachProjectOnce() throws SQLException {
+		for (int number = 1; number <= 9; number++) {
+			repository.insertProject(project(number));
+		}
+		// Six numbers, repeated and missing ones among them, padded to eight by repeating the last
+		Map<Integer, Project> found = repository.findProjectsByNumbers(List.of(9, 3, 9, 1, 999, 3));
+		assertEquals(Set.of(1, 3, 9), found.keySet());
+	}
+
+	@Test
+	void projectsByNumbersComeBackInTheOrderAsked() throws SQLException {
+		for (int number = 1; number <= 9; number++) {
+			repository.insertProject(project(number));
+		}
+		// The manager drops the duplicates and keeps the order the numbers were given in
+		Map<Integer, Project> found = new ProjectManager(repository)
+				.readProjectsByNumbers(List.of(9, 3, 9, 1, 999, 3));
+		assertEquals(List.of(9, 3, 1), List.copyOf(found.keySet()));
+		assertEquals("Customer", found.get(3).getCustomer().getName());
+	}
+
+	@Test
+	void projectUpdateSqlWritesOnlyTheGivenColumns() {
+		int fields = Project.Field.AMOUNT_PAID.bit() | Project.Field.DEADLINE.bit();
+		String sql = JdbcProjectRepository.projectUpdateSql(fields);
+		assertEquals("UPDATE Projects SET amount_paid = ?, deadline = ?, version = version + 1 "
+				+ "WHERE project_number = ? AND version = ?", sql);
+		// Each set of columns is built once
+		assertSame(sql, JdbcProjectRepository.projectUpdateSql(fields));
+		assertNotSame(sql, JdbcProjectRepository.projectUpdateSql(Project.Field.DEADLINE.bit()));
+		assertEquals(JdbcProjectRepository.UPDATE_PROJECT_SQL,
+				JdbcProjectRepository.projectUpdateSql(Project.ALL_FIELDS));
+	}
+
+	@Test
+	void updatesWriteOnlyTheDirtyColumns() throws SQLException {
+		repository.insertProject(project(1));
+		ProjectManager projectManager = new ProjectManager(repository);
+		Project project = projectManager.readProjectByNumber(1);
+		// A column the update does not touch, changed behind the manager's back
+		execute("UPDATE Projects SET project_name = 'Renamed elsewhere' WHERE project_number = 1");
+
+		project.setAmountPaidCents(25_000);
+		assertEquals(UpdateResult.UPDATED, projectManager.saveProject(project));
+		Project stored = repository.findProjectByNumber(1);
+		assertEquals(25_000, stored.getAmountPaidCents());
+		assertEquals("Renamed elsewhere", stored.getProjectName());
+		assertEquals(1, stored.getVersion());
+
+		// Once written, the project is clean and saving it again sends nothing
+		RoundTripCounter.reset();
+		assertEquals(UpdateResult.UNCHANGED, projectManager.updateProject(project));
+		assertEquals(0, RoundTripCounter.get());
+		assertEquals(1, repository.findProjectByNumber(1).getVersion());
+	}
+
+	private Project project(int projectNumber) {
+		return new Project(0, projectNumber, "Project " + projectNumber, "House", "Address",
+				"ERF" + projectNumber, 100_000, 0, DEADLINE, null, architect, contractor, customer);
+	}
+
+	private static void execute(String sql) throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = DatabaseConnection.getConnection();
+				Statement stmt = conn.createStatement()) {
+			stmt.execute(sql);
+		}
+	}
+}
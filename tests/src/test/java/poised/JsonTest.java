@@ -0,0 +1,64 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link Json}.
+ */
+class JsonTest {
+	@Test
+	void parsesMembersInOrder() {
+		Map<String, String> members = Json.parseObject(
+				"{ \"op\" : \"update\", \"number\": -42, \"fee\": 1.5e3, \"open\": true, \"note\": null } ");
+		assertEquals(List.of("op", "number", "fee", "open", "note"), List.copyOf(members.keySet()));
+		assertEquals("update", members.get("op"));
+		assertEquals("-42", members.get("number"));
+		assertEquals("1.5e3", members.get("fee"));
+		assertEquals("true", members.get("open"));
+		assertTrue(members.containsKey("note"));
+		assertNull(members.get("note"));
+		assertEquals(Map.of(), Json.parseObject("{}"));
+	}
+
+	@Test
+	void unescapesStrings() {
+		Map<String, String> members = Json
+				.parseObject("{\"name\": \"Say \\\"hi\\\"\\\\ \\/ \\n\\t\\u00e9\\u0041\"}");
+		assertEquals("Say \"hi\"\\ / \n\té" + "A", members.get("name"));
+		assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\": \"\\x\"}"));
+		assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\": \"\\u00\"}"));
+		assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\": \"\\uzzzz\"}"));
+	}
+
+	@Test
+	void quoteIsReadBackUnchanged() {
+		String value = "Line \"one\"\\\nLine\ttwo\r\u0001";
+		assertEquals(value, Json.parseObject("{\"v\": " + Json.quote(value) + "}").get("v"));
+		assertEquals("null", Json.quote(null));
+	}
+
+	@Test
+	void rejectsNestedValues() {
+		assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\": {\"b\": 1}}"));
+		assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\": [1, 2]}"));
+	}
+
+	@Test
+	void rejectsTrailingAndMalformedText() {
+		assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\": 1} x"));
+		assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\": 1}{}"));
+		assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\": 1"));
+		assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\" 1}"));
+		assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\": 01}"));
+		assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\": yes}"));
+		assertThrows(IllegalArgumentException.class, () -> Json.parseObject("[]"));
+	}
+}
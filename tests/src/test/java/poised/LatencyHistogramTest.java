@@ -0,0 +1,86 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link LatencyHistogram}.
+ */
+class LatencyHistogramTest {
+	@Test
+	void countsValuesBelowTheSubBucketCountExactly() {
+		for (int value = 0; value < LatencyHistogram.SUB_BUCKET_COUNT; value++) {
+			assertEquals(value, LatencyHistogram.bucketOf(value));
+			assertEquals(value, LatencyHistogram.highestValueOf(value));
+		}
+	}
+
+	@Test
+	void bucketsDoubleInWidthAtEachPowerOfTwo() {
+		// From 128 each bucket holds two values, and from 256 four
+		assertEquals(128, LatencyHistogram.bucketOf(128));
+		assertEquals(128, LatencyHistogram.bucketOf(129));
+		assertEquals(129, LatencyHistogram.highestValueOf(128));
+		assertEquals(129, LatencyHistogram.bucketOf(130));
+		assertEquals(191, LatencyHistogram.bucketOf(255));
+		assertEquals(255, LatencyHistogram.highestValueOf(191));
+		assertEquals(192, LatencyHistogram.bucketOf(256));
+		assertEquals(192, LatencyHistogram.bucketOf(259));
+		assertEquals(259, LatencyHistogram.highestValueOf(192));
+		assertEquals(193, LatencyHistogram.bucketOf(260));
+	}
+
+	@Test
+	void everyBucketEndsWhereTheNextBegins() {
+		int last = LatencyHistogram.bucketOf(LatencyHistogram.MAX_VALUE);
+		assertEquals(LatencyHistogram.MAX_VALUE, LatencyHistogram.highestValueOf(last));
+		for (int bucket = 0; bucket < last; bucket++) {
+			long highest = LatencyHistogram.highestValueOf(bucket);
+			assertEquals(bucket, LatencyHistogram.bucketOf(highest));
+			assertEquals(bucket + 1, LatencyHistogram.bucketOf(highest + 1));
+			// A value is reported at most 1/64 above what was recorded
+			long lowest = bucket == 0 ? 0 : LatencyHistogram.highestValueOf(bucket - 1) + 1;
+			assertTrue((highest - lowest) * 64 <= lowest, "bucket " + bucket);
+		}
+	}
+
+	@Test
+	void percentilesAreTheValueAtTheirRank() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getValueAtPercentile(50));
+		for (int value = 100; value >= 1; value--) {
+			histogram.record(value);
+		}
+		assertEquals(100, histogram.getCount());
+		assertEquals(50.5, histogram.getMean());
+		assertEquals(100, histogram.getMax());
+		// Ranks are rounded up, and the lowest rank is 1
+		assertArrayEquals(new long[] { 1, 1, 50, 51, 90, 99, 100, 100 },
+				histogram.getValuesAtPercentiles(0, 0.5, 50, 50.5, 90, 99, 99.9, 100));
+		assertEquals(90, histogram.getValueAtPercentile(90));
+	}
+
+	@Test
+	void percentilesNeverExceedTheMaximumRecorded() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1_000);
+		histogram.record(257);
+		// 1,000 falls in the bucket 992 to 1,007, and 257 in the bucket 256 to 259
+		assertEquals(259, histogram.getValueAtPercentile(50));
+		assertEquals(1_000, histogram.getValueAtPercentile(100));
+
+		histogram.record(-5);
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(0, histogram.getValueAtPercentile(0));
+		assertEquals(LatencyHistogram.MAX_VALUE, histogram.getMax());
+		assertEquals(LatencyHistogram.MAX_VALUE, histogram.getValueAtPercentile(100));
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getValueAtPercentile(100));
+	}
+}
@@ -0,0 +1,49 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link Money}.
+ */
+class MoneyTest {
+	@Test
+	void parsesAmountsToExactCents() {
+		assertEquals(125_050, Money.parse("1250.5"));
+		assertEquals(10, Money.parse(" 0.10 "));
+		assertEquals(-199, Money.parse("-1.99"));
+		assertThrows(NumberFormatException.class, () -> Money.parse("0.001"));
+		assertThrows(NumberFormatException.class, () -> Money.parse("ten"));
+	}
+
+	@Test
+	void formatsWithTwoDecimalPlaces() {
+		assertEquals("1250.50", Money.format(125_050));
+		assertEquals("0.05", Money.format(5));
+		assertEquals("-0.05", Money.format(-5));
+		assertEquals("-12.30", Money.format(-1_230));
+	}
+
+	@Test
+	void sumsDoNotDrift() {
+		long total = 0;
+		for (int i = 0; i < 1_000; i++) {
+			total = Money.add(total, Money.parse("0.10"));
+		}
+		assertEquals("100.00", Money.format(total));
+		assertEquals(0, Money.subtract(total, 10_000));
+		assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+	}
+
+	@Test
+	void convertsAtTheDatabaseBoundary() {
+		assertEquals(new BigDecimal("1250.50"), Money.toBigDecimal(125_050));
+		assertEquals(125_050, Money.fromBigDecimal(new BigDecimal("1250.5")));
+		assertEquals(0, Money.fromBigDecimal(null));
+		assertEquals(1_999, Money.fromDouble(19.99));
+	}
+}
@@ -0,0 +1,71 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link OperationMetrics} with a clock the test controls.
+ */
+class OperationMetricsTest {
+	@Test
+	void recordsLatencyErrorsAndRows() {
+		AtomicLong now = new AtomicLong(1_000_000);
+		OperationMetrics metrics = new OperationMetrics("find", true, now::get);
+
+		for (int call = 1; call <= 10; call++) {
+			long start = metrics.start();
+			now.addAndGet(call * 1_000L);
+			if (call == 10) {
+				metrics.failed(start);
+			} else {
+				metrics.succeeded(start, call, call % 2);
+			}
+		}
+
+		OperationStats stats = metrics.snapshot();
+		assertEquals("find", stats.getName());
+		assertEquals(10, stats.getCount());
+		assertEquals(1, stats.getErrorCount());
+		assertEquals(45, stats.getRowsRead());
+		assertEquals(5, stats.getRowsWritten());
+		assertEquals(5.5, stats.getMeanMicros());
+		assertEquals(10.0, stats.getMaxMicros());
+		// 5,000 ns falls in the bucket 4,992 to 5,055, and the p99 rank is the failed call
+		assertEquals(5.055, stats.getP50Micros());
+		assertEquals(10.0, stats.getP99Micros());
+
+		metrics.reset();
+		assertEquals(0, metrics.snapshot().getCount());
+		assertEquals(0, metrics.snapshot().getRowsRead());
+	}
+
+	@Test
+	void disabledMetricsNeverReadTheClock() {
+		AtomicInteger reads = new AtomicInteger();
+		LongSupplier clock = () -> {
+			reads.incrementAndGet();
+			return 1_000;
+		};
+		OperationMetrics metrics = new OperationMetrics("find", false, clock);
+
+		long start = metrics.start();
+		metrics.succeeded(start, 3, 1);
+		metrics.failed(metrics.start());
+
+		assertEquals(0, reads.get());
+		OperationStats stats = metrics.snapshot();
+		assertEquals(0, stats.getCount());
+		assertEquals(0, stats.getErrorCount());
+		assertEquals(0, stats.getRowsRead());
+
+		// Enabled, each call reads the clock once at the start and once at the end
+		OperationMetrics enabled = new OperationMetrics("find", true, clock);
+		enabled.succeeded(enabled.start(), 3, 1);
+		assertEquals(2, reads.get());
+	}
+}
@@ -0,0 +1,139 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link OverdueScheduler} against the file repository, with a clock the test moves on.
+ */
+class OverdueSchedulerTest {
+	@TempDir
+	Path directory;
+
+	private final MovableClock clock = new MovableClock(Instant.parse("2030-02-01T00:00:00Z"));
+	private ProjectManager projectManager;
+	private Architect architect;
+	private Contractor contractor;
+	private Customer customer;
+
+	@BeforeEach
+	void openRepository() throws SQLException {
+		projectManager = new ProjectManager(
+				FileProjectRepository.open(directory.resolve("projects.db")));
+		architect = new Architect(0, "Architect", "1", "a@example.com", "Address");
+		contractor = new Contractor(0, "Contractor", "2", "c@example.com", "Address");
+		customer = new Customer(0, "Customer", "3", "u@example.com", "Address");
+		projectManager.addArchitect(architect);
+		projectManager.addContractor(contractor);
+		projectManager.addCustomer(customer);
+	}
+
+	@AfterEach
+	void closeRepository() throws SQLException {
+		projectManager.getRepository().close();
+	}
+
+	@Test
+	void reportsProjectsInDeadlineOrderAsTheyFallDue() throws SQLException, InterruptedException {
+		addProject(5, "2030-03-10");
+		addProject(9, "2030-03-01");
+		addProject(2, "2030-03-01");
+		addProject(4, "2030-12-31");
+		addProject(6, "2030-03-05");
+
+		BlockingQueue<Integer> reported = new LinkedBlockingQueue<>();
+		try (OverdueScheduler scheduler = new OverdueScheduler(projectManager, clock)) {
+			scheduler.addOverdueListener(project -> reported.add(project.getProjectNumber()));
+			scheduler.start();
+			assertEquals(5, scheduler.getPendingCount());
+			assertEquals(0, scheduler.getOverdueCount());
+
+			// A finalised project is no longer followed
+			projectManager.finalizeProject(6, java.sql.Date.valueOf("2030-02-20"));
+
+			// A project saved with a deadline already passed falls due at once, and so does every
+			// project due by the clock's new time
+			clock.instant = Instant.parse("2030-06-01T00:00:00Z");
+			addProject(1, "2030-02-15");
+
+			List<Integer> order = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				order.add(reported.poll(10, TimeUnit.SECONDS));
+			}
+			assertEquals(List.of(1, 2, 9, 5), order);
+
+			List<Integer> overdue = new ArrayList<>();
+			scheduler.forEachOverdueProject(project -> overdue.add(project.getProjectNumber()));
+			assertEquals(List.of(1, 2, 9, 5), overdue);
+			assertEquals(1, scheduler.getPendingCount());
+		}
+	}
+
+	@Test
+	void projectsAlreadyOverdueAtStartAreListedButNotReported() throws SQLException {
+		addProject(3, "2030-01-20");
+		addProject(8, "2030-01-10");
+		addProject(7, "2030-02-01");
+
+		List<Integer> reported = new ArrayList<>();
+		try (OverdueScheduler scheduler = new OverdueScheduler(projectManager, clock)) {
+			scheduler.addOverdueListener(project -> reported.add(project.getProjectNumber()));
+			scheduler.start();
+
+			List<Integer> overdue = new ArrayList<>();
+			scheduler.forEachOverdueProject(project -> overdue.add(project.getProjectNumber()));
+			// A project is not overdue until its deadline day has ended
+			assertEquals(List.of(8, 3), overdue);
+			assertEquals(1, scheduler.getPendingCount());
+			assertEquals(List.of(), reported);
+		}
+	}
+
+	private void addProject(int projectNumber, String deadline) {
+		projectManager.addProject(new Project(0, projectNumber, "Project " + projectNumber, "House",
+				"Address", "ERF" + projectNumber, 100_000, 0, java.sql.Date.valueOf(deadline), null,
+				architect, contractor, customer));
+	}
+
+	/**
+	 * A clock in UTC whose time is set by the test.
+	 */
+	private static final class MovableClock extends Clock {
+		private volatile Instant instant;
+
+		MovableClock(Instant instant) {
+			this.instant = instant;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Instant instant() {
+			return instant;
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link ParticipantCache}.
+ */
+class ParticipantCacheTest {
+	private final ParticipantCache<String> cache = new ParticipantCache<>(10, 0);
+
+	@Test
+	void loadsAndCachesAMiss() {
+		assertEquals("first", cache.get(1, id -> "first"));
+		assertEquals("first", cache.get(1, id -> "second"));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	void invalidationDuringALoadWins() {
+		assertEquals("stale", cache.get(1, id -> {
+			cache.invalidate(id);
+			return "stale";
+		}));
+		assertNull(cache.getIfPresent(1));
+		assertEquals("fresh", cache.get(1, id -> "fresh"));
+	}
+
+	@Test
+	void invalidatingEverythingDuringALoadWins() {
+		cache.get(2, id -> {
+			cache.invalidateAll();
+			return "stale";
+		});
+		assertNull(cache.getIfPresent(2));
+	}
+
+	@Test
+	void putWithAnOldGenerationIsDropped() {
+		long generation = cache.generation();
+		cache.invalidate(3);
+		assertFalse(cache.put(3, "stale", generation));
+		assertNull(cache.getIfPresent(3));
+	}
+
+	@Test
+	void evictsTheLeastRecentlyUsedAtCapacity() {
+		ParticipantCache<String> small = new ParticipantCache<>(2, 0);
+		small.get(1, id -> "one");
+		small.get(2, id -> "two");
+		// Using 1 again leaves 2 as the least recently used
+		assertEquals("one", small.getIfPresent(1));
+		small.get(3, id -> "three");
+
+		assertEquals(2, small.size());
+		assertEquals(1, small.getEvictionCount());
+		assertNull(small.getIfPresent(2));
+		assertEquals("one", small.getIfPresent(1));
+		assertEquals("three", small.getIfPresent(3));
+	}
+
+	@Test
+	void expiresEntriesAfterTheirTimeToLive() {
+		AtomicLong now = new AtomicLong(0);
+		ParticipantCache<String> expiring = new ParticipantCache<>(10, 1_000,
+				UnaryOperator.identity(), now::get);
+		expiring.get(1, id -> "first");
+
+		now.set(TimeUnit.MILLISECONDS.toNanos(999));
+		assertEquals("first", expiring.getIfPresent(1));
+		now.set(TimeUnit.MILLISECONDS.toNanos(1_000));
+		assertNull(expiring.getIfPresent(1));
+
+		// An expired entry is loaded again, and lives for the full time from then
+		assertEquals("second", expiring.get(1, id -> "second"));
+		now.set(TimeUnit.MILLISECONDS.toNanos(1_999));
+		assertEquals("second", expiring.getIfPresent(1));
+	}
+
+	@Test
+	void callersEditCopiesRatherThanTheCachedParticipant() {
+		ParticipantCache<Architect> architects = new ParticipantCache<>(10, 0,
+				architect -> new Architect(architect.getId(), architect.getName(),
+						architect.getPhoneNumber(), architect.getEmail(), architect.getPhysicalAddress()));
+		Architect put = new Architect(1, "Mokoena", "1", "m@example.com", "Address");
+		architects.put(1, put);
+		put.setName("Edited after the put");
+
+		Architect found = architects.getIfPresent(1);
+		assertEquals("Mokoena", found.getName());
+		found.setName("Edited after the get");
+		assertNotSame(found, architects.getIfPresent(1));
+		assertEquals("Mokoena", architects.getIfPresent(1).getName());
+	}
+}
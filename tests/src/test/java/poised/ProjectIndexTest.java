@@ -0,0 +1,182 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link ProjectIndex} against the database.
+ */
+class ProjectIndexTest {
+	private static final java.sql.Date DEADLINE = java.sql.Date.valueOf("2030-01-31");
+	private static final java.sql.Date COMPLETED = java.sql.Date.valueOf("2030-02-15");
+
+	private ProjectManager projectManager;
+	private ProjectIndex index;
+	private Architect architect;
+	private Contractor contractor;
+	private Customer smith;
+	private Customer jones;
+
+	@BeforeEach
+	void addParticipants() throws SQLException {
+		new SchemaMigrator().migrate();
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = DatabaseConnection.getConnection();
+				Statement stmt = conn.createStatement()) {
+			stmt.executeUpdate("DELETE FROM Projects");
+			stmt.executeUpdate("DELETE FROM Architects");
+			stmt.executeUpdate("DELETE FROM Contractors");
+			stmt.executeUpdate("DELETE FROM Customers");
+		}
+		projectManager = new ProjectManager(new JdbcProjectRepository());
+		architect = new Architect(0, "Architect", "1", "a@example.com", "Address");
+		contractor = new Contractor(0, "Contractor", "2", "c@example.com", "Address");
+		smith = new Customer(0, "Smith", "3", "s@example.com", "Address");
+		jones = new Customer(0, "Jones", "4", "j@example.com", "Address");
+		projectManager.addArchitect(architect);
+		projectManager.addContractor(contractor);
+		projectManager.addCustomer(smith);
+		projectManager.addCustomer(jones);
+		index = new ProjectIndex(projectManager);
+	}
+
+	@AfterEach
+	void closeIndex() throws SQLException {
+		index.close();
+		projectManager.getRepository().close();
+	}
+
+	@Test
+	void labelsCustomerGroupsInOneQuery() throws SQLException {
+		addProject(1, smith, 100_000);
+		addProject(2, jones, 50_000);
+		addProject(3, smith, 25_000);
+		index.start();
+
+		RoundTripCounter.reset();
+		List<FeeSummary> groups = index.summarizeFees(FeeGrouping.CUSTOMER);
+		assertEquals(1, RoundTripCounter.get());
+		assertEquals(2, groups.size());
+		for (FeeSummary group : groups) {
+			Customer customer = group.getKey().equals(Integer.toString(smith.getId())) ? smith : jones;
+			assertEquals(customer.getName(), group.getLabel());
+		}
+		assertEquals(125_000, groups.stream()
+				.filter(group -> group.getLabel().equals("Smith"))
+				.findFirst().orElseThrow().getTotalFeeCents());
+
+		// Other groupings need no query at all
+		RoundTripCounter.reset();
+		index.summarizeFees(FeeGrouping.BUILDING_TYPE);
+		assertEquals(0, RoundTripCounter.get());
+	}
+
+	@Test
+	void writesThroughTheManagerKeepTheReportsAndFeeTotalsCurrent() throws SQLException {
+		addProject(1, smith, 100_000, java.sql.Date.valueOf("2020-01-10"));
+		addProject(2, jones, 50_000, java.sql.Date.valueOf("2020-03-01"));
+		addProject(3, smith, 25_000, DEADLINE);
+		index.start();
+
+		addProject(4, jones, 10_000, java.sql.Date.valueOf("2020-02-01"));
+		Project moved = projectManager.readProjectByNumber(3);
+		moved.setDeadline(java.sql.Date.valueOf("2020-01-05"));
+		moved.setAmountPaidCents(5_000);
+		assertEquals(UpdateResult.UPDATED, projectManager.saveProject(moved));
+		assertEquals(UpdateResult.UPDATED, projectManager.finalizeProject(1, COMPLETED));
+
+		// Each write is in the index as soon as it succeeds, without a refresh
+		RoundTripCounter.reset();
+		assertEquals(4, index.size());
+		assertEquals(List.of(2, 3, 4), incompleteNumbers(index));
+		assertEquals(List.of(3, 4, 2), overdueNumbers(index));
+		FeeSummary total = index.summarizeFees();
+		assertEquals(4, total.getProjectCount());
+		assertEquals(185_000, total.getTotalFeeCents());
+		assertEquals(5_000, total.getAmountPaidCents());
+		assertEquals(0, RoundTripCounter.get());
+		assertEquals(COMPLETED, index.findProjectByNumber(1).getCompletionDate());
+
+		// The reports and every fee total match an index loaded afresh from the database
+		ProjectIndex loaded = new ProjectIndex(projectManager);
+		loaded.reload();
+		assertEquals(incompleteNumbers(loaded), incompleteNumbers(index));
+		assertEquals(overdueNumbers(loaded), overdueNumbers(index));
+		assertEquals(loaded.summarizeFees().toString(), index.summarizeFees().toString());
+		for (FeeGrouping grouping : FeeGrouping.values()) {
+			assertEquals(loaded.summarizeFees(grouping).toString(),
+					index.summarizeFees(grouping).toString(), grouping.name());
+		}
+	}
+
+	@Test
+	void refreshReadsAgainChangesStampedJustBeforeTheNewest() throws SQLException {
+		addProject(1, smith, 100_000);
+		addProject(2, smith, 100_000);
+		addProject(3, jones, 100_000);
+		index.start();
+
+		// Other processes whose transactions committed after the index last read the table, half a
+		// second and five seconds after their statements ran
+		execute("UPDATE Projects SET project_name = 'Late', updated_at = DATEADD(MILLISECOND, -500, "
+				+ "(SELECT MAX(updated_at) FROM Projects)) WHERE project_number = 1");
+		execute("UPDATE Projects SET project_name = 'Too late', updated_at = DATEADD(MILLISECOND, "
+				+ "-5000, (SELECT MAX(updated_at) FROM Projects)) WHERE project_number = 2");
+		execute("UPDATE Projects SET completion_date = DATE '2030-02-15' WHERE project_number = 3");
+		index.refresh();
+
+		assertEquals("Late", index.findProjectByNumber(1).getProjectName());
+		assertEquals("Project 2", index.findProjectByNumber(2).getProjectName());
+		assertEquals(COMPLETED, index.findProjectByNumber(3).getCompletionDate());
+		assertEquals(List.of(1, 2), incompleteNumbers(index));
+
+		// A change older than the overlap is only picked up by a reload
+		index.refresh();
+		assertEquals("Project 2", index.findProjectByNumber(2).getProjectName());
+		index.reload();
+		assertEquals("Too late", index.findProjectByNumber(2).getProjectName());
+		assertNull(index.findProjectByNumber(1).getCompletionDate());
+		assertEquals(3, index.summarizeFees().getProjectCount());
+	}
+
+	private static List<Integer> incompleteNumbers(ProjectIndex index) {
+		List<Integer> numbers = new ArrayList<>();
+		index.forEachIncompleteProject(summary -> numbers.add(summary.getProjectNumber()));
+		return numbers;
+	}
+
+	private static List<Integer> overdueNumbers(ProjectIndex index) {
+		List<Integer> numbers = new ArrayList<>();
+		index.forEachOverdueProject(summary -> numbers.add(summary.getProjectNumber()));
+		return numbers;
+	}
+
+	private void addProject(int projectNumber, Customer customer, long totalFee) {
+		addProject(projectNumber, customer, totalFee, DEADLINE);
+	}
+
+	private void addProject(int projectNumber, Customer customer, long totalFee,
+			java.sql.Date deadline) {
+		projectManager.addProject(new Project(0, projectNumber, "Project " + projectNumber, "House",
+				"Address", "ERF" + projectNumber, totalFee, 0, deadline, null, architect, contractor,
+				customer));
+	}
+
+	private static void execute(String sql) throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = DatabaseConnection.getConnection();
+				Statement stmt = conn.createStatement()) {
+			stmt.executeUpdate(sql);
+		}
+	}
+}
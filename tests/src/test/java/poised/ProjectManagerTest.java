@@ -0,0 +1,33 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link ProjectManager} against the file repository.
+ */
+class ProjectManagerTest {
+	@TempDir
+	Path directory;
+
+	@Test
+	void failedParticipantReadIsRecordedAndNotCached() throws SQLException {
+		ProjectManager projectManager = new ProjectManager(
+				FileProjectRepository.open(directory.resolve("projects.db")));
+		Architect architect = new Architect(0, "Architect", "1", "a@example.com", "Address");
+		projectManager.addArchitect(architect);
+		projectManager.getRepository().close();
+
+		OperationMetrics metrics = Metrics.operation("findArchitectById");
+		long errors = metrics.snapshot().getErrorCount();
+		assertNull(projectManager.findArchitectById(architect.getId()));
+		assertEquals(errors + 1, metrics.snapshot().getErrorCount());
+		assertEquals(0, projectManager.getArchitectCache().size());
+	}
+}
@@ -0,0 +1,109 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link ProjectSearchIndex} against the file repository.
+ */
+class ProjectSearchIndexTest {
+	private static final java.sql.Date DEADLINE = java.sql.Date.valueOf("2030-01-31");
+
+	@TempDir
+	Path directory;
+
+	private ProjectManager projectManager;
+	private ProjectSearchIndex index;
+	private Architect architect;
+	private Contractor contractor;
+	private Customer customer;
+
+	@BeforeEach
+	void startIndex() throws SQLException {
+		projectManager = new ProjectManager(
+				FileProjectRepository.open(directory.resolve("projects.db")));
+		architect = new Architect(0, "Architect", "1", "a@example.com", "Address");
+		contractor = new Contractor(0, "Contractor", "2", "c@example.com", "Address");
+		customer = new Customer(0, "Customer", "3", "u@example.com", "Address");
+		projectManager.addArchitect(architect);
+		projectManager.addContractor(contractor);
+		projectManager.addCustomer(customer);
+		addProject(1, "Smith House", "12 Main Road, Cape Town", "ERF1001");
+		addProject(2, "Smithfield Warehouse", "3 Dock Road, Durban", "ERF2002");
+		addProject(3, "Jones Apartments", "7 Long Street, Cape Town", "ERF3003");
+
+		index = new ProjectSearchIndex(projectManager);
+		index.start();
+	}
+
+	@AfterEach
+	void closeIndex() throws SQLException {
+		index.close();
+		projectManager.getRepository().close();
+	}
+
+	@Test
+	void findsProjectsByPartOfAnyColumn() {
+		assertEquals(3, index.size());
+		assertEquals(List.of(3), numbers(index.search("Long Street", 10)));
+		assertEquals(List.of(2), numbers(index.search("erf2002", 10)));
+		assertEquals(List.of(3), numbers(index.search("jones-apartments", 10)));
+	}
+
+	@Test
+	void ranksTheClosestMatchFirst() {
+		List<ProjectMatch> matches = index.search("Smith House", 10);
+		assertEquals(1, matches.get(0).getProjectNumber());
+		for (int i = 1; i < matches.size(); i++) {
+			assertTrue(matches.get(i - 1).getScore() >= matches.get(i).getScore());
+		}
+		assertEquals(List.of(1), numbers(index.search("Smith House", 1)));
+	}
+
+	@Test
+	void toleratesMisspellings() {
+		assertEquals(List.of(3), numbers(index.search("Jnoes Apartmnts", 10)));
+		assertTrue(numbers(index.search("Main Raod", 10)).contains(1));
+	}
+
+	@Test
+	void followsWritesMadeThroughTheManager() throws SQLException {
+		addProject(4, "Ndlovu Clinic", "5 Hill Road, Pretoria", "ERF4004");
+		assertEquals(List.of(4), numbers(index.search("clinic", 10)));
+
+		Project project = projectManager.readLatestProjectByNumber(1);
+		project.setProjectName("Mokoena Lodge");
+		assertEquals(UpdateResult.UPDATED, projectManager.saveProject(project));
+		assertEquals(List.of(1), numbers(index.search("Mokoena", 10)));
+		assertFalse(numbers(index.search("Smith House", 10)).contains(1));
+
+		projectManager.deleteProject(4);
+		assertEquals(List.of(), numbers(index.search("clinic", 10)));
+		assertEquals(3, index.size());
+	}
+
+	@Test
+	void searchWithoutLettersOrDigitsFindsNothing() {
+		assertEquals(List.of(), index.search(" -,. ", 10));
+		assertEquals(List.of(), index.search("Smith", 0));
+	}
+
+	private void addProject(int projectNumber, String name, String address, String erfNumber) {
+		projectManager.addProject(new Project(0, projectNumber, name, "House", address, erfNumber,
+				100_000, 0, DEADLINE, null, architect, contractor, customer));
+	}
+
+	private static List<Integer> numbers(List<ProjectMatch> matches) {
+		return matches.stream().map(ProjectMatch::getProjectNumber).toList();
+	}
+}
@@ -0,0 +1,97 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Tests {@link ProjectSnapshot} between file repositories.
+ */
+class ProjectSnapshotTest {
+	private static final java.sql.Date DEADLINE = java.sql.Date.valueOf("2030-01-31");
+	private static final java.sql.Date COMPLETED = java.sql.Date.valueOf("2030-02-15");
+
+	@TempDir
+	Path directory;
+
+	static Stream<Boolean> compression() {
+		return Stream.of(false, true);
+	}
+
+	@ParameterizedTest
+	@MethodSource("compression")
+	void restoreReproducesTheExport(boolean compress) throws IOException, SQLException {
+		ProjectManager source = new ProjectManager(
+				FileProjectRepository.open(directory.resolve("source.db")));
+		ProjectManager target = new ProjectManager(
+				FileProjectRepository.open(directory.resolve("target.db")));
+		try {
+			Architect architect = new Architect(0, "Architect", "1", "a@example.com", "Address");
+			Contractor contractor = new Contractor(0, "Contractor", "2", "c@example.com", "Address");
+			Customer first = new Customer(0, "First", "3", "f@example.com", "Address");
+			Customer second = new Customer(0, "Second", "4", "s@example.com", "Address");
+			source.addArchitect(architect);
+			source.addContractor(contractor);
+			source.addCustomer(first);
+			source.addCustomer(second);
+			source.addProjects(List.of(
+					new Project(0, 7, "Smith House", "House", "12 Main Road, Cape Town", "ERF7",
+							250_000_00, 1_234_56, DEADLINE, null, architect, contractor, first),
+					new Project(0, -3, "Jones Block", "Apartment", "1 Long Street", "ERF3", 99,
+							99, DEADLINE, COMPLETED, architect, contractor, second)));
+
+			ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+			assertEquals(6, new ProjectSnapshot(source).export(snapshot, compress));
+			BulkImportResult result = new ProjectSnapshot(target)
+					.restore(new ByteArrayInputStream(snapshot.toByteArray()), BulkImportOptions.defaults());
+			assertEquals(2, result.getInsertedCount());
+			assertTrue(result.getFailedRows().isEmpty());
+
+			for (int projectNumber : new int[] { 7, -3 }) {
+				Project expected = source.readProjectByNumber(projectNumber);
+				Project restored = target.readProjectByNumber(projectNumber);
+				assertEquals(expected.getProjectName(), restored.getProjectName());
+				assertEquals(expected.getBuildingType(), restored.getBuildingType());
+				assertEquals(expected.getAddress(), restored.getAddress());
+				assertEquals(expected.getErfNumber(), restored.getErfNumber());
+				assertEquals(expected.getTotalFeeCents(), restored.getTotalFeeCents());
+				assertEquals(expected.getAmountPaidCents(), restored.getAmountPaidCents());
+				assertEquals(expected.getDeadline(), restored.getDeadline());
+				assertEquals(expected.getCompletionDate(), restored.getCompletionDate());
+				assertEquals(expected.getArchitect().getId(), restored.getArchitect().getId());
+				assertEquals(expected.getContractor().getId(), restored.getContractor().getId());
+				assertEquals(expected.getCustomer().getId(), restored.getCustomer().getId());
+				assertEquals(expected.getCustomer().getName(), restored.getCustomer().getName());
+			}
+		} finally {
+			source.getRepository().close();
+			target.getRepository().close();
+		}
+	}
+
+	@Test
+	void restoreRejectsOtherData() throws SQLException {
+		ProjectManager target = new ProjectManager(
+				FileProjectRepository.open(directory.resolve("target.db")));
+		try {
+			assertThrows(IOException.class, () -> new ProjectSnapshot(target).restore(
+					new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5, 6 }),
+					BulkImportOptions.defaults()));
+		} finally {
+			target.getRepository().close();
+		}
+	}
+}
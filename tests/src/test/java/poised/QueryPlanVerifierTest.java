@@ -0,0 +1,32 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link QueryPlanVerifier} against the test database, whose schema is built by
+ * {@link SchemaMigrator}.
+ */
+class QueryPlanVerifierTest {
+	@BeforeEach
+	void migrate() throws SQLException {
+		new SchemaMigrator().migrate();
+	}
+
+	@Test
+	void everyQueryIsAnsweredFromAnIndex() throws SQLException {
+		assertEquals(List.of(), new QueryPlanVerifier().verify());
+	}
+
+	@Test
+	void migratingAnUpToDateSchemaAppliesNothing() throws SQLException {
+		SchemaMigrator migrator = new SchemaMigrator();
+		assertEquals(List.of(), migrator.migrate());
+		assertEquals(migrator.getLatestVersion(), migrator.getCurrentVersion());
+	}
+}
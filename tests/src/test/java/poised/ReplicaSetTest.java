@@ -0,0 +1,180 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link ReplicaSet} routing with the test database as the primary and two more in-memory
+ * databases as replicas, whose copies of the heartbeat row the test sets to show how far each has
+ * caught up.
+ */
+class ReplicaSetTest {
+	private static final String LAGGING = "jdbc:h2:mem:poised-replica-lagging;MODE=MySQL;DB_CLOSE_DELAY=-1";
+	private static final String CAUGHT_UP = "jdbc:h2:mem:poised-replica-caught-up;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+	// The heartbeat count the primary and both replicas start from
+	private static final long START = 1_000;
+
+	private final List<String> unavailable = new CopyOnWriteArrayList<>();
+	private ReplicaSet replicas;
+
+	@BeforeEach
+	void startReplicas() throws SQLException {
+		new SchemaMigrator().migrate();
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = DatabaseConnection.getConnection()) {
+			setHeartbeat(conn, START);
+		}
+		for (String url : List.of(LAGGING, CAUGHT_UP)) {
+			// Try-with-resources to ensure resources are closed automatically
+			try (ConnectionPool pool = replicaPool(url);
+					Connection conn = pool.borrow();
+					Statement stmt = conn.createStatement()) {
+				stmt.executeUpdate(
+						"CREATE TABLE IF NOT EXISTS ReplicaHeartbeat (id INT PRIMARY KEY, beat BIGINT NOT NULL)");
+				stmt.executeUpdate("MERGE INTO ReplicaHeartbeat (id, beat) KEY (id) VALUES (1, 0)");
+				setHeartbeat(conn, START);
+			}
+		}
+
+		// Checked only when the test asks, and without a lag limit
+		replicas = new ReplicaSet(List.of(LAGGING, CAUGHT_UP), ReplicaSetTest::replicaPool,
+				TimeUnit.HOURS.toMillis(1), 0, new ReplicaHealthListener() {
+					@Override
+					public void replicaUnavailable(String url, String reason) {
+						unavailable.add(url + ": " + reason);
+					}
+
+					@Override
+					public void replicaAvailable(String url) {
+					}
+				});
+	}
+
+	@AfterEach
+	void closeReplicas() {
+		replicas.close();
+	}
+
+	@Test
+	void readsAfterAWriteOnlyGoToReplicasPastItsPosition() throws SQLException {
+		ReadSession writer = new ReadSession();
+		ReadSession other = new ReadSession();
+
+		// Both replicas show every heartbeat before this check
+		replicas.checkHealth();
+		write(writer);
+		long position = writer.getPosition();
+		assertEquals(START + 1, position);
+		assertEquals(Long.MIN_VALUE, other.getPosition());
+
+		// Showing the position itself is not enough: that heartbeat was written before the write
+		setReplicaHeartbeat(LAGGING, position);
+		setReplicaHeartbeat(CAUGHT_UP, position + 1);
+		replicas.checkHealth();
+		assertTrue(replicas.hasReached(position));
+		for (int i = 0; i < 4; i++) {
+			assertEquals(CAUGHT_UP, urlOf(replicas.borrow(writer.getPosition())));
+		}
+
+		// A session that has not written still uses both replicas
+		Set<String> used = new HashSet<>();
+		for (int i = 0; i < 4; i++) {
+			used.add(urlOf(replicas.borrow(other.getPosition())));
+		}
+		assertEquals(Set.of(LAGGING, CAUGHT_UP), used);
+
+		// Until a replica shows a later heartbeat, the writer reads from the primary
+		write(writer);
+		assertFalse(replicas.hasReached(writer.getPosition()));
+		assertNull(replicas.borrow(writer.getPosition()));
+		assertEquals(List.of(), unavailable);
+	}
+
+	@Test
+	void heartbeatsFromOtherProcessesCountToo() throws SQLException {
+		ReadSession writer = new ReadSession();
+		replicas.checkHealth();
+		write(writer);
+		assertEquals(START + 1, writer.getPosition());
+
+		// Another process's check counts on the same row, after the write
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = DatabaseConnection.getConnection();
+				Statement stmt = conn.createStatement()) {
+			stmt.executeUpdate("UPDATE ReplicaHeartbeat SET beat = beat + 1 WHERE id = 1");
+		}
+		// A replica showing that heartbeat has the write; the other, still at the start, does not
+		setReplicaHeartbeat(CAUGHT_UP, START + 2);
+		replicas.checkHealth();
+		for (int i = 0; i < 4; i++) {
+			assertEquals(CAUGHT_UP, urlOf(replicas.borrow(writer.getPosition())));
+		}
+
+		// Each check counts on from whatever the primary holds
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = DatabaseConnection.getConnection()) {
+			assertEquals(START + 3, DatabaseConnection.readPosition(conn));
+		}
+	}
+
+	/**
+	 * Makes a write on the primary and notes the position read after it in the session, as
+	 * {@link JdbcProjectRepository} does.
+	 */
+	private static void write(ReadSession session) throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (Connection conn = DatabaseConnection.getConnection();
+				Statement stmt = conn.createStatement()) {
+			stmt.executeUpdate("DELETE FROM Architects WHERE architect_id = -1");
+			session.wroteAt(DatabaseConnection.readPosition(conn));
+		}
+	}
+
+	private static void setReplicaHeartbeat(String url, long beat) throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (ConnectionPool pool = replicaPool(url);
+				Connection conn = pool.borrow()) {
+			setHeartbeat(conn, beat);
+		}
+	}
+
+	private static void setHeartbeat(Connection conn, long beat) throws SQLException {
+		// Try-with-resources to ensure resources are closed automatically
+		try (PreparedStatement stmt = conn
+				.prepareStatement("UPDATE ReplicaHeartbeat SET beat = ? WHERE id = 1")) {
+			stmt.setLong(1, beat);
+			stmt.executeUpdate();
+		}
+	}
+
+	private static String urlOf(Connection conn) throws SQLException {
+		assertNotNull(conn, "no replica was free and far enough along");
+		// Try-with-resources to ensure resources are closed automatically
+		try (conn) {
+			String url = conn.getMetaData().getURL();
+			return url.contains("lagging") ? LAGGING : CAUGHT_UP;
+		}
+	}
+
+	private static ConnectionPool replicaPool(String url) {
+		return new ConnectionPool(url, "sa", "", 0, 2, 60_000, 1_000, 8);
+	}
+}
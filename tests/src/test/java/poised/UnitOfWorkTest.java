@@ -0,0 +1,128 @@
+package poised;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Statement;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Tests {@link UnitOfWork} against the database and the file repository.
+ */
+class UnitOfWorkTest {
+	private static final java.sql.Date DEADLINE = java.sql.Date.valueOf("2030-01-31");
+	private static final java.sql.Date COMPLETED = java.sql.Date.valueOf("2030-02-15");
+
+	@TempDir
+	static Path directory;
+
+	private ProjectManager projectManager;
+
+	static Stream<String> storage() {
+		return Stream.of("jdbc", "file");
+	}
+
+	@AfterEach
+	void closeRepository() throws SQLException {
+		projectManager.getRepository().close();
+	}
+
+	@ParameterizedTest
+	@MethodSource("storage")
+	void updateThenFinalizeKeepsTheVersionInStep(String storage) throws SQLException {
+		Project project = addProject(storage, 1);
+
+		project.setAmountPaidCents(50_000);
+		UnitOfWork work = projectManager.beginUnitOfWork();
+		work.updateProject(project);
+		work.finalizeProject(project.getProjectNumber(), COMPLETED);
+		assertEquals(2, work.commit());
+		assertEquals(COMPLETED, project.getCompletionDate());
+
+		Project stored = projectManager.readLatestProjectByNumber(1);
+		assertNotNull(stored.getCompletionDate());
+		assertEquals(stored.getVersion(), project.getVersion());
+
+		project.setAmountPaidCents(60_000);
+		assertEquals(UpdateResult.UPDATED, projectManager.saveProject(project));
+	}
+
+	@ParameterizedTest
+	@MethodSource("storage")
+	void finalizingAProjectReadAtAnOldVersionRollsBack(String storage) throws SQLException {
+		Project stale = addProject(storage, 1);
+		Project current = projectManager.readLatestProjectByNumber(1);
+		current.setAmountPaidCents(10_000);
+		assertEquals(UpdateResult.UPDATED, projectManager.saveProject(current));
+
+		UnitOfWork work = projectManager.beginUnitOfWork();
+		work.finalizeProject(stale, COMPLETED);
+		assertThrows(SQLTransactionRollbackException.class, work::commit);
+		assertNull(projectManager.readLatestProjectByNumber(1).getCompletionDate());
+
+		work = projectManager.beginUnitOfWork();
+		work.finalizeProject(current, COMPLETED);
+		assertEquals(1, work.commit());
+		assertEquals(COMPLETED, current.getCompletionDate());
+		assertEquals(projectManager.readLatestProjectByNumber(1).getVersion(), current.getVersion());
+	}
+
+	@ParameterizedTest
+	@MethodSource("storage")
+	void finalizingByNumberAppliesAtAnyVersion(String storage) throws SQLException {
+		addProject(storage, 1);
+		Project other = projectManager.readLatestProjectByNumber(1);
+		other.setAmountPaidCents(10_000);
+		assertEquals(UpdateResult.UPDATED, projectManager.saveProject(other));
+
+		UnitOfWork work = projectManager.beginUnitOfWork();
+		work.finalizeProject(1, COMPLETED);
+		assertEquals(1, work.commit());
+		assertNotNull(projectManager.readLatestProjectByNumber(1).getCompletionDate());
+	}
+
+	/**
+	 * Opens an empty repository of the given kind and adds one project to it.
+	 *
+	 * @return The project as read back.
+	 */
+	private Project addProject(String storage, int projectNumber) throws SQLException {
+		if (storage.equals("jdbc")) {
+			new SchemaMigrator().migrate();
+			// Try-with-resources to ensure resources are closed automatically
+			try (Connection conn = DatabaseConnection.getConnection();
+					Statement stmt = conn.createStatement()) {
+				stmt.executeUpdate("DELETE FROM Projects");
+				stmt.executeUpdate("DELETE FROM Architects");
+				stmt.executeUpdate("DELETE FROM Contractors");
+				stmt.executeUpdate("DELETE FROM Customers");
+			}
+			projectManager = new ProjectManager(new JdbcProjectRepository());
+		} else {
+			projectManager = new ProjectManager(FileProjectRepository
+					.open(directory.resolve("unit-of-work-" + System.nanoTime() + ".db")));
+		}
+
+		Architect architect = new Architect(0, "Architect", "1", "a@example.com", "Address");
+		Contractor contractor = new Contractor(0, "Contractor", "2", "c@example.com", "Address");
+		Customer customer = new Customer(0, "Customer", "3", "u@example.com", "Address");
+		projectManager.addArchitect(architect);
+		projectManager.addContractor(contractor);
+		projectManager.addCustomer(customer);
+		projectManager.addProject(new Project(0, projectNumber, "Project " + projectNumber, "House",
+				"Address", "ERF" + projectNumber, 100_000, 0, DEADLINE, null, architect, contractor,
+				customer));
+		return projectManager.readLatestProjectByNumber(projectNumber);
+	}
+}